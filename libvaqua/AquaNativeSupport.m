@@ -21,6 +21,7 @@ static int VERSION = 3;
 #include <stdio.h>
 #include <assert.h>
 #include <math.h>
+#include <sys/xattr.h>
 
 #import <Cocoa/Cocoa.h>
 #import <CoreServices/CoreServices.h>
@@ -1050,6 +1051,125 @@ JNIEXPORT jint JNICALL Java_org_violetlib_aqua_fc_OSXFile_nativeGetBasicItemInfo
     return result;
 }
 
+/*
+ * Class:     org_violetlib_aqua_fc_OSXFile
+ * Method:    nativeGetFileInfo
+ * Signature: ([Ljava/lang/String;[I[I[I[Ljava/lang/String;)[Ljava/lang/String;
+ */
+JNIEXPORT jobjectArray JNICALL Java_org_violetlib_aqua_fc_OSXFile_nativeGetFileInfo
+    (JNIEnv *env, jclass javaClass, jobjectArray pathsJ, jintArray flagsJ, jintArray labelsJ,
+        jintArray kindIndexesJ, jobjectArray displayNamesJ)
+{
+    // Assert arguments
+    if (pathsJ == NULL || flagsJ == NULL || labelsJ == NULL || kindIndexesJ == NULL || displayNamesJ == NULL) {
+        return NULL;
+    }
+
+    jsize count = (*env)->GetArrayLength(env, pathsJ);
+    if ((*env)->GetArrayLength(env, flagsJ) < count
+            || (*env)->GetArrayLength(env, labelsJ) < count
+            || (*env)->GetArrayLength(env, kindIndexesJ) < count
+            || (*env)->GetArrayLength(env, displayNamesJ) < count) {
+        return NULL;
+    }
+
+    jobjectArray result = NULL;
+    jint *flags = malloc(count * sizeof(jint));
+    jint *labels = malloc(count * sizeof(jint));
+    jint *kindIndexes = malloc(count * sizeof(jint));
+    if (flags == NULL || labels == NULL || kindIndexes == NULL) {
+        free(flags);
+        free(labels);
+        free(kindIndexes);
+        return NULL;
+    }
+
+    COCOA_ENTER();
+
+    NSFileManager *fileManagerNS = [NSFileManager defaultManager];
+    NSArray *keys = [NSArray arrayWithObjects:NSURLLabelNumberKey, NSURLLocalizedTypeDescriptionKey, nil];
+    NSMutableDictionary *kindMap = [NSMutableDictionary dictionary];
+    NSMutableArray *kinds = [NSMutableArray array];
+
+    for (jsize i = 0; i < count; i++) {
+        flags[i] = 0;
+        labels[i] = -1;
+        kindIndexes[i] = -1;
+
+        jstring pathJ = (jstring) (*env)->GetObjectArrayElement(env, pathsJ, i);
+        if (pathJ == NULL) {
+            continue;
+        }
+
+        // Use a local pool to limit the memory used by a large directory
+        NSAutoreleasePool *localPool = [NSAutoreleasePool new];
+
+        const jchar *pathC = (*env)->GetStringChars(env, pathJ, NULL);
+        NSString *pathNS = [NSString stringWithCharacters:(UniChar *)pathC length:(*env)->GetStringLength(env, pathJ)];
+        (*env)->ReleaseStringChars(env, pathJ, pathC);
+        (*env)->DeleteLocalRef(env, pathJ);
+
+        NSURL *u = [NSURL fileURLWithPath:pathNS];
+        if (u != nil) {
+            LSItemInfoRecord itemInfoRecord;
+            OSStatus err = LSCopyItemInfoForURL((CFURLRef) u, kLSRequestBasicFlagsOnly, &itemInfoRecord);
+            if (err == 0) {
+                flags[i] = itemInfoRecord.flags;
+            }
+
+            NSDictionary *values = [u resourceValuesForKeys:keys error:nil];
+            if (values != nil) {
+                NSNumber *label = [values objectForKey:NSURLLabelNumberKey];
+                if (label != nil) {
+                    labels[i] = [label intValue];
+                }
+                NSString *kind = [values objectForKey:NSURLLocalizedTypeDescriptionKey];
+                if (kind != nil) {
+                    NSNumber *index = [kindMap objectForKey:kind];
+                    if (index == nil) {
+                        index = [NSNumber numberWithInt:(int) [kinds count]];
+                        [kinds addObject:kind];
+                        [kindMap setObject:index forKey:kind];
+                    }
+                    kindIndexes[i] = [index intValue];
+                }
+            }
+        }
+
+        NSString *displayNameNS = [fileManagerNS displayNameAtPath:pathNS];
+        if (displayNameNS != nil) {
+            jstring displayNameJ = TO_JAVA_STRING(displayNameNS);
+            (*env)->SetObjectArrayElement(env, displayNamesJ, i, displayNameJ);
+            (*env)->DeleteLocalRef(env, displayNameJ);
+        }
+
+        [localPool drain];
+    }
+
+    (*env)->SetIntArrayRegion(env, flagsJ, 0, count, flags);
+    (*env)->SetIntArrayRegion(env, labelsJ, 0, count, labels);
+    (*env)->SetIntArrayRegion(env, kindIndexesJ, 0, count, kindIndexes);
+
+    jclass stringClass = (*env)->FindClass(env, "java/lang/String");
+    jsize kindCount = (jsize) [kinds count];
+    result = (*env)->NewObjectArray(env, kindCount, stringClass, NULL);
+    if (result != NULL) {
+        for (jsize k = 0; k < kindCount; k++) {
+            jstring kindJ = TO_JAVA_STRING([kinds objectAtIndex:k]);
+            (*env)->SetObjectArrayElement(env, result, k, kindJ);
+            (*env)->DeleteLocalRef(env, kindJ);
+        }
+    }
+
+    COCOA_EXIT();
+
+    free(flags);
+    free(labels);
+    free(kindIndexes);
+
+    return result;
+}
+
 JNIEXPORT jstring JNICALL Java_org_violetlib_aqua_fc_OSXFile_nativeGetDisplayName
     (JNIEnv *env, jclass javaClass, jstring pathJ)
 {
@@ -1100,6 +1220,36 @@ JNIEXPORT jstring JNICALL Java_org_violetlib_aqua_fc_OSXFile_nativeGetFileUTI
     return result;
 }
 
+/*
+ * Class:     org_violetlib_aqua_fc_OSXFile
+ * Method:    nativeHasCustomIcon
+ * Signature: (Ljava/lang/String;)Z
+ */
+JNIEXPORT jboolean JNICALL Java_org_violetlib_aqua_fc_OSXFile_nativeHasCustomIcon
+    (JNIEnv *env, jclass javaClass, jstring jpath)
+{
+    jboolean result = JNI_FALSE;
+
+    COCOA_ENTER();
+
+    if (jpath != NULL) {
+        NSString *path = TO_NSPATH(jpath);
+        // The Finder flags are the big endian 16 bit value at offset 8 of the Finder information.
+        unsigned char finderInfo[32];
+        ssize_t count = getxattr([path fileSystemRepresentation], XATTR_FINDERINFO_NAME, finderInfo, sizeof(finderInfo), 0, 0);
+        if (count >= 10) {
+            int finderFlags = (finderInfo[8] << 8) | finderInfo[9];
+            if ((finderFlags & kHasCustomIcon) != 0) {
+                result = JNI_TRUE;
+            }
+        }
+    }
+
+    COCOA_EXIT();
+
+    return result;
+}
+
 /*
  * Class:     org_violetlib_aqua_fc_OSXFile
  * Method:    nativeGetLastUsedDate
@@ -132,7 +132,9 @@ public class AquaAppearances {
                 // Must be an older release
             }
             AquaAppearance appearance = getAquaAppearance(a);
+            ContextualColorTable.invalidateAll();
             SwingUtilities.invokeLater(() -> {
+                AquaImageFactory.appearanceChanged();
                 SystemPropertyChangeManager.notifyChange(APPEARANCE_CHANGE_TYPE);
             });
         } else {
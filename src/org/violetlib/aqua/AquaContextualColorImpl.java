@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2018-2021 Alan Snyder.
+ * Copyright (c) 2018-2026 Alan Snyder.
  * All rights reserved.
  *
  * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
@@ -45,6 +45,8 @@ public class AquaContextualColorImpl implements ContextualColor {
     // Most components use the same color when inactive or disabled.
     // In this case, either the disabled or inactive color name may be set.
 
+    private final @NotNull ContextualColorTable table = new ContextualColorTable(this::resolve);
+
     public AquaContextualColorImpl(@NotNull String colorName, @NotNull String basicName) {
         this.colorName = colorName;
         this.basicName = basicName;
@@ -61,6 +63,7 @@ public class AquaContextualColorImpl implements ContextualColor {
 
     public void setBasicName(@NotNull String basicName) {
         this.basicName = basicName;
+        table.clear();
     }
 
     public void setAllNames() {
@@ -88,6 +91,7 @@ public class AquaContextualColorImpl implements ContextualColor {
         this.disabledSelectedName = selectedName + "_disabled";
         this.inactiveDisabledSelectedName = selectedName + "_inactive_disabled";
         this.activeDefaultSelectedName = selectedName + "_focused";
+        table.clear();
     }
 
     public @Nullable String getRolloverName() {
@@ -96,6 +100,7 @@ public class AquaContextualColorImpl implements ContextualColor {
 
     public void setRolloverName(@Nullable String rolloverName) {
         this.rolloverName = rolloverName;
+        table.clear();
     }
 
     public @Nullable String getIconPressedName() {
@@ -104,6 +109,7 @@ public class AquaContextualColorImpl implements ContextualColor {
 
     public void setIconPressedName(@Nullable String iconPressedName) {
         this.iconPressedName = iconPressedName;
+        table.clear();
     }
 
     public @Nullable String getPressedSelectedName() {
@@ -112,6 +118,7 @@ public class AquaContextualColorImpl implements ContextualColor {
 
     public void setPressedSelectedName(@Nullable String pressedSelectedName) {
         this.pressedSelectedName = pressedSelectedName;
+        table.clear();
     }
 
     public @Nullable String getRolloverSelectedName() {
@@ -120,6 +127,7 @@ public class AquaContextualColorImpl implements ContextualColor {
 
     public void setRolloverSelectedName(@Nullable String rolloverSelectedName) {
         this.rolloverSelectedName = rolloverSelectedName;
+        table.clear();
     }
 
     public @Nullable String getPressedName() {
@@ -128,6 +136,7 @@ public class AquaContextualColorImpl implements ContextualColor {
 
     public void setPressedName(@Nullable String pressedName) {
         this.pressedName = pressedName;
+        table.clear();
     }
 
     public @Nullable String getInactiveDisabledSelectedName() {
@@ -136,6 +145,7 @@ public class AquaContextualColorImpl implements ContextualColor {
 
     public void setInactiveDisabledSelectedName(@Nullable String inactiveDisabledSelectedName) {
         this.inactiveDisabledSelectedName = inactiveDisabledSelectedName;
+        table.clear();
     }
 
     public @Nullable String getInactiveDisabledName() {
@@ -144,6 +154,7 @@ public class AquaContextualColorImpl implements ContextualColor {
 
     public void setInactiveDisabledName(@Nullable String inactiveDisabledName) {
         this.inactiveDisabledName = inactiveDisabledName;
+        table.clear();
     }
 
     public @Nullable String getDisabledSelectedName() {
@@ -152,6 +163,7 @@ public class AquaContextualColorImpl implements ContextualColor {
 
     public void setDisabledSelectedName(@Nullable String disabledSelectedName) {
         this.disabledSelectedName = disabledSelectedName;
+        table.clear();
     }
 
     public @Nullable String getDisabledName() {
@@ -160,6 +172,7 @@ public class AquaContextualColorImpl implements ContextualColor {
 
     public void setDisabledName(@Nullable String disabledName) {
         this.disabledName = disabledName;
+        table.clear();
     }
 
     public @Nullable String getInactiveSelectedName() {
@@ -168,6 +181,7 @@ public class AquaContextualColorImpl implements ContextualColor {
 
     public void setInactiveSelectedName(@Nullable String inactiveSelectedName) {
         this.inactiveSelectedName = inactiveSelectedName;
+        table.clear();
     }
 
     public @Nullable String getInactiveName() {
@@ -176,6 +190,7 @@ public class AquaContextualColorImpl implements ContextualColor {
 
     public void setInactiveName(@Nullable String inactiveName) {
         this.inactiveName = inactiveName;
+        table.clear();
     }
 
     public @Nullable String getSelectedName() {
@@ -184,6 +199,7 @@ public class AquaContextualColorImpl implements ContextualColor {
 
     public void setSelectedName(@Nullable String selectedName) {
         this.selectedName = selectedName;
+        table.clear();
     }
 
     public @Nullable String getActiveDefaultName() {
@@ -192,6 +208,7 @@ public class AquaContextualColorImpl implements ContextualColor {
 
     public void setActiveDefaultName(@Nullable String activeDefaultName) {
         this.activeDefaultName = activeDefaultName;
+        table.clear();
     }
 
     public @Nullable String getActiveDefaultSelectedName() {
@@ -200,14 +217,19 @@ public class AquaContextualColorImpl implements ContextualColor {
 
     public void setActiveDefaultSelectedName(@Nullable String activeDefaultSelectedName) {
         this.activeDefaultSelectedName = activeDefaultSelectedName;
+        table.clear();
     }
 
     @Override
     public @NotNull Color get(@NotNull AppearanceContext context) {
+        return get(context, context.isSelected());
+    }
+
+    @Override
+    public @NotNull Color get(@NotNull AppearanceContext context, boolean isSelected) {
 
         AquaAppearance appearance = context.getAppearance();
         AquaUIPainter.State state = context.getState();
-        boolean isSelected = context.isSelected();
         boolean isIcon = context.isIcon();
 
         if (AquaColors.isDebugging()) {
@@ -220,7 +242,28 @@ public class AquaContextualColorImpl implements ContextualColor {
                 message = message + " ICON";
             }
             Utils.logDebug(message);
+        } else {
+            Color c = table.get(appearance, state, isSelected, isIcon);
+            if (c != null) {
+                return c;
+            }
+        }
+
+        Color c = resolve(appearance, state, isSelected, isIcon);
+        if (c != null) {
+            return c;
         }
+        throw new UnsupportedOperationException("No color defined for: " + basicName);
+    }
+
+    /**
+     * Determine the color to use in the specified context using the appearance color names.
+     * @return the color, or null if no color is defined.
+     */
+    protected @Nullable Color resolve(@NotNull AquaAppearance appearance,
+                                      @NotNull AquaUIPainter.State state,
+                                      boolean isSelected,
+                                      boolean isIcon) {
 
         if (state == ROLLOVER) {
             if (isSelected && rolloverSelectedName != null) {
@@ -382,13 +425,6 @@ public class AquaContextualColorImpl implements ContextualColor {
             }
         }
 
-        {
-            Color c = appearance.getColor(basicName);
-            if (c != null) {
-                return c;
-            }
-        }
-
-        throw new UnsupportedOperationException("No color defined for: " + basicName);
+        return appearance.getColor(basicName);
     }
 }
@@ -41,6 +41,9 @@ import java.awt.image.RGBImageFilter;
 import java.io.File;
 import java.net.URL;
 import java.security.PrivilegedAction;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
 import java.util.Objects;
 import java.util.function.Function;
 import javax.swing.*;
@@ -71,6 +74,10 @@ public class AquaImageFactory {
 
     private static final AquaImageCache imageCache = new AquaImageCache();
 
+    // Registered sets of template images that are tinted as a group.
+    private static final List<TemplateTintAtlas> tintAtlases = new ArrayList<>();
+    private static @Nullable TemplateTintAtlas menuTintAtlas;
+
     static class AquaImageCache extends ProcessedImageCache {
         @Override
         protected boolean determineTemplateImage(@NotNull Image source) {
@@ -86,6 +93,11 @@ public class AquaImageFactory {
         protected @NotNull Image createProcessedImage(@NotNull Image source, @NotNull Object operator) {
             return AquaImageFactory.createProcessedImage(source, operator);
         }
+
+        @Override
+        protected @NotNull String getOperatorName(@NotNull Object operator) {
+            return AquaImageFactory.getOperatorName(operator);
+        }
     }
 
     private static ImageIcon regularPopupMenuCheckIcon;
@@ -412,6 +424,12 @@ public class AquaImageFactory {
         protected final int totalWidth, totalHeight;
         protected final int centerColWidth, centerRowHeight;
 
+        // Renderings larger than this are not cached.
+        private static final int MAXIMUM_CACHED_PIXEL_COUNT = 512 * 512;
+
+        private long renderCacheHitCount;
+        private long renderCacheMissCount;
+
         public SlicedImageControl(Image img, int westCut, int eastCut, int northCut, int southCut) {
             this(img, westCut, eastCut, northCut, southCut, true);
         }
@@ -459,6 +477,13 @@ public class AquaImageFactory {
         }
 
         public void paint(Graphics g, int x, int y, int w, int h) {
+            if (w > 0 && h > 0 && (long) w * h <= MAXIMUM_CACHED_PIXEL_COUNT) {
+                int scaleFactor = JavaSupport.getScaleFactor(g);
+                Image rendering = getRendering(w, h, scaleFactor);
+                g.drawImage(rendering, x, y, w, h, null);
+                return;
+            }
+
             g.translate(x, y);
 
             if (w < totalWidth || h < totalHeight) {
@@ -470,6 +495,42 @@ public class AquaImageFactory {
             g.translate(-x, -y);
         }
 
+        /**
+         * Return the number of paint requests that were satisfied by a cached rendering.
+         */
+        public long getRenderCacheHitCount() {
+            return renderCacheHitCount;
+        }
+
+        /**
+         * Return the number of paint requests that required a new rendering.
+         */
+        public long getRenderCacheMissCount() {
+            return renderCacheMissCount;
+        }
+
+        private @NotNull Image getRendering(int w, int h, int scaleFactor) {
+            VImageCache cache = VImageCache.getInstance();
+            RenderingKey key = new RenderingKey(this, w, h, scaleFactor);
+            Image rendering = cache.getImage(key);
+            if (rendering != null) {
+                renderCacheHitCount++;
+                return rendering;
+            }
+            renderCacheMissCount++;
+            BufferedImage im = new BufferedImage(w * scaleFactor, h * scaleFactor, BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D g = im.createGraphics();
+            g.scale(scaleFactor, scaleFactor);
+            if (w < totalWidth || h < totalHeight) {
+                paintCompressed(g, w, h);
+            } else {
+                paintStretchedMiddles(g, w, h);
+            }
+            g.dispose();
+            cache.setImage(key, im);
+            return im;
+        }
+
         void paintStretchedMiddles(Graphics g, int w, int h) {
             int baseX = metrics.stretchH ? 0 : ((w / 2) - (totalWidth / 2));
             int baseY = metrics.stretchV ? 0 : ((h / 2) - (totalHeight / 2));
@@ -523,6 +584,44 @@ public class AquaImageFactory {
         }
     }
 
+    private static class RenderingKey implements VImageCache.PixelsKey {
+        private final @NotNull SlicedImageControl control;
+        private final int width;
+        private final int height;
+        private final int scaleFactor;
+
+        RenderingKey(@NotNull SlicedImageControl control, int width, int height, int scaleFactor) {
+            this.control = control;
+            this.width = width;
+            this.height = height;
+            this.scaleFactor = scaleFactor;
+        }
+
+        @Override
+        public int getPixelCount() {
+            return width * height;
+        }
+
+        @Override
+        public int getScaleFactor() {
+            return scaleFactor;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (o == null || getClass() != o.getClass()) return false;
+            RenderingKey that = (RenderingKey) o;
+            return control == that.control && width == that.width && height == that.height
+              && scaleFactor == that.scaleFactor;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(System.identityHashCode(control), width, height, scaleFactor);
+        }
+    }
+
     /**
      * Obtain a native image with a specified logical size.
      */
@@ -544,10 +643,12 @@ public class AquaImageFactory {
     }
 
     private static class LightenOperator {
-        int percent;
+        final int percent;
+        final @NotNull PixelOperation operation;
 
         public LightenOperator(int percent) {
             this.percent = percent;
+            this.operation = PixelOperation.createGrayFilterOperation(true, percent);
         }
 
         @Override
@@ -564,106 +665,35 @@ public class AquaImageFactory {
         }
     }
 
+    private static final PixelOperation selectedDarkOperation
+            = PixelOperation.createGraySubtractOperation(gray -> gray * 75 / 100);
+    private static final PixelOperation pressedDarkOperation = PixelOperation.createDarkenOperation(40);
+    private static final PixelOperation disabledLightOperation = PixelOperation.createLightenOperation(50);
+    private static final PixelOperation invertForDarkModeOperation
+            = PixelOperation.createGrayReplaceOperation(gray -> (int) ((255 - gray) * 0.7));
+
     private static @NotNull Image createProcessedImage(@NotNull Image source, @NotNull Object operator) {
         if (operator == DARKEN_FOR_SELECTION) {
-            return applyFilter(source, new GenerateSelectedDarkFilter());
+            return selectedDarkOperation.applyTo(source);
         }
         if (operator == DARKEN_FOR_PRESSED) {
-            return applyFilter(source, new GeneratePressedDarkFilter());
+            return pressedDarkOperation.applyTo(source);
         }
         if (operator == LIGHTEN_FOR_DISABLED) {
-            return applyFilter(source, new GenerateDisabledLightFilter());
+            return disabledLightOperation.applyTo(source);
         }
         if (operator instanceof LightenOperator) {
-            int percent = ((LightenOperator) operator).percent;
-            GrayFilter filter = new GrayFilter(true, percent);
-            return AquaMultiResolutionImage.apply(source, filter);
+            return ((LightenOperator) operator).operation.applyTo(source);
         }
         if (operator == INVERT_FOR_DARK_MODE) {
             if (isTemplateImage(source)) {
                 return source;
             }
-            return applyFilter(source, new InvertImageForDarkModeFilter());
+            return invertForDarkModeOperation.applyTo(source);
         }
         return source;
     }
 
-    private static class GenerateSelectedDarkFilter extends IconImageFilter {
-        @Override
-        int getGreyFor(int gray) {
-            return gray * 75 / 100;
-        }
-    }
-
-    private static class GeneratePressedDarkFilter extends RGBImageFilter {
-        public GeneratePressedDarkFilter() {
-            canFilterIndexColorModel = true;
-        }
-
-        @Override
-        public int filterRGB(int x, int y, int rgb) {
-            int red = (rgb >> 16) & 0xff;
-            int green = (rgb >> 8) & 0xff;
-            int blue = rgb & 0xff;
-
-            return (rgb & 0xff000000) | (transform(red) << 16) | (transform(green) << 8) | (transform(blue) << 0);
-        }
-
-        protected int transform(int c) {
-            int result = (c * 40) / 100;
-            if (result < 0) result = 0;
-            if (result > 255) result = 255;
-            return result;
-        }
-    }
-
-    private static class GenerateDisabledLightFilter extends RGBImageFilter {
-        public GenerateDisabledLightFilter() {
-            canFilterIndexColorModel = true;
-        }
-
-        @Override
-        public int filterRGB(int x, int y, int rgb) {
-            int red = (rgb >> 16) & 0xff;
-            int green = (rgb >> 8) & 0xff;
-            int blue = rgb & 0xff;
-
-            return (rgb & 0xff000000) | (transform(red) << 16) | (transform(green) << 8) | (transform(blue) << 0);
-        }
-
-        protected int transform(int c) {
-            int result = 255 - ((255 - c) * 50) / 100;
-            if (result < 0) result = 0;
-            if (result > 255) result = 255;
-            return result;
-        }
-    }
-
-    private abstract static class IconImageFilter extends RGBImageFilter {
-        IconImageFilter() {
-            canFilterIndexColorModel = true;
-        }
-
-        @Override
-        public final int filterRGB(int x, int y, int rgb) {
-            int red = (rgb >> 16) & 0xff;
-            int green = (rgb >> 8) & 0xff;
-            int blue = rgb & 0xff;
-            int gray = getGreyFor((int) ((0.30 * red + 0.59 * green + 0.11 * blue) / 3));
-
-            return (rgb & 0xff000000) | (grayTransform(red, gray) << 16) | (grayTransform(green, gray) << 8) | (grayTransform(blue, gray) << 0);
-        }
-
-        private static int grayTransform(int color, int gray) {
-            int result = color - gray;
-            if (result < 0) result = 0;
-            if (result > 255) result = 255;
-            return result;
-        }
-
-        abstract int getGreyFor(int gray);
-    }
-
     /**
      * Determine whether an image is a template image. A template image is an image that contains only clear or
      * (possibly translucent) black pixels.
@@ -725,6 +755,126 @@ public class AquaImageFactory {
         return imageCache.getProcessedImage(icon, operator);
     }
 
+    /**
+     * Discard processed images that may depend upon the current appearance. Called when the system appearance has
+     * changed or the colors associated with the existing system appearance may have changed.
+     */
+    public static void appearanceChanged() {
+        imageCache.flush(operator -> operator instanceof Color);
+        for (TemplateTintAtlas atlas : getTintAtlases()) {
+            atlas.flush();
+        }
+    }
+
+    /**
+     * Register a set of template icons that are likely to be displayed together, such as the icons in a menu or a
+     * tool bar. The template images of these icons are tinted as a group, which avoids tinting each icon separately
+     * when it is first displayed with a new color.
+     * @param icons The icons. Icons that do not have template images are ignored.
+     * @return the atlas containing the template images.
+     */
+    public static @NotNull TemplateTintAtlas registerTemplateIcons(@NotNull Collection<? extends Icon> icons) {
+        List<Image> images = new ArrayList<>(icons.size());
+        for (Icon icon : icons) {
+            Image im = AquaIcon.getImageForIcon(icon);
+            if (im != null && isTemplateImage(im)) {
+                images.add(im);
+            }
+        }
+        TemplateTintAtlas atlas = new TemplateTintAtlas(images);
+        synchronized (tintAtlases) {
+            tintAtlases.add(atlas);
+        }
+        return atlas;
+    }
+
+    /**
+     * Register the template icons used to paint menu items, so that they are tinted as a group. This method is called
+     * when the look and feel is initialized. The icons are registered only once.
+     */
+    public static synchronized void registerMenuTemplateIcons() {
+        if (menuTintAtlas == null) {
+            List<Icon> icons = new ArrayList<>();
+            icons.add(getMenuItemCheckIcon());
+            icons.add(getMenuItemDashIcon());
+            icons.add(getMenuArrowIcon());
+            icons.add(getRegularPopupMenuItemCheckIcon());
+            icons.add(getSmallPopupMenuItemCheckIcon());
+            icons.add(getMiniPopupMenuItemCheckIcon());
+            menuTintAtlas = registerTemplateIcons(icons);
+        }
+    }
+
+    /**
+     * Remove a previously registered set of template icons.
+     */
+    public static void unregisterTemplateIcons(@NotNull TemplateTintAtlas atlas) {
+        synchronized (tintAtlases) {
+            tintAtlases.remove(atlas);
+        }
+        imageCache.flush(operator -> operator instanceof Color);
+    }
+
+    private static @NotNull List<TemplateTintAtlas> getTintAtlases() {
+        synchronized (tintAtlases) {
+            return new ArrayList<>(tintAtlases);
+        }
+    }
+
+    private static @Nullable TemplateTintAtlas findTintAtlas(@NotNull Image template) {
+        synchronized (tintAtlases) {
+            for (TemplateTintAtlas atlas : tintAtlases) {
+                if (atlas.contains(template)) {
+                    return atlas;
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Discard all processed images.
+     */
+    public static void flushProcessedImages() {
+        imageCache.flush();
+    }
+
+    /**
+     * Specify the maximum estimated number of bytes used by cached processed images.
+     */
+    public static void setProcessedImageCacheByteBudget(long byteBudget) {
+        imageCache.setByteBudget(byteBudget);
+    }
+
+    /**
+     * Return statistics for the cached processed images, one entry per kind of operator.
+     */
+    public static @NotNull List<ProcessedImageCache.OperatorStatistics> getProcessedImageStatistics() {
+        return imageCache.getStatistics();
+    }
+
+    private static @NotNull String getOperatorName(@NotNull Object operator) {
+        if (operator instanceof Color) {
+            return "Template";
+        }
+        if (operator == DARKEN_FOR_SELECTION) {
+            return "DarkenForSelection";
+        }
+        if (operator == DARKEN_FOR_PRESSED) {
+            return "DarkenForPressed";
+        }
+        if (operator == LIGHTEN_FOR_DISABLED) {
+            return "LightenForDisabled";
+        }
+        if (operator instanceof LightenOperator) {
+            return "Lighten" + ((LightenOperator) operator).percent;
+        }
+        if (operator == INVERT_FOR_DARK_MODE) {
+            return "InvertForDarkMode";
+        }
+        return operator.getClass().getSimpleName();
+    }
+
     /**
      * Create an image by replacing the visible pixels in a template image with the specified color. A template image
      * is an image that contains only clear or (possibly translucent) black pixels.
@@ -733,6 +883,13 @@ public class AquaImageFactory {
      * @return the new image, or null if the source image is not a template image.
      */
     private static Image createImageFromTemplate(Image image, Color replacementColor) {
+        TemplateTintAtlas atlas = findTintAtlas(image);
+        if (atlas != null) {
+            Image result = atlas.getTintedImage(image, replacementColor);
+            if (result != null) {
+                return result;
+            }
+        }
         return JavaSupport.applyMapper(image, (Function) new TemplateApplicator(replacementColor));
     }
 
@@ -835,22 +992,6 @@ public class AquaImageFactory {
         }
     }
 
-    private static class InvertImageForDarkModeFilter extends RGBImageFilter {
-
-        public InvertImageForDarkModeFilter() {
-            canFilterIndexColorModel = true;
-        }
-
-        public int filterRGB(int x, int y, int rgb) {
-            // Use NTSC conversion formula.
-            int gray = (int)((0.30 * ((rgb >> 16) & 0xff) + 0.59 * ((rgb >> 8) & 0xff) + 0.11 * (rgb & 0xff)) / 3);
-            gray = (int) ((255 - gray) * 0.7);
-            if (gray < 0) gray = 0;
-            if (gray > 255) gray = 255;
-            return (rgb & 0xff000000) | (gray << 16) | (gray << 8) | (gray << 0);
-        }
-    }
-
     private static @NotNull Image waitForImage(@NotNull Image image) {
         boolean[] mutex = new boolean[] { false };
         ImageObserver observer = (Image img, int infoflags, int x, int y, int width, int height) -> {
@@ -639,7 +639,7 @@ public class AquaListUI extends BasicListUI implements AquaComponentUI, AquaView
     }
 
     /**
-     * Paint stripes, if appropriate.
+     * Paint stripes, if appropriate. Only the rows that intersect the clip are painted.
      */
     public void paintStripes(Graphics g) {
 
@@ -655,24 +655,30 @@ public class AquaListUI extends BasicListUI implements AquaComponentUI, AquaView
             if (rh <= 0) {
                 rh = (n == 0) ? 12 : getCellBounds(list, 0, 0).height;
             }
+            if (rh <= 0) {
+                return;
+            }
             int visibleRowCount = (int) Math.ceil(Math.abs(vs.getHeight() / rh));
-            int row = 0;
-            int y = s.top;
+            Rectangle clip = g.getClipBounds();
+            int firstRow = RowBandPainter.getFirstRow(clip, s.top, rh);
+            int lastRow = RowBandPainter.getLastRow(clip, s.top, rh, visibleRowCount);
             ListSelectionModel selectionModel = list.getSelectionModel();
+            boolean isInset = isInset();
+            RowBandPainter bp = new RowBandPainter(g, 0, vs.width);
 
-            while (row < visibleRowCount) {
-                boolean isSelected = selectionModel.isSelectedIndex(row);
-                colors.configureForRow(row, isSelected && !isInset());
+            for (int row = firstRow; row <= lastRow; row++) {
+                int y = s.top + row * rh;
+                boolean isSelected = row < n && selectionModel.isSelectedIndex(row);
+                colors.configureForRow(row, isSelected && !isInset);
                 Color background = colors.getBackground(appearanceContext);
-                g.setColor(background);
-                if (isInset()) {
+                if (isInset) {
+                    g.setColor(background);
                     AquaUtils.paintInsetStripedRow(gg, 0, y, vs.width, rh);
                 } else {
-                    g.fillRect(0, y, vs.width, rh);
+                    bp.paintRow(background, y, rh);
                 }
-                row++;
-                y += rh;
             }
+            bp.flush();
         }
     }
 
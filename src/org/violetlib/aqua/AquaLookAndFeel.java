@@ -119,6 +119,8 @@ public class AquaLookAndFeel extends BasicLookAndFeel {
         }
 
         UIManager.addPropertyChangeListener(uiChangeListener);
+
+        AquaImageFactory.registerMenuTemplateIcons();
     }
 
     public void uninitialize() {
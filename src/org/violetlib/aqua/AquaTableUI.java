@@ -792,6 +792,9 @@ public class AquaTableUI extends BasicTableUI
             int editingColumn = table.getEditingColumn();
             int tableWidth = table.getWidth();
 
+            // Runs of rows with the same background are painted using one fill
+            RowBandPainter bp = new RowBandPainter(g, clip.x, clip.width);
+
             for (int row = rMin; row <= rMax; row++) {
                 Rectangle cellRect = table.getCellRect(row, cMin, true);
                 boolean isSelected = isRowSelection && table.isRowSelected(row);
@@ -811,9 +814,9 @@ public class AquaTableUI extends BasicTableUI
                         rowBackground = c;
                     }
                 }
-                g.setColor(rowBackground);
 
                 if (isInset) {
+                    g.setColor(rowBackground);
                     if (isSelected) {
                         int y = cellRect.y;
                         int h = cellRect.height;
@@ -824,7 +827,7 @@ public class AquaTableUI extends BasicTableUI
                         AquaUtils.paintInsetStripedRow(gg, 0, cellRect.y, tableWidth, cellRect.height);
                     }
                 } else {
-                    g.fillRect(clip.x, cellRect.y, clip.width, cellRect.height);
+                    bp.paintRow(rowBackground, cellRect.y, cellRect.height);
                 }
 
                 // Sometimes it is useful to paint a special background color under the cell being edited to improve
@@ -834,6 +837,7 @@ public class AquaTableUI extends BasicTableUI
                   && shouldPaintSpecialEditedCellBackground()) {
                     Color b = AquaColors.getCellEditorBackground(table);
                     if (b != null) {
+                        bp.flush();
                         Rectangle editorCellRect = table.getCellRect(row, editingColumn, true);
                         int x1 = editorCellRect.x;
                         int x2 = x1 + editorCellRect.width;
@@ -851,6 +855,12 @@ public class AquaTableUI extends BasicTableUI
                     int rowHeight = table.getRowHeight();
                     if (rowHeight > 0) {
                         int row = rMax + 1;
+                        if (nextRowY + rowHeight <= clip.y) {
+                            // skip the rows above the clip
+                            int skipped = (clip.y - nextRowY) / rowHeight;
+                            row += skipped;
+                            nextRowY += skipped * rowHeight;
+                        }
                         while (nextRowY < clipTop) {
                             colors.configureForRow(row, false);
                             AppearanceContext ac = appearanceContext;
@@ -858,11 +868,11 @@ public class AquaTableUI extends BasicTableUI
                                 ac = appearanceContext.withState(ACTIVE);
                             }
                             Color bg = colors.getBackground(ac);
-                            g.setColor(bg);
                             if (isInset) {
+                                g.setColor(bg);
                                 AquaUtils.paintInsetStripedRow(gg, 0, nextRowY, tableWidth, rowHeight);
                             } else {
-                                g.fillRect(clip.x, nextRowY, clip.width, rowHeight);
+                                bp.paintRow(bg, nextRowY, rowHeight);
                             }
                             row++;
                             nextRowY += rowHeight;
@@ -871,6 +881,8 @@ public class AquaTableUI extends BasicTableUI
                 }
             }
 
+            bp.flush();
+
             // TBD: should selected column be painted here or is it OK for just the cells to paint the selection background?
         }
 
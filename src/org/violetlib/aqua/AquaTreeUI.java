@@ -80,6 +80,13 @@ public class AquaTreeUI extends BasicTreeUI implements SelectionRepaintable, Aqu
 
     public static final String SELECTION_FOREGROUND_KEY = "JTree.selectionForeground";
 
+    /**
+     * A client property that selects the layout cache used for trees with variable row heights. If the value is
+     * Boolean.TRUE, the row geometry is maintained in an index that supports logarithmic time updates and queries,
+     * which is recommended for trees with a large number of visible rows.
+     */
+    public static final String INDEXED_LAYOUT_KEY = "JTree.indexedLayout";
+
     private static final int DEFAULT_INDENTATION = 16;
     private static final int SIDEBAR_INDENTATION = 13;
 
@@ -1732,9 +1739,29 @@ public class AquaTreeUI extends BasicTreeUI implements SelectionRepaintable, Aqu
         if(isLargeModel() && getRowHeight() > 0) {
             return new FixedHeightLayoutCache();
         }
+        if (isIndexedLayout()) {
+            return new MyIndexedVariableHeightLayoutCache();
+        }
         return new MyVariableHeightLayoutCache();
     }
 
+    protected boolean isIndexedLayout() {
+        return tree != null && Boolean.TRUE.equals(tree.getClientProperty(INDEXED_LAYOUT_KEY));
+    }
+
+    protected void indexedLayoutChanged() {
+        if (isIndexedLayout() != (treeState instanceof IndexedVariableHeightLayoutCache)) {
+            completeEditing();
+            if (treeState != null) {
+                treeState.setNodeDimensions(null);
+            }
+            treeState = createLayoutCache();
+            configureLayoutCache();
+            updateLayoutCacheExpandedNodes();
+            updateSize();
+        }
+    }
+
     protected class MyVariableHeightLayoutCache
       extends ExtendedVariableHeightLayoutCache
     {
@@ -1744,6 +1771,30 @@ public class AquaTreeUI extends BasicTreeUI implements SelectionRepaintable, Aqu
         }
     }
 
+    protected class MyIndexedVariableHeightLayoutCache
+      extends IndexedVariableHeightLayoutCache
+    {
+        private boolean isUpdatePending;
+
+        @Override
+        protected int getRowSpacingAbove(int row, @NotNull TreePath path) {
+            return getStyleRowSpacingAbove(path);
+        }
+
+        @Override
+        protected void estimatedSizesChanged() {
+            if (!isUpdatePending) {
+                isUpdatePending = true;
+                SwingUtilities.invokeLater(() -> {
+                    isUpdatePending = false;
+                    if (treeState == this) {
+                        updateSize();
+                    }
+                });
+            }
+        }
+    }
+
     protected void updateCellSizes() {
         int h = Math.max(tree.getRowHeight(), -1);
         LookAndFeel.installProperty(tree, "rowHeight", h + 1);
@@ -1752,8 +1803,11 @@ public class AquaTreeUI extends BasicTreeUI implements SelectionRepaintable, Aqu
     }
 
     private int getStyleRowSpacingAbove(int row) {
+        return isSideBar() ? getStyleRowSpacingAbove(getPathForRow(tree, row)) : 0;
+    }
+
+    private int getStyleRowSpacingAbove(@Nullable TreePath path) {
         if (isSideBar()) {
-            TreePath path = getPathForRow(tree, row);
             if (path != null && path.getPathCount() == 2) {
                 if (OSXSystemProperties.OSVersion >= 1016) {
                     return 14;
@@ -1846,6 +1900,9 @@ public class AquaTreeUI extends BasicTreeUI implements SelectionRepaintable, Aqu
             } else if (pn.equals("transferHandler")) {
                 configureDropTargetListener();
                 return;
+            } else if (INDEXED_LAYOUT_KEY.equals(pn)) {
+                indexedLayoutChanged();
+                return;
             } else if (pn.equals(JTree.CELL_EDITOR_PROPERTY)) {
                 cellEditorChanged();
             } else if (pn.equals(JTree.CELL_RENDERER_PROPERTY)) {
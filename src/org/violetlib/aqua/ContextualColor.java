@@ -32,4 +32,17 @@ public interface ContextualColor {
      */
 
     @NotNull Color get(@NotNull AppearanceContext context);
+
+    /**
+     * Return the color to use in a specified context, with the specified selection attribute. This method avoids
+     * creating a modified context.
+     * @param context The context.
+     * @param isSelected The selection attribute, which replaces the selection attribute of {@code context}.
+     * @return the color.
+     * @throws UnsupportedOperationException if no color is defined.
+     */
+
+    default @NotNull Color get(@NotNull AppearanceContext context, boolean isSelected) {
+        return get(context.withSelected(isSelected));
+    }
 }
@@ -0,0 +1,136 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.aqua;
+
+import java.awt.*;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.violetlib.jnr.aqua.AquaUIPainter;
+
+/**
+ * The resolved colors of a contextual color. For each appearance, a table is created that contains the color for
+ * every combination of state, selection, and icon attributes. Once the table is created, obtaining a color requires
+ * no name construction, no map lookup, and no allocation.
+ * <p>
+ * All tables are discarded when the system appearance changes.
+ */
+
+public class ContextualColorTable {
+
+    /**
+     * The function used to resolve a color when a table is created.
+     */
+    public interface Resolver {
+        /**
+         * Return the color to use in the specified context.
+         * @return the color, or null if no color is defined.
+         */
+        @Nullable Color resolve(@NotNull AquaAppearance appearance,
+                                @NotNull AquaUIPainter.State state,
+                                boolean isSelected,
+                                boolean isIcon);
+    }
+
+    private static final @NotNull AquaUIPainter.State[] STATES = AquaUIPainter.State.values();
+    private static final @NotNull Table[] NO_TABLES = new Table[0];
+
+    private static volatile int generation;
+
+    /**
+     * Discard the tables of all contextual colors. This method is called when the system appearance changes.
+     */
+    public static synchronized void invalidateAll() {
+        generation++;
+    }
+
+    private final @NotNull Resolver resolver;
+    private volatile @NotNull Table[] tables = NO_TABLES;
+
+    public ContextualColorTable(@NotNull Resolver resolver) {
+        this.resolver = resolver;
+    }
+
+    /**
+     * Return the color to use in the specified context.
+     * @return the color, or null if no color is defined.
+     */
+    public @Nullable Color get(@NotNull AquaAppearance appearance,
+                               @NotNull AquaUIPainter.State state,
+                               boolean isSelected,
+                               boolean isIcon) {
+        int currentGeneration = generation;
+        for (Table t : tables) {
+            if (t.appearance == appearance && t.generation == currentGeneration) {
+                return t.colors[index(state, isSelected, isIcon)];
+            }
+        }
+        return getTable(appearance, currentGeneration).colors[index(state, isSelected, isIcon)];
+    }
+
+    /**
+     * Discard the tables. This method must be called when the definition of the contextual color changes.
+     */
+    public synchronized void clear() {
+        tables = NO_TABLES;
+    }
+
+    private synchronized @NotNull Table getTable(@NotNull AquaAppearance appearance, int currentGeneration) {
+        int count = 0;
+        Table[] current = tables;
+        for (Table t : current) {
+            if (t.generation == currentGeneration) {
+                if (t.appearance == appearance) {
+                    return t;
+                }
+                count++;
+            }
+        }
+
+        Table table = createTable(appearance, currentGeneration);
+        Table[] replacement = new Table[count + 1];
+        int index = 0;
+        for (Table t : current) {
+            if (t.generation == currentGeneration) {
+                replacement[index++] = t;
+            }
+        }
+        replacement[index] = table;
+        tables = replacement;
+        return table;
+    }
+
+    private @NotNull Table createTable(@NotNull AquaAppearance appearance, int currentGeneration) {
+        Color[] colors = new Color[STATES.length * 4];
+        for (AquaUIPainter.State state : STATES) {
+            for (int i = 0; i < 4; i++) {
+                boolean isSelected = (i & 2) != 0;
+                boolean isIcon = (i & 1) != 0;
+                colors[index(state, isSelected, isIcon)] = resolver.resolve(appearance, state, isSelected, isIcon);
+            }
+        }
+        return new Table(appearance, currentGeneration, colors);
+    }
+
+    private static int index(@NotNull AquaUIPainter.State state, boolean isSelected, boolean isIcon) {
+        return state.ordinal() * 4 + (isSelected ? 2 : 0) + (isIcon ? 1 : 0);
+    }
+
+    private static class Table {
+        final @NotNull AquaAppearance appearance;
+        final int generation;
+        final @NotNull Color[] colors;
+
+        Table(@NotNull AquaAppearance appearance, int generation, @NotNull Color[] colors) {
+            this.appearance = appearance;
+            this.generation = generation;
+            this.colors = colors;
+        }
+    }
+}
@@ -28,13 +28,13 @@ public class Images {
     /** Prevent instance creation. */
     private Images() {
     }
-    private static GraphiteFilter graphiteFilter;
+    private static PixelOperation graphiteOperation;
 
-    private static GraphiteFilter getGraphiteFilter() {
-        if (graphiteFilter == null) {
-            graphiteFilter = new GraphiteFilter();
+    private static PixelOperation getGraphiteOperation() {
+        if (graphiteOperation == null) {
+            graphiteOperation = GraphiteFilter.createOperation();
         }
-        return graphiteFilter;
+        return graphiteOperation;
     }
 
 //    public static Image getImage(Class baseClass, String location) {
@@ -97,7 +97,7 @@ public class Images {
      * http://javaalmanac.com/egs/java.awt.image/Image2Buf.html?l=rel
      */
     private static Image toGraphite(Image image) {
-        return AquaImageFactory.applyFilter(image, getGraphiteFilter());
+        return getGraphiteOperation().applyTo(image);
     }
 
     /**
@@ -108,6 +108,14 @@ public class Images {
 
         private final static float saturationAdjust = 0.179f;
 
+        /**
+         * Return a pixel operation equivalent to this filter.
+         */
+        public static PixelOperation createOperation() {
+            float weight = (1f - saturationAdjust) * 1f / 3f;
+            return PixelOperation.createRotatingMatrixOperation(weight + saturationAdjust, weight, weight);
+        }
+
         public int filterRGB(int x, int y, int rgb) {
             int alpha = rgb & 0xff000000;
             int red = (rgb >>> 16) & 0xff;
@@ -0,0 +1,1577 @@
+/*
+ * Changes Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.aqua;
+
+import java.awt.*;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.Hashtable;
+import java.util.List;
+import java.util.NoSuchElementException;
+import java.util.Random;
+import java.util.Stack;
+import javax.swing.event.TreeModelEvent;
+import javax.swing.tree.*;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A variant of {@link ExtendedVariableHeightLayoutCache} designed for trees with a large number of visible rows.
+ * <p>
+ * The visible rows are held in an indexed balanced tree that maintains the sum of the row heights and row spacing
+ * of each subtree. As a result, mapping a row to its Y location, mapping a Y location to its row, mapping a node to
+ * its row, inserting and removing runs of rows, and changing the height of a row all take logarithmic time. The Y
+ * locations of the following rows are never updated individually.
+ * <p>
+ * The size of a row is not obtained from the node dimensions when the row becomes visible. Until the size of a row is
+ * needed, an estimated height is used. Subclasses are notified by {@link #estimatedSizesChanged} when a change in an
+ * estimated size has altered the preferred size of the tree.
+ * <p>
+ * Unlike {@link ExtendedVariableHeightLayoutCache}, the vertical spacing above a row is assumed to be determined by
+ * the node displayed in the row, not by the row index. The spacing is obtained when the node becomes visible.
+ */
+
+/*
+ * Copyright (c) 1998, 2018, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+public class IndexedVariableHeightLayoutCache extends AbstractLayoutCache {
+
+    private static final int DEFAULT_ESTIMATED_ROW_HEIGHT = 16;
+
+    /**
+     * The nodes that are currently visible, in the order they are displayed.
+     */
+    private final @NotNull RowIndex rows = new RowIndex();
+
+    /**
+     * The root node of the internal cache of nodes that have been shown.
+     */
+    private @Nullable TreeStateNode root;
+
+    /**
+     * Used in getting sizes for nodes to avoid creating a new Rectangle every time a size is needed.
+     */
+    private final @NotNull Rectangle boundsBuffer = new Rectangle();
+
+    /**
+     * Maps from <code>TreePath</code> to a <code>TreeStateNode</code>.
+     */
+    private final @NotNull Hashtable<TreePath,TreeStateNode> treePathMapping = new Hashtable<>();
+
+    /**
+     * A stack of stacks.
+     */
+    private final @NotNull Stack<Stack<TreePath>> tempStacks = new Stack<>();
+
+    /**
+     * The height most recently obtained from the node dimensions. Used as the estimated height of rows whose size
+     * has not been obtained.
+     */
+    private int lastValidRowHeight;
+
+    public IndexedVariableHeightLayoutCache() {
+    }
+
+    /**
+     * Sets the <code>TreeModel</code> that will provide the data.
+     *
+     * @param newModel the <code>TreeModel</code> that is to provide the data
+     */
+    public void setModel(TreeModel newModel) {
+        super.setModel(newModel);
+        rebuild(false);
+    }
+
+    /**
+     * Determines whether or not the root node from the <code>TreeModel</code> is visible.
+     *
+     * @param rootVisible true if the root node of the tree is to be displayed
+     */
+    public void setRootVisible(boolean rootVisible) {
+        if (isRootVisible() != rootVisible && root != null) {
+            if (rootVisible) {
+                insertRows(0, singletonList(root));
+            } else if (rows.size() > 0) {
+                rows.remove(0, 1);
+                if (treeSelectionModel != null) {
+                    treeSelectionModel.removeSelectionPath(root.getTreePath());
+                }
+            }
+            if (treeSelectionModel != null) {
+                treeSelectionModel.resetRowSelection();
+            }
+        }
+        super.setRootVisible(rootVisible);
+    }
+
+    /**
+     * Sets the height of each cell. If the specified value is less than or equal to zero the current cell renderer is
+     * queried for each row's height.
+     *
+     * @param rowHeight the height of each cell, in pixels
+     */
+    public void setRowHeight(int rowHeight) {
+        if (rowHeight != getRowHeight()) {
+            super.setRowHeight(rowHeight);
+            invalidateSizes();
+        }
+    }
+
+    /**
+     * Sets the renderer that is responsible for drawing nodes in the tree.
+     * @param nd the renderer
+     */
+    public void setNodeDimensions(NodeDimensions nd) {
+        super.setNodeDimensions(nd);
+        invalidateSizes();
+    }
+
+    /**
+     * Marks the path <code>path</code> expanded state to <code>isExpanded</code>.
+     * @param path the <code>TreePath</code> of interest
+     * @param isExpanded true if the path should be expanded, otherwise false
+     */
+    public void setExpandedState(TreePath path, boolean isExpanded) {
+        if (path != null) {
+            if (isExpanded) {
+                ensurePathIsExpanded(path, true);
+            } else {
+                TreeStateNode node = getNodeForPath(path, false, true);
+                if (node != null) {
+                    node.makeVisible();
+                    node.collapse();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns true if the path is expanded, and visible.
+     * @return true if the path is expanded and visible, otherwise false
+     */
+    public boolean getExpandedState(TreePath path) {
+        TreeStateNode node = getNodeForPath(path, true, false);
+        return node != null && node.isVisible() && node.isExpanded();
+    }
+
+    /**
+     * Returns the <code>Rectangle</code> enclosing the label portion into which the item identified by
+     * <code>path</code> will be drawn.
+     *
+     * @param path  the path to be drawn
+     * @param placeIn the bounds of the enclosing rectangle
+     * @return the bounds of the enclosing rectangle or <code>null</code> if the node could not be ascertained
+     */
+    public Rectangle getBounds(TreePath path, Rectangle placeIn) {
+        TreeStateNode node = getNodeForPath(path, true, false);
+        if (node != null) {
+            return node.getNodeBounds(placeIn);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the path for <code>row</code>. If <code>row</code> is not visible, <code>null</code> is returned.
+     *
+     * @param row the location of interest
+     * @return the path for <code>row</code>, or <code>null</code> if <code>row</code> is not visible
+     */
+    public TreePath getPathForRow(int row) {
+        if (row >= 0 && row < getRowCount()) {
+            return getNode(row).getTreePath();
+        }
+        return null;
+    }
+
+    /**
+     * Returns the row where the last item identified in path is visible. Will return -1 if any of the elements in
+     * path are not currently visible.
+     *
+     * @param path the <code>TreePath</code> of interest
+     * @return the row where the last item in path is visible
+     */
+    public int getRowForPath(TreePath path) {
+        if (path == null) {
+            return -1;
+        }
+        TreeStateNode visNode = getNodeForPath(path, true, false);
+        if (visNode != null) {
+            return visNode.getRow();
+        }
+        return -1;
+    }
+
+    /**
+     * Returns the number of visible rows.
+     * @return the number of visible rows
+     */
+    public int getRowCount() {
+        return rows.size();
+    }
+
+    /**
+     * Instructs the <code>LayoutCache</code> that the bounds for <code>path</code> are invalid, and need to be
+     * updated.
+     *
+     * @param path the <code>TreePath</code> which is now invalid
+     */
+    public void invalidatePathBounds(TreePath path) {
+        TreeStateNode node = getNodeForPath(path, true, false);
+        if (node != null) {
+            node.markSizeInvalid();
+            int row = node.getRow();
+            if (row != -1) {
+                node.updatePreferredSize(row);
+            }
+        }
+    }
+
+    /**
+     * Returns the preferred height.
+     * @return the preferred height
+     */
+    public int getPreferredHeight() {
+        int rowCount = getRowCount();
+        if (rowCount == 0) {
+            return 0;
+        }
+        if (isFixedRowHeight()) {
+            return rowCount * getRowHeight();
+        }
+        // The spacing above the first row is not used
+        return rows.getTotalExtent() - rows.get(0).spacing;
+    }
+
+    /**
+     * Returns the preferred width for the region in <code>visibleRegion</code>. Only the rows whose sizes have been
+     * obtained are considered.
+     *
+     * @param bounds  the region being queried
+     */
+    public int getPreferredWidth(Rectangle bounds) {
+        return rows.getMaximumRight();
+    }
+
+    /**
+     * Returns the path to the node that is closest to x,y. If there is nothing currently visible this will return
+     * <code>null</code>, otherwise it will always return a valid path. If you need to test if the returned object is
+     * exactly at x, y you should get the bounds for the returned path and test x, y against that.
+     *
+     * @param x  the x-coordinate
+     * @param y  the y-coordinate
+     * @return the path to the node that is closest to x, y
+     */
+    public TreePath getPathClosestTo(int x, int y) {
+        if (getRowCount() == 0) {
+            return null;
+        }
+        int row = getRowContainingYLocation(y);
+        return getNode(row).getTreePath();
+    }
+
+    /**
+     * Returns an <code>Enumerator</code> that increments over the visible paths starting at the passed in location.
+     * The ordering of the enumeration is based on how the paths are displayed.
+     *
+     * @param path the location in the <code>TreePath</code> to start
+     * @return an <code>Enumerator</code> that increments over the visible paths
+     */
+    public Enumeration<TreePath> getVisiblePathsFrom(TreePath path) {
+        TreeStateNode node = getNodeForPath(path, true, false);
+        if (node != null) {
+            return new VisibleTreeStateNodeEnumeration(node);
+        }
+        return null;
+    }
+
+    /**
+     * Returns the number of visible children for <code>path</code>.
+     * @return the number of visible children for <code>path</code>
+     */
+    public int getVisibleChildCount(TreePath path) {
+        TreeStateNode node = getNodeForPath(path, true, false);
+        return node != null ? node.getVisibleChildCount() : 0;
+    }
+
+    /**
+     * Informs the <code>TreeState</code> that it needs to recalculate all the sizes it is referencing. The sizes are
+     * recalculated when they are next needed. The row spacing is recalculated immediately.
+     */
+    public void invalidateSizes() {
+        if (root != null) {
+            root.deepMarkSizeInvalid();
+        }
+        int estimate = getEstimatedRowHeight();
+        rows.resetAll((e, row) -> {
+            e.height = estimate;
+            e.right = 0;
+            e.spacing = getRowSpacingAbove(row, e.node.getTreePath());
+        });
+    }
+
+    /**
+     * Returns true if the value identified by <code>path</code> is currently expanded.
+     * @return true if the value identified by <code>path</code> is currently expanded
+     */
+    public boolean isExpanded(TreePath path) {
+        if (path != null) {
+            TreeStateNode lastNode = getNodeForPath(path, true, false);
+            return lastNode != null && lastNode.isExpanded();
+        }
+        return false;
+    }
+
+    //
+    // TreeModelListener methods
+    //
+
+    /**
+     * Invoked after a node (or a set of siblings) has changed in some way. The node(s) have not changed locations in
+     * the tree or altered their children arrays, but other attributes have changed and may affect presentation.
+     *
+     * @param e the <code>TreeModelEvent</code> of interest
+     */
+    public void treeNodesChanged(TreeModelEvent e) {
+        if (e != null) {
+            int[] changedIndexes = e.getChildIndices();
+            TreeStateNode changedNode = getNodeForPath(getTreePath(e, getModel()), false, false);
+
+            if (changedNode != null) {
+                Object changedValue = changedNode.getValue();
+
+                // Update the size of the changed node, as well as all the child indexes that are passed in.
+                changedNode.updatePreferredSize();
+                if (changedNode.hasBeenExpanded() && changedIndexes != null) {
+                    for (int index : changedIndexes) {
+                        TreeStateNode changedChildNode = (TreeStateNode) changedNode.getChildAt(index);
+                        // Reset the user object.
+                        changedChildNode.setUserObject(treeModel.getChild(changedValue, index));
+                        changedChildNode.updatePreferredSize();
+                    }
+                } else if (changedNode == root) {
+                    // Null indices for root indicates it changed.
+                    changedNode.updatePreferredSize();
+                }
+            }
+        }
+    }
+
+    /**
+     * Invoked after nodes have been inserted into the tree.
+     *
+     * @param e the <code>TreeModelEvent</code> of interest
+     */
+    public void treeNodesInserted(TreeModelEvent e) {
+        if (e != null) {
+            int[] changedIndexes = e.getChildIndices();
+            TreeStateNode changedParentNode = getNodeForPath(getTreePath(e, getModel()), false, false);
+            // Only need to update the children if the node has been expanded once.
+            if (changedParentNode != null && changedIndexes != null && changedIndexes.length > 0) {
+                if (changedParentNode.hasBeenExpanded()) {
+                    int oldChildCount = changedParentNode.getChildCount();
+                    for (int index : changedIndexes) {
+                        createNodeAt(changedParentNode, index);
+                    }
+                    if (oldChildCount == 0) {
+                        // Update the size of the parent.
+                        changedParentNode.updatePreferredSize();
+                    }
+                    if (treeSelectionModel != null) {
+                        treeSelectionModel.resetRowSelection();
+                    }
+                } else if (treeModel.getChildCount(changedParentNode.getValue()) - changedIndexes.length == 0) {
+                    changedParentNode.updatePreferredSize();
+                }
+            }
+        }
+    }
+
+    /**
+     * Invoked after nodes have been removed from the tree. Note that if a subtree is removed from the tree, this
+     * method may only be invoked once for the root of the removed subtree, not once for each individual set of
+     * siblings removed.
+     *
+     * @param e the <code>TreeModelEvent</code> of interest
+     */
+    public void treeNodesRemoved(TreeModelEvent e) {
+        if (e != null) {
+            int[] changedIndexes = e.getChildIndices();
+            TreeStateNode changedParentNode = getNodeForPath(getTreePath(e, getModel()), false, false);
+            if (changedParentNode != null && changedIndexes != null && changedIndexes.length > 0) {
+                if (changedParentNode.hasBeenExpanded()) {
+                    for (int counter = changedIndexes.length - 1; counter >= 0; counter--) {
+                        TreeStateNode removedNode = (TreeStateNode) changedParentNode.getChildAt(changedIndexes[counter]);
+                        if (removedNode.isExpanded()) {
+                            removedNode.collapse(false);
+                        }
+                        int removedRow = removedNode.getRow();
+                        if (removedRow != -1) {
+                            rows.remove(removedRow, 1);
+                        }
+                        changedParentNode.remove(changedIndexes[counter]);
+                    }
+                    if (changedParentNode.getChildCount() == 0) {
+                        // Update the size of the parent.
+                        changedParentNode.updatePreferredSize();
+                        if (changedParentNode.isExpanded() && changedParentNode.isLeaf()) {
+                            // Node has become a leaf, collapse it.
+                            changedParentNode.collapse(false);
+                        }
+                    }
+                    if (treeSelectionModel != null) {
+                        treeSelectionModel.resetRowSelection();
+                    }
+                } else if (treeModel.getChildCount(changedParentNode.getValue()) == 0) {
+                    changedParentNode.updatePreferredSize();
+                }
+            }
+        }
+    }
+
+    /**
+     * Invoked after the tree has drastically changed structure from a given node down. If the path returned by
+     * <code>e.getPath</code> is of length one and the first element does not identify the current root node the
+     * first element should become the new root of the tree.
+     *
+     * @param e the <code>TreeModelEvent</code> of interest
+     */
+    public void treeStructureChanged(TreeModelEvent e) {
+        if (e != null) {
+            TreePath changedPath = getTreePath(e, getModel());
+            TreeStateNode changedNode = getNodeForPath(changedPath, false, false);
+
+            // Check if root has changed, either to a null root, or to an entirely new root.
+            if (changedNode == root ||
+                    (changedNode == null &&
+                            ((changedPath == null && treeModel != null && treeModel.getRoot() == null) ||
+                                    (changedPath != null && changedPath.getPathCount() == 1)))) {
+                rebuild(true);
+            } else if (changedNode != null) {
+                boolean wasExpanded = changedNode.isExpanded();
+                int oldRow = changedNode.getRow();
+                boolean wasVisible = oldRow != -1;
+                // Remove the current node and recreate a new one.
+                TreeStateNode parent = (TreeStateNode) changedNode.getParent();
+                int nodeIndex = parent.getIndex(changedNode);
+                if (wasVisible && wasExpanded) {
+                    changedNode.collapse(false);
+                }
+                if (wasVisible) {
+                    rows.remove(oldRow, 1);
+                }
+                changedNode.removeFromParent();
+                createNodeAt(parent, nodeIndex);
+                TreeStateNode newNode = (TreeStateNode) parent.getChildAt(nodeIndex);
+                if (wasVisible && wasExpanded) {
+                    newNode.expand(false);
+                }
+            }
+        }
+    }
+
+    /**
+     * This method is called when the preferred size of the tree may have changed as a result of obtaining the actual
+     * size of a row whose height was estimated. It may be called during painting.
+     */
+    protected void estimatedSizesChanged() {
+    }
+
+    /**
+     * Return the vertical spacing above the row that displays the specified node. The spacing above the first row is
+     * not used.
+     * @param row The row index.
+     * @param path The path of the node displayed in the row.
+     */
+    protected int getRowSpacingAbove(int row, @NotNull TreePath path) {
+        return 0;
+    }
+
+    //
+    // Local methods
+    //
+
+    private void addMapping(@NotNull TreeStateNode node) {
+        treePathMapping.put(node.getTreePath(), node);
+    }
+
+    private void removeMapping(@NotNull TreeStateNode node) {
+        treePathMapping.remove(node.getTreePath());
+    }
+
+    private @Nullable TreeStateNode getMapping(@NotNull TreePath path) {
+        return treePathMapping.get(path);
+    }
+
+    private int getEstimatedRowHeight() {
+        if (isFixedRowHeight()) {
+            return getRowHeight();
+        }
+        return lastValidRowHeight > 0 ? lastValidRowHeight : DEFAULT_ESTIMATED_ROW_HEIGHT;
+    }
+
+    /**
+     * Insert rows for the specified nodes starting at the specified row.
+     */
+    private void insertRows(int row, @NotNull List<TreeStateNode> nodes) {
+        if (nodes.isEmpty()) {
+            return;
+        }
+        int estimate = getEstimatedRowHeight();
+        RowEntry[] entries = new RowEntry[nodes.size()];
+        for (int i = 0; i < entries.length; i++) {
+            TreeStateNode node = nodes.get(i);
+            RowEntry entry = new RowEntry(node);
+            entry.spacing = getRowSpacingAbove(row + i, node.getTreePath());
+            if (node.hasValidSize()) {
+                entry.height = isFixedRowHeight() ? getRowHeight() : node.preferredHeight;
+                entry.right = node.xOrigin + node.preferredWidth;
+            } else {
+                entry.height = estimate;
+            }
+            node.entry = entry;
+            entries[i] = entry;
+        }
+        rows.insert(row, entries);
+    }
+
+    private static @NotNull List<TreeStateNode> singletonList(@NotNull TreeStateNode node) {
+        List<TreeStateNode> result = new ArrayList<>(1);
+        result.add(node);
+        return result;
+    }
+
+    /**
+     * Completely rebuild the tree, all expanded state, and node caches are removed. All nodes are collapsed, except
+     * the root.
+     */
+    private void rebuild(boolean clearSelection) {
+        Object rootObject;
+
+        treePathMapping.clear();
+        rows.clear();
+        if (treeModel != null && (rootObject = treeModel.getRoot()) != null) {
+            root = createNodeForValue(rootObject);
+            root.path = new TreePath(rootObject);
+            addMapping(root);
+            root.updatePreferredSize(0);
+            if (isRootVisible()) {
+                insertRows(0, singletonList(root));
+            }
+            root.expand();
+        } else {
+            root = null;
+        }
+        if (clearSelection && treeSelectionModel != null) {
+            treeSelectionModel.clearSelection();
+        }
+    }
+
+    /**
+     * Creates a new node to represent the node at <I>childIndex</I> in <I>parent</I>s children. This should be
+     * called if the node doesn't already exist and <I>parent</I> has been expanded at least once. The newly created
+     * node will be made visible if <I>parent</I> is currently expanded. This does not update the selection.
+     */
+    private @NotNull TreeStateNode createNodeAt(@NotNull TreeStateNode parent, int childIndex) {
+        Object newValue = treeModel.getChild(parent.getValue(), childIndex);
+        TreeStateNode newChildNode = createNodeForValue(newValue);
+        parent.insert(newChildNode, childIndex);
+        boolean isParentRoot = parent == root;
+        if (parent.isExpanded() && (parent.getRow() != -1 || isParentRoot)) {
+            int newRow;
+
+            // Find the new row to insert this newly visible node at.
+            if (childIndex == 0) {
+                if (isParentRoot && !isRootVisible()) {
+                    newRow = 0;
+                } else {
+                    newRow = parent.getRow() + 1;
+                }
+            } else {
+                TreeStateNode previousNode = (TreeStateNode) parent.getChildAt(childIndex - 1);
+                newRow = previousNode.getLastVisibleNode().getRow() + 1;
+            }
+            insertRows(newRow, singletonList(newChildNode));
+        }
+        return newChildNode;
+    }
+
+    /**
+     * Returns the TreeStateNode identified by path.
+     */
+    private @Nullable TreeStateNode getNodeForPath(@Nullable TreePath path,
+                                                   boolean onlyIfVisible,
+                                                   boolean shouldCreate) {
+        if (path != null) {
+            TreeStateNode node = getMapping(path);
+            if (node != null) {
+                if (onlyIfVisible && !node.isVisible()) {
+                    return null;
+                }
+                return node;
+            }
+
+            // Check all the parent paths, until a match is found.
+            Stack<TreePath> paths = tempStacks.isEmpty() ? new Stack<>() : tempStacks.pop();
+
+            try {
+                paths.push(path);
+                path = path.getParentPath();
+                while (path != null) {
+                    node = getMapping(path);
+                    if (node != null) {
+                        // Found a match, create entries for all paths in paths.
+                        while (node != null && paths.size() > 0) {
+                            path = paths.pop();
+                            node.getLoadedChildren(shouldCreate);
+
+                            int childIndex = treeModel.getIndexOfChild(node.getUserObject(),
+                                    path.getLastPathComponent());
+
+                            if (childIndex == -1 ||
+                                    childIndex >= node.getChildCount() ||
+                                    (onlyIfVisible && !node.isVisible())) {
+                                node = null;
+                            } else {
+                                node = (TreeStateNode) node.getChildAt(childIndex);
+                            }
+                        }
+                        return node;
+                    }
+                    paths.push(path);
+                    path = path.getParentPath();
+                }
+            } finally {
+                paths.removeAllElements();
+                tempStacks.push(paths);
+            }
+            // If we get here it means they share a different root!
+        }
+        return null;
+    }
+
+    /**
+     * Returns the index of the row containing location. If there are no rows, -1 is returned. If location is beyond
+     * the last row index, the last row index is returned. If location is in the spacing above a row, the previous
+     * row is returned.
+     */
+    private int getRowContainingYLocation(int location) {
+        int rowCount = getRowCount();
+        if (rowCount <= 0) {
+            return -1;
+        }
+        if (isFixedRowHeight()) {
+            return Math.max(0, Math.min(rowCount - 1, location / getRowHeight()));
+        }
+
+        // Obtaining the actual size of the row may alter its extent. Repeat until the row is stable.
+        int row = -1;
+        for (int attempt = 0; attempt < 4; attempt++) {
+            int target = location + rows.get(0).spacing;
+            int r = Math.min(rowCount - 1, Math.max(0, rows.findRowStartingAtOrBefore(target)));
+            TreeStateNode node = getNode(r);
+            if (r == row || node.hasValidSize()) {
+                return r;
+            }
+            node.updatePreferredSize(r);
+            row = r;
+        }
+        return row;
+    }
+
+    /**
+     * Ensures that all the path components in path are expanded, accept for the last component which will only be
+     * expanded if expandLast is true.
+     */
+    private void ensurePathIsExpanded(@NotNull TreePath aPath, boolean expandLast) {
+        // Make sure the last entry isn't a leaf.
+        if (treeModel.isLeaf(aPath.getLastPathComponent())) {
+            aPath = aPath.getParentPath();
+            expandLast = true;
+        }
+        if (aPath != null) {
+            TreeStateNode lastNode = getNodeForPath(aPath, false, true);
+            if (lastNode != null) {
+                lastNode.makeVisible();
+                if (expandLast) {
+                    lastNode.expand();
+                }
+            }
+        }
+    }
+
+    /**
+     * Returns the node displayed at the given row.
+     */
+    private @NotNull TreeStateNode getNode(int row) {
+        return rows.get(row).node;
+    }
+
+    private @NotNull TreeStateNode createNodeForValue(Object value) {
+        return new TreeStateNode(value);
+    }
+
+    /**
+     * TreeStateNode is used to keep track of each of the nodes that have been expanded. This will also cache the
+     * preferred size of the value it represents.
+     */
+    private class TreeStateNode extends DefaultMutableTreeNode {
+        /** Preferred size needed to draw the user object. */
+        protected int preferredWidth;
+        protected int preferredHeight;
+
+        /** X location that the user object will be drawn at. */
+        protected int xOrigin;
+
+        /** Is this node currently expanded? */
+        protected boolean expanded;
+
+        /** Has this node been expanded at least once? */
+        protected boolean hasBeenExpanded;
+
+        /** Path of this node. */
+        protected TreePath path;
+
+        /** The row entry most recently created for this node. It is current only if this node is visible. */
+        protected @Nullable RowEntry entry;
+
+        public TreeStateNode(Object value) {
+            super(value);
+        }
+
+        //
+        // Overridden DefaultMutableTreeNode methods
+        //
+
+        /**
+         * Messaged when this node is added somewhere, resets the path and adds a mapping from path to this node.
+         */
+        public void setParent(MutableTreeNode parent) {
+            super.setParent(parent);
+            if (parent != null) {
+                path = ((TreeStateNode) parent).getTreePath().pathByAddingChild(getUserObject());
+                addMapping(this);
+            }
+        }
+
+        /**
+         * Messaged when this node is removed from its parent, this messages <code>removedFromMapping</code> to remove
+         * all the children.
+         */
+        public void remove(int childIndex) {
+            TreeStateNode node = (TreeStateNode) getChildAt(childIndex);
+            node.removeFromMapping();
+            super.remove(childIndex);
+        }
+
+        /**
+         * Messaged to set the user object. This resets the path.
+         */
+        public void setUserObject(Object o) {
+            super.setUserObject(o);
+            if (path != null) {
+                TreeStateNode parent = (TreeStateNode) getParent();
+                if (parent != null) {
+                    resetChildrenPaths(parent.getTreePath());
+                } else {
+                    resetChildrenPaths(null);
+                }
+            }
+        }
+
+        /**
+         * Returns the children of the receiver. If the receiver is not currently expanded, this will return an empty
+         * enumeration.
+         */
+        @Override
+        public Enumeration<TreeNode> children() {
+            if (!this.isExpanded()) {
+                return DefaultMutableTreeNode.EMPTY_ENUMERATION;
+            } else {
+                return super.children();
+            }
+        }
+
+        /**
+         * Returns true if the receiver is a leaf.
+         */
+        public boolean isLeaf() {
+            return getModel().isLeaf(this.getValue());
+        }
+
+        /**
+         * Returns the location and size of this node.
+         */
+        public Rectangle getNodeBounds(Rectangle placeIn) {
+            if (!hasValidSize()) {
+                updatePreferredSize(getRow());
+            }
+            if (placeIn == null) {
+                placeIn = new Rectangle();
+            }
+            placeIn.x = xOrigin;
+            placeIn.y = getYOrigin();
+            placeIn.width = preferredWidth;
+            placeIn.height = getPreferredHeight();
+            return placeIn;
+        }
+
+        /**
+         * Returns the y origin the user object will be drawn at, or -1 if this node is not visible.
+         */
+        public int getYOrigin() {
+            int row = getRow();
+            if (row == -1) {
+                return -1;
+            }
+            if (isFixedRowHeight()) {
+                return getRowHeight() * row;
+            }
+            return rows.getExtentBefore(row) + rows.get(row).spacing - rows.get(0).spacing;
+        }
+
+        /**
+         * Returns the preferred height of the receiver.
+         */
+        public int getPreferredHeight() {
+            if (isFixedRowHeight()) {
+                return getRowHeight();
+            } else if (!hasValidSize()) {
+                updatePreferredSize(getRow());
+            }
+            return preferredHeight;
+        }
+
+        /**
+         * Returns true if this node has a valid size.
+         */
+        public boolean hasValidSize() {
+            return preferredHeight != 0;
+        }
+
+        /**
+         * Returns the row of the receiver.
+         */
+        public int getRow() {
+            return entry != null ? rows.indexOf(entry) : -1;
+        }
+
+        /**
+         * Returns true if this node has been expanded at least once.
+         */
+        public boolean hasBeenExpanded() {
+            return hasBeenExpanded;
+        }
+
+        /**
+         * Returns true if the receiver has been expanded.
+         */
+        public boolean isExpanded() {
+            return expanded;
+        }
+
+        /**
+         * Returns the last visible node that is a child of this instance.
+         */
+        public @NotNull TreeStateNode getLastVisibleNode() {
+            TreeStateNode node = this;
+            while (node.isExpanded() && node.getChildCount() > 0) {
+                node = (TreeStateNode) node.getLastChild();
+            }
+            return node;
+        }
+
+        /**
+         * Returns true if the receiver is currently visible.
+         */
+        public boolean isVisible() {
+            if (this == root) {
+                return true;
+            }
+            TreeStateNode parent = (TreeStateNode) getParent();
+            return parent != null && parent.isExpanded() && parent.isVisible();
+        }
+
+        /**
+         * Returns the number of visible children, that is the number of children that are expanded, or leafs.
+         */
+        public int getVisibleChildCount() {
+            int childCount = 0;
+            if (isExpanded()) {
+                int maxCounter = getChildCount();
+                childCount += maxCounter;
+                for (int counter = 0; counter < maxCounter; counter++) {
+                    childCount += ((TreeStateNode) getChildAt(counter)).getVisibleChildCount();
+                }
+            }
+            return childCount;
+        }
+
+        /**
+         * Makes the receiver visible.
+         */
+        public void makeVisible() {
+            TreeStateNode parent = (TreeStateNode) getParent();
+            if (parent != null) {
+                parent.expandParentAndReceiver();
+            }
+        }
+
+        /**
+         * Expands the receiver.
+         */
+        public void expand() {
+            expand(true);
+        }
+
+        /**
+         * Collapses the receiver.
+         */
+        public void collapse() {
+            collapse(true);
+        }
+
+        /**
+         * Returns the value the receiver is representing. This is a cover for getUserObject.
+         */
+        public Object getValue() {
+            return getUserObject();
+        }
+
+        /**
+         * Returns a TreePath instance for this node.
+         */
+        public TreePath getTreePath() {
+            return path;
+        }
+
+        //
+        // Local methods
+        //
+
+        /**
+         * Recreates the receivers path, and all its children's paths.
+         */
+        protected void resetChildrenPaths(TreePath parentPath) {
+            removeMapping(this);
+            if (parentPath == null) {
+                path = new TreePath(getUserObject());
+            } else {
+                path = parentPath.pathByAddingChild(getUserObject());
+            }
+            addMapping(this);
+            for (int counter = getChildCount() - 1; counter >= 0; counter--) {
+                ((TreeStateNode) getChildAt(counter)).resetChildrenPaths(path);
+            }
+        }
+
+        /**
+         * Updates the receivers preferredSize.
+         */
+        protected void updatePreferredSize() {
+            updatePreferredSize(getRow());
+        }
+
+        /**
+         * Updates the preferred size by asking the current renderer for the Dimension needed to draw the user object
+         * this instance represents.
+         */
+        protected void updatePreferredSize(int index) {
+            Rectangle bounds = getNodeDimensions(this.getUserObject(), index, getLevel(), isExpanded(), boundsBuffer);
+            int height;
+            if (bounds == null || bounds.height == 0) {
+                xOrigin = 0;
+                preferredWidth = preferredHeight = 0;
+                height = getEstimatedRowHeight();
+            } else {
+                xOrigin = bounds.x;
+                preferredWidth = bounds.width;
+                if (isFixedRowHeight()) {
+                    preferredHeight = getRowHeight();
+                } else {
+                    preferredHeight = bounds.height;
+                    lastValidRowHeight = bounds.height;
+                }
+                height = preferredHeight;
+            }
+
+            if (index != -1 && entry != null) {
+                int oldHeight = entry.height;
+                int oldRight = entry.right;
+                int newRight = xOrigin + preferredWidth;
+                if (oldHeight != height || oldRight != newRight) {
+                    int oldPreferredWidth = rows.getMaximumRight();
+                    rows.update(entry, height, newRight);
+                    if (oldHeight != height || rows.getMaximumRight() != oldPreferredWidth) {
+                        estimatedSizesChanged();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Marks the receivers size as invalid. Next time the size, location is asked for it will be obtained.
+         */
+        protected void markSizeInvalid() {
+            preferredHeight = 0;
+        }
+
+        /**
+         * Marks the receivers size, and all its descendants sizes, as invalid.
+         */
+        protected void deepMarkSizeInvalid() {
+            markSizeInvalid();
+            for (int counter = getChildCount() - 1; counter >= 0; counter--) {
+                ((TreeStateNode) getChildAt(counter)).deepMarkSizeInvalid();
+            }
+        }
+
+        /**
+         * Returns the children of the receiver. If the children haven't been loaded from the model and
+         * <code>createIfNeeded</code> is true, the children are first loaded. The sizes of the new children are
+         * obtained when needed.
+         */
+        protected Enumeration<TreeNode> getLoadedChildren(boolean createIfNeeded) {
+            if (!createIfNeeded || hasBeenExpanded) {
+                return super.children();
+            }
+            loadChildren();
+            return super.children();
+        }
+
+        private void loadChildren() {
+            Object realNode = getValue();
+            TreeModel treeModel = getModel();
+            int count = treeModel.getChildCount(realNode);
+            hasBeenExpanded = true;
+            for (int i = 0; i < count; i++) {
+                this.add(createNodeForValue(treeModel.getChild(realNode, i)));
+            }
+        }
+
+        /**
+         * Invokes <code>expandParentAndReceiver</code> on the parent, and expands the receiver.
+         */
+        protected void expandParentAndReceiver() {
+            TreeStateNode parent = (TreeStateNode) getParent();
+            if (parent != null) {
+                parent.expandParentAndReceiver();
+            }
+            expand();
+        }
+
+        /**
+         * Expands this node in the tree. This will load the children from the treeModel if this node has not
+         * previously been expanded. If <I>adjustTree</I> is true the selection is updated accordingly.
+         */
+        protected void expand(boolean adjustTree) {
+            if (!isExpanded() && !isLeaf()) {
+                int originalRow = getRow();
+
+                expanded = true;
+                if (originalRow != -1) {
+                    updatePreferredSize(originalRow);
+                }
+
+                if (!hasBeenExpanded) {
+                    loadChildren();
+                }
+
+                if (originalRow != -1 || this == root) {
+                    List<TreeStateNode> descendants = new ArrayList<>();
+                    Enumeration<TreeNode> cursor = preorderEnumeration();
+                    cursor.nextElement(); // don't add me, I'm already in
+                    while (cursor.hasMoreElements()) {
+                        descendants.add((TreeStateNode) cursor.nextElement());
+                    }
+                    insertRows(originalRow + 1, descendants);
+                }
+
+                // Update the rows in the selection
+                if (treeSelectionModel != null) {
+                    treeSelectionModel.resetRowSelection();
+                }
+            }
+        }
+
+        /**
+         * Collapses this node in the tree. If <I>adjustTree</I> is true the tree and selection are updated
+         * accordingly.
+         */
+        protected void collapse(boolean adjustTree) {
+            if (isExpanded()) {
+                int myRow = getRow();
+                int rowsDeleted = 0;
+
+                if (myRow != -1 || this == root) {
+                    TreeStateNode last = getLastVisibleNode();
+                    if (last != this) {
+                        int lastRow = last.getRow();
+                        if (lastRow > myRow) {
+                            rowsDeleted = lastRow - myRow;
+                            rows.remove(myRow + 1, rowsDeleted);
+                        }
+                    }
+                }
+
+                expanded = false;
+
+                if (myRow == -1) {
+                    markSizeInvalid();
+                } else if (adjustTree) {
+                    updatePreferredSize(myRow);
+                }
+
+                if (treeSelectionModel != null && rowsDeleted > 0 && myRow != -1) {
+                    treeSelectionModel.resetRowSelection();
+                }
+            }
+        }
+
+        /**
+         * Removes the receiver, and all its children, from the mapping table.
+         */
+        protected void removeFromMapping() {
+            if (path != null) {
+                removeMapping(this);
+                for (int counter = getChildCount() - 1; counter >= 0; counter--) {
+                    ((TreeStateNode) getChildAt(counter)).removeFromMapping();
+                }
+            }
+        }
+    }
+
+    /**
+     * An enumerator to iterate through visible nodes.
+     */
+    private class VisibleTreeStateNodeEnumeration implements Enumeration<TreePath> {
+        /** Parent thats children are being enumerated. */
+        protected TreeStateNode parent;
+        /** Index of next child. An index of -1 signifies parent should be visibled next. */
+        protected int nextIndex;
+        /** Number of children in parent. */
+        protected int childCount;
+
+        protected VisibleTreeStateNodeEnumeration(TreeStateNode node) {
+            this(node, -1);
+        }
+
+        protected VisibleTreeStateNodeEnumeration(TreeStateNode parent, int startIndex) {
+            this.parent = parent;
+            this.nextIndex = startIndex;
+            this.childCount = this.parent.getChildCount();
+        }
+
+        /**
+         * @return true if more visible nodes.
+         */
+        public boolean hasMoreElements() {
+            return parent != null;
+        }
+
+        /**
+         * @return next visible TreePath.
+         */
+        public TreePath nextElement() {
+            if (!hasMoreElements()) {
+                throw new NoSuchElementException("No more visible paths");
+            }
+
+            TreePath retObject;
+            if (nextIndex == -1) {
+                retObject = parent.getTreePath();
+            } else {
+                TreeStateNode node = (TreeStateNode) parent.getChildAt(nextIndex);
+                retObject = node.getTreePath();
+            }
+            updateNextObject();
+            return retObject;
+        }
+
+        /**
+         * Determines the next object by invoking <code>updateNextIndex</code> and if not successful
+         * <code>findNextValidParent</code>.
+         */
+        protected void updateNextObject() {
+            if (!updateNextIndex()) {
+                findNextValidParent();
+            }
+        }
+
+        /**
+         * Finds the next valid parent, this should be called when nextIndex is beyond the number of children of the
+         * current parent.
+         */
+        protected boolean findNextValidParent() {
+            if (parent == root) {
+                // mark as invalid!
+                parent = null;
+                return false;
+            }
+            while (parent != null) {
+                TreeStateNode newParent = (TreeStateNode) parent.getParent();
+                if (newParent != null) {
+                    nextIndex = newParent.getIndex(parent);
+                    parent = newParent;
+                    childCount = parent.getChildCount();
+                    if (updateNextIndex()) {
+                        return true;
+                    }
+                } else {
+                    parent = null;
+                }
+            }
+            return false;
+        }
+
+        /**
+         * Updates <code>nextIndex</code> returning false if it is beyond the number of children of parent.
+         */
+        protected boolean updateNextIndex() {
+            // nextIndex == -1 identifies receiver, make sure is expanded before descend.
+            if ((nextIndex == -1 && !parent.isExpanded()) || childCount == 0 || ++nextIndex >= childCount) {
+                return false;
+            }
+
+            TreeStateNode child = (TreeStateNode) parent.getChildAt(nextIndex);
+            if (child != null && child.isExpanded()) {
+                parent = child;
+                nextIndex = -1;
+                childCount = child.getChildCount();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Returns the {@link TreePath} that identifies the changed nodes.
+     *
+     * @param event  changes in a tree model
+     * @param model  corresponding tree model
+     * @return  the path to the changed nodes
+     */
+    public static TreePath getTreePath(TreeModelEvent event, TreeModel model) {
+        TreePath path = event.getTreePath();
+        if ((path == null) && (model != null)) {
+            Object root = model.getRoot();
+            if (root != null) {
+                path = new TreePath(root);
+            }
+        }
+        return path;
+    }
+
+    /**
+     * An entry in the row index. An entry is created when a node becomes visible. An entry that has been removed
+     * from the index is not reused.
+     */
+    private static final class RowEntry {
+        final @NotNull TreeStateNode node;
+        int priority;
+        @Nullable RowEntry leftChild;
+        @Nullable RowEntry rightChild;
+        @Nullable RowEntry parent;
+
+        // values for this row
+        int height;
+        int spacing;
+        int right;
+
+        // aggregate values for the subtree rooted at this entry
+        int count;
+        int extent;
+        int maximumRight;
+
+        RowEntry(@NotNull TreeStateNode node) {
+            this.node = node;
+        }
+    }
+
+    private interface RowEntryConsumer {
+        void accept(@NotNull RowEntry e, int row);
+    }
+
+    /**
+     * An indexed sequence of rows, implemented as a treap ordered by row index. Each subtree records the number of
+     * rows, the sum of the row heights and spacing, and the maximum right edge of the rows whose sizes are known.
+     */
+    private static final class RowIndex {
+        private final @NotNull Random random = new Random(0x5eed);
+        private @Nullable RowEntry root;
+
+        int size() {
+            return root != null ? root.count : 0;
+        }
+
+        int getTotalExtent() {
+            return root != null ? root.extent : 0;
+        }
+
+        int getMaximumRight() {
+            return root != null ? root.maximumRight : 0;
+        }
+
+        void clear() {
+            root = null;
+        }
+
+        @NotNull RowEntry get(int index) {
+            if (index < 0 || index >= size()) {
+                throw new IndexOutOfBoundsException("Invalid row: " + index);
+            }
+            RowEntry t = root;
+            for (;;) {
+                int leftCount = count(t.leftChild);
+                if (index < leftCount) {
+                    t = t.leftChild;
+                } else if (index == leftCount) {
+                    return t;
+                } else {
+                    index -= leftCount + 1;
+                    t = t.rightChild;
+                }
+            }
+        }
+
+        /**
+         * Return the index of the specified entry, or -1 if the entry has been removed.
+         */
+        int indexOf(@NotNull RowEntry e) {
+            int index = count(e.leftChild);
+            RowEntry t = e;
+            while (t.parent != null) {
+                RowEntry p = t.parent;
+                if (p.rightChild == t) {
+                    index += count(p.leftChild) + 1;
+                }
+                t = p;
+            }
+            return t == root ? index : -1;
+        }
+
+        /**
+         * Return the sum of the heights and spacing of the rows before the specified row.
+         */
+        int getExtentBefore(int index) {
+            int sum = 0;
+            RowEntry t = root;
+            while (t != null) {
+                int leftCount = count(t.leftChild);
+                if (index <= leftCount) {
+                    if (index == leftCount) {
+                        sum += extent(t.leftChild);
+                        break;
+                    }
+                    t = t.leftChild;
+                } else {
+                    sum += extent(t.leftChild) + t.spacing + t.height;
+                    index -= leftCount + 1;
+                    t = t.rightChild;
+                }
+            }
+            return sum;
+        }
+
+        /**
+         * Return the last row whose start (the extent of the previous rows plus its own spacing) is less than or
+         * equal to the specified target, or -1 if there is no such row.
+         */
+        int findRowStartingAtOrBefore(int target) {
+            int result = -1;
+            int base = 0;
+            int prefix = 0;
+            RowEntry t = root;
+            while (t != null) {
+                int start = prefix + extent(t.leftChild) + t.spacing;
+                if (start <= target) {
+                    result = base + count(t.leftChild);
+                    base = result + 1;
+                    prefix = start + t.height;
+                    t = t.rightChild;
+                } else {
+                    t = t.leftChild;
+                }
+            }
+            return result;
+        }
+
+        void insert(int index, @NotNull RowEntry[] entries) {
+            RowEntry middle = build(entries);
+            RowEntry[] parts = split(root, index);
+            root = merge(merge(parts[0], middle), parts[1]);
+            if (root != null) {
+                root.parent = null;
+            }
+        }
+
+        void remove(int index, int count) {
+            RowEntry[] a = split(root, index);
+            RowEntry[] b = split(a[1], count);
+            if (b[0] != null) {
+                b[0].parent = null;
+            }
+            root = merge(a[0], b[1]);
+            if (root != null) {
+                root.parent = null;
+            }
+        }
+
+        void update(@NotNull RowEntry e, int height, int right) {
+            e.height = height;
+            e.right = right;
+            for (RowEntry t = e; t != null; t = t.parent) {
+                pull(t);
+            }
+        }
+
+        /**
+         * Apply a change to every entry and recompute the aggregate values.
+         */
+        void resetAll(@NotNull RowEntryConsumer c) {
+            resetAll(root, 0, c);
+        }
+
+        private void resetAll(@Nullable RowEntry t, int firstRow, @NotNull RowEntryConsumer c) {
+            if (t != null) {
+                int row = firstRow + count(t.leftChild);
+                resetAll(t.leftChild, firstRow, c);
+                c.accept(t, row);
+                resetAll(t.rightChild, row + 1, c);
+                pull(t);
+            }
+        }
+
+        /**
+         * Build a treap from a sequence of entries in linear time.
+         */
+        private @Nullable RowEntry build(@NotNull RowEntry[] entries) {
+            RowEntry[] stack = new RowEntry[entries.length];
+            int top = -1;
+            for (RowEntry e : entries) {
+                e.priority = random.nextInt();
+                e.leftChild = e.rightChild = e.parent = null;
+                RowEntry last = null;
+                while (top >= 0 && stack[top].priority < e.priority) {
+                    last = stack[top--];
+                }
+                e.leftChild = last;
+                if (top >= 0) {
+                    stack[top].rightChild = e;
+                }
+                stack[++top] = e;
+            }
+            RowEntry result = top >= 0 ? stack[0] : null;
+            pullAll(result);
+            return result;
+        }
+
+        private void pullAll(@Nullable RowEntry t) {
+            if (t != null) {
+                pullAll(t.leftChild);
+                pullAll(t.rightChild);
+                pull(t);
+            }
+        }
+
+        /**
+         * Split a treap into the first {@code index} entries and the remaining entries.
+         */
+        private @NotNull RowEntry[] split(@Nullable RowEntry t, int index) {
+            if (t == null) {
+                return new RowEntry[2];
+            }
+            int leftCount = count(t.leftChild);
+            if (index <= leftCount) {
+                RowEntry[] parts = split(t.leftChild, index);
+                t.leftChild = parts[1];
+                pull(t);
+                parts[1] = t;
+                if (parts[0] != null) {
+                    parts[0].parent = null;
+                }
+                return parts;
+            } else {
+                RowEntry[] parts = split(t.rightChild, index - leftCount - 1);
+                t.rightChild = parts[0];
+                pull(t);
+                parts[0] = t;
+                if (parts[1] != null) {
+                    parts[1].parent = null;
+                }
+                return parts;
+            }
+        }
+
+        private @Nullable RowEntry merge(@Nullable RowEntry a, @Nullable RowEntry b) {
+            if (a == null) {
+                return b;
+            }
+            if (b == null) {
+                return a;
+            }
+            if (a.priority > b.priority) {
+                a.rightChild = merge(a.rightChild, b);
+                pull(a);
+                return a;
+            } else {
+                b.leftChild = merge(a, b.leftChild);
+                pull(b);
+                return b;
+            }
+        }
+
+        private static void pull(@NotNull RowEntry t) {
+            RowEntry l = t.leftChild;
+            RowEntry r = t.rightChild;
+            t.count = 1 + count(l) + count(r);
+            t.extent = t.spacing + t.height + extent(l) + extent(r);
+            t.maximumRight = Math.max(t.right, Math.max(maximumRight(l), maximumRight(r)));
+            if (l != null) {
+                l.parent = t;
+            }
+            if (r != null) {
+                r.parent = t;
+            }
+        }
+
+        private static int count(@Nullable RowEntry t) {
+            return t != null ? t.count : 0;
+        }
+
+        private static int extent(@Nullable RowEntry t) {
+            return t != null ? t.extent : 0;
+        }
+
+        private static int maximumRight(@Nullable RowEntry t) {
+            return t != null ? t.maximumRight : 0;
+        }
+    }
+}
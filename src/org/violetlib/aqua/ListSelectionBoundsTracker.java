@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2021-2024 Alan Snyder.
+ * Copyright (c) 2021-2026 Alan Snyder.
  * All rights reserved.
  *
  * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
@@ -78,47 +78,60 @@ public abstract class ListSelectionBoundsTracker implements SelectionBoundsTrack
         }
     }
 
+    /**
+     * Create a description of the selected rows that are visible. Runs of adjacent selected rows are described by a
+     * single region. The work is proportional to the number of visible rows, not the number of selected rows.
+     */
     private @NotNull SelectionBoundsDescription getSelectionBoundsDescription(@NotNull JList<?> list) {
-        int regionCount = 0;
+        SelectionBoundsDescription d = new SelectionBoundsDescription();
+
+        int first = list.getFirstVisibleIndex();
+        int last = list.getLastVisibleIndex();
+        if (first < 0 || last < first) {
+            return d;
+        }
 
         // If a drop target is active, the "drop on" row should be highlighted
         int dropTargetRow = -1;
         JList.DropLocation loc = list.getDropLocation();
         if (loc != null && !loc.isInsert()) {
             dropTargetRow = loc.getIndex();
-            if (dropTargetRow >= 0) {
-                regionCount = 1;
-            }
-        }
-
-        int[] temp = null;
-        int min = list.getMinSelectionIndex();
-        int max = list.getMaxSelectionIndex();
-        if ((min >= 0) && (max >= min)) {
-            temp = new int[max - min + 1];
-            int n = 0;
-            for (int i = min; i <= max; i++) {
-                if (list.isSelectedIndex(i) && i != dropTargetRow) {
-                    temp[n++] = i;
-                    regionCount++;
+            if (dropTargetRow >= first && dropTargetRow <= last) {
+                Rectangle bounds = list.getCellBounds(dropTargetRow, dropTargetRow);
+                if (bounds != null) {
+                    int y = convertRowYCoordinateToSelectionDescription(bounds.y);
+                    d.addDropTargetRegion(y, bounds.height);
                 }
             }
         }
 
-        SelectionBoundsDescription d = new SelectionBoundsDescription(regionCount);
-        if (dropTargetRow >= 0) {
-            Rectangle bounds = list.getCellBounds(dropTargetRow, dropTargetRow);
-            int y = convertRowYCoordinateToSelectionDescription(bounds.y);
-            d.addDropTargetRegion(y, bounds.height);
-            regionCount--;
+        int min = Math.max(first, list.getMinSelectionIndex());
+        int max = Math.min(last, list.getMaxSelectionIndex());
+        if (min < 0 || max < min) {
+            return d;
         }
-        if (regionCount > 0) {
-            for (int i = 0; i < regionCount; i++) {
-                int row = temp[i];
-                Rectangle bounds = list.getCellBounds(row, row);
+
+        // In a wrapped layout, adjacent rows are not necessarily vertically adjacent
+        boolean isVertical = list.getLayoutOrientation() == JList.VERTICAL;
+        ListSelectionModel sm = list.getSelectionModel();
+        int row = min;
+        while (row <= max) {
+            if (row == dropTargetRow || !sm.isSelectedIndex(row)) {
+                row++;
+                continue;
+            }
+            int runEnd = row;
+            if (isVertical) {
+                while (runEnd < max && runEnd + 1 != dropTargetRow && sm.isSelectedIndex(runEnd + 1)) {
+                    runEnd++;
+                }
+            }
+            Rectangle bounds = list.getCellBounds(row, runEnd);
+            if (bounds != null) {
                 int y = convertRowYCoordinateToSelectionDescription(bounds.y);
                 d.addRegion(y, bounds.height);
             }
+            row = runEnd + 1;
         }
         return d;
     }
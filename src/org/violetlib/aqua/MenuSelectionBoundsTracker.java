@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2021 Alan Snyder.
+ * Copyright (c) 2021-2026 Alan Snyder.
  * All rights reserved.
  *
  * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
@@ -9,6 +9,7 @@
 package org.violetlib.aqua;
 
 import java.awt.*;
+import java.util.Objects;
 import java.util.function.Consumer;
 import javax.swing.*;
 
@@ -105,10 +106,14 @@ public abstract class MenuSelectionBoundsTracker implements SelectionBoundsTrack
     }
 
     private void selectionRegionChanged() {
-        currentSelectionDescription
+        SelectionBoundsDescription d
           = selectedItemRegion != null? SelectionBoundsDescription.create(selectedItemRegion) : null;
-        if (consumer != null) {
-            consumer.accept(currentSelectionDescription);
+        // A change of selected item does not necessarily change the selection region
+        if (!Objects.equals(d, currentSelectionDescription)) {
+            currentSelectionDescription = d;
+            if (consumer != null) {
+                consumer.accept(currentSelectionDescription);
+            }
         }
     }
 
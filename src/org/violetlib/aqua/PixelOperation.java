@@ -0,0 +1,247 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.aqua;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.function.Function;
+import javax.swing.*;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * An image operation that transforms each pixel independently. Unlike an {@link java.awt.image.RGBImageFilter}, the
+ * operation is applied directly to the pixel array of a {@link BufferedImage} in a single loop, using lookup tables in
+ * place of per-pixel arithmetic where possible.
+ * <p>
+ * Pixels are presented to the operation in non-premultiplied ARGB form, as they are to an RGBImageFilter.
+ * An operation is immutable and may be shared.
+ */
+
+public abstract class PixelOperation implements AquaMultiResolutionImage.Mapper, Function<Image,Image> {
+
+    /**
+     * Create an image by applying this operation. Supports multi-resolution images. The generic mapper is used
+     * because it maps each resolution variant of any multi-resolution image, including toolkit images; the
+     * operation does not depend on the scale factor.
+     */
+    public @NotNull Image applyTo(@NotNull Image source) {
+        return AquaMultiResolutionImage.apply(source, (Function<Image,Image>) this);
+    }
+
+    @Override
+    public @NotNull BufferedImage map(@NotNull Image source, int scaleFactor) {
+        return apply(source);
+    }
+
+    @Override
+    public @NotNull BufferedImage apply(@NotNull Image source) {
+        BufferedImage result = copy(source);
+        int[] data = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
+        filter(data, 0, data.length);
+        return result;
+    }
+
+    /**
+     * Transform a range of pixels in place.
+     * @param pixels The pixels, in non-premultiplied ARGB form.
+     * @param offset The index of the first pixel to transform.
+     * @param length The number of pixels to transform.
+     */
+    public abstract void filter(@NotNull int[] pixels, int offset, int length);
+
+    /**
+     * Create an image with an unshared pixel array that can be transformed in place.
+     */
+    private static @NotNull BufferedImage copy(@NotNull Image source) {
+        if (!(source instanceof BufferedImage)) {
+            // Force the image to be loaded.
+            source = new ImageIcon(source).getImage();
+        }
+        int width = Math.max(1, source.getWidth(null));
+        int height = Math.max(1, source.getHeight(null));
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        if (source instanceof BufferedImage) {
+            int[] data = ((DataBufferInt) result.getRaster().getDataBuffer()).getData();
+            ((BufferedImage) source).getRGB(0, 0, width, height, data, 0, width);
+        } else {
+            Graphics2D g = result.createGraphics();
+            g.setComposite(AlphaComposite.Src);
+            g.drawImage(source, 0, 0, null);
+            g.dispose();
+        }
+        return result;
+    }
+
+    /**
+     * Return an operation that maps each color channel independently using the specified function. The function is
+     * evaluated once per channel value.
+     */
+    public static @NotNull PixelOperation createChannelOperation(@NotNull ChannelFunction f) {
+        return new ChannelLookupOperation(f);
+    }
+
+    /**
+     * Return an operation that darkens an image by reducing each color channel to the specified percentage.
+     */
+    public static @NotNull PixelOperation createDarkenOperation(int percent) {
+        return createChannelOperation(c -> clamp((c * percent) / 100));
+    }
+
+    /**
+     * Return an operation that lightens an image by reducing the distance of each color channel from white to the
+     * specified percentage.
+     */
+    public static @NotNull PixelOperation createLightenOperation(int percent) {
+        return createChannelOperation(c -> clamp(255 - ((255 - c) * percent) / 100));
+    }
+
+    /**
+     * Return an operation that subtracts a function of the pixel luminance from each color channel.
+     */
+    public static @NotNull PixelOperation createGraySubtractOperation(@NotNull ChannelFunction f) {
+        return new GrayOperation(f, true);
+    }
+
+    /**
+     * Return an operation that replaces the color of each pixel with a gray determined by a function of the pixel
+     * luminance.
+     */
+    public static @NotNull PixelOperation createGrayReplaceOperation(@NotNull ChannelFunction f) {
+        return new GrayOperation(f, false);
+    }
+
+    /**
+     * Return an operation equivalent to {@link GrayFilter}.
+     */
+    public static @NotNull PixelOperation createGrayFilterOperation(boolean brighter, int percent) {
+        if (brighter) {
+            return createGrayReplaceOperation(g -> clamp(255 - ((255 - g) * (100 - percent) / 100)));
+        } else {
+            return createGrayReplaceOperation(g -> clamp(g * (100 - percent) / 100));
+        }
+    }
+
+    /**
+     * Return an operation that applies a symmetric color matrix in which each output channel is {@code a} times the
+     * corresponding input channel plus {@code c} times the next channel plus {@code b} times the following channel.
+     */
+    public static @NotNull PixelOperation createRotatingMatrixOperation(float a, float b, float c) {
+        return new MatrixOperation(a, b, c);
+    }
+
+    public interface ChannelFunction {
+        int apply(int value);
+    }
+
+    private static int clamp(int c) {
+        return c < 0 ? 0 : c > 255 ? 255 : c;
+    }
+
+    private static class ChannelLookupOperation extends PixelOperation {
+        private final @NotNull int[] table = new int[256];
+
+        ChannelLookupOperation(@NotNull ChannelFunction f) {
+            for (int i = 0; i < 256; i++) {
+                table[i] = clamp(f.apply(i));
+            }
+        }
+
+        @Override
+        public void filter(@NotNull int[] pixels, int offset, int length) {
+            int[] t = table;
+            int limit = offset + length;
+            for (int i = offset; i < limit; i++) {
+                int rgb = pixels[i];
+                pixels[i] = (rgb & 0xff000000)
+                  | (t[(rgb >> 16) & 0xff] << 16) | (t[(rgb >> 8) & 0xff] << 8) | t[rgb & 0xff];
+            }
+        }
+    }
+
+    private static class GrayOperation extends PixelOperation {
+        // The luminance weights, per channel value. The sum is computed in the same order as the filters that these
+        // operations replace, so the results are identical.
+        private static final double[] RED_WEIGHT = new double[256];
+        private static final double[] GREEN_WEIGHT = new double[256];
+        private static final double[] BLUE_WEIGHT = new double[256];
+
+        static {
+            for (int i = 0; i < 256; i++) {
+                RED_WEIGHT[i] = 0.30 * i;
+                GREEN_WEIGHT[i] = 0.59 * i;
+                BLUE_WEIGHT[i] = 0.11 * i;
+            }
+        }
+
+        private final @NotNull int[] grayTable = new int[256];
+        private final boolean isSubtract;
+
+        GrayOperation(@NotNull ChannelFunction f, boolean isSubtract) {
+            for (int i = 0; i < 256; i++) {
+                grayTable[i] = isSubtract ? f.apply(i) : clamp(f.apply(i));
+            }
+            this.isSubtract = isSubtract;
+        }
+
+        @Override
+        public void filter(@NotNull int[] pixels, int offset, int length) {
+            int[] t = grayTable;
+            int limit = offset + length;
+            for (int i = offset; i < limit; i++) {
+                int rgb = pixels[i];
+                int red = (rgb >> 16) & 0xff;
+                int green = (rgb >> 8) & 0xff;
+                int blue = rgb & 0xff;
+                int gray = t[(int) ((RED_WEIGHT[red] + GREEN_WEIGHT[green] + BLUE_WEIGHT[blue]) / 3)];
+                if (isSubtract) {
+                    red = clamp(red - gray);
+                    green = clamp(green - gray);
+                    blue = clamp(blue - gray);
+                    pixels[i] = (rgb & 0xff000000) | (red << 16) | (green << 8) | blue;
+                } else {
+                    pixels[i] = (rgb & 0xff000000) | (gray << 16) | (gray << 8) | gray;
+                }
+            }
+        }
+    }
+
+    private static class MatrixOperation extends PixelOperation {
+        private final @NotNull float[] aTable = new float[256];
+        private final @NotNull float[] bTable = new float[256];
+        private final @NotNull float[] cTable = new float[256];
+
+        MatrixOperation(float a, float b, float c) {
+            for (int i = 0; i < 256; i++) {
+                aTable[i] = a * i;
+                bTable[i] = b * i;
+                cTable[i] = c * i;
+            }
+        }
+
+        @Override
+        public void filter(@NotNull int[] pixels, int offset, int length) {
+            float[] a = aTable;
+            float[] b = bTable;
+            float[] c = cTable;
+            int limit = offset + length;
+            for (int i = offset; i < limit; i++) {
+                int rgb = pixels[i];
+                int red = (rgb >>> 16) & 0xff;
+                int green = (rgb >>> 8) & 0xff;
+                int blue = rgb & 0xff;
+                int outputRed = (int) (a[red] + c[green] + b[blue]);
+                int outputGreen = (int) (b[red] + a[green] + c[blue]);
+                int outputBlue = (int) (c[red] + b[green] + a[blue]);
+                pixels[i] = (rgb & 0xff000000) | (outputRed << 16) | (outputGreen << 8) | outputBlue;
+            }
+        }
+    }
+}
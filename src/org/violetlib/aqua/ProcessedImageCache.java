@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2018-2021 Alan Snyder.
+ * Copyright (c) 2018-2026 Alan Snyder.
  * All rights reserved.
  *
  * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
@@ -9,22 +9,43 @@
 package org.violetlib.aqua;
 
 import java.awt.*;
-import java.lang.ref.SoftReference;
-import java.util.HashMap;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.WeakHashMap;
+import java.util.function.Predicate;
 import javax.swing.*;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 /**
- * Softly cache processed images and image analysis results to avoid recomputation.
+ * Cache processed images and image analysis results to avoid recomputation.
+ * <p>
+ * Image analysis results are weakly cached per source image. Processed images are retained in a single least recently
+ * used list that spans all source images and is bounded by an estimate of the memory used by the processed images.
  */
 
 public abstract class ProcessedImageCache {
 
+    public static final long DEFAULT_BYTE_BUDGET = 16L * 1024 * 1024;
+
     private final WeakHashMap<Object,ImageInfo> imageMap = new WeakHashMap<>();
+    private final LinkedHashMap<VariantKey,Variant> variants = new LinkedHashMap<>(64, 0.75f, true);
+    private final Map<String,OperatorCounters> counters = new LinkedHashMap<>();
+    private long byteBudget;
+    private long byteCount;
+
+    protected ProcessedImageCache(long byteBudget) {
+        this.byteBudget = byteBudget;
+    }
+
+    protected ProcessedImageCache() {
+        this(DEFAULT_BYTE_BUDGET);
+    }
 
     /**
      * Return the processed version of the specified icon.
@@ -32,9 +53,9 @@ public abstract class ProcessedImageCache {
      * @param operator The operation to be performed on the icon image, or null to return the actual icon image.
      * @return the processed version of {@code icon}, or null if the icon is not valid.
      */
-    public @Nullable Image getProcessedImage(@NotNull Icon icon, @Nullable Object operator) {
+    public synchronized @Nullable Image getProcessedImage(@NotNull Icon icon, @Nullable Object operator) {
         ImageInfo info = getIconImageInfo(icon);
-        return info != null ? info.getProcessedImage(operator) : null;
+        return info != null ? getProcessedImage(info, operator) : null;
     }
 
     /**
@@ -43,9 +64,9 @@ public abstract class ProcessedImageCache {
      * @param operator The operation to be performed on the image.
      * @return the processed version of {@code image}.
      */
-    public @NotNull Image getProcessedImage(@NotNull Image image, @NotNull Object operator) {
+    public synchronized @NotNull Image getProcessedImage(@NotNull Image image, @NotNull Object operator) {
         ImageInfo info = getImageInfo(image);
-        return info.getProcessedImage(operator);
+        return getProcessedImage(info, operator);
     }
 
     /**
@@ -53,7 +74,7 @@ public abstract class ProcessedImageCache {
      * @param image The image.
      * @return true if and only if the image is a template image.
      */
-    public boolean isTemplateImage(@NotNull Image image) {
+    public synchronized boolean isTemplateImage(@NotNull Image image) {
         ImageInfo info = getImageInfo(image);
         return info.isTemplate;
     }
@@ -63,11 +84,72 @@ public abstract class ProcessedImageCache {
      * @param icon The icon.
      * @return true if and only if the icon is a template image.
      */
-    public boolean isTemplateIcon(@NotNull Icon icon) {
+    public synchronized boolean isTemplateIcon(@NotNull Icon icon) {
         ImageInfo info = getIconImageInfo(icon);
         return info != null && info.isTemplate;
     }
 
+    /**
+     * Return the maximum estimated number of bytes used by retained processed images.
+     */
+    public synchronized long getByteBudget() {
+        return byteBudget;
+    }
+
+    /**
+     * Specify the maximum estimated number of bytes used by retained processed images. Least recently used processed
+     * images are discarded as needed to satisfy the new budget.
+     */
+    public synchronized void setByteBudget(long byteBudget) {
+        this.byteBudget = Math.max(0, byteBudget);
+        trim();
+    }
+
+    /**
+     * Discard all processed images. Image analysis results are retained.
+     */
+    public synchronized void flush() {
+        variants.clear();
+        byteCount = 0;
+        for (OperatorCounters c : counters.values()) {
+            c.byteCount = 0;
+            c.entryCount = 0;
+        }
+    }
+
+    /**
+     * Discard the processed images created by operators that satisfy the specified predicate.
+     */
+    public synchronized void flush(@NotNull Predicate<Object> operatorTest) {
+        Iterator<Variant> it = variants.values().iterator();
+        while (it.hasNext()) {
+            Variant v = it.next();
+            if (operatorTest.test(v.key.operator)) {
+                it.remove();
+                released(v);
+            }
+        }
+    }
+
+    /**
+     * Return a snapshot of the cache statistics, one entry per operator name.
+     */
+    public synchronized @NotNull List<OperatorStatistics> getStatistics() {
+        List<OperatorStatistics> result = new ArrayList<>(counters.size());
+        for (Map.Entry<String,OperatorCounters> e : counters.entrySet()) {
+            OperatorCounters c = e.getValue();
+            result.add(new OperatorStatistics(e.getKey(), c.hitCount, c.missCount, c.entryCount, c.byteCount));
+        }
+        return Collections.unmodifiableList(result);
+    }
+
+    /**
+     * Return the estimated number of bytes used by the retained processed images.
+     */
+    public synchronized long getByteCount() {
+        return byteCount;
+    }
+
     private @Nullable ImageInfo getIconImageInfo(@NotNull Icon icon) {
         ImageInfo info = imageMap.get(icon);
         if (info == null) {
@@ -90,49 +172,205 @@ public abstract class ProcessedImageCache {
         return info;
     }
 
-    private class ImageInfo {
-        @NotNull Image source;
-        boolean isTemplate;
-        @Nullable Map<Object,SoftReference<Image>> processedImageMap;
+    private @NotNull Image getProcessedImage(@NotNull ImageInfo info, @Nullable Object operator) {
+        if (operator == null) {
+            return info.source;
+        }
 
-        private ImageInfo(@NotNull Image source, boolean isTemplate) {
-            this.source = source;
-            this.isTemplate = isTemplate;
+        OperatorCounters c = getCounters(operator);
+        VariantKey key = new VariantKey(info, operator);
+        Variant v = variants.get(key);
+        if (v != null) {
+            c.hitCount++;
+            return v.image;
         }
+        c.missCount++;
 
-        public @NotNull Image getProcessedImage(@Nullable Object operator) {
-            if (processedImageMap == null) {
-                processedImageMap = new HashMap<>();
+        Image result;
+        if (operator instanceof Color) {
+            Color color = (Color) operator;
+            if (info.isTemplate) {
+                result = createImageFromTemplate(info.source, color);
+            } else {
+                return info.source;
             }
+        } else {
+            result = createProcessedImage(info.source, operator);
+        }
+        if (result == info.source) {
+            return result;
+        }
 
-            Image result = null;
-            SoftReference<Image> imageRef = processedImageMap.get(operator);
-            if (imageRef != null) {
-                result = imageRef.get();
-            }
+        v = new Variant(key, result, estimateByteCount(result), c);
+        variants.put(key, v);
+        byteCount += v.byteCount;
+        c.byteCount += v.byteCount;
+        c.entryCount++;
+        trim();
+        return result;
+    }
 
-            if (result != null) {
-                return result;
-            }
+    private void trim() {
+        Iterator<Variant> it = variants.values().iterator();
+        while (byteCount > byteBudget && it.hasNext()) {
+            Variant v = it.next();
+            it.remove();
+            released(v);
+        }
+    }
 
-            if (operator == null) {
-                result = source;
-            } else if (operator instanceof Color) {
-                Color color = (Color) operator;
-                if (isTemplate) {
-                    result = createImageFromTemplate(source, color);
-                } else {
-                    result = source;
-                }
-            } else {
-                result = createProcessedImage(source, operator);
-            }
-            processedImageMap.put(operator, new SoftReference<>(result));
-            return result;
+    private void released(@NotNull Variant v) {
+        byteCount -= v.byteCount;
+        v.counters.byteCount -= v.byteCount;
+        v.counters.entryCount--;
+    }
+
+    private @NotNull OperatorCounters getCounters(@NotNull Object operator) {
+        String name = getOperatorName(operator);
+        OperatorCounters c = counters.get(name);
+        if (c == null) {
+            c = new OperatorCounters();
+            counters.put(name, c);
         }
+        return c;
+    }
+
+    /**
+     * Estimate the memory used by a processed image. A multi-resolution image is assumed to have a 1x and a 2x
+     * representation.
+     */
+    protected long estimateByteCount(@NotNull Image image) {
+        int width = Math.max(0, image.getWidth(null));
+        int height = Math.max(0, image.getHeight(null));
+        long pixels = (long) width * height;
+        if (image instanceof AquaMultiResolutionImage) {
+            pixels *= 5;
+        }
+        return 4 * pixels;
+    }
+
+    /**
+     * Return the name used to report statistics for the specified operator.
+     */
+    protected @NotNull String getOperatorName(@NotNull Object operator) {
+        if (operator instanceof Color) {
+            return "Template";
+        }
+        return operator.getClass().getSimpleName();
     }
 
     protected abstract boolean determineTemplateImage(@NotNull Image source);
     protected abstract @NotNull Image createImageFromTemplate(@NotNull Image source, @NotNull Color color);
     protected abstract @NotNull Image createProcessedImage(@NotNull Image source, @NotNull Object operator);
+
+    /**
+     * Statistics for the processed images created by one kind of operator.
+     */
+    public static final class OperatorStatistics {
+        private final @NotNull String operatorName;
+        private final long hitCount;
+        private final long missCount;
+        private final int entryCount;
+        private final long byteCount;
+
+        private OperatorStatistics(@NotNull String operatorName, long hitCount, long missCount, int entryCount,
+                                   long byteCount) {
+            this.operatorName = operatorName;
+            this.hitCount = hitCount;
+            this.missCount = missCount;
+            this.entryCount = entryCount;
+            this.byteCount = byteCount;
+        }
+
+        public @NotNull String getOperatorName() {
+            return operatorName;
+        }
+
+        public long getHitCount() {
+            return hitCount;
+        }
+
+        public long getMissCount() {
+            return missCount;
+        }
+
+        public double getHitRate() {
+            long total = hitCount + missCount;
+            return total > 0 ? (double) hitCount / total : 0;
+        }
+
+        /**
+         * Return the number of processed images currently retained.
+         */
+        public int getEntryCount() {
+            return entryCount;
+        }
+
+        /**
+         * Return the estimated number of bytes used by the processed images currently retained.
+         */
+        public long getByteCount() {
+            return byteCount;
+        }
+
+        @Override
+        public @NotNull String toString() {
+            return operatorName + ": " + entryCount + " images, " + byteCount + " bytes, hit rate "
+              + Math.round(getHitRate() * 100) + "%";
+        }
+    }
+
+    private static class ImageInfo {
+        final @NotNull Image source;
+        final boolean isTemplate;
+
+        private ImageInfo(@NotNull Image source, boolean isTemplate) {
+            this.source = source;
+            this.isTemplate = isTemplate;
+        }
+    }
+
+    private static final class VariantKey {
+        final @NotNull ImageInfo info;
+        final @NotNull Object operator;
+
+        VariantKey(@NotNull ImageInfo info, @NotNull Object operator) {
+            this.info = info;
+            this.operator = operator;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof VariantKey)) return false;
+            VariantKey that = (VariantKey) o;
+            return info == that.info && operator.equals(that.operator);
+        }
+
+        @Override
+        public int hashCode() {
+            return 31 * System.identityHashCode(info) + operator.hashCode();
+        }
+    }
+
+    private static final class Variant {
+        final @NotNull VariantKey key;
+        final @NotNull Image image;
+        final long byteCount;
+        final @NotNull OperatorCounters counters;
+
+        Variant(@NotNull VariantKey key, @NotNull Image image, long byteCount, @NotNull OperatorCounters counters) {
+            this.key = key;
+            this.image = image;
+            this.byteCount = byteCount;
+            this.counters = counters;
+        }
+    }
+
+    private static final class OperatorCounters {
+        long hitCount;
+        long missCount;
+        int entryCount;
+        long byteCount;
+    }
 }
@@ -0,0 +1,99 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.aqua;
+
+import java.awt.*;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Paints the backgrounds of a sequence of rows, from top to bottom. A run of adjacent rows that have the same
+ * background color is painted using a single fill. The pending run is painted by {@link #flush}, which must be called
+ * before anything else is painted over the rows.
+ */
+
+public class RowBandPainter {
+
+    private final @NotNull Graphics g;
+    private final int x;
+    private final int width;
+
+    private @Nullable Color color;
+    private int top;
+    private int bottom;
+
+    /**
+     * Create a painter for rows that extend horizontally over the specified range.
+     */
+    public RowBandPainter(@NotNull Graphics g, int x, int width) {
+        this.g = g;
+        this.x = x;
+        this.width = width;
+    }
+
+    /**
+     * Paint the background of a row.
+     * @param c The background color. If null, the row is not painted.
+     * @param y The top of the row.
+     * @param height The height of the row.
+     */
+    public void paintRow(@Nullable Color c, int y, int height) {
+        if (c != null && y == bottom && c.equals(color)) {
+            bottom += height;
+            return;
+        }
+        flush();
+        color = c;
+        top = y;
+        bottom = y + height;
+    }
+
+    /**
+     * Paint the pending run of rows.
+     */
+    public void flush() {
+        if (color != null && bottom > top) {
+            g.setColor(color);
+            g.fillRect(x, top, width, bottom - top);
+        }
+        color = null;
+        top = bottom = 0;
+    }
+
+    /**
+     * Return the index of the first row of uniform height that intersects the specified clip.
+     * @param clip The clip bounds, or null if there is no clip.
+     * @param origin The Y coordinate of the top of the first row.
+     * @param rowHeight The row height.
+     */
+    public static int getFirstRow(@Nullable Rectangle clip, int origin, int rowHeight) {
+        if (clip == null || rowHeight <= 0) {
+            return 0;
+        }
+        return Math.max(0, (clip.y - origin) / rowHeight);
+    }
+
+    /**
+     * Return the index of the last row of uniform height that intersects the specified clip, limited by the specified
+     * row count.
+     * @param clip The clip bounds, or null if there is no clip.
+     * @param origin The Y coordinate of the top of the first row.
+     * @param rowHeight The row height.
+     * @param rowCount The number of rows.
+     */
+    public static int getLastRow(@Nullable Rectangle clip, int origin, int rowHeight, int rowCount) {
+        int last = rowCount - 1;
+        if (clip == null || rowHeight <= 0) {
+            return last;
+        }
+        int bottom = clip.y + clip.height - 1 - origin;
+        return bottom < 0 ? -1 : Math.min(last, bottom / rowHeight);
+    }
+}
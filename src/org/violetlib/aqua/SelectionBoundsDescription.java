@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015-2024 Alan Snyder.
+ * Copyright (c) 2015-2026 Alan Snyder.
  * All rights reserved.
  *
  * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
@@ -9,7 +9,6 @@
 package org.violetlib.aqua;
 
 import java.util.Arrays;
-import java.util.Objects;
 
 import org.jetbrains.annotations.NotNull;
 
@@ -28,14 +27,29 @@ public class SelectionBoundsDescription {
     private int regionCount;
     private int lastY;
     private int lastH;
-    private final int[] data;
+    private int[] data;
 
     /**
      * Create a selection bounds description with no regions.
-     * @param maximumRegionCount The maximum number of regions that can be stored.
      */
-    public SelectionBoundsDescription(int maximumRegionCount) {
-        data = new int[maximumRegionCount*2+1];
+    public SelectionBoundsDescription() {
+        this(4);
+    }
+
+    /**
+     * Create a selection bounds description with no regions.
+     * @param expectedRegionCount The number of regions for which space is allocated initially. Additional space is
+     * allocated as needed.
+     */
+    public SelectionBoundsDescription(int expectedRegionCount) {
+        data = new int[Math.max(0, expectedRegionCount)*2+1];
+    }
+
+    /**
+     * Return the number of regions.
+     */
+    public int getRegionCount() {
+        return regionCount;
     }
 
     /**
@@ -78,6 +92,9 @@ public class SelectionBoundsDescription {
             data[regionCount*2] += h;
         } else {
             ++regionCount;
+            if (regionCount*2 >= data.length) {
+                data = Arrays.copyOf(data, regionCount*4+1);
+            }
             data[0] = regionCount;
             data[regionCount*2-1] = y;
             data[regionCount*2] = h;
@@ -90,6 +107,10 @@ public class SelectionBoundsDescription {
      * Return the selection bounds description as an integer array for the purpose of passing to native code.
      */
     public int[] getData() {
+        int length = regionCount*2+1;
+        if (data.length != length) {
+            data = Arrays.copyOf(data, length);
+        }
         return data;
     }
 
@@ -98,11 +119,19 @@ public class SelectionBoundsDescription {
         if (this == o) return true;
         if (o == null || getClass() != o.getClass()) return false;
         SelectionBoundsDescription that = (SelectionBoundsDescription) o;
-        return regionCount == that.regionCount && Arrays.equals(data, that.data);
+        if (regionCount != that.regionCount) return false;
+        for (int i = regionCount*2; i > 0; i--) {
+            if (data[i] != that.data[i]) return false;
+        }
+        return true;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(regionCount, Arrays.hashCode(data));
+        int result = regionCount;
+        for (int i = 1; i <= regionCount*2; i++) {
+            result = 31 * result + data[i];
+        }
+        return result;
     }
 }
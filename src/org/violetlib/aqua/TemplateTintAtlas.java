@@ -0,0 +1,210 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.aqua;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import javax.swing.*;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A set of template images that are tinted together. The templates are packed into one shared image per scale factor.
+ * The first request for a replacement color tints the whole packed image at once; the tinted versions of the
+ * individual templates are views of the tinted packed image that share its raster.
+ * <p>
+ * A replacement color is the color resolved for a particular appearance and state, so an atlas tinted with that color
+ * serves every template in the set in that appearance and state.
+ * <p>
+ * The atlas provides 1x and 2x variants. A template that has a finer resolution variant is not included, so that it is
+ * tinted individually and its finer variant is preserved.
+ */
+
+public class TemplateTintAtlas {
+
+    private static final int MAXIMUM_ATLAS_WIDTH = 512;
+    private static final int MAXIMUM_TINTED_ATLAS_COUNT = 16;
+    private static final int[] SCALE_FACTORS = { 1, 2 };
+
+    private final @NotNull List<Image> templates;
+    private final @NotNull Map<Image,Integer> indexes = new IdentityHashMap<>();
+    private final @NotNull Rectangle[] layout;
+    private final int atlasWidth;
+    private final int atlasHeight;
+    private @Nullable BufferedImage[] masks;
+
+    // The tinted images, indexed by replacement color, least recently used first
+    private final @NotNull LinkedHashMap<Color,Image[]> tinted
+            = new LinkedHashMap<Color,Image[]>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Color,Image[]> eldest) {
+            return size() > MAXIMUM_TINTED_ATLAS_COUNT;
+        }
+    };
+
+    /**
+     * Create an atlas for the specified template images.
+     * @param images The template images. Images without pixels are ignored.
+     */
+    public TemplateTintAtlas(@NotNull Collection<? extends Image> images) {
+        templates = new ArrayList<>(images.size());
+        for (Image im : images) {
+            // Force the image to be loaded. Needed to obtain its size.
+            new ImageIcon(im);
+            int w = im.getWidth(null);
+            int h = im.getHeight(null);
+            if (w > 0 && h > 0 && !indexes.containsKey(im) && !hasFinerVariant(im, w, h)) {
+                indexes.put(im, templates.size());
+                templates.add(im);
+            }
+        }
+
+        // Simple shelf packing in logical pixels, with one pixel of padding to avoid bleeding when scaled.
+        layout = new Rectangle[templates.size()];
+        int x = 0;
+        int y = 0;
+        int shelfHeight = 0;
+        int width = 0;
+        for (int i = 0; i < layout.length; i++) {
+            Image im = templates.get(i);
+            int w = im.getWidth(null);
+            int h = im.getHeight(null);
+            if (x > 0 && x + w > MAXIMUM_ATLAS_WIDTH) {
+                x = 0;
+                y += shelfHeight + 1;
+                shelfHeight = 0;
+            }
+            layout[i] = new Rectangle(x, y, w, h);
+            x += w + 1;
+            shelfHeight = Math.max(shelfHeight, h);
+            width = Math.max(width, x);
+        }
+        atlasWidth = Math.max(1, width);
+        atlasHeight = Math.max(1, y + shelfHeight);
+    }
+
+    private static boolean hasFinerVariant(@NotNull Image im, int width, int height) {
+        int maximumScaleFactor = SCALE_FACTORS[SCALE_FACTORS.length - 1];
+        Image variant = JavaSupport.getResolutionVariant(im, width * 4, height * 4);
+        return variant.getWidth(null) > width * maximumScaleFactor;
+    }
+
+    /**
+     * Determine whether the specified image is part of this atlas.
+     */
+    public boolean contains(@NotNull Image template) {
+        return indexes.containsKey(template);
+    }
+
+    /**
+     * Return the template images in this atlas.
+     */
+    public @NotNull List<Image> getTemplates() {
+        return new ArrayList<>(templates);
+    }
+
+    /**
+     * Return the tinted version of a template image in this atlas.
+     * @param template The template image.
+     * @param replacementColor The replacement color.
+     * @return the tinted image, or null if {@code template} is not part of this atlas.
+     */
+    public synchronized @Nullable Image getTintedImage(@NotNull Image template, @NotNull Color replacementColor) {
+        Integer index = indexes.get(template);
+        if (index == null) {
+            return null;
+        }
+        Image[] images = tinted.get(replacementColor);
+        if (images == null) {
+            images = createTintedImages(replacementColor);
+            tinted.put(replacementColor, images);
+        }
+        return images[index];
+    }
+
+    /**
+     * Tint the atlas for the specified replacement color ahead of its first use.
+     */
+    public void prepare(@NotNull Color replacementColor) {
+        if (!templates.isEmpty()) {
+            getTintedImage(templates.get(0), replacementColor);
+        }
+    }
+
+    /**
+     * Discard the tinted images. The packed templates are retained.
+     */
+    public synchronized void flush() {
+        tinted.clear();
+    }
+
+    private @NotNull Image[] createTintedImages(@NotNull Color replacementColor) {
+        BufferedImage[] masks = getMasks();
+        BufferedImage[] tintedAtlases = new BufferedImage[masks.length];
+        for (int i = 0; i < masks.length; i++) {
+            tintedAtlases[i] = tint(masks[i], replacementColor);
+        }
+
+        Image[] result = new Image[templates.size()];
+        for (int i = 0; i < result.length; i++) {
+            Rectangle r = layout[i];
+            BufferedImage im1 = tintedAtlases[0].getSubimage(r.x, r.y, r.width, r.height);
+            BufferedImage im2 = tintedAtlases[1].getSubimage(r.x * 2, r.y * 2, r.width * 2, r.height * 2);
+            result[i] = JavaSupport.createMultiResolutionImage(im1, im2);
+        }
+        return result;
+    }
+
+    private static @NotNull BufferedImage tint(@NotNull BufferedImage mask, @NotNull Color replacementColor) {
+        int width = mask.getWidth();
+        int height = mask.getHeight();
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = result.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(mask, 0, 0, null);
+        g.setComposite(AlphaComposite.SrcIn);
+        g.setColor(replacementColor);
+        g.fillRect(0, 0, width, height);
+        g.dispose();
+        return result;
+    }
+
+    private synchronized @NotNull BufferedImage[] getMasks() {
+        if (masks == null) {
+            masks = new BufferedImage[SCALE_FACTORS.length];
+            for (int i = 0; i < SCALE_FACTORS.length; i++) {
+                masks[i] = createMask(SCALE_FACTORS[i]);
+            }
+        }
+        return masks;
+    }
+
+    private @NotNull BufferedImage createMask(int scaleFactor) {
+        BufferedImage mask = new BufferedImage(atlasWidth * scaleFactor, atlasHeight * scaleFactor,
+          BufferedImage.TYPE_INT_ARGB_PRE);
+        Graphics2D g = mask.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        for (int i = 0; i < layout.length; i++) {
+            Rectangle r = layout[i];
+            int w = r.width * scaleFactor;
+            int h = r.height * scaleFactor;
+            Image source = JavaSupport.getResolutionVariant(templates.get(i), w, h);
+            g.drawImage(source, r.x * scaleFactor, r.y * scaleFactor, w, h, null);
+        }
+        g.dispose();
+        return mask;
+    }
+}
@@ -1,5 +1,5 @@
 /*
- * Copyright (c) 2015-2023 Alan Snyder.
+ * Copyright (c) 2015-2026 Alan Snyder.
  * All rights reserved.
  *
  * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
@@ -80,8 +80,22 @@ public abstract class TreeSelectionBoundsTracker implements SelectionBoundsTrack
         }
     }
 
+    /**
+     * Create a description of the selected rows that are visible. Adjacent selected rows are combined into a single
+     * region. The work is proportional to the number of visible rows, not the number of selected rows.
+     */
     private @NotNull SelectionBoundsDescription getSelectionBoundsDescription(@NotNull JTree tree) {
-        int regionCount = 0;
+        SelectionBoundsDescription d = new SelectionBoundsDescription();
+
+        Rectangle visible = tree.getVisibleRect();
+        if (visible.isEmpty() || tree.getRowCount() == 0) {
+            return d;
+        }
+        int first = tree.getClosestRowForLocation(visible.x, visible.y);
+        int last = tree.getClosestRowForLocation(visible.x, visible.y + visible.height - 1);
+        if (first < 0 || last < first) {
+            return d;
+        }
 
         // If a drop target is active, the "drop on" row should be highlighted
         int dropTargetRow = -1;
@@ -90,39 +104,31 @@ public abstract class TreeSelectionBoundsTracker implements SelectionBoundsTrack
             TreePath path = loc.getPath();
             if (path != null) {
                 dropTargetRow = tree.getRowForPath(path);
-                if (dropTargetRow >= 0) {
-                    regionCount = 1;
+                if (dropTargetRow >= first && dropTargetRow <= last) {
+                    Rectangle bounds = tree.getRowBounds(dropTargetRow);
+                    if (bounds != null) {
+                        int y = convertRowYCoordinateToSelectionDescription(bounds.y);
+                        d.addDropTargetRegion(y, bounds.height);
+                    }
                 }
             }
         }
 
-        int[] temp = null;
-        int min = tree.getMinSelectionRow();
-        int max = tree.getMaxSelectionRow();
-        if ((min >= 0) && (max >= min)) {
-            temp = new int[max - min + 1];
-            int n = 0;
-            for (int i = min; i <= max; i++) {
-                if (tree.isRowSelected(i) && i != dropTargetRow) {
-                    temp[n++] = i;
-                    regionCount++;
-                }
-            }
+        int min = Math.max(first, tree.getMinSelectionRow());
+        int max = Math.min(last, tree.getMaxSelectionRow());
+        if (min < 0 || max < min) {
+            return d;
         }
 
-        SelectionBoundsDescription d = new SelectionBoundsDescription(regionCount);
-        if (dropTargetRow >= 0) {
-            Rectangle bounds = tree.getRowBounds(dropTargetRow);
-            int y = convertRowYCoordinateToSelectionDescription(bounds.y);
-            d.addDropTargetRegion(y, bounds.height);
-            regionCount--;
-        }
-        if (regionCount > 0) {
-            for (int i = 0; i < regionCount; i++) {
-                int row = temp[i];
+        // Rows are described individually because there may be space between rows.
+        // The description combines rows that are vertically adjacent.
+        for (int row = min; row <= max; row++) {
+            if (row != dropTargetRow && tree.isRowSelected(row)) {
                 Rectangle bounds = tree.getRowBounds(row);
-                int y = convertRowYCoordinateToSelectionDescription(bounds.y);
-                d.addRegion(y, bounds.height);
+                if (bounds != null) {
+                    int y = convertRowYCoordinateToSelectionDescription(bounds.y);
+                    d.addRegion(y, bounds.height);
+                }
             }
         }
         return d;
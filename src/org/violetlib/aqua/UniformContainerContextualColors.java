@@ -53,18 +53,15 @@ public class UniformContainerContextualColors implements ContainerContextualColo
 
     @Override
     public @NotNull Color getBackground(@NotNull AppearanceContext context) {
-        context = context.withSelected(isRowSelected || context.isSelected());
-        return background.get(context);
+        return background.get(context, isRowSelected || context.isSelected());
     }
 
     @Override
     public @NotNull Color getForeground(@NotNull AppearanceContext context) {
-        context = context.withSelected(isRowSelected || context.isSelected());
-        return foreground.get(context);
+        return foreground.get(context, isRowSelected || context.isSelected());
     }
 
     public @NotNull Color getGrid(@NotNull AppearanceContext context) {
-        context = context.withSelected(isRowSelected || context.isSelected());
-        return grid.get(context);
+        return grid.get(context, isRowSelected || context.isSelected());
     }
 }
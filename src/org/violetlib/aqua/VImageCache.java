@@ -34,31 +34,33 @@
 package org.violetlib.aqua;
 
 import java.awt.*;
+import java.awt.image.BufferedImage;
 import java.lang.ref.ReferenceQueue;
 import java.lang.ref.SoftReference;
-import java.util.Iterator;
-import java.util.LinkedHashMap;
-import java.util.Map;
-import java.util.concurrent.locks.ReadWriteLock;
-import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.ArrayList;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
- * A copy of sun.awt.image.ImageCache.
+ * A cache of rendered images. Originally a copy of sun.awt.image.ImageCache.
+ * <p>
+ * Lookups do not acquire a lock. The cache is divided into segments by key hash. Each segment has its own lock, which
+ * is used only when an image is added, and its own share of the memory budget. Eviction within a segment uses the
+ * CLOCK algorithm: a lookup sets a reference bit on the entry, and the eviction hand clears reference bits until it
+ * finds an entry that has not been used since the hand last passed.
+ * <p>
+ * The budget is expressed in bytes. The cost of an image is estimated from its key, which reports the number of
+ * logical pixels and the scale factor of the rendering, so that a 2x rendering is charged four times as much as a 1x
+ * rendering of the same size.
  */
 public class VImageCache {
-    // Ordered Map keyed by args hash, ordered by most recent accessed entry.
-    private final LinkedHashMap<PixelsKey, ImageSoftReference> map
-            = new LinkedHashMap<>(16, 0.75f, true);
-
-    // Maximum number of pixels to cache, this is used if maxCount
-    private final int maxPixelCount;
-    // The current number of pixels stored in the cache
-    private int currentPixelCount = 0;
-
-    // Lock for concurrent access to map
-    private final ReadWriteLock lock = new ReentrantReadWriteLock();
-    // Reference queue for tracking lost softreferences to images in the cache
-    private final ReferenceQueue<Image> referenceQueue = new ReferenceQueue<>();
+
+    private static final int DEFAULT_SEGMENT_COUNT = 8;
+    private static final long DEFAULT_BYTE_BUDGET = 32L * 1024 * 1024;
 
     private static final VImageCache INSTANCE = new VImageCache();
 
@@ -66,32 +68,71 @@ public class VImageCache {
         return INSTANCE;
     }
 
+    private final ConcurrentHashMap<PixelsKey,Entry> map = new ConcurrentHashMap<>();
+    private final @NotNull Segment[] segments;
+    private final int segmentMask;
+    private final long byteBudget;
+
+    // Reference queue for tracking lost soft references to images in the cache
+    private final ReferenceQueue<Image> referenceQueue = new ReferenceQueue<>();
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder evictionCount = new LongAdder();
+
+    /**
+     * Create a cache with the specified budget.
+     * @param byteBudget The maximum number of bytes of image data to retain.
+     * @param segmentCount The number of independently locked segments. Rounded up to a power of two.
+     */
+    public VImageCache(long byteBudget, int segmentCount) {
+        if (byteBudget <= 0) {
+            throw new IllegalArgumentException("Invalid byte budget");
+        }
+        int count = 1;
+        while (count < segmentCount) {
+            count <<= 1;
+        }
+        this.byteBudget = byteBudget;
+        this.segmentMask = count - 1;
+        this.segments = new Segment[count];
+        long segmentBudget = Math.max(1, byteBudget / count);
+        for (int i = 0; i < count; i++) {
+            segments[i] = new Segment(segmentBudget);
+        }
+    }
+
+    /**
+     * Create a cache whose budget is the specified number of 1x ARGB pixels.
+     */
     public VImageCache(int maxPixelCount) {
-        this.maxPixelCount = maxPixelCount;
+        this(4L * maxPixelCount, DEFAULT_SEGMENT_COUNT);
     }
 
     public VImageCache() {
-        this((8 * 1024 * 1024) / 4); // 8Mb of pixels
+        this(DEFAULT_BYTE_BUDGET, DEFAULT_SEGMENT_COUNT);
     }
 
     public void flush() {
-        lock.writeLock().lock();
-        try {
-            map.clear();
-        } finally {
-            lock.writeLock().unlock();
+        for (Segment s : segments) {
+            s.clear();
+        }
+        while (referenceQueue.poll() != null) {
         }
     }
 
-    public Image getImage(PixelsKey key) {
-        final ImageSoftReference ref;
-        lock.readLock().lock();
-        try {
-            ref = map.get(key);
-        } finally {
-            lock.readLock().unlock();
+    public @Nullable Image getImage(@NotNull PixelsKey key) {
+        Entry e = map.get(key);
+        if (e != null) {
+            Image image = e.get();
+            if (image != null) {
+                e.referenced = true;
+                hitCount.increment();
+                return image;
+            }
         }
-        return ref == null ? null : ref.get();
+        missCount.increment();
+        return null;
     }
 
     /**
@@ -100,68 +141,199 @@ public class VImageCache {
      * @param key The key with which the specified image is to be associated
      * @param image  The image to store in cache
      */
-    public void setImage(PixelsKey key, Image image) {
+    public void setImage(@NotNull PixelsKey key, @NotNull Image image) {
+        expungeLostReferences();
+        long cost = getByteCount(key, image);
+        segmentFor(key).add(key, image, cost);
+    }
 
-        lock.writeLock().lock();
-        try {
-            ImageSoftReference ref = map.get(key);
+    /**
+     * Return the maximum number of bytes of image data retained by this cache.
+     */
+    public long getByteBudget() {
+        return byteBudget;
+    }
 
-            // check if currently in map
-            if (ref != null) {
-                if (ref.get() != null) {
-                    return;
+    /**
+     * Return the estimated number of bytes of image data currently retained by this cache.
+     */
+    public long getByteCount() {
+        long total = 0;
+        for (Segment s : segments) {
+            total += s.byteCount;
+        }
+        return total;
+    }
+
+    public int getEntryCount() {
+        return map.size();
+    }
+
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+    /**
+     * Return the number of images that have been removed to stay within the budget. Images whose soft references were
+     * cleared by the garbage collector are not counted.
+     */
+    public long getEvictionCount() {
+        return evictionCount.sum();
+    }
+
+    private @NotNull Segment segmentFor(@NotNull PixelsKey key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return segments[h & segmentMask];
+    }
+
+    private void expungeLostReferences() {
+        Entry e;
+        while ((e = (Entry) referenceQueue.poll()) != null) {
+            segmentFor(e.key).remove(e);
+        }
+    }
+
+    private static long getByteCount(@NotNull PixelsKey key, @NotNull Image image) {
+        if (image instanceof BufferedImage) {
+            BufferedImage bi = (BufferedImage) image;
+            return 4L * bi.getWidth() * bi.getHeight();
+        }
+        int scale = Math.max(1, key.getScaleFactor());
+        return 4L * key.getPixelCount() * scale * scale;
+    }
+
+    public interface PixelsKey {
+
+        /**
+         * Return the number of pixels in the image, measured in logical (1x) pixels.
+         */
+        int getPixelCount();
+
+        /**
+         * Return the scale factor of the rendering. A rendering at scale factor 2 has four device pixels for each
+         * logical pixel.
+         */
+        default int getScaleFactor() {
+            return 1;
+        }
+    }
+
+    private final class Segment {
+
+        private final long byteBudget;
+        private final ReentrantLock lock = new ReentrantLock();
+        private final ArrayList<Entry> ring = new ArrayList<>();
+        private int hand;
+        private volatile long byteCount;
+
+        Segment(long byteBudget) {
+            this.byteBudget = byteBudget;
+        }
+
+        void add(@NotNull PixelsKey key, @NotNull Image image, long cost) {
+            lock.lock();
+            try {
+                Entry existing = map.get(key);
+                if (existing != null) {
+                    if (existing.get() != null) {
+                        return;
+                    }
+                    // soft image has been removed
+                    removeEntry(existing);
                 }
-                // soft image has been removed
-                currentPixelCount -= key.getPixelCount();
-                map.remove(key);
-            };
-
-
-            // add new image to pixel count
-            final int newPixelCount = key.getPixelCount();
-            currentPixelCount += newPixelCount;
-            // clean out lost references if not enough space
-            if (currentPixelCount > maxPixelCount) {
-                while ((ref = (ImageSoftReference)referenceQueue.poll()) != null) {
-                    //reference lost
-                    map.remove(ref.key);
-                    currentPixelCount -= ref.key.getPixelCount();
+
+                long available = byteBudget - cost;
+                while (byteCount > available && !ring.isEmpty()) {
+                    evictOne();
                 }
+
+                Entry e = new Entry(key, image, cost, referenceQueue);
+                map.put(key, e);
+                ring.add(e);
+                byteCount += cost;
+            } finally {
+                lock.unlock();
             }
+        }
 
-            // remove old items till there is enough free space
-            if (currentPixelCount > maxPixelCount) {
-                final Iterator<Map.Entry<PixelsKey, ImageSoftReference>>
-                        mapIter = map.entrySet().iterator();
-                while ((currentPixelCount > maxPixelCount) && mapIter.hasNext()) {
-                    final Map.Entry<PixelsKey, ImageSoftReference> entry =
-                            mapIter.next();
-                    mapIter.remove();
-                    final Image img = entry.getValue().get();
-                    if (img != null) img.flush();
-                    currentPixelCount -= entry.getValue().key.getPixelCount();
+        void remove(@NotNull Entry e) {
+            lock.lock();
+            try {
+                removeEntry(e);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void clear() {
+            lock.lock();
+            try {
+                for (Entry e : ring) {
+                    map.remove(e.key, e);
                 }
+                ring.clear();
+                hand = 0;
+                byteCount = 0;
+            } finally {
+                lock.unlock();
             }
+        }
 
-            // finally put new in map
-            map.put(key, new ImageSoftReference(key, image, referenceQueue));
-        } finally {
-            lock.writeLock().unlock();
+        private void evictOne() {
+            for (;;) {
+                if (hand >= ring.size()) {
+                    hand = 0;
+                }
+                Entry e = ring.get(hand);
+                if (e.referenced && e.get() != null) {
+                    e.referenced = false;
+                    hand++;
+                } else {
+                    Image image = e.get();
+                    removeAt(hand);
+                    if (image != null) {
+                        image.flush();
+                        evictionCount.increment();
+                    }
+                    return;
+                }
+            }
         }
-    }
 
-    public interface PixelsKey {
+        private void removeEntry(@NotNull Entry e) {
+            int index = ring.indexOf(e);
+            if (index >= 0) {
+                removeAt(index);
+            }
+        }
 
-        int getPixelCount();
+        private void removeAt(int index) {
+            // The order of the ring is not significant to CLOCK beyond the position of the hand, so the last entry
+            // may be moved into the vacated slot.
+            Entry e = ring.get(index);
+            int last = ring.size() - 1;
+            ring.set(index, ring.get(last));
+            ring.remove(last);
+            map.remove(e.key, e);
+            byteCount -= e.cost;
+        }
     }
 
-    private static class ImageSoftReference extends SoftReference<Image> {
+    private static final class Entry extends SoftReference<Image> {
 
-        final PixelsKey key;
+        final @NotNull PixelsKey key;
+        final long cost;
+        volatile boolean referenced;
 
-        ImageSoftReference(PixelsKey key, Image referent, ReferenceQueue<? super Image> q) {
+        Entry(@NotNull PixelsKey key, @NotNull Image referent, long cost, @NotNull ReferenceQueue<? super Image> q) {
             super(referent, q);
             this.key = key;
+            this.cost = cost;
         }
     }
 }
@@ -1982,7 +1982,13 @@ public class AquaFileChooserUI extends BasicFileChooserUI implements AquaCompone
      */
     private void updateModel() {
         model.invalidateAll();
+        updateViewForModel();
+    }
 
+    /**
+     * Update the view and the selection after the contents of the model have been changed.
+     */
+    private void updateViewForModel() {
         if (fc.isShowing() && activeView != null) {
             reconfigureView();
             java.util.List<TreePath> oldSelection = activeView.getSelection();
@@ -2011,7 +2017,9 @@ public class AquaFileChooserUI extends BasicFileChooserUI implements AquaCompone
 
     private void doFilterChanged(PropertyChangeEvent e) {
         clearIconCache();
-        updateModel();
+        // The filter does not change the contents of a directory, so the directories need not be read again.
+        model.refilter();
+        updateViewForModel();
     }
 
     private void doFileHidingChanged(PropertyChangeEvent e) {
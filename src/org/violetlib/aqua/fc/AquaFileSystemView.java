@@ -77,4 +77,37 @@ public abstract class AquaFileSystemView extends DelegatedFileSystemViewBase {
     public @NotNull Boolean isTraversable(File f, boolean isPackageTraversable, boolean isApplicationTraversable) {
         return target.isTraversable(f);
     }
+
+    /**
+     * Indicate whether a file (directory) can be visited, using information obtained by a batch query where possible.
+     * @param info The information obtained by a batch query.
+     * @param index The index of the file in the batch.
+     * @param isPackageTraversable True if packages should be traversable.
+     * @param isApplicationTraversable True if bundled applications should be traversable.
+     * @return true if and only if the file can be visited.
+     */
+    public @NotNull Boolean isTraversable(@NotNull FileInfoBatch info,
+                                          int index,
+                                          boolean isPackageTraversable,
+                                          boolean isApplicationTraversable) {
+        return isTraversable(info.getFile(index), isPackageTraversable, isApplicationTraversable);
+    }
+
+    /**
+     * Indicate whether a file is hidden, using information obtained by a batch query where possible.
+     * @param info The information obtained by a batch query.
+     * @param index The index of the file in the batch.
+     */
+    public boolean isHiddenFile(@NotNull FileInfoBatch info, int index) {
+        return isHiddenFile(info.getFile(index));
+    }
+
+    /**
+     * Return the name of a file as it should be displayed, using information obtained by a batch query where possible.
+     * @param info The information obtained by a batch query.
+     * @param index The index of the file in the batch.
+     */
+    public String getSystemDisplayName(@NotNull FileInfoBatch info, int index) {
+        return getSystemDisplayName(info.getFile(index));
+    }
 }
@@ -71,4 +71,18 @@ public class AquaFileView extends FileView {
     public Boolean isTraversable(File f) {
         return fsv.isTraversable(f, isPackageTraversable, isApplicationTraversable);
     }
+
+    /**
+     * Returns the name of a file, using information obtained by a batch query where possible.
+     */
+    public String getName(FileInfoBatch info, int index) {
+        return fsv.getSystemDisplayName(info, index);
+    }
+
+    /**
+     * Returns true if a file can be visited, using information obtained by a batch query where possible.
+     */
+    public Boolean isTraversable(FileInfoBatch info, int index) {
+        return fsv.isTraversable(info, index, isPackageTraversable, isApplicationTraversable);
+    }
 }
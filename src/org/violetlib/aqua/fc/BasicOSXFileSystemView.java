@@ -147,27 +147,32 @@ public abstract class BasicOSXFileSystemView extends AquaFileSystemView {
 
     @Override
     public boolean isHiddenFile(@NotNull File f) {
-        if (OSXFile.isInvisible(f)) {
+        return OSXFile.isInvisible(f) || isHiddenName(f);
+    }
+
+    @Override
+    public boolean isHiddenFile(@NotNull FileInfoBatch info, int index) {
+        return info.isInvisible(index) || isHiddenName(info.getFile(index));
+    }
+
+    private boolean isHiddenName(@NotNull File f) {
+        String name = f.getName();
+        if (name.length() == 0) {
+            return false;
+        } else if (name.charAt(name.length() - 1) == (char) 0x0d) {
+            // File names ending with 0x0d are considered as hidden
+            return true;
+        } else if (name.charAt(0) == '.') {
+            // File names starting with '.' are considered as hidden
+            return true;
+        } else if (hiddenTopLevelNames.contains(name) && (f.getParent() == null || isRoot(f.getParentFile()))) {
+            return true;
+        } else if (hiddenDirectoryNames.contains(name)) {
+            return true;
+        } else if (hiddenFiles.contains(f)) {
             return true;
         } else {
-            String name = f.getName();
-            if (name.length() == 0) {
-                return false;
-            } else if (name.charAt(name.length() - 1) == (char) 0x0d) {
-                // File names ending with 0x0d are considered as hidden
-                return true;
-            } else if (name.charAt(0) == '.') {
-                // File names starting with '.' are considered as hidden
-                return true;
-            } else if (hiddenTopLevelNames.contains(name) && (f.getParent() == null || isRoot(f.getParentFile()))) {
-                return true;
-            } else if (hiddenDirectoryNames.contains(name)) {
-                return true;
-            } else if (hiddenFiles.contains(f)) {
-                return true;
-            } else {
-                return false;
-            }
+            return false;
         }
     }
 
@@ -252,6 +257,27 @@ public abstract class BasicOSXFileSystemView extends AquaFileSystemView {
         }
     }
 
+    @Override
+    public @NotNull Boolean isTraversable(@NotNull FileInfoBatch info,
+                                          int index,
+                                          boolean isPackageTraversable,
+                                          boolean isApplicationTraversable) {
+        if (info.isNative()) {
+            return OSXFile.isTraversable(info.getFile(index), info.getFlags(index), isPackageTraversable, isApplicationTraversable);
+        } else {
+            return super.isTraversable(info, index, isPackageTraversable, isApplicationTraversable);
+        }
+    }
+
+    @Override
+    public String getSystemDisplayName(@NotNull FileInfoBatch info, int index) {
+        String name = info.getDisplayName(index);
+        if (name != null && !info.getFile(index).equals(getComputer())) {
+            return name;
+        }
+        return super.getSystemDisplayName(info, index);
+    }
+
     @Override
     public String getSystemDisplayName(File f) {
         if (f.equals(getComputer())) {
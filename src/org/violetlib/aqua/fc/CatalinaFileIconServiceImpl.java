@@ -17,6 +17,7 @@ import java.util.Map;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
+import javax.swing.*;
 
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -30,8 +31,6 @@ public class CatalinaFileIconServiceImpl
         extends FileIconServiceImplBase
         implements FileIconService {
 
-    private static final @NotNull ConcurrentDispatcher dispatcher = new ConcurrentDispatcher();
-
     public CatalinaFileIconServiceImpl() {
         if (debugFlag) {
             Utils.logDebug("File Icon Service: Using Quick Look Thumbnailing");
@@ -57,15 +56,32 @@ public class CatalinaFileIconServiceImpl
         // This icon is a backup in case the other attempts fail.
         installGenericFileIcon(f, request);
 
+        FileIconScheduler scheduler = FileIconScheduler.getShared();
         if (OSXFile.isImageFile(f)) {
-            long upcallID = upcallRegistry.registerRequest(request);
-            if (debugFlag) {
-                Utils.logDebug("Thumbnail request #" + upcallID + ": " + f.getAbsolutePath());
-            }
-            installQuickLookFileIcon(f, size, scale, upcallID);
+            String taskKey = FileIconScheduler.getTaskKey(f, FileIconCache.QUICK_LOOK, size, scale);
+            scheduler.schedule(taskKey, f, request, sink -> {
+                // Use a cached thumbnail, unless a better thumbnail might be available.
+                String key = FileIconCache.getFileKey(f, FileIconCache.QUICK_LOOK, size, scale);
+                FileIconCache.Entry cached = FileIconCache.getShared().get(key);
+                if (cached != null) {
+                    sink.provideIcon(new ImageIcon(cached.getImage()), cached.getPriority());
+                    if (cached.getPriority() >= FileIconService.ICON_CUSTOM_LOW) {
+                        return;
+                    }
+                }
+                // The thumbnails are delivered asynchronously to a request that forwards them to the scheduled task.
+                RequestImpl thumbnailRequest = new RequestImpl(f, sink);
+                thumbnailRequest.setCacheKey(key);
+                long upcallID = upcallRegistry.registerRequest(thumbnailRequest);
+                if (debugFlag) {
+                    Utils.logDebug("Thumbnail request #" + upcallID + ": " + f.getAbsolutePath());
+                }
+                installQuickLookFileIcon(f, size, scale, upcallID);
+            });
         } else {
-            dispatcher.dispatch(() -> {
-                installLaunchServicesFileIcon(f, size, scale, request, FileIconService.ICON_TYPE);
+            String taskKey = FileIconScheduler.getTaskKey(f, FileIconCache.LAUNCH_SERVICES, size, scale);
+            scheduler.schedule(taskKey, f, request, sink -> {
+                installLaunchServicesFileIcon(f, size, scale, sink, FileIconService.ICON_TYPE);
             });
         }
 
@@ -73,8 +89,17 @@ public class CatalinaFileIconServiceImpl
     }
 
     private void installLaunchServicesFileIcon(@NotNull File f, int size, float scale,
-                                               @NotNull RequestImpl request, int priority)
+                                               @NotNull Handler sink, int priority)
     {
+        // A Launch Services icon is usually determined by the file type, so it is shared by all files of that type.
+        FileIconCache cache = FileIconCache.getShared();
+        String key = FileIconCache.getLaunchServicesKey(f, size, scale);
+        FileIconCache.Entry cached = cache.get(key);
+        if (cached != null) {
+            sink.provideIcon(new ImageIcon(cached.getImage()), priority);
+            return;
+        }
+
         String path = f.getAbsolutePath();
         int[][] buffers = new int[2][];
         if (!AquaFileIcons.nativeRenderFileImage(path, false, true, buffers, size, size)) {
@@ -87,8 +112,9 @@ public class CatalinaFileIconServiceImpl
                 String type = "Launch Services";
                 Utils.logDebug("Rendered " + type + " image for " + path);
             }
-            Image image = AquaMultiResolutionImage.createImage(size, size, buffers[0], buffers[1]);
-            request.installImage(image, priority);
+            FileIconCache.Entry e = new FileIconCache.Entry(size, size, 0, priority, buffers[0], buffers[1]);
+            cache.put(key, e);
+            sink.provideIcon(new ImageIcon(e.getImage()), priority);
         }
     }
 
@@ -115,8 +141,12 @@ public class CatalinaFileIconServiceImpl
                     Utils.logDebug("Received image " + priority + " for request #" + upcallID
                             + width + "x" + height + " " + data.length + " " + scale);
                 }
-                AquaMultiResolutionImage image = JavaSupport.createImage(width, height, data, scale);
-                request.installImage(image, priority);
+                FileIconCache.Entry e = new FileIconCache.Entry(width, height, scale, priority, data, null);
+                String key = request.getCacheKey();
+                if (key != null) {
+                    FileIconCache.getShared().put(key, e);
+                }
+                request.installImage(e.getImage(), priority);
             } else {
                 Utils.logDebug("Image delivered to obsolete request #" + upcallID);
             }
@@ -17,7 +17,9 @@ import java.awt.event.MouseListener;
 import java.io.File;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.List;
 import javax.swing.*;
+import javax.swing.event.ChangeListener;
 import javax.swing.event.TreeSelectionEvent;
 import javax.swing.event.TreeSelectionListener;
 import javax.swing.tree.TreePath;
@@ -38,6 +40,7 @@ public class ColumnViewImpl extends ColumnView {
     protected final JScrollPane browserScrollPane;
     private final MouseListener mouseListener;
     private final TreeSelectionListener treeSelectionListener;
+    private final ChangeListener visibleRowsListener;
     private boolean isActive;
 
     public ColumnViewImpl(JFileChooser fc) {
@@ -45,6 +48,7 @@ public class ColumnViewImpl extends ColumnView {
 
         mouseListener = createDoubleClickListener();
         treeSelectionListener = new MyTreeSelectionListener();
+        visibleRowsListener = e -> updateVisibleFiles();
 
         setFocusable(false);
 
@@ -136,10 +140,31 @@ public class ColumnViewImpl extends ColumnView {
         if (b) {
             browser.addMouseListener(mouseListener);
             browser.addTreeSelectionListener(treeSelectionListener);
+            browser.addVisibleRowsListener(visibleRowsListener);
+            browserScrollPane.getViewport().addChangeListener(visibleRowsListener);
         } else {
             browser.removeMouseListener(mouseListener);
             browser.removeTreeSelectionListener(treeSelectionListener);
+            browser.removeVisibleRowsListener(visibleRowsListener);
+            browserScrollPane.getViewport().removeChangeListener(visibleRowsListener);
         }
+        updateVisibleFiles();
+    }
+
+    /**
+     * Report the files in the visible rows of the browser to the icon scheduler, so that their icons are rendered
+     * first.
+     */
+    protected void updateVisibleFiles() {
+        List<File> files = new ArrayList<>();
+        if (isActive) {
+            for (Object value : browser.getVisibleValues()) {
+                if (value instanceof FileInfo) {
+                    files.add(((FileInfo) value).getFile());
+                }
+            }
+        }
+        FileIconScheduler.getShared().setVisibleFiles(this, files);
     }
 
     @Override
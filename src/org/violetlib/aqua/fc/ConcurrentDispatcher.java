@@ -1,5 +1,5 @@
 /*
- * @(#)ConcurrentDispatcher.java  2.1  2009-06-01
+ * @(#)ConcurrentDispatcher.java  3.0  2026-10-15
  *
  * Copyright (c) 2002-2010 Werner Randelshofer, Switzerland
  * All rights reserved.
@@ -11,13 +11,18 @@
 
 package org.violetlib.aqua.fc;
 
-import java.util.LinkedList;
+import java.util.ArrayDeque;
 
 /**
  * Processes Runnable objects concurrently on a pool of processor threads.
  * The order in which the runnable objects are processed is not
  * necesseraly the same in which they were added to the dispatcher.
- * There is one thread pool per instance.
+ * <p>
+ * The processor threads are provided by the shared {@link DispatchExecutor}.
+ * The maximum thread count of a dispatcher limits the number of its
+ * runnables that are processed at the same time. The runnables of a
+ * dispatcher that performs blocking I/O are also subject to the limit
+ * that the executor places on blocking tasks.
  * <p>
  * Design pattern used: Acceptor
  * Role in design pattern: EventCollector and EventProcessor
@@ -41,25 +46,44 @@ import java.util.LinkedList;
  * </pre>
  *
  * @author  Werner Randelshofer, Switzerland
- * @version 2.1 2009-06-01 Added dispose method.
+ * @version 3.1 2026-10-16 Queue waiting runnables by priority. Added blocking I/O support.
+ * <br>3.0 2026-10-15 Use the shared executor. Added task priorities.
+ * <br>2.1 2009-06-01 Added dispose method.
  * <br>2.0 2002-04-07 dispatchLIFO added.
  * <br>1.0 2002-05-18 Created.
  */
 public class ConcurrentDispatcher {
 
     /**
-     * The priority of the processor thread.
+     * The executor that provides the processor threads.
+     */
+    private final DispatchExecutor executor;
+    /**
+     * The group of the runnables submitted to the executor.
+     */
+    private final DispatchExecutor.TaskGroup group;
+    /**
+     * The default task priority, derived from the thread priority.
+     */
+    private final int priority;
+    /**
+     * The queues store the runnables until they
+     * can be submitted to the executor. There is
+     * one queue for each task priority.
      */
-    private int priority;
+    private final ArrayDeque<Entry>[] queues;
     /**
-     * The queue stores the events until they
-     * can be processed by a processor thread.
+     * The lock that protects the queues and the counts.
      */
-    private final LinkedList queue = new LinkedList();
+    private final Object lock = new Object();
     /**
-     * Number of concurrent threads.
+     * True if the runnables may block for a long time on I/O.
      */
-    private int threadCount;
+    private final boolean isBlocking;
+    /**
+     * Number of runnables submitted to the executor and not yet finished.
+     */
+    private int activeCount;
     /**
      * Maximum number of concurrent threads.
      */
@@ -97,13 +121,40 @@ public class ConcurrentDispatcher {
      * Creates a new ConcurrentDispatcher.
      *
      * @param priority       The priority of the processor
-     *                       thread.
+     *                       thread. Runnables dispatched without
+     *                       an explicit priority are given the
+     *                       corresponding task priority.
      * @param maxThreadCount The maximal number of concurrent
      *                       threads in the thread pool.
      */
     public ConcurrentDispatcher(int priority, int maxThreadCount) {
-        this.priority = priority;
+        this(priority, maxThreadCount, false);
+    }
+
+    /**
+     * Creates a new ConcurrentDispatcher.
+     *
+     * @param priority       The priority of the processor
+     *                       thread. Runnables dispatched without
+     *                       an explicit priority are given the
+     *                       corresponding task priority.
+     * @param maxThreadCount The maximal number of concurrent
+     *                       threads in the thread pool.
+     * @param isBlocking     True if the runnables may block for
+     *                       a long time on I/O, for example by
+     *                       reading a directory.
+     */
+    @SuppressWarnings("unchecked")
+    public ConcurrentDispatcher(int priority, int maxThreadCount, boolean isBlocking) {
+        this.executor = DispatchExecutor.getShared();
+        this.group = executor.createGroup(getClass().getSimpleName());
+        this.priority = DispatchExecutor.getPriorityForThreadPriority(priority);
         this.maxThreadCount = maxThreadCount;
+        this.isBlocking = isBlocking;
+        this.queues = new ArrayDeque[DispatchExecutor.PRIORITY_LOW + 1];
+        for (int i = 0; i < queues.length; i++) {
+            queues[i] = new ArrayDeque<>();
+        }
     }
 
     /**
@@ -114,7 +165,9 @@ public class ConcurrentDispatcher {
      *                       when the queue is empty.
      */
     public void setMaxThreadCount(int maxThreadCount) {
-        this.maxThreadCount = maxThreadCount;
+        synchronized (lock) {
+            this.maxThreadCount = maxThreadCount;
+        }
     }
 
     /**
@@ -129,98 +182,126 @@ public class ConcurrentDispatcher {
      * it on a processor thread.
      */
     public void dispatch(Runnable runner) {
-        dispatch(runner, false);
+        dispatch(runner, priority, false);
     }
 
     /**
      * Enqueues the Runnable object, and executes
      * it on a processor thread.
+     *
+     * @param isLIFO If true, the runnable is executed before
+     *               the runnables of the same priority that are
+     *               already waiting.
      */
     public void dispatch(Runnable runner, boolean isLIFO) {
-        isLIFO = false;
-        synchronized (queue) {
-            if (threadCount < maxThreadCount) {
-                if (isLIFO) {
-                    queue.addFirst(runner);
-                } else {
-                    queue.addLast(runner);
-                }
-
-                Thread processor = new Thread(this + " Processor") {
-
-                    public void run() {
-                        processEvents();
-                    }
-                };
-                threadCount++;
-
-
-                // The processor thread must not be a daemon,
-                // or else the Java VM might stop before
-                // all runnables have been processed.
-                try {
-                    processor.setDaemon(false);
-                } catch (SecurityException e) {
-                    e.printStackTrace();
-                }
-                try {
-                    processor.setPriority(priority);
-                } catch (SecurityException e) {
-                    e.printStackTrace();
-                }
+        dispatch(runner, priority, isLIFO);
+    }
 
-                processor.start();
+    /**
+     * Enqueues the Runnable object, and executes
+     * it on a processor thread.
+     *
+     * @param priority The task priority, one of the priorities
+     *                 defined by {@link DispatchExecutor}.
+     * @param isLIFO   If true, the runnable is executed before
+     *                 the runnables of the same priority that are
+     *                 already waiting.
+     */
+    public void dispatch(Runnable runner, int priority, boolean isLIFO) {
+        int p = Math.max(DispatchExecutor.PRIORITY_HIGH, Math.min(DispatchExecutor.PRIORITY_LOW, priority));
+        Entry e = new Entry(runner, p, isLIFO);
+        synchronized (lock) {
+            if (activeCount < maxThreadCount) {
+                activeCount++;
+                submit(e);
                 return;
-
             } else if (blockingPolicy == ENQUEUE_WHEN_BLOCKED) {
+                ArrayDeque<Entry> queue = queues[p];
                 if (isLIFO) {
-                    queue.addFirst(runner);
+                    queue.addFirst(e);
                 } else {
-                    queue.addLast(runner);
+                    queue.addLast(e);
                 }
-
                 return;
             }
         }
 
-        //implicit: if (threadCount >= maxThreadCount && blockingPolicy == RUN_WHEN_BLOCKED)
+        //implicit: if (activeCount >= maxThreadCount && blockingPolicy == RUN_WHEN_BLOCKED)
         runner.run();
     }
 
+    /**
+     * Discards the runnables that have not started.
+     * Runnables that have started are not affected.
+     * The dispatcher remains usable.
+     */
     public void stop() {
+        synchronized (lock) {
+            for (ArrayDeque<Entry> queue : queues) {
+                queue.clear();
+            }
+            activeCount -= group.cancel();
+        }
+    }
 
+    /**
+     * Submits a runnable to the executor. When the runnable
+     * finishes, the next waiting runnable is submitted.
+     */
+    private void submit(Entry e) {
+        executor.submit(() -> {
+            try {
+                e.runner.run();
+            } finally {
+                processNext();
+            }
+        }, e.priority, e.isLIFO, isBlocking, group);
     }
 
     /**
-     * This method dequeues all Runnable objects from the
-     * queue and executes them. The method returns
-     * when the queue is empty.
+     * This method submits the next waiting Runnable object to
+     * the executor, if any.
      */
-    protected void processEvents() {
-        Object runner;
-        loop:
-        while (true) {
-            synchronized (queue) {
-                if (queue.isEmpty()) {
-                    threadCount--;
-                    break loop;
-                }
-                runner = queue.removeFirst();
+    private void processNext() {
+        synchronized (lock) {
+            Entry next = activeCount <= maxThreadCount ? pollNext() : null;
+            if (next != null) {
+                submit(next);
+            } else {
+                activeCount--;
             }
-            try {
-                ((Runnable) runner).run();
-            } catch (Throwable e) {
-                e.printStackTrace();
+        }
+    }
+
+    /**
+     * Removes the first waiting entry with the highest priority.
+     */
+    private Entry pollNext() {
+        for (ArrayDeque<Entry> queue : queues) {
+            Entry e = queue.pollFirst();
+            if (e != null) {
+                return e;
             }
         }
+        return null;
     }
 
     /**
      * Disposes the dispatcher and all associated processes.
      */
     public void dispose() {
-        synchronized (queue) {
-            queue.clear();
+        stop();
+    }
+
+    private static class Entry {
+        final Runnable runner;
+        final int priority;
+        final boolean isLIFO;
+
+        Entry(Runnable runner, int priority, boolean isLIFO) {
+            this.runner = runner;
+            this.priority = priority;
+            this.isLIFO = isLIFO;
         }
     }
 }
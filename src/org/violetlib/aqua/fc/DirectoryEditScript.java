@@ -0,0 +1,260 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.aqua.fc;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The changes needed to replace the children of a directory node with a freshly read set of children. An edit script
+ * is computed by a worker thread from a snapshot of the children. It is applied on the AWT event dispatcher thread,
+ * but only if the children have not changed since the snapshot was taken.
+ * <p>
+ * Insertions and removals are recorded as ranges of contiguous indexes. The indexes of removed children refer to the
+ * old children. The indexes of inserted and changed children refer to the merged children.
+ */
+
+class DirectoryEditScript {
+
+    private final int generation;
+    private final @NotNull FileSystemTreeModel.Node[] oldNodes;
+    private final @NotNull FileSystemTreeModel.Node[] mergedNodes;
+    private final @NotNull int[] removedRanges;
+    private final @NotNull FileSystemTreeModel.Node[] removedNodes;
+    private final @NotNull int[] insertedRanges;
+    private final @NotNull FileSystemTreeModel.Node[] insertedNodes;
+    private final @NotNull int[] changedIndexes;
+    private final @NotNull FileAttributeSnapshot[] changedAttributes;
+
+    /**
+     * Compute an edit script.
+     * @param oldNodes The old children, in sorted order.
+     * @param generation The generation of the old children.
+     * @param freshNodes The fresh children, in sorted order.
+     * @param comparator The comparator used to sort the children.
+     */
+    public static @NotNull DirectoryEditScript compute(@NotNull FileSystemTreeModel.Node[] oldNodes,
+                                                       int generation,
+                                                       @NotNull FileSystemTreeModel.Node[] freshNodes,
+                                                       @NotNull Comparator comparator) {
+        ArrayList<FileSystemTreeModel.Node> merged = new ArrayList<>(freshNodes.length);
+        RangeBuilder removedRanges = new RangeBuilder();
+        ArrayList<FileSystemTreeModel.Node> removed = new ArrayList<>();
+        RangeBuilder insertedRanges = new RangeBuilder();
+        ArrayList<FileSystemTreeModel.Node> inserted = new ArrayList<>();
+        RangeBuilder changedIndexes = new RangeBuilder();
+        ArrayList<FileAttributeSnapshot> changedAttributes = new ArrayList<>();
+
+        int freshIndex = 0;
+        int oldIndex = 0;
+        while (freshIndex < freshNodes.length || oldIndex < oldNodes.length) {
+            int comparison;
+            if (freshIndex >= freshNodes.length) {
+                comparison = 1;
+            } else if (oldIndex >= oldNodes.length) {
+                comparison = -1;
+            } else {
+                comparison = comparator.compare(freshNodes[freshIndex], oldNodes[oldIndex]);
+
+                // This little trick is necessary to handle the special case,
+                // when a file gets replaced by a directory of the same name
+                // or vice versa.
+                if (comparison == 0) {
+                    if (freshNodes[freshIndex].getAllowsChildren() != oldNodes[oldIndex].getAllowsChildren()) {
+                        comparison = -1;
+                    }
+                }
+            }
+
+            if (comparison < 0) {
+                FileSystemTreeModel.Node newNode = freshNodes[freshIndex++];
+                insertedRanges.add(merged.size());
+                inserted.add(newNode);
+                merged.add(newNode);
+            } else if (comparison == 0) {
+                FileSystemTreeModel.Node oldNode = oldNodes[oldIndex++];
+                FileAttributeSnapshot fresh = freshNodes[freshIndex++].attributes;
+                if (fresh != null) {
+                    FileAttributeSnapshot old = oldNode.attributes;
+                    if (old == null) {
+                        // The attributes have not been displayed, so there is no change to report
+                        oldNode.attributes = fresh;
+                    } else if (!fresh.equals(old)) {
+                        changedIndexes.addIndex(merged.size());
+                        changedAttributes.add(fresh);
+                    }
+                }
+                merged.add(oldNode);
+            } else {
+                removedRanges.add(oldIndex);
+                removed.add(oldNodes[oldIndex++]);
+            }
+        }
+
+        return new DirectoryEditScript(generation,
+                oldNodes,
+                merged.toArray(new FileSystemTreeModel.Node[merged.size()]),
+                removedRanges.toArray(),
+                removed.toArray(new FileSystemTreeModel.Node[removed.size()]),
+                insertedRanges.toArray(),
+                inserted.toArray(new FileSystemTreeModel.Node[inserted.size()]),
+                changedIndexes.toArray(),
+                changedAttributes.toArray(new FileAttributeSnapshot[changedAttributes.size()]));
+    }
+
+    private DirectoryEditScript(int generation,
+                                @NotNull FileSystemTreeModel.Node[] oldNodes,
+                                @NotNull FileSystemTreeModel.Node[] mergedNodes,
+                                @NotNull int[] removedRanges,
+                                @NotNull FileSystemTreeModel.Node[] removedNodes,
+                                @NotNull int[] insertedRanges,
+                                @NotNull FileSystemTreeModel.Node[] insertedNodes,
+                                @NotNull int[] changedIndexes,
+                                @NotNull FileAttributeSnapshot[] changedAttributes) {
+        this.generation = generation;
+        this.oldNodes = oldNodes;
+        this.mergedNodes = mergedNodes;
+        this.removedRanges = removedRanges;
+        this.removedNodes = removedNodes;
+        this.insertedRanges = insertedRanges;
+        this.insertedNodes = insertedNodes;
+        this.changedIndexes = changedIndexes;
+        this.changedAttributes = changedAttributes;
+    }
+
+    /**
+     * Return the generation of the children from which this edit script was computed.
+     */
+    public int getGeneration() {
+        return generation;
+    }
+
+    public boolean isEmpty() {
+        return removedNodes.length == 0 && insertedNodes.length == 0 && changedAttributes.length == 0;
+    }
+
+    /**
+     * Return the merged children.
+     */
+    public @NotNull FileSystemTreeModel.Node[] getMergedNodes() {
+        return mergedNodes;
+    }
+
+    /**
+     * Return the old children that remain after the removals have been applied, in sorted order.
+     */
+    public @NotNull FileSystemTreeModel.Node[] getRemainingNodes() {
+        FileSystemTreeModel.Node[] result = new FileSystemTreeModel.Node[oldNodes.length - removedNodes.length];
+        int next = 0;
+        int index = 0;
+        for (int i = 0; i < removedRanges.length; i += 2) {
+            int start = removedRanges[i];
+            int length = start - next;
+            System.arraycopy(oldNodes, next, result, index, length);
+            index += length;
+            next = start + removedRanges[i + 1];
+        }
+        System.arraycopy(oldNodes, next, result, index, oldNodes.length - next);
+        return result;
+    }
+
+    /**
+     * Return the indexes of the removed children, in the old children.
+     */
+    public @NotNull int[] getRemovedIndexes() {
+        return expand(removedRanges, removedNodes.length);
+    }
+
+    public @NotNull FileSystemTreeModel.Node[] getRemovedNodes() {
+        return removedNodes;
+    }
+
+    /**
+     * Return the indexes of the inserted children, in the merged children.
+     */
+    public @NotNull int[] getInsertedIndexes() {
+        return expand(insertedRanges, insertedNodes.length);
+    }
+
+    public @NotNull FileSystemTreeModel.Node[] getInsertedNodes() {
+        return insertedNodes;
+    }
+
+    /**
+     * Return the indexes of the children whose attributes have changed, in the merged children.
+     */
+    public @NotNull int[] getChangedIndexes() {
+        return changedIndexes;
+    }
+
+    /**
+     * Return the fresh attributes of the children whose attributes have changed.
+     */
+    public @NotNull FileAttributeSnapshot[] getChangedAttributes() {
+        return changedAttributes;
+    }
+
+    private static @NotNull int[] expand(@NotNull int[] ranges, int count) {
+        int[] result = new int[count];
+        int index = 0;
+        for (int i = 0; i < ranges.length; i += 2) {
+            int start = ranges[i];
+            int length = ranges[i + 1];
+            for (int j = 0; j < length; j++) {
+                result[index++] = start + j;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Collects indexes, either as (start, length) pairs of contiguous ranges or as single indexes.
+     */
+    private static class RangeBuilder {
+        private int[] data = new int[16];
+        private int size;
+
+        /**
+         * Add an index to the ranges. Indexes must be added in increasing order.
+         */
+        void add(int index) {
+            if (size > 0 && data[size - 2] + data[size - 1] == index) {
+                data[size - 1]++;
+            } else {
+                ensureCapacity(size + 2);
+                data[size++] = index;
+                data[size++] = 1;
+            }
+        }
+
+        /**
+         * Add a single index.
+         */
+        void addIndex(int index) {
+            ensureCapacity(size + 1);
+            data[size++] = index;
+        }
+
+        @NotNull int[] toArray() {
+            int[] result = new int[size];
+            System.arraycopy(data, 0, result, 0, size);
+            return result;
+        }
+
+        private void ensureCapacity(int capacity) {
+            if (capacity > data.length) {
+                int[] a = new int[Math.max(capacity, data.length * 2)];
+                System.arraycopy(data, 0, a, 0, size);
+                data = a;
+            }
+        }
+    }
+}
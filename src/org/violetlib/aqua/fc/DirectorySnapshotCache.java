@@ -0,0 +1,271 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.aqua.fc;
+
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A process-wide cache of directory listings, shared by the file system tree models. When a file chooser displays a
+ * directory that another file chooser has read, the cached listing is displayed at once, while the directory is read
+ * again in the background.
+ * <p>
+ * Each listing is stamped with a generation, obtained when the directory was about to be read. A listing replaces
+ * a cached listing of the same directory only if it has a later generation, so a slow read cannot replace the result
+ * of a more recent one.
+ * <p>
+ * The cache is bounded by the number of directories and by the total number of files. When either limit is exceeded,
+ * the least recently used directories are evicted. The limits can be set using the system properties
+ * {@code VAqua.directoryCacheDirectories} and {@code VAqua.directoryCacheFiles}. A limit of zero disables the cache.
+ */
+
+public class DirectorySnapshotCache {
+
+    private static final @NotNull String MAXIMUM_DIRECTORIES_PROPERTY = "VAqua.directoryCacheDirectories";
+    private static final @NotNull String MAXIMUM_FILES_PROPERTY = "VAqua.directoryCacheFiles";
+    private static final int DEFAULT_MAXIMUM_DIRECTORIES = 200;
+    private static final int DEFAULT_MAXIMUM_FILES = 200000;
+
+    private static @Nullable DirectorySnapshotCache sharedInstance;
+
+    /**
+     * Return the cache shared by the file system tree models.
+     */
+    public static synchronized @NotNull DirectorySnapshotCache getShared() {
+        if (sharedInstance == null) {
+            int maximumDirectories = Integer.getInteger(MAXIMUM_DIRECTORIES_PROPERTY, DEFAULT_MAXIMUM_DIRECTORIES);
+            int maximumFiles = Integer.getInteger(MAXIMUM_FILES_PROPERTY, DEFAULT_MAXIMUM_FILES);
+            sharedInstance = new DirectorySnapshotCache(maximumDirectories, maximumFiles);
+        }
+        return sharedInstance;
+    }
+
+    /**
+     * A cached file. The information is what is needed to create a tree node for the file without accessing the
+     * file system.
+     */
+    public static final class Entry {
+        private final @NotNull File file;
+        private final @Nullable File resolvedFile;
+        private final boolean isAlias;
+        private final boolean isDirectory;
+        private final boolean isTraversable;
+        private final boolean isHidden;
+        private final @NotNull FileAttributeSnapshot attributes;
+        private final @Nullable String userName;
+
+        /**
+         * Create an entry.
+         * @param file The file.
+         * @param resolvedFile The resolved file, if the file is an alias. Null if the alias could not be resolved.
+         * @param isAlias True if the file is an alias that is displayed as its original.
+         * @param isDirectory True if the file, or its original, is a directory.
+         * @param isTraversable True if the file is a traversable directory.
+         * @param isHidden True if the file is hidden.
+         * @param attributes The attributes of the file.
+         * @param userName The displayed name of the file, or null if it was not known.
+         */
+        public Entry(@NotNull File file,
+                     @Nullable File resolvedFile,
+                     boolean isAlias,
+                     boolean isDirectory,
+                     boolean isTraversable,
+                     boolean isHidden,
+                     @NotNull FileAttributeSnapshot attributes,
+                     @Nullable String userName) {
+            this.file = file;
+            this.resolvedFile = resolvedFile;
+            this.isAlias = isAlias;
+            this.isDirectory = isDirectory;
+            this.isTraversable = isTraversable;
+            this.isHidden = isHidden;
+            this.attributes = attributes;
+            this.userName = userName;
+        }
+
+        public @NotNull File getFile() {
+            return file;
+        }
+
+        public @Nullable File getResolvedFile() {
+            return resolvedFile;
+        }
+
+        public boolean isAlias() {
+            return isAlias;
+        }
+
+        public boolean isDirectory() {
+            return isDirectory;
+        }
+
+        public boolean isTraversable() {
+            return isTraversable;
+        }
+
+        public boolean isHidden() {
+            return isHidden;
+        }
+
+        public @NotNull FileAttributeSnapshot getAttributes() {
+            return attributes;
+        }
+
+        public @Nullable String getUserName() {
+            return userName;
+        }
+    }
+
+    /**
+     * A cached directory listing.
+     */
+    public static final class Snapshot {
+        private final @NotNull String path;
+        private final long generation;
+        private final boolean isFileHidingEnabled;
+        private final boolean isResolveAliases;
+        private final boolean isPackageTraversable;
+        private final boolean isApplicationTraversable;
+        private final @NotNull Entry[] entries;
+
+        /**
+         * Create a listing.
+         * @param directory The directory.
+         * @param generation The generation, obtained from {@link #nextGeneration} before the directory was read.
+         * @param isFileHidingEnabled True if hidden files were excluded from the listing.
+         * @param isResolveAliases True if aliases were resolved to their originals.
+         * @param isPackageTraversable True if packages were considered traversable.
+         * @param isApplicationTraversable True if applications were considered traversable.
+         * @param entries The files in the listing.
+         */
+        public Snapshot(@NotNull File directory,
+                        long generation,
+                        boolean isFileHidingEnabled,
+                        boolean isResolveAliases,
+                        boolean isPackageTraversable,
+                        boolean isApplicationTraversable,
+                        @NotNull Entry[] entries) {
+            this.path = directory.getAbsolutePath();
+            this.generation = generation;
+            this.isFileHidingEnabled = isFileHidingEnabled;
+            this.isResolveAliases = isResolveAliases;
+            this.isPackageTraversable = isPackageTraversable;
+            this.isApplicationTraversable = isApplicationTraversable;
+            this.entries = entries;
+        }
+
+        public long getGeneration() {
+            return generation;
+        }
+
+        public @NotNull Entry[] getEntries() {
+            return entries;
+        }
+    }
+
+    private final @NotNull AtomicLong generationCounter = new AtomicLong();
+    private final @NotNull LinkedHashMap<String,Snapshot> snapshots = new LinkedHashMap<>(64, 0.75f, true);
+    private int maximumDirectories;
+    private int maximumFiles;
+    private int fileCount;
+
+    private DirectorySnapshotCache(int maximumDirectories, int maximumFiles) {
+        this.maximumDirectories = maximumDirectories;
+        this.maximumFiles = maximumFiles;
+    }
+
+    /**
+     * Return a new generation. This method should be called before a directory is read.
+     */
+    public long nextGeneration() {
+        return generationCounter.incrementAndGet();
+    }
+
+    /**
+     * Set the limits on the size of the cache.
+     * @param maximumDirectories The maximum number of directories.
+     * @param maximumFiles The maximum number of files in all directories.
+     */
+    public synchronized void setLimits(int maximumDirectories, int maximumFiles) {
+        this.maximumDirectories = maximumDirectories;
+        this.maximumFiles = maximumFiles;
+        evict();
+    }
+
+    /**
+     * Return the cached listing of a directory. A listing is compatible only if it was created with the same options,
+     * as the options determine which files are listed and which directories are traversable. The listings are created
+     * only by file choosers that use the standard file view, so the displayed names do not depend on the file chooser.
+     * @param directory The directory.
+     * @param isFileHidingEnabled True if the listing should exclude hidden files.
+     * @param isResolveAliases True if the listing should resolve aliases.
+     * @param isPackageTraversable True if packages should be considered traversable.
+     * @param isApplicationTraversable True if applications should be considered traversable.
+     * @return the listing, or null if no compatible listing is cached.
+     */
+    public synchronized @Nullable Snapshot get(@NotNull File directory,
+                                               boolean isFileHidingEnabled,
+                                               boolean isResolveAliases,
+                                               boolean isPackageTraversable,
+                                               boolean isApplicationTraversable) {
+        Snapshot s = snapshots.get(directory.getAbsolutePath());
+        if (s != null
+                && s.isFileHidingEnabled == isFileHidingEnabled
+                && s.isResolveAliases == isResolveAliases
+                && s.isPackageTraversable == isPackageTraversable
+                && s.isApplicationTraversable == isApplicationTraversable) {
+            return s;
+        }
+        return null;
+    }
+
+    /**
+     * Cache a directory listing. The listing replaces the cached listing of the directory, unless the cached listing
+     * has a later generation.
+     */
+    public synchronized void put(@NotNull Snapshot s) {
+        if (s.entries.length > maximumFiles) {
+            return;
+        }
+        Snapshot existing = snapshots.get(s.path);
+        if (existing != null) {
+            if (existing.generation > s.generation) {
+                return;
+            }
+            fileCount -= existing.entries.length;
+        }
+        snapshots.put(s.path, s);
+        fileCount += s.entries.length;
+        evict();
+    }
+
+    /**
+     * Remove the cached listing of a directory.
+     */
+    public synchronized void remove(@NotNull File directory) {
+        Snapshot existing = snapshots.remove(directory.getAbsolutePath());
+        if (existing != null) {
+            fileCount -= existing.entries.length;
+        }
+    }
+
+    private void evict() {
+        Iterator<Map.Entry<String,Snapshot>> it = snapshots.entrySet().iterator();
+        while ((snapshots.size() > maximumDirectories || fileCount > maximumFiles) && it.hasNext()) {
+            fileCount -= it.next().getValue().entries.length;
+            it.remove();
+        }
+    }
+}
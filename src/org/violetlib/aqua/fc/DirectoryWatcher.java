@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.aqua.fc;
+
+import java.io.File;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Reports changes to the contents of directories. A file system tree model uses a directory watcher to update the
+ * directories that are being displayed, instead of periodically reading them again.
+ */
+public interface DirectoryWatcher {
+
+    /**
+     * The kinds of changes.
+     */
+    enum ChangeKind {
+        /** A file was created in the directory. */
+        CREATED,
+        /** A file was deleted from the directory. */
+        DELETED,
+        /** A file in the directory was modified. */
+        MODIFIED,
+        /** Changes to the directory may have been lost. The directory must be read again. */
+        OVERFLOW,
+        /** The directory can no longer be watched, for example, because it has been deleted. */
+        INVALID
+    }
+
+    /**
+     * A listener that is informed of changes to a directory. The listener may be called on any thread.
+     */
+    interface Listener {
+        /**
+         * Called when the contents of a directory have changed.
+         * @param dir The directory.
+         * @param kind The kind of change.
+         * @param file The file that was created, deleted, or modified. Null if the change is not specific to a file.
+         */
+        void directoryChanged(@NotNull File dir, @NotNull ChangeKind kind, @Nullable File file);
+    }
+
+    /**
+     * A registration of a listener for a directory.
+     */
+    interface Registration {
+        /**
+         * Stop reporting changes to the listener.
+         */
+        void cancel();
+    }
+
+    /**
+     * Start watching a directory.
+     * @param dir The directory.
+     * @param listener The listener to be informed of changes to the directory.
+     * @return the registration, or null if the directory cannot be watched. A directory that cannot be watched must be
+     * read again periodically.
+     */
+    @Nullable Registration watch(@NotNull File dir, @NotNull Listener listener);
+}
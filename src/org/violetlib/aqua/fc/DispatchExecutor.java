@@ -0,0 +1,576 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.aqua.fc;
+
+import java.lang.reflect.Method;
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.violetlib.aqua.Utils;
+
+/**
+ * A bounded pool of threads that performs background work for the file chooser. The dispatchers used by the file
+ * chooser submit their work to a single shared instance, so that the number of background threads does not grow with
+ * the number of directories or icons being loaded.
+ * <p>
+ * Tasks are queued in priority lanes. A task in a higher priority lane is started before any task in a lower
+ * priority lane. Within a lane, tasks are started in the order they were submitted, except that a task submitted for
+ * LIFO execution is started before the tasks already waiting in its lane. Tasks may be associated with a task group,
+ * which allows the tasks of the group that have not yet started to be cancelled together.
+ * <p>
+ * Tasks that may block for a long time on file system I/O, such as reading a directory, are queued in separate lanes
+ * and only a limited number of them run at the same time. A slow volume therefore cannot occupy every thread, and
+ * tasks such as icon rendering continue while a directory is being read.
+ * <p>
+ * Threads are created as needed, up to the maximum, and terminate after being idle for a while. The threads are
+ * daemon threads. If the system property {@code VAqua.fileChooserVirtualThreads} is set to true and the platform
+ * supports virtual threads, virtual threads are used.
+ */
+
+public class DispatchExecutor {
+
+    /** The priority for work that affects what the user currently sees. */
+    public static final int PRIORITY_HIGH = 0;
+    /** The default priority. */
+    public static final int PRIORITY_NORMAL = 1;
+    /** The priority for speculative or maintenance work. */
+    public static final int PRIORITY_LOW = 2;
+
+    private static final int LANE_COUNT = 3;
+    private static final long KEEP_ALIVE_NANOS = TimeUnit.SECONDS.toNanos(10);
+    private static final @NotNull String THREAD_COUNT_PROPERTY = "VAqua.fileChooserThreadCount";
+    private static final @NotNull String VIRTUAL_THREADS_PROPERTY = "VAqua.fileChooserVirtualThreads";
+
+    private static @Nullable DispatchExecutor sharedInstance;
+
+    /**
+     * Return the executor shared by the file chooser dispatchers.
+     */
+    public static synchronized @NotNull DispatchExecutor getShared() {
+        if (sharedInstance == null) {
+            int threadCount = Math.max(2, Math.min(8, Runtime.getRuntime().availableProcessors()));
+            String s = System.getProperty(THREAD_COUNT_PROPERTY);
+            if (s != null) {
+                try {
+                    threadCount = Math.max(1, Integer.parseInt(s));
+                } catch (NumberFormatException ignore) {
+                }
+            }
+            ThreadFactory factory = null;
+            if (Boolean.getBoolean(VIRTUAL_THREADS_PROPERTY)) {
+                factory = createVirtualThreadFactory();
+            }
+            sharedInstance = new DispatchExecutor("VAqua File Chooser", threadCount, factory);
+        }
+        return sharedInstance;
+    }
+
+    /**
+     * Map a thread priority to a task priority.
+     */
+    public static int getPriorityForThreadPriority(int threadPriority) {
+        if (threadPriority > Thread.NORM_PRIORITY) {
+            return PRIORITY_HIGH;
+        }
+        if (threadPriority < Thread.NORM_PRIORITY) {
+            return PRIORITY_LOW;
+        }
+        return PRIORITY_NORMAL;
+    }
+
+    private final @NotNull String name;
+    private final int maximumThreadCount;
+    private final @NotNull ThreadFactory threadFactory;
+
+    private final int maximumBlockingCount;
+
+    private final @NotNull ReentrantLock lock = new ReentrantLock();
+    private final @NotNull Condition available = lock.newCondition();
+    /** The lanes of each priority, followed by the lanes of blocking tasks of each priority. */
+    private final @NotNull ArrayDeque<Task>[] lanes;
+    private int threadCount;
+    private int idleThreadCount;
+    private int runningBlockingCount;
+
+    // Statistics, protected by the lock
+    private long submittedCount;
+    private long startedCount;
+    private long completedCount;
+    private long failedCount;
+    private long cancelledCount;
+    private long totalLatencyNanos;
+    private long maximumLatencyNanos;
+    private int maximumQueueDepth;
+
+    /**
+     * Create an executor.
+     * @param name The name of the executor, used to name its threads.
+     * @param maximumThreadCount The maximum number of threads.
+     * @param threadFactory The factory used to create threads, or null to create daemon platform threads.
+     */
+    @SuppressWarnings("unchecked")
+    public DispatchExecutor(@NotNull String name, int maximumThreadCount, @Nullable ThreadFactory threadFactory) {
+        this.name = name;
+        this.maximumThreadCount = Math.max(1, maximumThreadCount);
+        this.threadFactory = threadFactory != null ? threadFactory : createPlatformThreadFactory(name);
+        this.maximumBlockingCount = Math.max(1, this.maximumThreadCount / 2);
+        this.lanes = new ArrayDeque[2 * LANE_COUNT];
+        for (int i = 0; i < lanes.length; i++) {
+            lanes[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Create a task group.
+     * @param name The name of the group (for debugging).
+     */
+    public @NotNull TaskGroup createGroup(@NotNull String name) {
+        return new TaskGroup(name);
+    }
+
+    /**
+     * Execute a task at normal priority.
+     */
+    public void execute(@NotNull Runnable r) {
+        submit(r, PRIORITY_NORMAL, false, null);
+    }
+
+    /**
+     * Execute a task.
+     * @param r The task.
+     * @param priority The task priority, one of {@link #PRIORITY_HIGH}, {@link #PRIORITY_NORMAL}, or
+     * {@link #PRIORITY_LOW}.
+     * @param isLIFO If true, the task is started before the tasks already waiting at the same priority.
+     * @param group The group to which the task belongs, or null.
+     */
+    public void submit(@NotNull Runnable r, int priority, boolean isLIFO, @Nullable TaskGroup group) {
+        submit(r, priority, isLIFO, false, group);
+    }
+
+    /**
+     * Execute a task.
+     * @param r The task.
+     * @param priority The task priority, one of {@link #PRIORITY_HIGH}, {@link #PRIORITY_NORMAL}, or
+     * {@link #PRIORITY_LOW}.
+     * @param isLIFO If true, the task is started before the tasks already waiting at the same priority.
+     * @param isBlocking True if the task may block for a long time on file system I/O. The number of such tasks
+     * that run at the same time is limited, so that they cannot occupy every thread.
+     * @param group The group to which the task belongs, or null.
+     */
+    public void submit(@NotNull Runnable r, int priority, boolean isLIFO, boolean isBlocking, @Nullable TaskGroup group) {
+        Task t = new Task(r, group, isBlocking);
+        int index = Math.max(0, Math.min(LANE_COUNT - 1, priority));
+        ArrayDeque<Task> lane = lanes[isBlocking ? LANE_COUNT + index : index];
+        boolean shouldStartThread = false;
+        lock.lock();
+        try {
+            if (isLIFO) {
+                lane.addFirst(t);
+            } else {
+                lane.addLast(t);
+            }
+            submittedCount++;
+            maximumQueueDepth = Math.max(maximumQueueDepth, getQueueDepthLocked());
+            // A blocking task that exceeds the limit is started by the thread of a blocking task that completes
+            boolean isStartable = !isBlocking || runningBlockingCount < maximumBlockingCount;
+            if (isStartable && idleThreadCount > 0) {
+                available.signal();
+            } else if (isStartable && threadCount < maximumThreadCount) {
+                threadCount++;
+                shouldStartThread = true;
+            }
+        } finally {
+            lock.unlock();
+        }
+        if (shouldStartThread) {
+            startThread();
+        }
+    }
+
+    /**
+     * Cancel a task that has not started.
+     * @param r The task.
+     * @return true if the task was waiting and has been removed.
+     */
+    public boolean cancel(@NotNull Runnable r) {
+        lock.lock();
+        try {
+            for (ArrayDeque<Task> lane : lanes) {
+                for (Iterator<Task> it = lane.iterator(); it.hasNext(); ) {
+                    if (it.next().runnable == r) {
+                        it.remove();
+                        cancelledCount++;
+                        return true;
+                    }
+                }
+            }
+            return false;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return the number of tasks waiting to be started.
+     */
+    public int getQueueDepth() {
+        lock.lock();
+        try {
+            return getQueueDepthLocked();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return the number of tasks of the specified priority waiting to be started.
+     */
+    public int getQueueDepth(int priority) {
+        lock.lock();
+        try {
+            return lanes[priority].size() + lanes[LANE_COUNT + priority].size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Return a snapshot of the executor statistics.
+     */
+    public @NotNull Statistics getStatistics() {
+        lock.lock();
+        try {
+            int[] depths = new int[LANE_COUNT];
+            for (int i = 0; i < LANE_COUNT; i++) {
+                depths[i] = lanes[i].size() + lanes[LANE_COUNT + i].size();
+            }
+            long averageLatencyNanos = startedCount > 0 ? totalLatencyNanos / startedCount : 0;
+            return new Statistics(name, threadCount, idleThreadCount, depths, maximumQueueDepth, submittedCount,
+              completedCount, failedCount, cancelledCount, averageLatencyNanos, maximumLatencyNanos);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private int getQueueDepthLocked() {
+        int count = 0;
+        for (ArrayDeque<Task> lane : lanes) {
+            count += lane.size();
+        }
+        return count;
+    }
+
+    private int cancelGroup(@NotNull TaskGroup group) {
+        int count = 0;
+        lock.lock();
+        try {
+            for (ArrayDeque<Task> lane : lanes) {
+                for (Iterator<Task> it = lane.iterator(); it.hasNext(); ) {
+                    if (it.next().group == group) {
+                        it.remove();
+                        count++;
+                    }
+                }
+            }
+            cancelledCount += count;
+        } finally {
+            lock.unlock();
+        }
+        return count;
+    }
+
+    private int getGroupQueueDepth(@NotNull TaskGroup group) {
+        int count = 0;
+        lock.lock();
+        try {
+            for (ArrayDeque<Task> lane : lanes) {
+                for (Task t : lane) {
+                    if (t.group == group) {
+                        count++;
+                    }
+                }
+            }
+        } finally {
+            lock.unlock();
+        }
+        return count;
+    }
+
+    private void startThread() {
+        try {
+            Thread t = threadFactory.newThread(this::work);
+            t.start();
+        } catch (Throwable ex) {
+            Utils.logError("Unable to start a file chooser thread", ex);
+            lock.lock();
+            try {
+                threadCount--;
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    private void work() {
+        Task previous = null;
+        boolean failed = false;
+        for (;;) {
+            Task t;
+            lock.lock();
+            try {
+                if (previous != null) {
+                    completedCount++;
+                    if (failed) {
+                        failedCount++;
+                    }
+                    if (previous.isBlocking) {
+                        runningBlockingCount--;
+                    }
+                }
+                previous = null;
+                t = poll();
+                long remaining = KEEP_ALIVE_NANOS;
+                while (t == null) {
+                    if (remaining <= 0) {
+                        threadCount--;
+                        return;
+                    }
+                    idleThreadCount++;
+                    try {
+                        remaining = available.awaitNanos(remaining);
+                    } catch (InterruptedException ex) {
+                        remaining = 0;
+                    } finally {
+                        idleThreadCount--;
+                    }
+                    t = poll();
+                }
+                if (t.isBlocking) {
+                    runningBlockingCount++;
+                }
+                long latency = System.nanoTime() - t.submitTime;
+                startedCount++;
+                totalLatencyNanos += latency;
+                maximumLatencyNanos = Math.max(maximumLatencyNanos, latency);
+            } finally {
+                lock.unlock();
+            }
+
+            previous = t;
+            failed = false;
+            try {
+                t.runnable.run();
+            } catch (Throwable ex) {
+                failed = true;
+                ex.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Remove the next task to be started. A blocking task is eligible only if fewer than the maximum number of
+     * blocking tasks are running.
+     */
+    private @Nullable Task poll() {
+        boolean isBlockingAllowed = runningBlockingCount < maximumBlockingCount;
+        for (int i = 0; i < LANE_COUNT; i++) {
+            Task t = isBlockingAllowed ? lanes[LANE_COUNT + i].pollFirst() : null;
+            if (t == null) {
+                t = lanes[i].pollFirst();
+            }
+            if (t != null) {
+                return t;
+            }
+        }
+        return null;
+    }
+
+    private static @NotNull ThreadFactory createPlatformThreadFactory(@NotNull String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return r -> {
+            Thread t = new Thread(r, name + " " + counter.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    private static @Nullable ThreadFactory createVirtualThreadFactory() {
+        try {
+            Method ofVirtual = Thread.class.getMethod("ofVirtual");
+            Object builder = ofVirtual.invoke(null);
+            Class<?> builderClass = Class.forName("java.lang.Thread$Builder");
+            return (ThreadFactory) builderClass.getMethod("factory").invoke(builder);
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    private static class Task {
+        final @NotNull Runnable runnable;
+        final @Nullable TaskGroup group;
+        final boolean isBlocking;
+        final long submitTime;
+
+        Task(@NotNull Runnable runnable, @Nullable TaskGroup group, boolean isBlocking) {
+            this.runnable = runnable;
+            this.group = group;
+            this.isBlocking = isBlocking;
+            this.submitTime = System.nanoTime();
+        }
+    }
+
+    /**
+     * A set of tasks that can be cancelled together.
+     */
+    public class TaskGroup {
+        private final @NotNull String name;
+
+        private TaskGroup(@NotNull String name) {
+            this.name = name;
+        }
+
+        /**
+         * Cancel the tasks in this group that have not started. Tasks that have started are not affected. The group
+         * remains usable.
+         * @return the number of tasks that were cancelled.
+         */
+        public int cancel() {
+            return cancelGroup(this);
+        }
+
+        /**
+         * Return the number of tasks in this group waiting to be started.
+         */
+        public int getQueueDepth() {
+            return getGroupQueueDepth(this);
+        }
+
+        @Override
+        public @NotNull String toString() {
+            return name;
+        }
+    }
+
+    /**
+     * A snapshot of the executor statistics.
+     */
+    public static final class Statistics {
+        private final @NotNull String name;
+        private final int threadCount;
+        private final int idleThreadCount;
+        private final @NotNull int[] queueDepths;
+        private final int maximumQueueDepth;
+        private final long submittedCount;
+        private final long completedCount;
+        private final long failedCount;
+        private final long cancelledCount;
+        private final long averageLatencyNanos;
+        private final long maximumLatencyNanos;
+
+        private Statistics(@NotNull String name,
+                           int threadCount,
+                           int idleThreadCount,
+                           @NotNull int[] queueDepths,
+                           int maximumQueueDepth,
+                           long submittedCount,
+                           long completedCount,
+                           long failedCount,
+                           long cancelledCount,
+                           long averageLatencyNanos,
+                           long maximumLatencyNanos) {
+            this.name = name;
+            this.threadCount = threadCount;
+            this.idleThreadCount = idleThreadCount;
+            this.queueDepths = queueDepths;
+            this.maximumQueueDepth = maximumQueueDepth;
+            this.submittedCount = submittedCount;
+            this.completedCount = completedCount;
+            this.failedCount = failedCount;
+            this.cancelledCount = cancelledCount;
+            this.averageLatencyNanos = averageLatencyNanos;
+            this.maximumLatencyNanos = maximumLatencyNanos;
+        }
+
+        public int getThreadCount() {
+            return threadCount;
+        }
+
+        public int getIdleThreadCount() {
+            return idleThreadCount;
+        }
+
+        /**
+         * Return the number of waiting tasks with the specified priority.
+         */
+        public int getQueueDepth(int priority) {
+            return queueDepths[priority];
+        }
+
+        /**
+         * Return the total number of waiting tasks.
+         */
+        public int getQueueDepth() {
+            int count = 0;
+            for (int depth : queueDepths) {
+                count += depth;
+            }
+            return count;
+        }
+
+        public int getMaximumQueueDepth() {
+            return maximumQueueDepth;
+        }
+
+        public long getSubmittedCount() {
+            return submittedCount;
+        }
+
+        public long getCompletedCount() {
+            return completedCount;
+        }
+
+        public long getFailedCount() {
+            return failedCount;
+        }
+
+        public long getCancelledCount() {
+            return cancelledCount;
+        }
+
+        /**
+         * Return the average time from submission to start of the tasks that have started, in milliseconds.
+         */
+        public double getAverageLatencyMillis() {
+            return averageLatencyNanos / 1e6;
+        }
+
+        /**
+         * Return the longest time from submission to start of the tasks that have started, in milliseconds.
+         */
+        public double getMaximumLatencyMillis() {
+            return maximumLatencyNanos / 1e6;
+        }
+
+        @Override
+        public @NotNull String toString() {
+            return String.format("%s: threads %d (%d idle), queued %d/%d/%d (max %d), submitted %d, completed %d,"
+                + " failed %d, cancelled %d, latency avg %.1f ms max %.1f ms",
+              name, threadCount, idleThreadCount, queueDepths[0], queueDepths[1], queueDepths[2], maximumQueueDepth,
+              submittedCount, completedCount, failedCount, cancelledCount, getAverageLatencyMillis(),
+              getMaximumLatencyMillis());
+        }
+    }
+}
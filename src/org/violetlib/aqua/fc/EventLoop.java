@@ -27,7 +27,8 @@ import java.util.LinkedList;
  * <p>
  * Other important features are that events are processed in
  * the same sequence as they have been collected and that only one
- * thread is used to process the events.
+ * thread at a time is used to process the events. The events are
+ * processed on the threads of the shared {@link DispatchExecutor}.
  * <p>
  * <b>Usage</b>
  * <p>
@@ -61,8 +62,19 @@ import java.util.LinkedList;
  * @version $Id$
  */
 public abstract class EventLoop {
-    private Thread eventProcessor;
-    private int threadPriority;
+    /**
+     * The maximum number of events processed before the event
+     * processor yields its thread to other work.
+     */
+    private static final int EVENTS_PER_TURN = 32;
+
+    private final DispatchExecutor executor;
+    private final int taskPriority;
+    /**
+     * Indicates whether the event processor has been submitted
+     * to the executor and has not yet finished.
+     */
+    private boolean isScheduled;
     private final LinkedList eventQueue = new LinkedList();
     /**
      * Indicates whether multiple events will be coalesced
@@ -92,7 +104,8 @@ public abstract class EventLoop {
      * @param priority The Thread priority of the event processor.
      */
     public EventLoop(int priority) {
-        this.threadPriority = priority;
+        this.executor = DispatchExecutor.getShared();
+        this.taskPriority = DispatchExecutor.getPriorityForThreadPriority(priority);
     }
     /**
      * Collects an event and puts it into the event queue
@@ -196,22 +209,9 @@ public abstract class EventLoop {
      */
     private void startProcessor() {
         synchronized(eventQueue) {
-            if (eventProcessor == null) {
-                eventProcessor = new Thread(this+" Event Processor") {
-                    public void run() {
-                        processEvents();
-                    }
-                };
-                try {
-                    // The event processor must not be a daemon.
-                    // If it was a daemon, the virtual machine would
-                    // stop before the event had been processed.
-                    eventProcessor.setDaemon(false);
-                } catch (SecurityException e) {}
-                try {
-                    eventProcessor.setPriority(threadPriority);
-                } catch (SecurityException e) {}
-                eventProcessor.start();
+            if (! isScheduled && ! eventQueue.isEmpty()) {
+                isScheduled = true;
+                executor.submit(this::processEvents, taskPriority, false, null);
             }
         }
     }
@@ -226,17 +226,23 @@ public abstract class EventLoop {
     /**
      * This method removes events from the event queue
      * and proceses them until the queue is empty or
-     * until #stop is called.
+     * until #stop is called. If many events are waiting,
+     * the remaining events are processed in a later turn,
+     * so that other work is not kept waiting.
      * <p>
      * This method must be called from the event processor
      * thread only.
      */
     protected void processEvents() {
         Object event;
-        while (true) {
+        for (int count = 0; ; count++) {
             synchronized(eventQueue) {
                 if (eventQueue.isEmpty() || ! isAlive) {
-                    eventProcessor = null;
+                    isScheduled = false;
+                    return;
+                }
+                if (count == EVENTS_PER_TURN) {
+                    executor.submit(this::processEvents, taskPriority, false, null);
                     return;
                 }
                 event = eventQueue.removeFirst();
@@ -0,0 +1,50 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.aqua.fc;
+
+import java.io.File;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Reads the attributes of files for display in the file chooser. This method is called on a background thread.
+ */
+public interface FileAttributeProvider {
+
+    /**
+     * Read the attributes of a file.
+     * @param file The file, as listed in its directory.
+     * @param resolvedFile The file that the listed file designates. This is the same as {@code file} unless
+     * {@code file} is an alias that has been resolved.
+     * @param fileType The file type of the resolved file, as defined by {@link OSXFile}.
+     * @param isHidden True if the file is hidden.
+     * @return the attributes.
+     */
+    @NotNull FileAttributeSnapshot getAttributes(@NotNull File file,
+                                                 @NotNull File resolvedFile,
+                                                 int fileType,
+                                                 boolean isHidden);
+
+    /**
+     * Read the attributes of a file, using information obtained by a batch query where possible.
+     * @param info The information obtained by a batch query of the files in the directory.
+     * @param index The index of the file in the batch.
+     * @param resolvedFile The file that the listed file designates.
+     * @param fileType The file type of the resolved file, as defined by {@link OSXFile}.
+     * @param isHidden True if the file is hidden.
+     * @return the attributes.
+     */
+    default @NotNull FileAttributeSnapshot getAttributes(@NotNull FileInfoBatch info,
+                                                         int index,
+                                                         @NotNull File resolvedFile,
+                                                         int fileType,
+                                                         boolean isHidden) {
+        return getAttributes(info.getFile(index), resolvedFile, fileType, isHidden);
+    }
+}
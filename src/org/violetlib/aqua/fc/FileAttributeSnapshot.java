@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.aqua.fc;
+
+import java.util.Objects;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * The attributes of a file that are displayed by the file chooser, as read at one point in time. Snapshots are read
+ * in bulk on a background thread when a directory is read, so that displaying the attributes does not access the file
+ * system.
+ */
+public final class FileAttributeSnapshot {
+
+    private final int fileType;
+    private final long length;
+    private final long lastModified;
+    private final long creationTime;
+    private final boolean isHidden;
+    private final @Nullable String kind;
+    private final int label;
+
+    /**
+     * Create a snapshot.
+     * @param fileType The file type, as defined by {@link OSXFile}.
+     * @param length The length of the file in bytes, or -1 if the file is a directory or the length is not known.
+     * @param lastModified The time the file was last modified, in milliseconds since the epoch, or 0 if not known.
+     * @param creationTime The time the file was created, in milliseconds since the epoch, or 0 if not known.
+     * @param isHidden True if the file is hidden.
+     * @param kind The file kind, or null if not known.
+     * @param label The file label, or -1 if not known.
+     */
+    public FileAttributeSnapshot(int fileType,
+                                 long length,
+                                 long lastModified,
+                                 long creationTime,
+                                 boolean isHidden,
+                                 @Nullable String kind,
+                                 int label) {
+        this.fileType = fileType;
+        this.length = length;
+        this.lastModified = lastModified;
+        this.creationTime = creationTime;
+        this.isHidden = isHidden;
+        this.kind = kind;
+        this.label = label;
+    }
+
+    /**
+     * Return the file type, as defined by {@link OSXFile}.
+     */
+    public int getFileType() {
+        return fileType;
+    }
+
+    /**
+     * Return the length of the file in bytes.
+     * @return the length, or -1 if the file is a directory or the length is not known.
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * Return the time the file was last modified.
+     * @return the time in milliseconds since the epoch, or 0 if not known.
+     */
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    /**
+     * Return the time the file was created.
+     * @return the time in milliseconds since the epoch, or 0 if not known.
+     */
+    public long getCreationTime() {
+        return creationTime;
+    }
+
+    public boolean isHidden() {
+        return isHidden;
+    }
+
+    /**
+     * Return the file kind.
+     * @return the file kind, or null if not known.
+     */
+    public @Nullable String getKind() {
+        return kind;
+    }
+
+    /**
+     * Return the file label.
+     * @return the label, or -1 if not known.
+     */
+    public int getLabel() {
+        return label;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        FileAttributeSnapshot that = (FileAttributeSnapshot) o;
+        return fileType == that.fileType
+          && length == that.length
+          && lastModified == that.lastModified
+          && creationTime == that.creationTime
+          && isHidden == that.isHidden
+          && label == that.label
+          && Objects.equals(kind, that.kind);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fileType, length, lastModified, creationTime, isHidden, kind, label);
+    }
+
+    @Override
+    public String toString() {
+        return "FileAttributeSnapshot[type=" + fileType + " length=" + length + " modified=" + lastModified
+          + " created=" + creationTime + (isHidden ? " hidden" : "") + " kind=" + kind + " label=" + label + "]";
+    }
+}
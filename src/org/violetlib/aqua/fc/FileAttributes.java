@@ -9,16 +9,21 @@
 package org.violetlib.aqua.fc;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.attribute.BasicFileAttributes;
 import javax.swing.*;
 import javax.swing.filechooser.FileView;
 import javax.swing.plaf.FileChooserUI;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Provide file attributes for display in the file chooser.
  */
-public class FileAttributes {
+public class FileAttributes implements FileAttributeProvider {
 
     private static final @NotNull ConcurrentDispatcher dispatcher = new ConcurrentDispatcher();
     private final @NotNull JFileChooser fc;
@@ -65,6 +70,58 @@ public class FileAttributes {
         }
     }
 
+    /**
+     * Read the attributes of a file for display in a file chooser. The length and times are obtained using a single
+     * call to {@link Files#readAttributes(java.nio.file.Path, Class, java.nio.file.LinkOption...)}. The label and kind
+     * are not read, as each requires a native call. They are obtained when the file is displayed.
+     */
+    @Override
+    public @NotNull FileAttributeSnapshot getAttributes(@NotNull File file,
+                                                        @NotNull File resolvedFile,
+                                                        int fileType,
+                                                        boolean isHidden) {
+        return createSnapshot(resolvedFile, fileType, isHidden, null, -1);
+    }
+
+    /**
+     * Read the attributes of a file for display in a file chooser. The label and kind are taken from the batch, if
+     * available there. Otherwise, they are obtained when the file is displayed.
+     */
+    @Override
+    public @NotNull FileAttributeSnapshot getAttributes(@NotNull FileInfoBatch info,
+                                                        int index,
+                                                        @NotNull File resolvedFile,
+                                                        int fileType,
+                                                        boolean isHidden) {
+        File file = info.getFile(index);
+        if (!info.isNative()) {
+            return getAttributes(file, resolvedFile, fileType, isHidden);
+        }
+        String kind = fileType == OSXFile.FILE_TYPE_FILE ? info.getKind(index) : null;
+        int label = info.getLabel(index);
+        return createSnapshot(resolvedFile, fileType, isHidden, kind, label);
+    }
+
+    private @NotNull FileAttributeSnapshot createSnapshot(@NotNull File resolvedFile,
+                                                          int fileType,
+                                                          boolean isHidden,
+                                                          @Nullable String kind,
+                                                          int label) {
+        long length = -1;
+        long lastModified = 0;
+        long creationTime = 0;
+        try {
+            BasicFileAttributes a = Files.readAttributes(resolvedFile.toPath(), BasicFileAttributes.class);
+            if (!a.isDirectory()) {
+                length = a.size();
+            }
+            lastModified = a.lastModifiedTime().toMillis();
+            creationTime = a.creationTime().toMillis();
+        } catch (IOException | InvalidPathException | SecurityException ignore) {
+        }
+        return new FileAttributeSnapshot(fileType, length, lastModified, creationTime, isHidden, kind, label);
+    }
+
     /**
      * Return the icon for a file in a file chooser. The icon may be an empty or generic icon
      * that updates itself when a better icon becomes available.
@@ -0,0 +1,241 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.aqua.fc;
+
+import java.awt.*;
+import java.io.File;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.violetlib.aqua.AppearanceManager;
+import org.violetlib.aqua.AquaMultiResolutionImage;
+import org.violetlib.aqua.JavaSupport;
+import org.violetlib.aqua.Utils;
+
+/**
+ * A cache of rendered file icons, shared by the file icon services. The cache has two levels: a bounded in-memory
+ * cache of recently used icons, and an optional on-disk store that survives restarts.
+ * <p>
+ * An icon that is determined by the type of a file is cached by the type identifier, so that it is rendered once
+ * for all files of that type. Other icons, including custom icons and Quick Look thumbnails, are cached by the path
+ * and modification time of the file. All keys also include the requested size, the display scale, and the
+ * application appearance.
+ * <p>
+ * The on-disk store is enabled by setting the system property {@code VAqua.fileIconDiskCache} to true.
+ */
+
+public class FileIconCache {
+
+    /** The renderer that obtains icons from Launch Services. */
+    public static final @NotNull String LAUNCH_SERVICES = "ls";
+    /** The renderer that obtains icons from Quick Look. */
+    public static final @NotNull String QUICK_LOOK = "ql";
+
+    private static final long MAXIMUM_MEMORY_PIXELS = 4 * 1024 * 1024;
+    private static final int MAXIMUM_ICON_PIXELS = 5 * 256 * 256;
+    private static final @NotNull String DISK_CACHE_PROPERTY = "VAqua.fileIconDiskCache";
+
+    private static @Nullable FileIconCache sharedInstance;
+
+    /**
+     * Return the cache shared by the file icon services.
+     */
+    public static synchronized @NotNull FileIconCache getShared() {
+        if (sharedInstance == null) {
+            FileIconDiskStore store = null;
+            if (Boolean.getBoolean(DISK_CACHE_PROPERTY)) {
+                store = FileIconDiskStore.create();
+            }
+            sharedInstance = new FileIconCache(store);
+        }
+        return sharedInstance;
+    }
+
+    /**
+     * Return the key for an icon that is determined by the type of the file.
+     * @return the key, or null if the icon of the file may not be determined by its type.
+     */
+    public static @Nullable String getTypeKey(@NotNull File f, @NotNull String renderer, int size, float scale) {
+        String type = OSXFile.getIconTypeIdentifier(f);
+        if (type == null) {
+            return null;
+        }
+        return createKey("type", type, renderer, size, scale);
+    }
+
+    /**
+     * Return the key for an icon that is specific to a file.
+     */
+    public static @NotNull String getFileKey(@NotNull File f, @NotNull String renderer, int size, float scale) {
+        return createKey("file", f.getAbsolutePath() + "@" + f.lastModified(), renderer, size, scale);
+    }
+
+    /**
+     * Return the key for the Launch Services icon of a file. The key is a type key if possible.
+     */
+    public static @NotNull String getLaunchServicesKey(@NotNull File f, int size, float scale) {
+        String key = getTypeKey(f, LAUNCH_SERVICES, size, scale);
+        return key != null ? key : getFileKey(f, LAUNCH_SERVICES, size, scale);
+    }
+
+    private static @NotNull String createKey(@NotNull String kind,
+                                             @NotNull String id,
+                                             @NotNull String renderer,
+                                             int size,
+                                             float scale) {
+        String appearance;
+        try {
+            appearance = AppearanceManager.getApplicationAppearance().getName();
+        } catch (UnsupportedOperationException ex) {
+            appearance = "";
+        }
+        return kind + "|" + renderer + "|" + size + "|" + scale + "|" + appearance + "|" + id;
+    }
+
+    /**
+     * A cached icon. The rasters are those delivered by native code. The image is created when needed.
+     */
+    public static final class Entry {
+        private final int width;
+        private final int height;
+        private final float scale;
+        private final int priority;
+        private final @NotNull int[] data;
+        private final @Nullable int[] data2x;
+        private @Nullable Image image;
+
+        /**
+         * Create an entry.
+         * @param width The width of the icon, in points.
+         * @param height The height of the icon, in points.
+         * @param scale The scale of the raster, or zero if the entry has a 1x raster and an optional 2x raster.
+         * @param priority The quality level of the icon, as defined by {@link FileIconService}.
+         * @param data The raster (the 1x raster, if the scale is zero).
+         * @param data2x The 2x raster, or null.
+         */
+        public Entry(int width, int height, float scale, int priority, @NotNull int[] data, @Nullable int[] data2x) {
+            this.width = width;
+            this.height = height;
+            this.scale = scale;
+            this.priority = priority;
+            this.data = data;
+            this.data2x = data2x;
+        }
+
+        public int getWidth() {
+            return width;
+        }
+
+        public int getHeight() {
+            return height;
+        }
+
+        public float getScale() {
+            return scale;
+        }
+
+        public int getPriority() {
+            return priority;
+        }
+
+        @NotNull int[] getData() {
+            return data;
+        }
+
+        @Nullable int[] getData2x() {
+            return data2x;
+        }
+
+        int getPixelCount() {
+            return data.length + (data2x != null ? data2x.length : 0);
+        }
+
+        public synchronized @NotNull Image getImage() {
+            if (image == null) {
+                image = scale > 0
+                        ? JavaSupport.createImage(width, height, data, scale)
+                        : AquaMultiResolutionImage.createImage(width, height, data, data2x);
+            }
+            return image;
+        }
+    }
+
+    private final @Nullable FileIconDiskStore diskStore;
+    private final @NotNull LinkedHashMap<String,Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    private long memoryPixels;
+
+    private FileIconCache(@Nullable FileIconDiskStore diskStore) {
+        this.diskStore = diskStore;
+    }
+
+    /**
+     * Return the cached icon with the specified key. The on-disk store is consulted if the icon is not in memory,
+     * so this method should not be called on the AWT event dispatcher thread.
+     * @return the icon, or null if the icon is not cached.
+     */
+    public @Nullable Entry get(@NotNull String key) {
+        synchronized (entries) {
+            Entry e = entries.get(key);
+            if (e != null) {
+                return e;
+            }
+        }
+        if (diskStore != null) {
+            Entry e = diskStore.read(key);
+            if (e != null) {
+                putInMemory(key, e);
+                if (FileIconService.debugFlag) {
+                    Utils.logDebug("File icon cache: read " + key);
+                }
+                return e;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Cache an icon. An icon replaces a cached icon with the same key only if its quality is at least as high.
+     */
+    public void put(@NotNull String key, @NotNull Entry e) {
+        if (e.getPixelCount() > MAXIMUM_ICON_PIXELS) {
+            return;
+        }
+        synchronized (entries) {
+            Entry existing = entries.get(key);
+            if (existing != null && existing.getPriority() > e.getPriority()) {
+                return;
+            }
+        }
+        putInMemory(key, e);
+        if (diskStore != null) {
+            diskStore.write(key, e);
+        }
+    }
+
+    private void putInMemory(@NotNull String key, @NotNull Entry e) {
+        synchronized (entries) {
+            Entry old = entries.put(key, e);
+            if (old != null) {
+                memoryPixels -= old.getPixelCount();
+            }
+            memoryPixels += e.getPixelCount();
+            Iterator<Map.Entry<String,Entry>> it = entries.entrySet().iterator();
+            while (memoryPixels > MAXIMUM_MEMORY_PIXELS && it.hasNext()) {
+                Entry eldest = it.next().getValue();
+                if (eldest != e) {
+                    memoryPixels -= eldest.getPixelCount();
+                    it.remove();
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,239 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.aqua.fc;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.BufferUnderflowException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.violetlib.aqua.Utils;
+
+/**
+ * An on-disk store of rendered file icons. Each icon is stored in a separate file, which contains the key and the
+ * ARGB rasters of the icon. Files are read by memory mapping them.
+ * <p>
+ * The store is located in the user's cache directory, unless the system property
+ * {@code VAqua.fileIconCacheDirectory} specifies a different directory. When the store is opened, and again after
+ * every {@value #TRIM_INTERVAL_BYTES} bytes written, the oldest files are deleted if the store has grown too large.
+ */
+
+class FileIconDiskStore {
+
+    private static final int MAGIC = 0x56514943; // VQIC
+    private static final int VERSION = 1;
+    private static final long MAXIMUM_STORE_BYTES = 64L * 1024 * 1024;
+    private static final long TRIM_INTERVAL_BYTES = 8L * 1024 * 1024;
+    private static final @NotNull String SUFFIX = ".icon";
+    private static final @NotNull String DIRECTORY_PROPERTY = "VAqua.fileIconCacheDirectory";
+
+    /**
+     * Open the store.
+     * @return the store, or null if the store directory cannot be created.
+     */
+    static @Nullable FileIconDiskStore create() {
+        String s = System.getProperty(DIRECTORY_PROPERTY);
+        File dir = s != null
+                ? new File(s)
+                : new File(System.getProperty("user.home"), "Library/Caches/org.violetlib.vaqua/FileIcons");
+        try {
+            Files.createDirectories(dir.toPath());
+        } catch (IOException | SecurityException ex) {
+            Utils.logError("Unable to create file icon cache directory " + dir, ex);
+            return null;
+        }
+        FileIconDiskStore store = new FileIconDiskStore(dir.toPath());
+        store.scheduleTrim();
+        return store;
+    }
+
+    private final @NotNull Path directory;
+    private final @NotNull AtomicLong bytesWrittenSinceTrim = new AtomicLong();
+    private final @NotNull AtomicBoolean isTrimScheduled = new AtomicBoolean();
+
+    private FileIconDiskStore(@NotNull Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Read an icon.
+     * @return the icon, or null if the store does not contain the icon or the icon could not be read.
+     */
+    @Nullable FileIconCache.Entry read(@NotNull String key) {
+        Path p = getPath(key);
+        try (FileChannel channel = FileChannel.open(p, StandardOpenOption.READ)) {
+            MappedByteBuffer b = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (b.getInt() != MAGIC || b.getInt() != VERSION) {
+                return null;
+            }
+            byte[] keyBytes = new byte[b.getInt()];
+            b.get(keyBytes);
+            if (!Arrays.equals(keyBytes, key.getBytes(StandardCharsets.UTF_8))) {
+                return null;
+            }
+            int width = b.getInt();
+            int height = b.getInt();
+            float scale = b.getFloat();
+            int priority = b.getInt();
+            int dataLength = b.getInt();
+            int data2xLength = b.getInt();
+            IntBuffer ib = b.asIntBuffer();
+            int[] data = new int[dataLength];
+            ib.get(data);
+            int[] data2x = null;
+            if (data2xLength >= 0) {
+                data2x = new int[data2xLength];
+                ib.get(data2x);
+            }
+            return new FileIconCache.Entry(width, height, scale, priority, data, data2x);
+        } catch (NoSuchFileException ex) {
+            return null;
+        } catch (IOException | BufferUnderflowException | NegativeArraySizeException | SecurityException ex) {
+            Utils.logError("Unable to read cached file icon " + p, ex);
+            return null;
+        }
+    }
+
+    /**
+     * Write an icon. The icon is written to a temporary file, which then replaces any existing file for the key.
+     */
+    void write(@NotNull String key, @NotNull FileIconCache.Entry e) {
+        Path p = getPath(key);
+        Path temp = null;
+        try {
+            temp = Files.createTempFile(directory, "icon", ".tmp");
+            try (OutputStream os = Files.newOutputStream(temp);
+                 DataOutputStream s = new DataOutputStream(new BufferedOutputStream(os))) {
+                byte[] keyBytes = key.getBytes(StandardCharsets.UTF_8);
+                int[] data = e.getData();
+                int[] data2x = e.getData2x();
+                s.writeInt(MAGIC);
+                s.writeInt(VERSION);
+                s.writeInt(keyBytes.length);
+                s.write(keyBytes);
+                s.writeInt(e.getWidth());
+                s.writeInt(e.getHeight());
+                s.writeFloat(e.getScale());
+                s.writeInt(e.getPriority());
+                s.writeInt(data.length);
+                s.writeInt(data2x != null ? data2x.length : -1);
+                for (int v : data) {
+                    s.writeInt(v);
+                }
+                if (data2x != null) {
+                    for (int v : data2x) {
+                        s.writeInt(v);
+                    }
+                }
+            }
+            try {
+                Files.move(temp, p, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException ex) {
+                Files.move(temp, p, StandardCopyOption.REPLACE_EXISTING);
+            }
+            temp = null;
+            // Quick Look thumbnails are keyed by modification time, so the store grows as files are edited.
+            long written = bytesWrittenSinceTrim.addAndGet(Files.size(p));
+            if (written >= TRIM_INTERVAL_BYTES) {
+                scheduleTrim();
+            }
+        } catch (IOException | SecurityException ex) {
+            Utils.logError("Unable to write cached file icon " + p, ex);
+        } finally {
+            if (temp != null) {
+                try {
+                    Files.deleteIfExists(temp);
+                } catch (IOException | SecurityException ignore) {
+                }
+            }
+        }
+    }
+
+    private void scheduleTrim() {
+        if (isTrimScheduled.compareAndSet(false, true)) {
+            bytesWrittenSinceTrim.set(0);
+            DispatchExecutor.getShared().submit(this::trim, DispatchExecutor.PRIORITY_LOW, false, null);
+        }
+    }
+
+    /**
+     * Delete the oldest files if the store has grown too large.
+     */
+    private void trim() {
+        try {
+            trimFiles();
+        } finally {
+            isTrimScheduled.set(false);
+        }
+    }
+
+    private void trimFiles() {
+        File[] files = directory.toFile().listFiles((d, name) -> name.endsWith(SUFFIX));
+        if (files == null) {
+            return;
+        }
+        long total = 0;
+        for (File f : files) {
+            total += f.length();
+        }
+        if (total <= MAXIMUM_STORE_BYTES) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        long target = MAXIMUM_STORE_BYTES * 3 / 4;
+        for (File f : files) {
+            if (total <= target) {
+                break;
+            }
+            long length = f.length();
+            if (f.delete()) {
+                total -= length;
+            }
+        }
+    }
+
+    private @NotNull Path getPath(@NotNull String key) {
+        return directory.resolve(hash(key) + SUFFIX);
+    }
+
+    private static @NotNull String hash(@NotNull String key) {
+        try {
+            MessageDigest md = MessageDigest.getInstance("SHA-1");
+            byte[] digest = md.digest(key.getBytes(StandardCharsets.UTF_8));
+            StringBuilder sb = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+                sb.append(Character.forDigit(b & 0xF, 16));
+            }
+            return sb.toString();
+        } catch (NoSuchAlgorithmException ex) {
+            return Integer.toHexString(key.hashCode());
+        }
+    }
+}
@@ -0,0 +1,438 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.aqua.fc;
+
+import java.io.File;
+import java.util.*;
+import javax.swing.*;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.violetlib.aqua.Utils;
+
+/**
+ * Schedules the rendering tasks of the file icon services. Views that display file icons report the files that are
+ * visible in their viewports. Tasks for visible files are started before other tasks, the most recently requested
+ * first. Other tasks are started in the order requested, when no task for a visible file is waiting.
+ * <p>
+ * A task is identified by a key, usually derived from the file, the icon size, and the renderer. Requests for a task
+ * that is waiting or running are attached to the existing task, so that each icon is rendered once. A waiting task is
+ * discarded if all of its requests have been cancelled.
+ * <p>
+ * The scheduler measures the time from a change in the visible files to the delivery of the first icon for a visible
+ * file.
+ */
+
+public class FileIconScheduler {
+
+    private static final int MAXIMUM_RUNNING_TASKS = 5;
+
+    private static @Nullable FileIconScheduler sharedInstance;
+
+    /**
+     * Return the scheduler shared by the file icon services.
+     */
+    public static synchronized @NotNull FileIconScheduler getShared() {
+        if (sharedInstance == null) {
+            sharedInstance = new FileIconScheduler();
+        }
+        return sharedInstance;
+    }
+
+    /**
+     * Return the key for a task that renders an icon for a file.
+     */
+    public static @NotNull String getTaskKey(@NotNull File f, @NotNull String renderer, int size, float scale) {
+        return renderer + "|" + size + "|" + scale + "|" + f.getAbsolutePath();
+    }
+
+    /**
+     * A rendering task. The task delivers the icons it obtains to the specified handler, which forwards them to the
+     * requests attached to the task. Icons may also be delivered after the task returns.
+     */
+    public interface Job {
+        void run(@NotNull FileIconService.Handler handler);
+    }
+
+    /**
+     * A snapshot of the scheduler statistics.
+     */
+    public static final class Statistics {
+        private final int scheduledCount;
+        private final int attachedCount;
+        private final int discardedCount;
+        private final int completedCount;
+        private final int visibleIconCount;
+        private final long averageVisibleIconMillis;
+        private final long maximumVisibleIconMillis;
+
+        private Statistics(int scheduledCount,
+                           int attachedCount,
+                           int discardedCount,
+                           int completedCount,
+                           int visibleIconCount,
+                           long averageVisibleIconMillis,
+                           long maximumVisibleIconMillis) {
+            this.scheduledCount = scheduledCount;
+            this.attachedCount = attachedCount;
+            this.discardedCount = discardedCount;
+            this.completedCount = completedCount;
+            this.visibleIconCount = visibleIconCount;
+            this.averageVisibleIconMillis = averageVisibleIconMillis;
+            this.maximumVisibleIconMillis = maximumVisibleIconMillis;
+        }
+
+        /**
+         * Return the number of tasks scheduled.
+         */
+        public int getScheduledCount() {
+            return scheduledCount;
+        }
+
+        /**
+         * Return the number of requests that were attached to a waiting or running task.
+         */
+        public int getAttachedCount() {
+            return attachedCount;
+        }
+
+        /**
+         * Return the number of waiting tasks that were discarded because their requests were cancelled.
+         */
+        public int getDiscardedCount() {
+            return discardedCount;
+        }
+
+        /**
+         * Return the number of tasks that have run.
+         */
+        public int getCompletedCount() {
+            return completedCount;
+        }
+
+        /**
+         * Return the number of changes in the visible files after which an icon was delivered for a visible file.
+         */
+        public int getVisibleIconCount() {
+            return visibleIconCount;
+        }
+
+        /**
+         * Return the average time from a change in the visible files to the delivery of the first icon for a visible
+         * file.
+         */
+        public long getAverageVisibleIconMillis() {
+            return averageVisibleIconMillis;
+        }
+
+        /**
+         * Return the longest time from a change in the visible files to the delivery of the first icon for a visible
+         * file.
+         */
+        public long getMaximumVisibleIconMillis() {
+            return maximumVisibleIconMillis;
+        }
+
+        @Override
+        public @NotNull String toString() {
+            return "scheduled=" + scheduledCount
+                    + " attached=" + attachedCount
+                    + " discarded=" + discardedCount
+                    + " completed=" + completedCount
+                    + " visible=" + visibleIconCount
+                    + " average=" + averageVisibleIconMillis + "ms"
+                    + " maximum=" + maximumVisibleIconMillis + "ms";
+        }
+    }
+
+    private final @NotNull Object lock = new Object();
+    private final @NotNull Map<String,Entry> entries = new HashMap<>();
+    private final @NotNull ArrayDeque<Entry> visibleQueue = new ArrayDeque<>();
+    private final @NotNull ArrayDeque<Entry> backgroundQueue = new ArrayDeque<>();
+    private final @NotNull Map<Object,Set<File>> visibleFilesBySource = new WeakHashMap<>();
+    private @NotNull Set<File> visibleFiles = Collections.emptySet();
+    private boolean isVisibilityChanged;
+    private int runningCount;
+
+    // The time of the change in the visible files for which no visible icon has been delivered, or zero
+    private long visibilityChangeTime;
+
+    private int scheduledCount;
+    private int attachedCount;
+    private int discardedCount;
+    private int completedCount;
+    private int visibleIconCount;
+    private long totalVisibleIconMillis;
+    private long maximumVisibleIconMillis;
+
+    private FileIconScheduler() {
+    }
+
+    /**
+     * Schedule a task for a request.
+     * @param key The key that identifies the task.
+     * @param file The file whose icon is rendered by the task.
+     * @param request The request that receives the icons delivered by the task.
+     * @param job The task. If a task with the same key is waiting or running, the request is attached to that task
+     *            and this task is not run.
+     */
+    public void schedule(@NotNull String key,
+                         @NotNull File file,
+                         @NotNull FileIconServiceImplBase.RequestImpl request,
+                         @NotNull Job job) {
+        Entry e;
+        boolean isAttached = false;
+        synchronized (lock) {
+            // The request is attached while holding the lock, so that the task cannot be discarded first.
+            e = entries.get(key);
+            if (e != null) {
+                isAttached = true;
+                attachedCount++;
+                e.attach(request);
+            } else {
+                e = new Entry(key, file, job);
+                e.attach(request);
+                entries.put(key, e);
+                scheduledCount++;
+                if (visibleFiles.contains(file)) {
+                    e.isVisible = true;
+                    visibleQueue.addFirst(e);
+                } else {
+                    backgroundQueue.addLast(e);
+                }
+            }
+        }
+        if (isAttached) {
+            e.replay(request);
+        } else {
+            startTasks();
+        }
+    }
+
+    /**
+     * Specify the files that are visible in a view. Tasks for these files are started before other tasks.
+     * @param source The view.
+     * @param files The visible files. An empty collection indicates that the view has no visible files.
+     */
+    public void setVisibleFiles(@NotNull Object source, @NotNull Collection<File> files) {
+        synchronized (lock) {
+            Set<File> old = visibleFilesBySource.get(source);
+            if (files.isEmpty()) {
+                if (old == null) {
+                    return;
+                }
+                visibleFilesBySource.remove(source);
+            } else {
+                Set<File> s = new HashSet<>(files);
+                if (s.equals(old)) {
+                    return;
+                }
+                visibleFilesBySource.put(source, s);
+                if (old == null || !old.containsAll(s)) {
+                    // Some files have become visible. Start measuring, unless an earlier change is still waiting.
+                    if (visibilityChangeTime == 0) {
+                        visibilityChangeTime = System.currentTimeMillis();
+                    }
+                }
+            }
+            Set<File> all = new HashSet<>();
+            for (Set<File> fs : visibleFilesBySource.values()) {
+                all.addAll(fs);
+            }
+            visibleFiles = all;
+            if (all.isEmpty()) {
+                visibilityChangeTime = 0;
+            }
+            isVisibilityChanged = true;
+        }
+        startTasks();
+    }
+
+    /**
+     * Return a snapshot of the scheduler statistics.
+     */
+    public @NotNull Statistics getStatistics() {
+        synchronized (lock) {
+            long average = visibleIconCount > 0 ? totalVisibleIconMillis / visibleIconCount : 0;
+            return new Statistics(scheduledCount, attachedCount, discardedCount, completedCount,
+                    visibleIconCount, average, maximumVisibleIconMillis);
+        }
+    }
+
+    private void startTasks() {
+        for (;;) {
+            Entry e;
+            boolean isVisible;
+            synchronized (lock) {
+                if (runningCount >= MAXIMUM_RUNNING_TASKS) {
+                    return;
+                }
+                e = takeNextEntry();
+                if (e == null) {
+                    return;
+                }
+                runningCount++;
+                isVisible = e.isVisible;
+            }
+            int priority = isVisible ? DispatchExecutor.PRIORITY_HIGH : DispatchExecutor.PRIORITY_LOW;
+            Entry entry = e;
+            DispatchExecutor.getShared().submit(() -> run(entry), priority, false, null);
+        }
+    }
+
+    /**
+     * Remove the next task to run from the queues. Tasks whose requests have all been cancelled are discarded.
+     */
+    private @Nullable Entry takeNextEntry() {
+        if (isVisibilityChanged) {
+            isVisibilityChanged = false;
+            repartition();
+        }
+        for (;;) {
+            Entry e = visibleQueue.pollFirst();
+            if (e == null) {
+                e = backgroundQueue.pollFirst();
+            }
+            if (e == null) {
+                return null;
+            }
+            if (e.isCancelled()) {
+                entries.remove(e.key);
+                discardedCount++;
+                continue;
+            }
+            return e;
+        }
+    }
+
+    /**
+     * Move waiting tasks between the queues to reflect a change in the visible files.
+     */
+    private void repartition() {
+        List<Entry> nowVisible = new ArrayList<>();
+        for (Iterator<Entry> it = backgroundQueue.iterator(); it.hasNext(); ) {
+            Entry e = it.next();
+            if (visibleFiles.contains(e.file)) {
+                e.isVisible = true;
+                nowVisible.add(e);
+                it.remove();
+            }
+        }
+        for (Iterator<Entry> it = visibleQueue.iterator(); it.hasNext(); ) {
+            Entry e = it.next();
+            if (!visibleFiles.contains(e.file)) {
+                e.isVisible = false;
+                backgroundQueue.addFirst(e);
+                it.remove();
+            }
+        }
+        for (Entry e : nowVisible) {
+            visibleQueue.addLast(e);
+        }
+    }
+
+    private void run(@NotNull Entry e) {
+        try {
+            e.job.run(e);
+        } catch (RuntimeException ex) {
+            Utils.logError("File icon task failed for " + e.file, ex);
+        } finally {
+            synchronized (lock) {
+                runningCount--;
+                completedCount++;
+                entries.remove(e.key);
+            }
+            startTasks();
+        }
+    }
+
+    private void iconDelivered(@NotNull File file) {
+        long elapsed;
+        synchronized (lock) {
+            if (visibilityChangeTime == 0 || !visibleFiles.contains(file)) {
+                return;
+            }
+            elapsed = System.currentTimeMillis() - visibilityChangeTime;
+            visibilityChangeTime = 0;
+            visibleIconCount++;
+            totalVisibleIconMillis += elapsed;
+            maximumVisibleIconMillis = Math.max(maximumVisibleIconMillis, elapsed);
+        }
+        if (FileIconService.debugFlag) {
+            Utils.logDebug("First visible icon delivered after " + elapsed + "ms: " + file);
+        }
+    }
+
+    /**
+     * A scheduled task and the requests attached to it. The entry forwards the icons delivered by the task to the
+     * requests. A request that is attached after an icon has been delivered receives the best icon delivered so far.
+     */
+    private class Entry
+            implements FileIconService.Handler {
+        private final @NotNull String key;
+        private final @NotNull File file;
+        private final @NotNull Job job;
+        private final @NotNull List<FileIconServiceImplBase.RequestImpl> requests = new ArrayList<>(1);
+        private @Nullable ImageIcon bestIcon;
+        private int bestPriority = -1;
+
+        // Guarded by the scheduler lock
+        private boolean isVisible;
+
+        public Entry(@NotNull String key, @NotNull File file, @NotNull Job job) {
+            this.key = key;
+            this.file = file;
+            this.job = job;
+        }
+
+        public synchronized void attach(@NotNull FileIconServiceImplBase.RequestImpl request) {
+            requests.add(request);
+        }
+
+        /**
+         * Deliver the best icon delivered so far to a request that was attached after the task started.
+         */
+        public void replay(@NotNull FileIconServiceImplBase.RequestImpl request) {
+            ImageIcon icon;
+            int priority;
+            synchronized (this) {
+                icon = bestIcon;
+                priority = bestPriority;
+            }
+            if (icon != null) {
+                request.installImage(icon.getImage(), priority);
+            }
+        }
+
+        public synchronized boolean isCancelled() {
+            for (FileIconServiceImplBase.RequestImpl r : requests) {
+                if (!r.isCancelled()) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        public void provideIcon(@NotNull ImageIcon icon, int quality) {
+            List<FileIconServiceImplBase.RequestImpl> rs;
+            synchronized (this) {
+                if (quality > bestPriority) {
+                    bestIcon = icon;
+                    bestPriority = quality;
+                }
+                rs = new ArrayList<>(requests);
+            }
+            for (FileIconServiceImplBase.RequestImpl r : rs) {
+                r.installImage(icon.getImage(), quality);
+            }
+            iconDelivered(file);
+        }
+    }
+}
@@ -55,6 +55,7 @@ public class FileIconServiceImplBase {
         private final int highestAcceptedPriority;
         private @Nullable FileIconService.Handler handler;
         private int highestReceivedPriority = -1;
+        private volatile @Nullable String cacheKey;
 
         public RequestImpl(@NotNull File f, @Nullable FileIconService.Handler handler) {
             this.f = f;
@@ -112,9 +113,24 @@ public class FileIconServiceImplBase {
             }
         }
 
+        /**
+         * Specify the key used to cache the icons delivered to this request.
+         */
+        public void setCacheKey(@Nullable String key) {
+            cacheKey = key;
+        }
+
+        public @Nullable String getCacheKey() {
+            return cacheKey;
+        }
+
         @Override
         public synchronized void cancel() {
             handler = null;
         }
+
+        public synchronized boolean isCancelled() {
+            return handler == null;
+        }
     }
 }
@@ -13,6 +13,7 @@ import java.io.File;
 import javax.swing.*;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Provides information about a File object. FileInfo uses a worker thread for
@@ -75,6 +76,39 @@ public interface FileInfo {
      */
     long getFileLength();
 
+    /**
+     * Returns the time the file was last modified, in milliseconds since the epoch.
+     * Returns 0 if the time has not (yet) been determined.
+     * The default implementation reads the time from the file system.
+     */
+    default long getLastModified() {
+        File f = getResolvedFile();
+        return f != null ? f.lastModified() : 0;
+    }
+
+    /**
+     * Returns the attributes of the file, as of the last time its directory was read.
+     * The default implementation reads the attributes from the file system.
+     */
+    default @NotNull FileAttributeSnapshot getAttributes() {
+        File f = getResolvedFile();
+        if (f == null) {
+            f = getFile();
+        }
+        int fileType = OSXFile.getFileType(f);
+        long length = fileType == OSXFile.FILE_TYPE_FILE ? f.length() : -1;
+        return new FileAttributeSnapshot(fileType, length, f.lastModified(), 0, isHidden(), null, getFileLabel());
+    }
+
+    /**
+     * Returns the attributes of the file if they are already known. This method does not access the file system.
+     * The default implementation returns null.
+     * @return the attributes, or null if they have not (yet) been read.
+     */
+    default @Nullable FileAttributeSnapshot getKnownAttributes() {
+        return null;
+    }
+
     /**
      * Return true if the file is an alias or symbolic link.
      */
@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.aqua.fc;
+
+import java.io.File;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Basic information about a set of files, obtained by {@link OSXFile#getFileInfo}. The information is stored as
+ * parallel arrays indexed by the position of the file in the array of files that was queried. Kind strings are
+ * stored once per distinct kind.
+ * <p>
+ * If native support is not available, the information is obtained using NIO. In that case, only the item flags
+ * that correspond to the file type and visibility are defined, no labels or kinds are available, and the display name
+ * is the file name.
+ */
+public final class FileInfoBatch {
+
+    private final @NotNull File[] files;
+    private final @NotNull int[] flags;
+    private final @NotNull int[] labels;
+    private final @NotNull int[] kindIndexes;
+    private final @NotNull String[] kinds;
+    private final @Nullable String[] displayNames;
+    private final boolean isNative;
+
+    FileInfoBatch(@NotNull File[] files,
+                  @NotNull int[] flags,
+                  @NotNull int[] labels,
+                  @NotNull int[] kindIndexes,
+                  @NotNull String[] kinds,
+                  @Nullable String[] displayNames,
+                  boolean isNative) {
+        this.files = files;
+        this.flags = flags;
+        this.labels = labels;
+        this.kindIndexes = kindIndexes;
+        this.kinds = kinds;
+        this.displayNames = displayNames;
+        this.isNative = isNative;
+    }
+
+    /**
+     * Return the number of files.
+     */
+    public int getCount() {
+        return files.length;
+    }
+
+    /**
+     * Indicate whether the information was obtained using native support.
+     */
+    public boolean isNative() {
+        return isNative;
+    }
+
+    public @NotNull File getFile(int index) {
+        return files[index];
+    }
+
+    /**
+     * Return the Launch Services item information flags of a file.
+     */
+    public int getFlags(int index) {
+        return flags[index];
+    }
+
+    /**
+     * Return the file type: 0=file, 1=directory, 2=alias, -1=unknown. The result is the same as the result of
+     * {@link OSXFile#getFileType}.
+     */
+    public int getFileType(int index) {
+        return OSXFile.getFileType(files[index], flags[index]);
+    }
+
+    /**
+     * Indicate whether a file is a directory or volume.
+     */
+    public boolean isContainer(int index) {
+        return (flags[index] & OSXFile.kLSItemInfoIsContainer) != 0;
+    }
+
+    /**
+     * Indicate whether a file is invisible. The result is the same as the result of {@link OSXFile#isInvisible}.
+     */
+    public boolean isInvisible(int index) {
+        return (flags[index] & OSXFile.kLSItemInfoIsInvisible) != 0;
+    }
+
+    /**
+     * Return the label of a file.
+     * @return the label, or -1 if the label could not be determined.
+     */
+    public int getLabel(int index) {
+        return labels[index];
+    }
+
+    /**
+     * Return the kind string of a file.
+     * @return the kind, or null if it could not be determined.
+     */
+    public @Nullable String getKind(int index) {
+        int k = kindIndexes[index];
+        return k >= 0 ? kinds[k] : null;
+    }
+
+    /**
+     * Return the localized display name of a file.
+     * @return the display name, or null if it could not be determined.
+     */
+    public @Nullable String getDisplayName(int index) {
+        return displayNames != null ? displayNames[index] : null;
+    }
+}
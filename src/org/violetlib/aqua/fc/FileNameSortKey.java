@@ -0,0 +1,43 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.aqua.fc;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * A sort key for a file name. Sort keys are compared byte by byte, without consulting a collator, which makes them
+ * cheap to compare and safe to compare on multiple threads at once.
+ *
+ * @see FileNameSortKeys
+ */
+public final class FileNameSortKey implements Comparable<FileNameSortKey> {
+
+    private final @NotNull byte[] bytes;
+
+    FileNameSortKey(@NotNull byte[] bytes) {
+        this.bytes = bytes;
+    }
+
+    @Override
+    public int compareTo(@NotNull FileNameSortKey other) {
+        if (this == other) {
+            return 0;
+        }
+        byte[] b1 = bytes;
+        byte[] b2 = other.bytes;
+        int length = Math.min(b1.length, b2.length);
+        for (int i = 0; i < length; i++) {
+            int difference = (b1[i] & 0xFF) - (b2[i] & 0xFF);
+            if (difference != 0) {
+                return difference;
+            }
+        }
+        return b1.length - b2.length;
+    }
+}
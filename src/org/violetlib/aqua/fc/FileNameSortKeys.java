@@ -0,0 +1,55 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.aqua.fc;
+
+import java.text.Collator;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Creates the sort keys for file names. A sort key is created from the collation key defined by a collator, usually
+ * an {@link OSXCollator}, which orders embedded numbers by their numeric value, as the Finder does.
+ * <p>
+ * Sort keys are interned by name, so that reading a directory again does not create the sort keys again. To limit
+ * the memory used, the interned keys are discarded when their number exceeds a limit.
+ */
+public class FileNameSortKeys {
+
+    private static final int MAXIMUM_INTERNED_KEYS = 100000;
+
+    private final @NotNull Collator collator;
+    private final @NotNull ConcurrentHashMap<String,FileNameSortKey> keys = new ConcurrentHashMap<>();
+
+    public FileNameSortKeys(@NotNull Collator collator) {
+        this.collator = collator;
+    }
+
+    /**
+     * Return the sort key for the specified name.
+     */
+    public @NotNull FileNameSortKey getSortKey(@NotNull String name) {
+        FileNameSortKey key = keys.get(name);
+        if (key == null) {
+            byte[] bytes;
+            synchronized (collator) {
+                bytes = collator.getCollationKey(name).toByteArray();
+            }
+            key = new FileNameSortKey(bytes);
+            if (keys.size() >= MAXIMUM_INTERNED_KEYS) {
+                keys.clear();
+            }
+            FileNameSortKey existing = keys.putIfAbsent(name, key);
+            if (existing != null) {
+                key = existing;
+            }
+        }
+        return key;
+    }
+}
@@ -1,6 +1,6 @@
 /*
  * Copyright (c) 2009-2010 Werner Randelshofer, Switzerland.
- * Copyright (c) 2014-2024 Alan Snyder.
+ * Copyright (c) 2014-2026 Alan Snyder.
  * All rights reserved.
  *
  * You may not use, copy or modify this file, except in compliance with the
@@ -51,8 +51,17 @@ public class FilePreview extends JComponent implements BrowserPreviewRenderer {
     private FilePreviewView view;
     private JPanel viewHolder;
 
-    public FilePreview(JFileChooser fileChooser)
-      throws UnsupportedOperationException {
+    // Used when the native preview view is not available
+    private ScaledImageView imageView;
+    private PreviewImageLoader imageLoader;
+
+    // The native preview view is reconfigured only after a rapidly changing selection settles
+    private static final int SETTLE_MILLIS = 150;
+    private Timer settleTimer;
+    private File pendingPreviewFile;
+    private long lastPreviewChangeTime;
+
+    public FilePreview(JFileChooser fileChooser) {
         this.fileChooser = fileChooser;
 
         int version = OSXSystemProperties.OSVersion;
@@ -67,8 +76,19 @@ public class FilePreview extends JComponent implements BrowserPreviewRenderer {
         viewHolder.setMinimumSize(new Dimension(128, 128));
         viewHolder.setPreferredSize(new Dimension(128, 128));
 
-        view = new FilePreviewView();
-        view.track(viewHolder);
+        try {
+            view = new FilePreviewView();
+            view.track(viewHolder);
+            settleTimer = new Timer(SETTLE_MILLIS, e -> configurePendingPreview());
+            settleTimer.setRepeats(false);
+        } catch (UnsupportedOperationException ex) {
+            // Display images decoded in the background instead
+            imageView = new ScaledImageView();
+            imageLoader = new PreviewImageLoader();
+            viewHolder.setLayout(new BorderLayout());
+            viewHolder.setOpaque(false);
+            viewHolder.add(imageView);
+        }
 
         setBorder(BorderFactory.createEmptyBorder(3, 4, 4, 4));
         setLayout(new BorderLayout());
@@ -173,10 +193,17 @@ public class FilePreview extends JComponent implements BrowserPreviewRenderer {
     }
 
     public void dispose() {
+        if (settleTimer != null) {
+            settleTimer.stop();
+            pendingPreviewFile = null;
+        }
         if (view != null) {
             view.dispose();
             view = null;
         }
+        if (imageLoader != null) {
+            imageLoader.cancel();
+        }
     }
 
     @Override
@@ -246,9 +273,13 @@ public class FilePreview extends JComponent implements BrowserPreviewRenderer {
 
         File file = info.getFile();
         String name = info.getUserName();
-        String kind = OSXFile.getKindString(file);
+        FileAttributeSnapshot attributes = info.getAttributes();
+        String kind = attributes.getKind();
+        if (kind == null) {
+            kind = OSXFile.getKindString(file);
+        }
         String size = getLengthString(info.getFileLength());
-        String modified = getModifiedString(file);
+        String modified = getModifiedString(attributes.getLastModified());
 
         if (nameView != null) {
             nameView.setText(name);
@@ -340,9 +371,9 @@ public class FilePreview extends JComponent implements BrowserPreviewRenderer {
         }
     }
 
-    protected String getModifiedString(File f) {
-        if (f != null) {
-            return DateFormat.getInstance().format(new Date(f.lastModified()));
+    protected String getModifiedString(long lastModified) {
+        if (lastModified != 0) {
+            return DateFormat.getInstance().format(new Date(lastModified));
         } else {
             return null; // UIManager.getString("FileChooser.modifiedUnknown");
         }
@@ -414,16 +445,54 @@ public class FilePreview extends JComponent implements BrowserPreviewRenderer {
     }
 
     private void updatePreviewImage() {
+        File file = info != null ? info.lazyGetResolvedFile() : null;
+        if (file == null) {
+            return;
+        }
+
         if (view != null) {
-            if (info != null) {
-                File file = info.lazyGetResolvedFile();
-                if (file != null) {
-                    view.configure(file);
-                }
+            // Configuring the native view is expensive for large images. When the selection changes rapidly, for
+            // example when using the arrow keys, only the last selected file is configured.
+            long now = System.currentTimeMillis();
+            boolean isRapid = now - lastPreviewChangeTime < SETTLE_MILLIS;
+            lastPreviewChangeTime = now;
+            if (isRapid) {
+                pendingPreviewFile = file;
+                settleTimer.restart();
+            } else {
+                settleTimer.stop();
+                pendingPreviewFile = null;
+                view.configure(file);
             }
+        } else if (imageView != null) {
+            Dimension size = viewHolder.getSize();
+            if (size.width <= 0 || size.height <= 0) {
+                size = viewHolder.getPreferredSize();
+            }
+            double scale = getDisplayScale();
+            int width = (int) Math.ceil(size.width * scale);
+            int height = (int) Math.ceil(size.height * scale);
+            imageView.setImage(null);
+            // If the time is not known, the loader obtains it on a background thread
+            FileAttributeSnapshot known = info.getKnownAttributes();
+            long lastModified = known != null ? known.getLastModified() : 0;
+            imageLoader.load(file, lastModified, width, height, (f, im) -> imageView.setImage(im));
+        }
+    }
+
+    private void configurePendingPreview() {
+        File file = pendingPreviewFile;
+        pendingPreviewFile = null;
+        if (view != null && file != null) {
+            view.configure(file);
         }
     }
 
+    private double getDisplayScale() {
+        GraphicsConfiguration gc = getGraphicsConfiguration();
+        return gc != null ? gc.getDefaultTransform().getScaleX() : 2;
+    }
+
     public static int getTextWidth(String s, Font f, JComponent c) {
         Dimension size = getTextSize(s, f, c);
         return size != null ? size.width : 0;
@@ -588,6 +657,9 @@ public class FilePreview extends JComponent implements BrowserPreviewRenderer {
         }
     }
 
+    /**
+     * Displays a preview image, which is expected to have been decoded at approximately the size of the view.
+     */
     private static class ScaledImageView extends JComponent {
         private Image im;
 
@@ -612,11 +684,18 @@ public class FilePreview extends JComponent implements BrowserPreviewRenderer {
                 float imwidth = im.getWidth(null);
                 float imheight = im.getHeight(null);
                 if (imwidth > 0 && imheight > 0) {
-                    int size = Math.min(cwidth, cheight);
                     float scale = Math.min(cwidth/imwidth, cheight/imheight);
-                    int extraLeft = (int) Math.max(0, (cwidth - imwidth*scale) / 2);
-                    int extraTop = (int) Math.max(0, (cheight - imheight*scale) / 2);
-                    g.drawImage(im, left + extraLeft, top + extraTop, size, size, null);
+                    int width = Math.round(imwidth*scale);
+                    int height = Math.round(imheight*scale);
+                    int extraLeft = Math.max(0, (cwidth - width) / 2);
+                    int extraTop = Math.max(0, (cheight - height) / 2);
+                    Graphics2D gg = (Graphics2D) g.create();
+                    try {
+                        gg.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                        gg.drawImage(im, left + extraLeft, top + extraTop, width, height, null);
+                    } finally {
+                        gg.dispose();
+                    }
                 }
             }
         }
@@ -12,16 +12,26 @@ package org.violetlib.aqua.fc;
 
 import java.awt.*;
 import java.io.File;
+import java.io.IOException;
 import java.io.Serializable;
+import java.nio.file.DirectoryIteratorException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
 import java.text.CollationKey;
 import java.text.Collator;
 import java.util.*;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 import javax.swing.*;
 import javax.swing.event.*;
 import javax.swing.filechooser.FileSystemView;
+import javax.swing.filechooser.FileView;
 import javax.swing.tree.*;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.violetlib.aqua.AquaUtils;
 import org.violetlib.aqua.Utils;
 
@@ -46,6 +56,21 @@ public class FileSystemTreeModel implements TreeModel {
      */
     public final static int VALID = 2;
 
+    /**
+     * When a directory is read incrementally, the files that have been read are inserted into the tree after this
+     * many files have been read...
+     */
+    private final static int STREAM_CHUNK_SIZE = 500;
+    /**
+     * ...or after this many milliseconds, whichever comes first.
+     */
+    private final static int STREAM_CHUNK_MILLIS = 50;
+    /**
+     * When the file filter changes, the files of a directory are evaluated in chunks of this size, which must be a
+     * multiple of 64.
+     */
+    private final static int FILTER_CHUNK_SIZE = 512;
+
     /** We store all our listeners here. */
     protected EventListenerList listenerList = new EventListenerList();
 
@@ -59,6 +84,34 @@ public class FileSystemTreeModel implements TreeModel {
      */
     private final @NotNull FileAttributes fileAttributes;
 
+    /**
+     * Reads the attribute snapshots of files when a directory is read.
+     */
+    private volatile @NotNull FileAttributeProvider attributeProvider;
+
+    /**
+     * The generation of the file filter. A node whose acceptance was evaluated for an earlier generation is evaluated
+     * again when its acceptance is needed.
+     */
+    private volatile int filterGeneration;
+
+    /**
+     * The directories that are being read incrementally. This set is accessed only on the AWT event dispatcher
+     * thread.
+     */
+    private final @NotNull Set<DirectoryNode> streamingNodes = new HashSet<>();
+
+    /**
+     * Reports changes to the directories on the validated path, or null if directories are not watched.
+     */
+    private @Nullable DirectoryWatcher directoryWatcher;
+
+    /**
+     * The watches of the directories on the validated path. A directory that is watched is not read again when its
+     * contents expire. This map is accessed only on the AWT event dispatcher thread.
+     */
+    private final @NotNull Map<DirectoryNode,DirectoryWatch> directoryWatches = new HashMap<>();
+
     /**
      * This node holds the root of the file tree.
      */
@@ -97,6 +150,16 @@ public class FileSystemTreeModel implements TreeModel {
      */
     private static Collator collator;
 
+    /**
+     * The sort keys for file names, created using the collator.
+     */
+    private static FileNameSortKeys sortKeys;
+
+    /**
+     * Arrays of nodes of at least this length are sorted in parallel.
+     */
+    private final static int PARALLEL_SORT_THRESHOLD = 10000;
+
     /**
      * Dispatcher for the validation of file infos.
      */
@@ -121,6 +184,8 @@ public class FileSystemTreeModel implements TreeModel {
     public FileSystemTreeModel(JFileChooser fileChooser) {
         this.fileChooser = fileChooser;
         this.fileAttributes = new FileAttributes(fileChooser);
+        this.attributeProvider = fileAttributes;
+        this.directoryWatcher = NioDirectoryWatcher.getShared();
         File rootFile = new File("/");
         FileSystemView fsv = fileChooser.getFileSystemView();
         if (fsv instanceof AquaFileSystemView) {
@@ -131,7 +196,7 @@ public class FileSystemTreeModel implements TreeModel {
 
         fileInfoDispatcher = new SequentialDispatcher();
         //fileInfoDispatcher.setLIFO(true);
-        directoryDispatcher = new ConcurrentDispatcher();
+        directoryDispatcher = new ConcurrentDispatcher(Thread.NORM_PRIORITY, 5, true);
         aliasResolutionDispatcher = new SequentialDispatcher();
     }
 
@@ -201,7 +266,7 @@ public class FileSystemTreeModel implements TreeModel {
         return nodeComparator;
     }
 
-    public static Collator getCollator(Component c) {
+    public static synchronized Collator getCollator(Component c) {
         if (collator == null) {
             Locale locale = Locale.getDefault();
             if (c != null) {
@@ -216,6 +281,33 @@ public class FileSystemTreeModel implements TreeModel {
         return collator;
     }
 
+    /**
+     * Returns the sort keys for file names, which are created using the collator.
+     */
+    public static synchronized @NotNull FileNameSortKeys getSortKeys(Component c) {
+        if (sortKeys == null) {
+            sortKeys = new FileNameSortKeys(getCollator(c));
+        }
+        return sortKeys;
+    }
+
+    /**
+     * Sorts nodes using the node comparator. The information used by the comparator is obtained first, so that the
+     * comparisons only compare sort keys. Large arrays are sorted in parallel.
+     */
+    private void sortNodes(@NotNull Node[] nodes) {
+        for (Node n : nodes) {
+            n.getSortKey();
+            n.isLeaf();
+        }
+        Comparator comparator = getNodeComparator();
+        if (nodes.length >= PARALLEL_SORT_THRESHOLD) {
+            Arrays.parallelSort(nodes, comparator);
+        } else {
+            Arrays.sort(nodes, comparator);
+        }
+    }
+
     private int getInsertionIndexForNode(FileSystemTreeModel.Node parent, FileSystemTreeModel.Node child) {
         Comparator comparator = getNodeComparator();
         int i;
@@ -259,6 +351,22 @@ public class FileSystemTreeModel implements TreeModel {
         }
     }
 
+    /**
+     * Returns the file view of the file chooser, if the file chooser and its file view are known to determine the
+     * names and traversability of files in the standard way. In that case, information obtained by a batch query can
+     * be used in place of the file chooser methods. Returns null if the application has customized the file chooser
+     * or its file view.
+     */
+    private @Nullable AquaFileView getStandardFileView() {
+        if (fileChooser.getClass() == JFileChooser.class) {
+            FileView fv = fileChooser.getFileView();
+            if (fv != null && fv.getClass() == AquaFileView.class) {
+                return (AquaFileView) fv;
+            }
+        }
+        return null;
+    }
+
     /**
      * Creates a node for the specified file.
      *
@@ -484,6 +592,37 @@ public class FileSystemTreeModel implements TreeModel {
         return isResolveAliasesToFiles;
     }
 
+    /**
+     * Specify the provider used to read the attributes of files when a directory is read.
+     * @param p The provider, or null to use the default provider.
+     */
+    public void setAttributeProvider(@Nullable FileAttributeProvider p) {
+        FileAttributeProvider provider = p != null ? p : fileAttributes;
+        if (attributeProvider != provider) {
+            attributeProvider = provider;
+            invalidateAll();
+        }
+    }
+
+    public @NotNull FileAttributeProvider getAttributeProvider() {
+        return attributeProvider;
+    }
+
+    /**
+     * Specify the directory watcher used to update the directories on the validated path.
+     * @param w The directory watcher, or null to periodically read the directories instead.
+     */
+    public void setDirectoryWatcher(@Nullable DirectoryWatcher w) {
+        if (directoryWatcher != w) {
+            unwatchDirectories();
+            directoryWatcher = w;
+        }
+    }
+
+    public @Nullable DirectoryWatcher getDirectoryWatcher() {
+        return directoryWatcher;
+    }
+
     /**
      * Invalidates the provided path.
      * This should be used to invalidateChildren the tree model when there are
@@ -514,6 +653,33 @@ public class FileSystemTreeModel implements TreeModel {
         root.invalidateTree();
     }
 
+    /**
+     * Evaluates the acceptance of files again, after a change to the file filter. The directories are not read again.
+     * The files of each directory that has been read are evaluated on worker threads, then the directory is updated
+     * on the AWT event dispatcher thread. Until then, the acceptance of a file is evaluated if it is needed.
+     */
+    public void refilter() {
+        int generation = ++filterGeneration;
+        List<DirectoryNode> directories = new ArrayList<>();
+        if (root instanceof DirectoryNode) {
+            collectReadDirectories((DirectoryNode) root, directories);
+        }
+        for (DirectoryNode d : directories) {
+            d.refilterChildren(generation);
+        }
+    }
+
+    private void collectReadDirectories(DirectoryNode node, List<DirectoryNode> result) {
+        if (node.children != null && !node.children.isEmpty()) {
+            result.add(node);
+            for (Object child : node.children) {
+                if (child instanceof DirectoryNode) {
+                    collectReadDirectories((DirectoryNode) child, result);
+                }
+            }
+        }
+    }
+
     /**
      * Stalls validation.
      * This should be used to stop validation of the tree model when it is no
@@ -521,6 +687,8 @@ public class FileSystemTreeModel implements TreeModel {
      */
     public void stopValidation() {
         root.stopValidationSubtree();
+        streamingNodes.clear();
+        unwatchDirectories();
         aliasResolutionDispatcher.stop();
         fileInfoDispatcher.stop();
         directoryDispatcher.stop();
@@ -560,16 +728,214 @@ public class FileSystemTreeModel implements TreeModel {
         if (DEBUG) {
             Utils.logDebug("FileSystemTreeModel.validatePath " + path);
         }
+        cancelStreamingValidations(path);
         for (int i = 0; i < path.getPathCount(); i++) {
             Node node = (Node) path.getPathComponent(i);
             node.validateChildren();
         }
+        watchDirectories(path);
         // Always validate root
         if (path.getPathComponent(0) != root) {
             root.validateChildren();
         }
     }
 
+    /**
+     * Cancels the incremental validation of directories that are neither on the specified path nor below it. The user
+     * has navigated away from these directories, so reading them should not delay reading the directories on the path.
+     */
+    private void cancelStreamingValidations(TreePath path) {
+        if (!streamingNodes.isEmpty()) {
+            for (Iterator<DirectoryNode> it = streamingNodes.iterator(); it.hasNext(); ) {
+                DirectoryNode node = it.next();
+                TreePath nodePath = new TreePath(node.getPath());
+                if (!nodePath.isDescendant(path) && !path.isDescendant(nodePath)) {
+                    it.remove();
+                    node.cancelStreamingValidation();
+                }
+            }
+        }
+    }
+
+    /**
+     * Watches the directories on the specified path, and stops watching all other directories.
+     */
+    private void watchDirectories(TreePath path) {
+        Set<DirectoryNode> nodes = new HashSet<>();
+        for (int i = 0; i < path.getPathCount(); i++) {
+            Object o = path.getPathComponent(i);
+            if (o instanceof DirectoryNode && ((DirectoryNode) o).isFileSystemListing()) {
+                nodes.add((DirectoryNode) o);
+            }
+        }
+
+        for (Iterator<Map.Entry<DirectoryNode,DirectoryWatch>> it = directoryWatches.entrySet().iterator(); it.hasNext(); ) {
+            Map.Entry<DirectoryNode,DirectoryWatch> e = it.next();
+            if (!nodes.contains(e.getKey())) {
+                it.remove();
+                e.getValue().cancel();
+            }
+        }
+
+        DirectoryWatcher w = directoryWatcher;
+        if (w != null && fileChooser.isDisplayable()) {
+            for (DirectoryNode node : nodes) {
+                if (!directoryWatches.containsKey(node)) {
+                    File dir = node.lazyGetResolvedFile();
+                    if (dir != null) {
+                        DirectoryWatch watch = new DirectoryWatch(w, node, dir);
+                        directoryWatches.put(node, watch);
+                        // Registering a directory may read the directory, so it is done on a background thread.
+                        DispatchExecutor.getShared().submit(watch, DispatchExecutor.PRIORITY_LOW, false, null);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops watching all directories.
+     */
+    private void unwatchDirectories() {
+        for (DirectoryWatch watch : directoryWatches.values()) {
+            watch.cancel();
+            watch.node.storeChangedSnapshot();
+        }
+        directoryWatches.clear();
+    }
+
+    /**
+     * Returns true if the specified directory is being watched, in which case it need not be read again when its
+     * contents expire.
+     */
+    private boolean isWatched(DirectoryNode node) {
+        DirectoryWatch watch = directoryWatches.get(node);
+        return watch != null && watch.isRegistered();
+    }
+
+    /**
+     * The watch of a directory. The watch is registered on a background thread. Changes are reported on the thread
+     * used by the directory watcher. Nodes for created or modified files are created on that thread, then the
+     * directory node is updated on the AWT event dispatcher thread. Changes reported before the directory node is
+     * updated are coalesced, so that a burst of changes updates the directory node once.
+     */
+    private class DirectoryWatch implements Runnable, DirectoryWatcher.Listener {
+        private final @NotNull DirectoryWatcher watcher;
+        private final @NotNull DirectoryNode node;
+        private final @NotNull File dir;
+        private @Nullable DirectoryWatcher.Registration registration;
+        private boolean isCancelled;
+        private @NotNull Map<File,Node> pendingChanges = new LinkedHashMap<>();
+        private boolean isUpdateScheduled;
+
+        public DirectoryWatch(@NotNull DirectoryWatcher watcher, @NotNull DirectoryNode node, @NotNull File dir) {
+            this.watcher = watcher;
+            this.node = node;
+            this.dir = dir;
+        }
+
+        @Override
+        public void run() {
+            long registrationNanos = System.nanoTime();
+            DirectoryWatcher.Registration r = watcher.watch(dir, this);
+            synchronized (this) {
+                if (!isCancelled) {
+                    registration = r;
+                    if (r != null) {
+                        // Changes made between the last read of the directory and the registration are not reported.
+                        long modified = dir.lastModified();
+                        SwingUtilities.invokeLater(() -> {
+                            if (directoryWatches.get(node) == this) {
+                                node.watchRegistered(registrationNanos, modified);
+                            }
+                        });
+                    }
+                    return;
+                }
+            }
+            if (r != null) {
+                r.cancel();
+            }
+        }
+
+        public synchronized boolean isRegistered() {
+            return registration != null;
+        }
+
+        public void cancel() {
+            DirectoryWatcher.Registration r;
+            synchronized (this) {
+                isCancelled = true;
+                r = registration;
+                registration = null;
+            }
+            if (r != null) {
+                r.cancel();
+            }
+        }
+
+        @Override
+        public void directoryChanged(@NotNull File d, @NotNull DirectoryWatcher.ChangeKind kind, @Nullable File f) {
+            if (DEBUG) {
+                Utils.logDebug("FileSystemTreeModel directory changed " + kind + " " + d + " " + f);
+            }
+            switch (kind) {
+                case CREATED:
+                case MODIFIED:
+                    if (f != null && f.exists()) {
+                        Node fresh = createNode(f);
+                        fresh.getAttributes();
+                        fileChanged(f, fresh);
+                    } else if (f != null) {
+                        fileChanged(f, null);
+                    }
+                    break;
+                case DELETED:
+                    if (f != null) {
+                        fileChanged(f, null);
+                    }
+                    break;
+                case INVALID:
+                    SwingUtilities.invokeLater(() -> {
+                        if (directoryWatches.get(node) == this) {
+                            directoryWatches.remove(node);
+                            cancel();
+                        }
+                        node.watchedDirectoryChanged();
+                    });
+                    break;
+                default:
+                    SwingUtilities.invokeLater(node::watchedDirectoryChanged);
+            }
+        }
+
+        /**
+         * Records a change to a file. A later change to the same file replaces an earlier one.
+         * @param f The file.
+         * @param fresh A fresh node for the file, or null if the file no longer exists.
+         */
+        private void fileChanged(@NotNull File f, @Nullable Node fresh) {
+            synchronized (this) {
+                pendingChanges.put(f, fresh);
+                if (isUpdateScheduled) {
+                    return;
+                }
+                isUpdateScheduled = true;
+            }
+            SwingUtilities.invokeLater(this::updateNode);
+        }
+
+        private void updateNode() {
+            Map<File,Node> changes;
+            synchronized (this) {
+                changes = pendingChanges;
+                pendingChanges = new LinkedHashMap<>();
+                isUpdateScheduled = false;
+            }
+            node.watchedFilesChanged(changes);
+        }
+    }
+
     //
     //  Events
     //
@@ -784,7 +1150,11 @@ public class FileSystemTreeModel implements TreeModel {
             return fileChooser.isFileSelectionEnabled();
         }
 
-        int type = OSXFile.getFileType(resolvedFile);
+        // The file type is normally known from when the directory was read.
+        int type = info.getAttributes().getFileType();
+        if (type == OSXFile.FILE_TYPE_UNKNOWN) {
+            type = OSXFile.getFileType(resolvedFile);
+        }
 
         if (type == OSXFile.FILE_TYPE_DIRECTORY) {
             return fileChooser.isDirectorySelectionEnabled();
@@ -804,7 +1174,7 @@ public class FileSystemTreeModel implements TreeModel {
         protected File file;
 
         protected String userName;
-        protected CollationKey collationKey;
+        protected volatile FileNameSortKey sortKey;
         protected String fileKind;
 
         /**
@@ -830,10 +1200,24 @@ public class FileSystemTreeModel implements TreeModel {
          * Contains null, if the acceptance has not been determined yet.
          */
         protected Boolean isAcceptable;
+        /**
+         * The generation of the file filter for which the acceptance was determined.
+         */
+        protected int acceptanceGeneration;
         /**
          * Contains the hidden state of the file
          */
         protected boolean isHidden;
+        /**
+         * The attributes of the file, as of the last time its directory was read.
+         * The value null is used, if the attributes have not (yet) been read.
+         */
+        protected volatile FileAttributeSnapshot attributes;
+        /**
+         * Indicates whether the attributes are being read on a background thread. Accessed only on the AWT event
+         * dispatcher thread.
+         */
+        private boolean isAttributesLoading;
 
         public Node(File f, boolean isHidden) {
             //this(f, fileChooser.getName(f));
@@ -863,11 +1247,87 @@ public class FileSystemTreeModel implements TreeModel {
         }
 
         public long getFileLength() {
-            if (lazyGetResolvedFile() == null) {
-                return -1L;
-            } else {
-                return (getResolvedFile().isDirectory()) ? -1l : file.length();
+            return getAttributes().getLength();
+        }
+
+        public long getLastModified() {
+            return getAttributes().getLastModified();
+        }
+
+        /**
+         * Returns the attributes of the file. The attributes are normally read when the directory is read. If the
+         * node was created some other way, the attributes are read when first requested. If an alias has not yet been
+         * resolved, unknown attributes are returned. Unknown attributes are also returned on the AWT event dispatcher
+         * thread, which must not wait for the file system; in that case, the attributes are read on a background
+         * thread and a change event is fired when they are available.
+         */
+        public @NotNull FileAttributeSnapshot getAttributes() {
+            FileAttributeSnapshot a = attributes;
+            if (a == null) {
+                if (lazyGetResolvedFile() == null) {
+                    return createUnknownAttributes();
+                }
+                if (SwingUtilities.isEventDispatchThread()) {
+                    loadAttributesLater();
+                    return createUnknownAttributes();
+                }
+                a = readAttributes();
+                attributes = a;
             }
+            return a;
+        }
+
+        @Override
+        public @Nullable FileAttributeSnapshot getKnownAttributes() {
+            return attributes;
+        }
+
+        private @NotNull FileAttributeSnapshot createUnknownAttributes() {
+            return new FileAttributeSnapshot(OSXFile.FILE_TYPE_UNKNOWN, -1, 0, 0, isHidden, null, -1);
+        }
+
+        private @NotNull FileAttributeSnapshot readAttributes() {
+            File resolvedFile = getResolvedFile();
+            return attributeProvider.getAttributes(file, resolvedFile, OSXFile.getFileType(resolvedFile), isHidden);
+        }
+
+        /**
+         * Reads the attributes on a background thread. This method is called on the AWT event dispatcher thread.
+         */
+        private void loadAttributesLater() {
+            if (!isAttributesLoading) {
+                isAttributesLoading = true;
+                fileInfoDispatcher.dispatch(() -> {
+                    FileAttributeSnapshot a = readAttributes();
+                    SwingUtilities.invokeLater(() -> {
+                        isAttributesLoading = false;
+                        if (attributes == null) {
+                            attributes = a;
+                            fireChangeEvent();
+                        }
+                    });
+                });
+            }
+        }
+
+        /**
+         * Replaces the attributes with the attributes read by a fresh reading of the directory.
+         * @return true if the attributes have changed.
+         */
+        protected boolean updateAttributes(FileAttributeSnapshot fresh) {
+            FileAttributeSnapshot a = attributes;
+            if (fresh == null || fresh.equals(a)) {
+                return false;
+            }
+            attributes = fresh;
+            if (infoState == VALID) {
+                // The label of a displayed node is kept current, even if the snapshot does not include it
+                fileLabel = fresh.getLabel() >= 0 ? fresh.getLabel() : fileAttributes.getLabel(file);
+            }
+            if (a == null || !Objects.equals(a.getKind(), fresh.getKind())) {
+                fileKind = null;
+            }
+            return a != null;
         }
 
         public @NotNull String getUserName() {
@@ -887,11 +1347,23 @@ public class FileSystemTreeModel implements TreeModel {
             return icon;
         }
 
-        public CollationKey getCollationKey() {
-            if (collationKey == null) {
-                collationKey = getCollator(fileChooser).getCollationKey(getUserName());
+        /**
+         * Returns the key used to sort this node by name.
+         */
+        public @NotNull FileNameSortKey getSortKey() {
+            FileNameSortKey key = sortKey;
+            if (key == null) {
+                key = getSortKeys(fileChooser).getSortKey(getUserName());
+                sortKey = key;
             }
-            return collationKey;
+            return key;
+        }
+
+        /**
+         * Returns the collation key of the name of this node. Sorting uses {@link #getSortKey}, which is cached.
+         */
+        public CollationKey getCollationKey() {
+            return getCollator(fileChooser).getCollationKey(getUserName());
         }
 
         public boolean isAlias() {
@@ -910,19 +1382,27 @@ public class FileSystemTreeModel implements TreeModel {
          * traversable item is a separate concept.)
          */
         public boolean isAcceptable() {
-            if (isAcceptable == null) {
-                isAcceptable = (accept(this)) ? Boolean.TRUE : Boolean.FALSE;
+            int generation = filterGeneration;
+            if (isAcceptable == null || acceptanceGeneration != generation) {
+                setAcceptable(accept(this), generation);
             }
             return isAcceptable;
         }
 
+        protected void setAcceptable(boolean b, int generation) {
+            isAcceptable = b ? Boolean.TRUE : Boolean.FALSE;
+            acceptanceGeneration = generation;
+        }
+
         public boolean isHidden() {
             return isHidden;
         }
 
         public @NotNull String getFileKind() {
             if (fileKind == null) {
-                fileKind = fileAttributes.getKind(file);
+                FileAttributeSnapshot a = attributes;
+                String kind = a != null ? a.getKind() : null;
+                fileKind = kind != null ? kind : fileAttributes.getKind(file);
             }
             return fileKind;
         }
@@ -936,7 +1416,7 @@ public class FileSystemTreeModel implements TreeModel {
                     Utils.logDebug("Invaliding info for " + file);
                 }
                 userName = null;
-                collationKey = null;
+                sortKey = null;
                 isAcceptable = null;
                 fileKind = null;
                 infoState = INVALID;
@@ -973,8 +1453,8 @@ public class FileSystemTreeModel implements TreeModel {
                     icon = null;
                 }
                 infoState = VALID;
-                fileLabel = fileAttributes.getLabel(file);
-                fileLabel = fileAttributes.getLabel(file);
+                FileAttributeSnapshot a = attributes;
+                fileLabel = a != null && a.getLabel() >= 0 ? a.getLabel() : fileAttributes.getLabel(file);
                 icon = fileAttributes.getIcon(file);
                 icon.addChangeListener(this);
                 fireChangeEvent();
@@ -1194,8 +1674,39 @@ public class FileSystemTreeModel implements TreeModel {
         /** Whether the directory is traversable. */
         private Boolean isTraversable;
 
+        /** Whether a change was reported by the directory watcher while the directory was being read. */
+        private boolean hasPendingChanges;
+
+        /** The time (System.nanoTime) when the directory was last read, or zero if it has not been read. */
+        private volatile long listingStartNanos;
+
+        /** The time (System.currentTimeMillis) when the directory was last read. */
+        private volatile long listingStartMillis;
+
+        /** The modification time of the directory when it was last read. */
+        private volatile long listingModified;
+
+        /** Whether the children have been changed by the directory watcher since the listing was cached. */
+        private boolean isSnapshotChanged;
+
+        /**
+         * A copy of the children, from which a worker thread computes the changes needed to update the children.
+         */
+        private volatile @NotNull ChildrenSnapshot childrenSnapshot = ChildrenSnapshot.EMPTY;
+
         private class DirectoryValidator implements Runnable {
 
+            /** Whether the directory is read incrementally. */
+            private final boolean isStreaming;
+
+            /** The generation of the listing, for the directory snapshot cache. */
+            private final long generation;
+
+            public DirectoryValidator(boolean isStreaming) {
+                this.isStreaming = isStreaming;
+                this.generation = DirectorySnapshotCache.getShared().nextGeneration();
+            }
+
             /**
              * This method is called by a worker thread. It reads the directory
              * represented by this tree node and updates the children
@@ -1210,6 +1721,10 @@ public class FileSystemTreeModel implements TreeModel {
                 }
 
                 long startTime = System.currentTimeMillis();
+                listingStartMillis = startTime;
+                File listedDir = lazyGetResolvedFile();
+                listingModified = listedDir != null ? listedDir.lastModified() : 0;
+                listingStartNanos = System.nanoTime();
 
                 // Check if the directory denoted by this node exists.
                 boolean exists = file != null && file.exists();
@@ -1240,6 +1755,26 @@ public class FileSystemTreeModel implements TreeModel {
                 //                          (instance variable "children").
 
                 // Step 1.1 Fetch fresh files
+                //          A directory that has not been read before is read
+                //          incrementally, so that the first files are displayed
+                //          before the whole directory has been read. If another
+                //          file chooser has read the directory, its listing is
+                //          displayed at once instead, then the directory is read
+                //          to bring the listing up to date.
+                if (isStreaming && exists && isTraversable()) {
+                    Node[] cachedNodes = createCachedNodes();
+                    if (cachedNodes == null) {
+                        Node[] freshNodes = streamFreshNodes(startTime);
+                        if (freshNodes != null) {
+                            publishFreshNodes(freshNodes, exists, startTime);
+                        }
+                        return;
+                    }
+                    if (this != validator) {
+                        return;
+                    }
+                    SwingUtilities.invokeLater(() -> insertFreshNodes(cachedNodes, startTime));
+                }
                 File[] freshFiles;
                 if (exists && isTraversable()) {
                     freshFiles = getFiles();
@@ -1250,6 +1785,210 @@ public class FileSystemTreeModel implements TreeModel {
                     return;
                 }
 
+                // Step 1.2 Create the fresh nodes
+                Node[] freshNodes = createFreshNodes(freshFiles);
+                if (freshNodes == null) {
+                    return;
+                }
+
+                publishFreshNodes(freshNodes, exists, startTime);
+            }
+
+            /**
+             * Sorts the fresh nodes, then merges them with the existing children.
+             */
+            private void publishFreshNodes(Node[] freshNodes, boolean exists, long startTime) {
+
+                // Step 1.3 Sort the fresh nodes
+                sortNodes(freshNodes);
+                if (this != validator) {
+                    return;
+                }
+
+                if (isSnapshotCached()) {
+                    File dir = lazyGetResolvedFile();
+                    if (exists) {
+                        storeSnapshot(dir, freshNodes, generation);
+                    } else {
+                        DirectorySnapshotCache.getShared().remove(dir);
+                    }
+                }
+
+                publishEditScript(freshNodes, exists, startTime, false);
+            }
+
+            /**
+             * Creates nodes for the cached listing of the directory, if there is one. This method is called by a
+             * worker thread.
+             *
+             * @return the sorted nodes, or null if the listing is not cached.
+             */
+            private Node[] createCachedNodes() {
+                AquaFileView fileView = getStandardFileView();
+                if (!isSnapshotCached() || fileView == null) {
+                    return null;
+                }
+                DirectorySnapshotCache.Snapshot snapshot = DirectorySnapshotCache.getShared()
+                        .get(lazyGetResolvedFile(), fileChooser.isFileHidingEnabled(), isResolveAliasesToFiles(),
+                                fileView.isPackageTraversable(), fileView.isApplicationTraversable());
+                if (snapshot == null) {
+                    return null;
+                }
+                FileNameSortKeys sortKeys = getSortKeys(fileChooser);
+                DirectorySnapshotCache.Entry[] entries = snapshot.getEntries();
+                Node[] nodes = new Node[entries.length];
+                for (int i = 0; i < entries.length; i++) {
+                    DirectorySnapshotCache.Entry e = entries[i];
+                    Node n;
+                    if (e.isAlias()) {
+                        if (e.isDirectory()) {
+                            n = new AliasDirectoryNode(e.getFile(), e.getResolvedFile(), e.isHidden());
+                        } else {
+                            n = new AliasNode(e.getFile(), e.getResolvedFile(), e.isHidden());
+                        }
+                    } else {
+                        if (e.isDirectory()) {
+                            n = new DirectoryNode(e.getFile(), e.isHidden());
+                        } else {
+                            n = new Node(e.getFile(), e.isHidden());
+                        }
+                    }
+                    if (e.isDirectory()) {
+                        n.setTraversable(e.isTraversable());
+                    }
+                    n.attributes = e.getAttributes();
+                    n.userName = e.getUserName();
+                    n.sortKey = sortKeys.getSortKey(n.getUserName());
+                    nodes[i] = n;
+                }
+                sortNodes(nodes);
+                if (DEBUG) {
+                    Utils.logDebug("FileSystemTreeModel using cached listing " + file + " " + nodes.length);
+                }
+                return nodes;
+            }
+
+            /**
+             * Computes the changes needed to replace the existing children with the fresh nodes, then applies the
+             * changes on the AWT event dispatcher thread. This method is called by a worker thread.
+             */
+            private void publishEditScript(Node[] freshNodes, boolean exists, long startTime, boolean isRetry) {
+
+                // Step 1.4 Compute the changes, based on a snapshot of the existing children
+                ChildrenSnapshot base = childrenSnapshot;
+                DirectoryEditScript script = DirectoryEditScript.compute(base.nodes, base.generation, freshNodes, getNodeComparator());
+                if (this != validator) {
+                    return;
+                }
+
+                // Phase 2: Thread sensitive part of the merging.
+                //         We update the contents of the tree model and inform our
+                //         listeners. This has to be done on the AWT thread.
+                //         Since the changes were computed by a worker thread,
+                //         the children they are based on may have been changed
+                //         by the AWT thread. That's why the generation of the
+                //         children is checked before the changes are applied.
+                SwingUtilities.invokeLater(() -> applyEditScript(script, freshNodes, exists, startTime, isRetry));
+            }
+
+            /**
+             * Reads the directory incrementally. Each time a chunk of files has been read, nodes are created for the
+             * files and inserted into the tree on the AWT event dispatcher thread.
+             *
+             * @return the nodes for all of the files, or null if the validation has become obsolete.
+             */
+            private Node[] streamFreshNodes(long startTime) {
+                File dir = lazyGetResolvedFile();
+                List<Node> allNodes = new ArrayList<>();
+                List<File> pending = new ArrayList<>(STREAM_CHUNK_SIZE);
+                long publishTime = System.currentTimeMillis() + STREAM_CHUNK_MILLIS;
+                try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir.toPath())) {
+                    for (Path p : ds) {
+                        if (this != validator) {
+                            return null;
+                        }
+                        pending.add(p.toFile());
+                        if (pending.size() >= STREAM_CHUNK_SIZE || System.currentTimeMillis() >= publishTime) {
+                            if (!insertChunk(pending, allNodes, startTime)) {
+                                return null;
+                            }
+                            pending.clear();
+                            publishTime = System.currentTimeMillis() + STREAM_CHUNK_MILLIS;
+                        }
+                    }
+                } catch (IOException | DirectoryIteratorException | InvalidPathException | SecurityException ex) {
+                    // Fall back to the file system view. The final merge removes any nodes that have been inserted.
+                    return createFreshNodes(getFiles());
+                }
+                if (!pending.isEmpty() && !insertChunk(pending, allNodes, startTime)) {
+                    return null;
+                }
+                return allNodes.toArray(new Node[allNodes.size()]);
+            }
+
+            /**
+             * Creates nodes for a chunk of files and schedules their insertion into the tree.
+             *
+             * @return false if the validation has become obsolete.
+             */
+            private boolean insertChunk(List<File> files, List<Node> allNodes, long startTime) {
+                Node[] chunk = createFreshNodes(files.toArray(new File[files.size()]));
+                if (chunk == null) {
+                    return false;
+                }
+                allNodes.addAll(Arrays.asList(chunk));
+                sortNodes(chunk);
+                if (this != validator) {
+                    return false;
+                }
+                SwingUtilities.invokeLater(() -> insertFreshNodes(chunk, startTime));
+                return true;
+            }
+
+            /**
+             * Inserts sorted fresh nodes into the children. This method is called on the AWT event dispatcher thread
+             * while the directory is read incrementally. The final merge reconciles the children with the complete
+             * contents of the directory.
+             */
+            private void insertFreshNodes(Node[] chunk, long startTime) {
+                if (this != validator || getRoot() != FileSystemTreeModel.this.getRoot() || chunk.length == 0) {
+                    return;
+                }
+
+                Node[] oldNodes = (children == null) ? new Node[0] : (Node[]) children.toArray(new Node[children.size()]);
+                ArrayList mergedChildren = new ArrayList(oldNodes.length + chunk.length);
+                int[] newChildIndices = new int[chunk.length];
+                Comparator comparator = getNodeComparator();
+                int chunkIndex = 0;
+                int oldIndex = 0;
+                while (chunkIndex < chunk.length || oldIndex < oldNodes.length) {
+                    if (oldIndex >= oldNodes.length
+                            || chunkIndex < chunk.length && comparator.compare(chunk[chunkIndex], oldNodes[oldIndex]) < 0) {
+                        Node newNode = chunk[chunkIndex];
+                        newNode.parent = DirectoryNode.this;
+                        newChildIndices[chunkIndex++] = mergedChildren.size();
+                        mergedChildren.add(newNode);
+                    } else {
+                        mergedChildren.add(oldNodes[oldIndex++]);
+                    }
+                }
+                children = mergedChildren;
+                childrenChanged();
+                fireTreeNodesInserted(FileSystemTreeModel.this, getPath(), newChildIndices, chunk);
+
+                if (DEBUG && oldNodes.length == 0) {
+                    long elapsed = System.currentTimeMillis() - startTime;
+                    Utils.logDebug("FileSystemTreeModel first files inserted " + elapsed + " " + file);
+                }
+            }
+
+            /**
+             * Creates fresh nodes for the specified files. This method is called by a worker thread.
+             *
+             * @return the fresh nodes, or null if the validation has become obsolete.
+             */
+            private Node[] createFreshNodes(File[] freshFiles) {
+
 
                 // Step 1.2 For each fresh file:
                 //          - Determine its type
@@ -1260,13 +1999,24 @@ public class FileSystemTreeModel implements TreeModel {
                 ArrayList freshNodeList = new ArrayList(freshFiles.length);
                 boolean isFileHidingEnabled=fileChooser.isFileHidingEnabled();
                 AquaFileSystemView fsv = getFileSystemView();
+                FileAttributeProvider provider = attributeProvider;
+                AquaFileView fileView = getStandardFileView();
+                FileNameSortKeys sortKeys = getSortKeys(fileChooser);
+
+                // The basic information about all of the fresh files is obtained at once,
+                // which is much faster than obtaining it file by file.
+                FileInfoBatch freshInfo = OSXFile.getFileInfo(freshFiles);
+                if (this != validator) {
+                    return null;
+                }
+
                 for (int i = 0; i < freshFiles.length; i++) {
                     File freshFile = freshFiles[i];
 
                     // Resolve alias and determine if fresh file is traversable
                     // and if it is a directory.
                     boolean freshIsTraversable;
-                    int freshFileType = OSXFile.getFileType(freshFile);
+                    int freshFileType = freshInfo.getFileType(i);
                     boolean freshIsDirectory = freshFileType == OSXFile.FILE_TYPE_DIRECTORY;
                     File resolvedFreshFile = null;
                     boolean freshIsAlias;
@@ -1285,10 +2035,12 @@ public class FileSystemTreeModel implements TreeModel {
                             freshIsDirectory = freshFileType == OSXFile.FILE_TYPE_DIRECTORY;
                         }
                     } else {
-                        freshIsTraversable = fileChooser.isTraversable(freshFile);
+                        freshIsTraversable = fileView != null
+                                ? fileView.isTraversable(freshInfo, i)
+                                : fileChooser.isTraversable(freshFile);
                         resolvedFreshFile = freshFile;
                     }
-                    boolean freshIsHidden=fsv.isHiddenFile(freshFile);
+                    boolean freshIsHidden=fsv.isHiddenFile(freshInfo, i);
 
                     /*
                       Special case: Network is visible under Computer even if it is hidden under /.
@@ -1305,196 +2057,179 @@ public class FileSystemTreeModel implements TreeModel {
                         //       createNode().
                         //       Changes applied to this code may also have to
                         //       be done in the other method.
+                        Node n;
                         if (freshIsAlias) {
                             if (freshIsDirectory) {
-                                Node n=new AliasDirectoryNode(freshFile, resolvedFreshFile, freshIsHidden);
+                                n=new AliasDirectoryNode(freshFile, resolvedFreshFile, freshIsHidden);
                                 n.setTraversable(freshIsTraversable);
-                                freshNodeList.add(n);
                             } else {
-                                freshNodeList.add(new AliasNode(freshFile, resolvedFreshFile, freshIsHidden));
+                                n=new AliasNode(freshFile, resolvedFreshFile, freshIsHidden);
                             }
                         } else {
                             if (freshIsDirectory) {
-                                Node n=new DirectoryNode(freshFile, freshIsHidden);
+                                n=new DirectoryNode(freshFile, freshIsHidden);
                                 n.setTraversable(freshIsTraversable);
-                                freshNodeList.add(n);
                             } else {
-                                freshNodeList.add(new Node(freshFile, freshIsHidden));
+                                n=new Node(freshFile, freshIsHidden);
                             }
                         }
+
+                        // Step 1.2.1 Read the attributes displayed by the file chooser, so that they need not be
+                        //            read when the node is displayed.
+                        File attributeFile = resolvedFreshFile != null ? resolvedFreshFile : freshFile;
+                        n.attributes = provider.getAttributes(freshInfo, i, attributeFile, freshFileType, freshIsHidden);
+                        if (fileView != null) {
+                            n.userName = fileView.getName(freshInfo, i);
+                        }
+                        n.sortKey = sortKeys.getSortKey(n.getUserName());
+
+                        // Step 1.2.2 Evaluate the file filter, so that it is not evaluated when the node is displayed.
+                        int generation = filterGeneration;
+                        n.setAcceptable(accept(n), generation);
+                        freshNodeList.add(n);
                     }
                 }
-                Node[] freshNodes = (Node[]) freshNodeList.toArray(new Node[freshNodeList.size()]);
-                if (this != validator) {
+                return (Node[]) freshNodeList.toArray(new Node[freshNodeList.size()]);
+            }
+
+            /**
+             * Applies the changes needed to replace the existing children with the fresh nodes. This method is called
+             * on the AWT event dispatcher thread.
+             */
+            private void applyEditScript(DirectoryEditScript script,
+                                         Node[] freshNodes,
+                                         boolean exists,
+                                         long startTime,
+                                         boolean isRetry) {
+                // Check if we have become obsolete
+                if (DirectoryValidator.this != validator) {
                     return;
                 }
 
-                // Step 1.3 Sort the fresh nodes
-                Arrays.sort(freshNodes, getNodeComparator());
-                if (this != validator) {
+                if (getRoot() != FileSystemTreeModel.this.getRoot()) {
                     return;
                 }
 
-                // Phase 2: Thread sensitive part of the merging.
-                //         We update the contents of the tree model and inform our
-                //         listeners. This has to be done on the AWT thread.
-                //         Since we do some part of the updating in a worker thread,
-                //         the data our update is based on may have
-                //         been invalidated by the AWT thread. That's why we check
-                //         if isUpdatingCache is still true.
-                SwingUtilities.invokeLater(new Runnable() {
-
-                    public void run() {
-                        // Check if we have become obsolete
-                        if (DirectoryValidator.this != validator) {
-                            return;
-                        }
+                // Step 2.1 Check that the children have not changed since the changes were computed.
+                //          Nodes inserted while the directory was being read incrementally are normally
+                //          inserted before this check is made, so the changes are computed once more.
+                //          If the children are still changing, the changes are computed here.
+                ChildrenSnapshot current = childrenSnapshot;
+                if (script.getGeneration() != current.generation) {
+                    if (!isRetry) {
+                        directoryDispatcher.dispatch(() -> publishEditScript(freshNodes, exists, startTime, true),
+                                DispatchExecutor.PRIORITY_HIGH, true);
+                        return;
+                    }
+                    script = DirectoryEditScript.compute(current.nodes, current.generation, freshNodes, getNodeComparator());
+                }
 
-                        if (getRoot() != FileSystemTreeModel.this.getRoot()) {
-                            return;
-                        }
+                // Step 2.2:
+                // If the directory denoted by this Node does not exist,
+                // we lazily refresh our parent node.
+                if (!exists) {
+                    Node parent = FileSystemTreeModel.DirectoryNode.this;
+                    while ((parent = (Node) parent.getParent()) != null) {
+                        parent.lazyInvalidateChildren();
+                        parent.validateChildren();
+                    }
+                }
 
-                        // Step 2.1 Merge the fresh nodes with the old nodes
-                        ArrayList mergedChildren = new ArrayList(freshFiles.length);
-                        LinkedList newChildren = new LinkedList();
-                        int[] newChildIndices = new int[freshFiles.length];
-                        LinkedList deletedChildren = new LinkedList();
-                        int[] deletedChildIndices = new int[getChildCount()];
-
-                        int freshIndex, oldIndex, mergeIndex, comparison;
-                        Node[] oldNodes = (children == null) ? new Node[0] : (Node[]) children.toArray(new Node[children.size()]);
-
-                        int count = freshNodes.length + oldNodes.length;
-                        freshIndex = 0;
-                        oldIndex = 0;
-                        mergeIndex = 0;
-                        int lastFreshIndex = -1;
-                        File resolvedFreshFile = null;
-                        Comparator comparator = getNodeComparator();
-                        for (int i = 0; i < count; i++) {
-                            if (freshIndex >= freshNodes.length) {
-                                comparison = (oldIndex >= oldNodes.length) ? 0 : 1;
-                            } else if (oldIndex >= oldNodes.length) {
-                                comparison = -1;
-                            } else {
-                                //comparison = freshNodes[freshIndex].getCollationKey()
-                                //.compareTo(oldNodes[oldIndex].getCollationKey());
-                                comparison = comparator.compare(freshNodes[freshIndex], oldNodes[oldIndex]);
-
-                                // This little trick is necessary to handle the special case,
-                                // when a file gets replaced by a directory of the same name
-                                // or vice versa.
-                                if (comparison == 0) {
-                                    if (freshNodes[freshIndex].getAllowsChildren() != oldNodes[oldIndex].getAllowsChildren()) {
-                                        comparison = -1;
-                                    }
-                                }
-                            }
+                Node[] deletedChildren = script.getRemovedNodes();
+                Node[] newChildren = script.getInsertedNodes();
+                if (newChildren.length > 0 || deletedChildren.length > 0) {
+                    // Unlink deleted children and link new children
+                    for (Node n : deletedChildren) {
+                        n.parent = null;
+                        n.invalidateChildren();
+                    }
+                    for (Node n : newChildren) {
+                        n.parent = DirectoryNode.this;
+                    }
 
-                            if (comparison < 0) {
-                                newChildIndices[newChildren.size()] = mergeIndex;
-                                Node newNode = freshNodes[freshIndex];
-                                newNode.parent = DirectoryNode.this; // Link new child, this saves a loop in STEP 2
-                                newChildren.add(newNode);
-                                mergedChildren.add(newNode);
-                                freshIndex++;
-                                mergeIndex++;
-                            } else if (comparison == 0) {
-                                if (oldIndex < oldNodes.length) {
-                                    Node oldNode = oldNodes[oldIndex];
-                                    mergedChildren.add(oldNode);
-                                }
-                                oldIndex++;
-                                freshIndex++;
-                                mergeIndex++;
-                            } else {
-                                deletedChildIndices[deletedChildren.size()] = mergeIndex + deletedChildren.size() - newChildren.size();
-                                deletedChildren.add(oldNodes[oldIndex]);
-                                oldIndex++;
-                            }
+                    // Inform listeners about the changes
+                    // and replace the children with the merged children
+                    if (deletedChildren.length > 0) {
+                        if (newChildren.length > 0) {
+                            // Instead of firing tree structure changed, we
+                            // split the insertion and removal into two steps.
+                            // This is needed, to update the selection in the
+                            // JBrower properly.
+                            children = new ArrayList(Arrays.asList(script.getRemainingNodes()));
+                        } else {
+                            children = new ArrayList(Arrays.asList(script.getMergedNodes()));
                         }
+                        childrenChanged();
+                        fireTreeNodesRemoved(FileSystemTreeModel.this, getPath(), script.getRemovedIndexes(), deletedChildren);
+                    }
+                    if (newChildren.length > 0) {
+                        children = new ArrayList(Arrays.asList(script.getMergedNodes()));
+                        childrenChanged();
+                        fireTreeNodesInserted(FileSystemTreeModel.this, getPath(), script.getInsertedIndexes(), newChildren);
+                    }
+                }
 
-                        // Step 2.2:
-                        // If the directory denoted by this Node does not exist,
-                        // we lazily refresh our parent node.
-                        if (!exists) {
-                            Node parent = FileSystemTreeModel.DirectoryNode.this;
-                            while ((parent = (Node) parent.getParent()) != null) {
-                                parent.lazyInvalidateChildren();
-                                parent.validateChildren();
-                            }
+                // Inform listeners about children whose attributes have changed.
+                int[] changedIndexes = script.getChangedIndexes();
+                if (changedIndexes.length > 0) {
+                    FileAttributeSnapshot[] changedAttributes = script.getChangedAttributes();
+                    Node[] mergedNodes = script.getMergedNodes();
+                    int[] changedChildIndices = new int[changedIndexes.length];
+                    Node[] changedChildren = new Node[changedIndexes.length];
+                    int changedCount = 0;
+                    for (int i = 0; i < changedIndexes.length; i++) {
+                        Node n = mergedNodes[changedIndexes[i]];
+                        if (n.updateAttributes(changedAttributes[i])) {
+                            changedChildIndices[changedCount] = changedIndexes[i];
+                            changedChildren[changedCount++] = n;
                         }
+                    }
+                    if (changedCount > 0) {
+                        fireTreeNodesChanged(FileSystemTreeModel.this, getPath(),
+                                ArrayUtil.truncate(changedChildIndices, 0, changedCount),
+                                Arrays.copyOf(changedChildren, changedCount));
+                    }
+                }
 
-                        if (newChildren.size() > 0 || deletedChildren.size() > 0) {
-                            // Unlink deleted children
-                            for (Iterator i = deletedChildren.iterator(); i.hasNext();) {
-                                Node n = (Node) i.next();
-                                n.parent = null;
-                                n.invalidateChildren();
-                            }
+                validator = null;
+                streamingNodes.remove(DirectoryNode.this);
 
-                            // We do not need to link the new children, because we
-                            // have done this in step 1 already. This saves the following
-                            // iteration.
-                            /*
-                            for (Iterator i = newChildren.iterator(); i.hasNext(); ) {
-                            Node n = (Node) i.next();
-                            n.parent = Node.this;
-                            }*/
-
-                            // Inform listeners about the changes
-                            // and replace the children with the merged children
-                            if (newChildren.size() > 0 && deletedChildren.size() == 0) {
-                                children = mergedChildren;
-                                fireTreeNodesInserted(FileSystemTreeModel.this, getPath(), ArrayUtil.truncate(newChildIndices, 0, newChildren.size()), newChildren.toArray());
-                            } else if (newChildren.size() == 0 && deletedChildren.size() > 0) {
-                                children = mergedChildren;
-                                fireTreeNodesRemoved(FileSystemTreeModel.this, getPath(), ArrayUtil.truncate(deletedChildIndices, 0, deletedChildren.size()), deletedChildren.toArray());
-                            } else if (newChildren.size() > 0 && deletedChildren.size() > 0) {
-                                // Instead of firing tree structure changed, we
-                                // split the insertion and removal into two steps.
-                                // This is needed, to update the selection in the
-                                // JBrower properly.
-                                removeAll(deletedChildren);
-                                fireTreeNodesRemoved(FileSystemTreeModel.this, getPath(), ArrayUtil.truncate(deletedChildIndices, 0, deletedChildren.size()), deletedChildren.toArray());
-                                children = mergedChildren;
-                                fireTreeNodesInserted(FileSystemTreeModel.this, getPath(), ArrayUtil.truncate(newChildIndices, 0, newChildren.size()), newChildren.toArray());
-                            }
-                        }
+                // This is used to let the GUI know, that we have
+                // finished with validating. We need to check for root,
+                // because the node might have been removed from the
+                // tree while we are updating it.
+                Node nodeRoot = (Node) getRoot();
+                if (nodeRoot == getRoot()) {
+                    fireTreeNodeChanged(DirectoryNode.this);
+                }
 
-                        validator = null;
+                // To avoid too many refreshes done by the tree, we
+                // compute a 'best before' time for the directory.
+                // The 'best before' time, is the current time plus
+                // a minimal TTL time plus three times the time we needed to
+                // load the directory.
+                long endTime = System.currentTimeMillis();
+                bestBeforeTimeMillis = endTime + getDirectoryTTL() + (endTime - startTime) * 3;
+
+                /*
+                // Validate the info of the first 16 nodes
+                for (int i=0, n = Math.min(16, mergedChildren.size()); i < n; i++) {
+                Node node = (Node) mergedChildren.get(i);
+                node.validateInfo();
+                }*/
 
-                        // This is used to let the GUI know, that we have
-                        // finished with validating. We need to check for root,
-                        // because the node might have been removed from the
-                        // tree while we are updating it.
-                        Node nodeRoot = (Node) getRoot();
-                        if (nodeRoot == getRoot()) {
-                            fireTreeNodeChanged(DirectoryNode.this);
-                        }
+                if (DEBUG) {
+                    Utils.logDebug("FileSystemTreeModel validated " + (endTime - startTime) + " " + file);
+                }
 
-                        // To avoid too many refreshes done by the tree, we
-                        // compute a 'best before' time for the directory.
-                        // The 'best before' time, is the current time plus
-                        // a minimal TTL time plus three times the time we needed to
-                        // load the directory.
-                        long endTime = System.currentTimeMillis();
-                        bestBeforeTimeMillis = endTime + getDirectoryTTL() + (endTime - startTime) * 3;
-
-                        /*
-                        // Validate the info of the first 16 nodes
-                        for (int i=0, n = Math.min(16, mergedChildren.size()); i < n; i++) {
-                        Node node = (Node) mergedChildren.get(i);
-                        node.validateInfo();
-                        }*/
-
-                        if (DEBUG) {
-                            Utils.logDebug("FileSystemTreeModel validated " + (endTime - startTime) + " " + file);
-                        }
+                childrenState = VALID;
 
-                        childrenState = VALID;
-                    }
-                });
+                // A change reported while the directory was being read may not be included.
+                if (hasPendingChanges) {
+                    hasPendingChanges = false;
+                    childrenState = INVALID;
+                    bestBeforeTimeMillis = 0;
+                }
             }
         }
         /**
@@ -1564,6 +2299,12 @@ public class FileSystemTreeModel implements TreeModel {
          */
         @Override
         public void lazyInvalidateChildren() {
+            if (childrenState == VALID && !hasPendingChanges && isWatched(this)) {
+                if (DEBUG) {
+                    Utils.logDebug("FileSystemTreeModel.lazyInvalidateChildren NO  watched " + lazyGetResolvedFile());
+                }
+                return;
+            }
             if (validator == null && bestBeforeTimeMillis < System.currentTimeMillis()) {
                 if (DEBUG) {
                     Utils.logDebug("FileSystemTreeModel.lazyInvalidateChildren YES  validator=" + validator + " good for " + (bestBeforeTimeMillis - System.currentTimeMillis()) + " millis " + lazyGetResolvedFile());
@@ -1643,9 +2384,18 @@ public class FileSystemTreeModel implements TreeModel {
             if (childrenState == INVALID) {
                 childrenState = VALIDATING;
 
-                validator = new DirectoryValidator();
-                //
-                directoryDispatcher.dispatch(validator, bestBeforeTimeMillis == 0);
+                boolean isStreaming = isStreamingListing();
+                validator = new DirectoryValidator(isStreaming);
+                if (isStreaming) {
+                    streamingNodes.add(this);
+                }
+                // A directory that has never been read is probably being displayed, so read it first.
+                // A directory whose contents have expired is revalidated in the order of expiration.
+                if (bestBeforeTimeMillis == 0) {
+                    directoryDispatcher.dispatch(validator, DispatchExecutor.PRIORITY_HIGH, true);
+                } else {
+                    directoryDispatcher.dispatch(validator, DispatchExecutor.PRIORITY_NORMAL, false);
+                }
 
                 // This is used to let the GUI know, that we are validating.
                 // We must check for root, because the node might have been
@@ -1658,6 +2408,318 @@ public class FileSystemTreeModel implements TreeModel {
             }
         }
 
+        /**
+         * Determines whether the directory should be read incrementally. Only a directory whose files have not been
+         * read and whose files are obtained from the file system are read incrementally.
+         */
+        protected boolean isStreamingListing() {
+            return (children == null || children.isEmpty()) && isFileSystemListing();
+        }
+
+        /**
+         * Determines whether the children of this node are the files in the directory, as listed by the file system.
+         * Changes to such a directory can be obtained from a directory watcher.
+         */
+        protected boolean isFileSystemListing() {
+            if (getClass() != DirectoryNode.class && getClass() != AliasDirectoryNode.class) {
+                return false;
+            }
+            return getFileSystemView() instanceof BasicOSXFileSystemView && lazyGetResolvedFile() != null;
+        }
+
+        /**
+         * Evaluates the acceptance of the children on worker threads, in chunks. The results are collected in a bit
+         * set, which is applied on the AWT event dispatcher thread. This method is called on the AWT event dispatcher
+         * thread.
+         */
+        protected void refilterChildren(int generation) {
+            ChildrenSnapshot snapshot = childrenSnapshot;
+            Node[] nodes = snapshot.nodes;
+            if (nodes.length == 0) {
+                return;
+            }
+            // Each chunk sets the bits of distinct words, so the chunks need not synchronize.
+            long[] words = new long[(nodes.length + 63) / 64];
+            int chunkCount = (nodes.length + FILTER_CHUNK_SIZE - 1) / FILTER_CHUNK_SIZE;
+            AtomicInteger remaining = new AtomicInteger(chunkCount);
+            DispatchExecutor executor = DispatchExecutor.getShared();
+            for (int chunk = 0; chunk < chunkCount; chunk++) {
+                int start = chunk * FILTER_CHUNK_SIZE;
+                int end = Math.min(nodes.length, start + FILTER_CHUNK_SIZE);
+                executor.submit(() -> {
+                    if (generation == filterGeneration) {
+                        for (int i = start; i < end; i++) {
+                            if (accept(nodes[i])) {
+                                words[i >> 6] |= 1L << i;
+                            }
+                        }
+                    }
+                    if (remaining.decrementAndGet() == 0) {
+                        BitSet acceptance = BitSet.valueOf(words);
+                        SwingUtilities.invokeLater(() -> applyAcceptance(nodes, acceptance, generation));
+                    }
+                }, DispatchExecutor.PRIORITY_HIGH, false, null);
+            }
+        }
+
+        /**
+         * Updates the acceptance of the children and informs the listeners with a single event. This method is
+         * called on the AWT event dispatcher thread.
+         */
+        private void applyAcceptance(Node[] nodes, BitSet acceptance, int generation) {
+            if (generation != filterGeneration || getRoot() != FileSystemTreeModel.this.getRoot()) {
+                return;
+            }
+            for (int i = 0; i < nodes.length; i++) {
+                nodes[i].setAcceptable(acceptance.get(i), generation);
+            }
+            if (children != null && !children.isEmpty()) {
+                int count = children.size();
+                int[] indexes = new int[count];
+                for (int i = 0; i < count; i++) {
+                    indexes[i] = i;
+                }
+                fireTreeNodesChanged(FileSystemTreeModel.this, getPath(), indexes, children.toArray());
+            }
+        }
+
+        /**
+         * Determines whether the listing of this directory is shared with other file choosers using the directory
+         * snapshot cache. Only listings obtained from the file system using the standard attribute provider and the
+         * standard file view are shared, as a custom file view may define other names and traversable files.
+         */
+        protected boolean isSnapshotCached() {
+            return isFileSystemListing() && attributeProvider == fileAttributes && getStandardFileView() != null;
+        }
+
+        /**
+         * Caches the current children, if they have been changed by the directory watcher. This method is called on
+         * the AWT event dispatcher thread when the directory is no longer watched.
+         */
+        protected void storeChangedSnapshot() {
+            if (isSnapshotChanged && validator == null && childrenState == VALID && isSnapshotCached()) {
+                isSnapshotChanged = false;
+                DirectorySnapshotCache cache = DirectorySnapshotCache.getShared();
+                storeSnapshot(lazyGetResolvedFile(), childrenSnapshot.nodes, cache.nextGeneration());
+            }
+        }
+
+        /**
+         * Caches a listing of this directory. The listing is not cached if the information needed to recreate any
+         * of the nodes is not available.
+         */
+        private void storeSnapshot(File dir, Node[] nodes, long generation) {
+            AquaFileView fileView = getStandardFileView();
+            if (fileView == null) {
+                return;
+            }
+            DirectorySnapshotCache.Entry[] entries = new DirectorySnapshotCache.Entry[nodes.length];
+            for (int i = 0; i < nodes.length; i++) {
+                Node n = nodes[i];
+                FileAttributeSnapshot a = n.attributes;
+                if (a == null) {
+                    return;
+                }
+                boolean isAlias = n instanceof AliasNode || n instanceof AliasDirectoryNode;
+                boolean isDirectory = n instanceof DirectoryNode;
+                boolean isTraversable = false;
+                if (isDirectory) {
+                    Boolean b = ((DirectoryNode) n).isTraversable;
+                    if (b == null) {
+                        return;
+                    }
+                    isTraversable = b;
+                }
+                File resolvedFile = isAlias ? n.lazyGetResolvedFile() : null;
+                entries[i] = new DirectorySnapshotCache.Entry(n.getFile(), resolvedFile, isAlias, isDirectory,
+                        isTraversable, n.isHidden, a, n.userName);
+            }
+            DirectorySnapshotCache.getShared().put(new DirectorySnapshotCache.Snapshot(dir, generation,
+                    fileChooser.isFileHidingEnabled(), isResolveAliasesToFiles(),
+                    fileView.isPackageTraversable(), fileView.isApplicationTraversable(), entries));
+        }
+
+        /**
+         * Updates the children for changes reported by the directory watcher. This method is called on the AWT
+         * event dispatcher thread.
+         * @param changes The files that were created, deleted, or modified, each mapped to a fresh node for the file,
+         * or to null if the file no longer exists.
+         */
+        protected void watchedFilesChanged(@NotNull Map<File,Node> changes) {
+            if (validator != null) {
+                hasPendingChanges = true;
+                return;
+            }
+            if (childrenState != VALID || children == null) {
+                return;
+            }
+
+            Comparator comparator = getNodeComparator();
+
+            // Locate the existing nodes. A node whose sort key is known is found using a binary search. The others
+            // are found using one scan of the children.
+            Map<File,Integer> oldIndexes = new HashMap<>();
+            Set<File> unlocated = new HashSet<>();
+            for (Map.Entry<File,Node> e : changes.entrySet()) {
+                File f = e.getKey();
+                Node fresh = e.getValue();
+                int index = fresh != null ? findChild(f, fresh, comparator) : -1;
+                if (index >= 0) {
+                    oldIndexes.put(f, index);
+                } else {
+                    unlocated.add(f);
+                }
+            }
+            if (!unlocated.isEmpty()) {
+                for (int i = 0; i < children.size(); i++) {
+                    File f = ((Node) children.get(i)).getFile();
+                    if (unlocated.contains(f)) {
+                        oldIndexes.put(f, i);
+                    }
+                }
+            }
+
+            // Update the attributes of modified files, and determine which nodes must be replaced
+            List<Integer> changedIndexes = new ArrayList<>();
+            List<Integer> removedIndexes = new ArrayList<>();
+            List<Node> insertedNodes = new ArrayList<>();
+            for (Map.Entry<File,Node> e : changes.entrySet()) {
+                Node fresh = e.getValue();
+                if (fresh != null && fresh.isHidden() && fileChooser.isFileHidingEnabled()) {
+                    fresh = null;
+                }
+                Integer index = oldIndexes.get(e.getKey());
+                if (index != null) {
+                    Node old = (Node) children.get(index);
+                    if (fresh != null && fresh.getAllowsChildren() == old.getAllowsChildren()) {
+                        if (old.updateAttributes(fresh.getAttributes())) {
+                            changedIndexes.add(index);
+                        }
+                        continue;
+                    }
+                    removedIndexes.add(index);
+                }
+                if (fresh != null) {
+                    insertedNodes.add(fresh);
+                }
+            }
+
+            if (changedIndexes.isEmpty() && removedIndexes.isEmpty() && insertedNodes.isEmpty()) {
+                return;
+            }
+            isSnapshotChanged = true;
+
+            if (!changedIndexes.isEmpty()) {
+                Collections.sort(changedIndexes);
+                int[] indexes = new int[changedIndexes.size()];
+                Object[] nodes = new Object[indexes.length];
+                for (int i = 0; i < indexes.length; i++) {
+                    indexes[i] = changedIndexes.get(i);
+                    nodes[i] = children.get(indexes[i]);
+                }
+                fireTreeNodesChanged(FileSystemTreeModel.this, getPath(), indexes, nodes);
+            }
+
+            if (!removedIndexes.isEmpty()) {
+                Collections.sort(removedIndexes);
+                int[] indexes = new int[removedIndexes.size()];
+                Object[] nodes = new Object[indexes.length];
+                for (int i = indexes.length - 1; i >= 0; i--) {
+                    indexes[i] = removedIndexes.get(i);
+                    Node old = (Node) children.remove(indexes[i]);
+                    old.parent = null;
+                    old.invalidateChildren();
+                    nodes[i] = old;
+                }
+                childrenChanged();
+                fireTreeNodesRemoved(FileSystemTreeModel.this, getPath(), indexes, nodes);
+            }
+
+            for (Node fresh : insertedNodes) {
+                int insertionIndex = Collections.binarySearch(children, fresh, comparator);
+                if (insertionIndex < 0) {
+                    insertionIndex = -insertionIndex - 1;
+                }
+                fresh.parent = this;
+                children.add(insertionIndex, fresh);
+                childrenChanged();
+                fireTreeNodesInserted(FileSystemTreeModel.this, getPath(), new int[] {insertionIndex}, new Object[] {fresh});
+            }
+        }
+
+        /**
+         * Finds the child for a file using a binary search.
+         * @param f The file.
+         * @param probe A node for the file, whose sort key is used for the search.
+         * @return the index of the child, or -1 if no child with the same sort key represents the file.
+         */
+        private int findChild(@NotNull File f, @NotNull Node probe, @NotNull Comparator comparator) {
+            int index = Collections.binarySearch(children, probe, comparator);
+            if (index < 0) {
+                return -1;
+            }
+            // Distinct files may have the same sort key
+            for (int i = index; i >= 0 && comparator.compare(children.get(i), probe) == 0; i--) {
+                if (((Node) children.get(i)).getFile().equals(f)) {
+                    return i;
+                }
+            }
+            for (int i = index + 1; i < children.size() && comparator.compare(children.get(i), probe) == 0; i++) {
+                if (((Node) children.get(i)).getFile().equals(f)) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * Called when the watch of this directory has been registered. The watcher does not report changes made
+         * before the registration, so the directory is read again if it was read before the registration and its
+         * modification time shows that it may have changed since then. This method is called on the AWT event
+         * dispatcher thread.
+         * @param registrationNanos The time (System.nanoTime) when the registration started.
+         * @param modified The modification time of the directory after the registration.
+         */
+        protected void watchRegistered(long registrationNanos, long modified) {
+            long start = listingStartNanos;
+            if (childrenState != INVALID && start != 0 && start - registrationNanos < 0) {
+                // A change in the same clock tick as the listing may not change the modification time
+                if (modified != listingModified || modified >= listingStartMillis - 1000) {
+                    watchedDirectoryChanged();
+                }
+            }
+        }
+
+        /**
+         * Reads the directory again, because the directory watcher may have lost changes. This method is called on
+         * the AWT event dispatcher thread.
+         */
+        protected void watchedDirectoryChanged() {
+            if (validator != null) {
+                hasPendingChanges = true;
+            } else if (childrenState == VALID) {
+                childrenState = INVALID;
+                bestBeforeTimeMillis = 0;
+                autoValidateChildren();
+            }
+        }
+
+        /**
+         * Cancels an incremental validation of this node. The files that have already been inserted are retained
+         * until the node is validated again.
+         */
+        protected void cancelStreamingValidation() {
+            if (childrenState == VALIDATING) {
+                validator = null;
+                childrenState = INVALID;
+                bestBeforeTimeMillis = 0;
+                Node nodeRoot = (Node) getRoot();
+                if (nodeRoot == getRoot()) {
+                    fireTreeNodeChanged(DirectoryNode.this);
+                }
+            }
+        }
+
         /**
          * Validates this node if automatic validation is on and if it is invalid.
          */
@@ -1677,12 +2739,13 @@ public class FileSystemTreeModel implements TreeModel {
             }
         }
 
-        private void removeAll(LinkedList deletedChildren) {
-            children.removeAll(deletedChildren);
-            for (Iterator i = deletedChildren.iterator(); i.hasNext();) {
-                Node n = (Node) i.next();
-                n.parent = null;
-            }
+        /**
+         * Publishes a new snapshot of the children. This method must be called on the AWT event dispatcher thread
+         * each time the children are changed.
+         */
+        private void childrenChanged() {
+            Node[] nodes = children == null ? new Node[0] : (Node[]) children.toArray(new Node[children.size()]);
+            childrenSnapshot = new ChildrenSnapshot(nodes, childrenSnapshot.generation + 1);
         }
 
         @Override
@@ -1731,6 +2794,7 @@ public class FileSystemTreeModel implements TreeModel {
                 children = new ArrayList();
             }
             children.add(childIndex, newChild);
+            childrenChanged();
         }
 
         @Override
@@ -1761,6 +2825,7 @@ public class FileSystemTreeModel implements TreeModel {
 
             MutableTreeNode child = (MutableTreeNode) getChildAt(childIndex);
             children.remove(childIndex);
+            childrenChanged();
             child.setParent(null);
         }
 
@@ -1782,6 +2847,21 @@ public class FileSystemTreeModel implements TreeModel {
         }
     }
 
+    /**
+     * An immutable copy of the children of a directory node. The generation identifies the version of the children.
+     */
+    private static class ChildrenSnapshot {
+        static final @NotNull ChildrenSnapshot EMPTY = new ChildrenSnapshot(new Node[0], 0);
+
+        final @NotNull Node[] nodes;
+        final int generation;
+
+        ChildrenSnapshot(@NotNull Node[] nodes, int generation) {
+            this.nodes = nodes;
+            this.generation = generation;
+        }
+    }
+
     private class RootNode extends DirectoryNode {
 
         public RootNode(File rootFile) {
@@ -1967,18 +3047,18 @@ public class FileSystemTreeModel implements TreeModel {
     }
 
     /**
-     * This comparator compares two nodes by their name collation key.
+     * This comparator compares two nodes by their name sort key.
      */
     public static class ByNameComparator implements Comparator, Serializable {
 
         /**
-         * Compares two nodes using their collation keys.
+         * Compares two nodes using their sort keys.
          *
          * @param o1 An instance of FileSystemTreeModel.Node.
          * @param o2 An instance of FileSystemTreeModel.Node.
          */
         public int compare(Object o1, Object o2) {
-            return ((Node) o1).getCollationKey().compareTo(((Node) o2).getCollationKey());
+            return ((Node) o1).getSortKey().compareTo(((Node) o2).getSortKey());
         }
     }
 
@@ -2011,10 +3091,8 @@ public class FileSystemTreeModel implements TreeModel {
          * @param o2 An instance of FileSystemTreeModel.Node.
          */
         public int compare(Object o1, Object o2) {
-            File f1 = ((Node) o1).lazyGetResolvedFile();
-            File f2 = ((Node) o2).lazyGetResolvedFile();
-            long ts1 = f1 != null ? f1.lastModified() : 0;
-            long ts2 = f2 != null ? f2.lastModified() : 0;
+            long ts1 = ((Node) o1).getLastModified();
+            long ts2 = ((Node) o2).getLastModified();
             long diff = ts1 - ts2;
             return diff > 0 ? 1 : diff < 0 ? -1 : 0;
         }
@@ -2040,12 +3118,12 @@ public class FileSystemTreeModel implements TreeModel {
 
     /**
      * This comparator compares two nodes by their type and then by their name
-     * collation key.
+     * sort key.
      */
     private static class FoldersFirstComparator implements Comparator, Serializable {
 
         /**
-         * Compares two nodes using their collation keys.
+         * Compares two nodes using their sort keys.
          *
          * @param o1 An instance of FileSystemTreeModel.Node.
          * @param o2 An instance of FileSystemTreeModel.Node.
@@ -2054,7 +3132,7 @@ public class FileSystemTreeModel implements TreeModel {
             Node n1 = (Node) o1;
             Node n2 = (Node) o2;
             if (n1.isLeaf() == n2.isLeaf()) {
-                return n1.getCollationKey().compareTo(n2.getCollationKey());
+                return n1.getSortKey().compareTo(n2.getSortKey());
             } else {
                 return n1.isLeaf() ? 1 : -1;
             }
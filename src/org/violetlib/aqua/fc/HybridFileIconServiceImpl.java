@@ -8,12 +8,11 @@
 
 package org.violetlib.aqua.fc;
 
-import java.awt.*;
 import java.io.File;
+import javax.swing.*;
 
 import org.jetbrains.annotations.NotNull;
 import org.violetlib.aqua.AquaImageFactory;
-import org.violetlib.aqua.AquaMultiResolutionImage;
 import org.violetlib.aqua.Utils;
 
 /**
@@ -22,8 +21,6 @@ import org.violetlib.aqua.Utils;
 public class HybridFileIconServiceImpl
         extends FileIconServiceImplBase
         implements FileIconService {
-    private static final @NotNull ConcurrentDispatcher dispatcher = new ConcurrentDispatcher();
-
     public HybridFileIconServiceImpl() {
         if (debugFlag) {
             Utils.logDebug("File Icon Service: Using Launch Services and Quick Look");
@@ -38,29 +35,42 @@ public class HybridFileIconServiceImpl
         installGenericFileIcon(f, request);
 
         if (OSXFile.isAvailable()) {
-            dispatcher.dispatch(new Task(f, size, request, false));
-            dispatcher.dispatch(new Task(f, size, request, true));
+            FileIconScheduler scheduler = FileIconScheduler.getShared();
+            scheduler.schedule(FileIconScheduler.getTaskKey(f, FileIconCache.LAUNCH_SERVICES, size, 0),
+                    f, request, new Task(f, size, false));
+            scheduler.schedule(FileIconScheduler.getTaskKey(f, FileIconCache.QUICK_LOOK, size, 0),
+                    f, request, new Task(f, size, true));
         }
 
         return request;
     }
 
-    private class Task
-            implements Runnable {
+    private static class Task
+            implements FileIconScheduler.Job {
         private final @NotNull File file;
         private final int size;
-        private final @NotNull RequestImpl request;
         private final boolean useQuickLook;
 
-        public Task(@NotNull File file, int size, @NotNull RequestImpl request, boolean useQuickLook) {
+        public Task(@NotNull File file, int size, boolean useQuickLook) {
             this.file = file;
             this.size = size;
-            this.request = request;
             this.useQuickLook = useQuickLook;
         }
 
         @Override
-        public void run() {
+        public void run(@NotNull Handler handler) {
+            // A Launch Services icon is usually determined by the file type, so it is shared by all files of that type.
+            FileIconCache cache = FileIconCache.getShared();
+            String key = useQuickLook
+                    ? FileIconCache.getFileKey(file, FileIconCache.QUICK_LOOK, size, 0)
+                    : FileIconCache.getLaunchServicesKey(file, size, 0);
+            int priority = useQuickLook ? FileIconService.ICON_GENERIC : FileIconService.ICON_CUSTOM;
+            FileIconCache.Entry cached = cache.get(key);
+            if (cached != null) {
+                handler.provideIcon(new ImageIcon(cached.getImage()), priority);
+                return;
+            }
+
             String path = file.getAbsolutePath();
             int[][] buffers = new int[2][];
             if (!AquaFileIcons.nativeRenderFileImage(path, useQuickLook, true, buffers, size, size)) {
@@ -73,9 +83,9 @@ public class HybridFileIconServiceImpl
                     String type = useQuickLook ? "Quick Look" : "Launch Services";
                     Utils.logDebug("Rendered " + type + " image for " + path);
                 }
-                Image image = AquaMultiResolutionImage.createImage(size, size, buffers[0], buffers[1]);
-                int priority = useQuickLook ? FileIconService.ICON_GENERIC : FileIconService.ICON_CUSTOM;
-                request.installImage(image, priority);
+                FileIconCache.Entry e = new FileIconCache.Entry(size, size, 0, priority, buffers[0], buffers[1]);
+                cache.put(key, e);
+                handler.provideIcon(new ImageIcon(e.getImage()), priority);
             }
         }
     }
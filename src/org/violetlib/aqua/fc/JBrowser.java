@@ -31,6 +31,7 @@ import java.awt.event.*;
 import java.beans.PropertyChangeEvent;
 import java.beans.PropertyChangeListener;
 import java.util.*;
+import java.util.List;
 import javax.accessibility.Accessible;
 import javax.swing.*;
 import javax.swing.border.Border;
@@ -1315,6 +1316,65 @@ public class JBrowser extends JComponent implements Scrollable {
         listenerList.remove(TreeSelectionListener.class, tsl);
     }
 
+    /**
+     * Adds a listener that is notified when the visible rows of the list columns may have changed, for example
+     * because a column was scrolled, added, or removed.
+     *
+     * @param l the listener
+     * @see #getVisibleValues
+     */
+    public void addVisibleRowsListener(ChangeListener l) {
+        listenerList.add(ChangeListener.class, l);
+    }
+
+    /**
+     * Removes a listener for changes to the visible rows.
+     *
+     * @param l the listener to remove
+     */
+    public void removeVisibleRowsListener(ChangeListener l) {
+        listenerList.remove(ChangeListener.class, l);
+    }
+
+    protected void fireVisibleRowsChanged() {
+        Object[] listeners = listenerList.getListenerList();
+        ChangeEvent e = null;
+        for (int i = listeners.length - 2; i >= 0; i -= 2) {
+            if (listeners[i] == ChangeListener.class) {
+                if (e == null) {
+                    e = new ChangeEvent(this);
+                }
+                ((ChangeListener) listeners[i + 1]).stateChanged(e);
+            }
+        }
+    }
+
+    /**
+     * Returns the values displayed in the visible rows of the list columns. A list column is skipped if it is
+     * scrolled out of the visible region of the browser.
+     *
+     * @return the visible values, in column order
+     */
+    public @NotNull List<Object> getVisibleValues() {
+        List<Object> result = new ArrayList<>();
+        Rectangle visibleRect = getVisibleRect();
+        for (int i = 0, n = getListColumnCount(); i < n; i++) {
+            ListColumn c = getListColumn(i);
+            if (c != null && c.getBounds().intersects(visibleRect)) {
+                JList list = c.getList();
+                int first = list.getFirstVisibleIndex();
+                int last = list.getLastVisibleIndex();
+                if (first >= 0) {
+                    ListModel model = list.getModel();
+                    for (int row = first; row <= last; row++) {
+                        result.add(model.getElementAt(row));
+                    }
+                }
+            }
+        }
+        return result;
+    }
+
     /**
      * Notifies all listeners that have registered interest for notification on this event type.
      *
@@ -1603,6 +1663,7 @@ public class JBrowser extends JComponent implements Scrollable {
         l.removeKeyListener(columnKeyListener);
 
         ((ColumnListModel) l.getModel()).dispose();
+        fireVisibleRowsChanged();
     }
 
     /** This method is called from within the constructor to
@@ -3505,6 +3566,9 @@ public class JBrowser extends JComponent implements Scrollable {
                 scrollPane = createScrollPane(c);
                 add(scrollPane);
                 configureFromScrollBars();
+                if (columnIndex >= 0) {
+                    scrollPane.getViewport().addChangeListener(e -> fireVisibleRowsChanged());
+                }
                 scrollPane.addPropertyChangeListener(new PropertyChangeListener() {
                     @Override
                     public void propertyChange(PropertyChangeEvent evt) {
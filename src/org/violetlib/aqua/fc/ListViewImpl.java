@@ -16,10 +16,12 @@ import java.text.MessageFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Date;
+import java.util.List;
 import javax.swing.*;
 import javax.swing.border.Border;
 import javax.swing.border.CompoundBorder;
 import javax.swing.border.EmptyBorder;
+import javax.swing.event.ChangeListener;
 import javax.swing.event.TreeSelectionEvent;
 import javax.swing.event.TreeSelectionListener;
 import javax.swing.table.*;
@@ -45,6 +47,8 @@ public class ListViewImpl extends ListView {
     private GenericCellRenderer fileRenderer;
     protected final JFileChooser fc;
     private final TreeSelectionListener treeSelectionListener;
+    private final ChangeListener viewportChangeListener;
+    private boolean isActive;
     protected Border tableHeaderBorder;
 
     public ListViewImpl(JFileChooser fc) {
@@ -53,6 +57,7 @@ public class ListViewImpl extends ListView {
 
         labelFont = UIManager.getFont("FileChooser.listView.font");  // probably not needed
         treeSelectionListener = new MyTreeSelectionListener();
+        viewportChangeListener = e -> updateVisibleFiles();
 
         setFocusable(false);
 
@@ -97,12 +102,41 @@ public class ListViewImpl extends ListView {
     @Override
     public void setActive(boolean b) {
         TreeSelectionModel sm = tree.getSelectionModel();
+        JViewport viewport = listViewScrollPane.getViewport();
 
+        isActive = b;
         if (b) {
             sm.addTreeSelectionListener(treeSelectionListener);
+            viewport.addChangeListener(viewportChangeListener);
         } else {
             sm.removeTreeSelectionListener(treeSelectionListener);
+            viewport.removeChangeListener(viewportChangeListener);
         }
+        updateVisibleFiles();
+    }
+
+    /**
+     * Report the files in the visible rows to the icon scheduler, so that their icons are rendered first.
+     */
+    protected void updateVisibleFiles() {
+        List<File> files = new ArrayList<>();
+        if (isActive) {
+            Rectangle r = listViewScrollPane.getViewport().getViewRect();
+            int first = tree.rowAtPoint(new Point(r.x, r.y));
+            if (first >= 0) {
+                int last = tree.rowAtPoint(new Point(r.x, r.y + r.height - 1));
+                if (last < 0) {
+                    last = tree.getRowCount() - 1;
+                }
+                for (int row = first; row <= last; row++) {
+                    Object node = tree.getNode(row);
+                    if (node instanceof FileInfo) {
+                        files.add(((FileInfo) node).getFile());
+                    }
+                }
+            }
+        }
+        FileIconScheduler.getShared().setVisibleFiles(this, files);
     }
 
     @Override
@@ -320,8 +354,7 @@ public class ListViewImpl extends ListView {
 
         protected Object getCellValue(Object o) {
             FileSystemTreeModel.Node pn = (FileSystemTreeModel.Node) o;
-            File f = pn.lazyGetResolvedFile();
-            return getModifiedString(f, tableColumnModel.dateModifiedColumn.getWidth());
+            return getModifiedString(pn.getLastModified(), tableColumnModel.dateModifiedColumn.getWidth());
         }
     }
 
@@ -432,9 +465,9 @@ public class ListViewImpl extends ListView {
         }
     }
 
-    protected String getModifiedString(File f, int width) {
-        if (f != null) {
-            Date d = new Date(f.lastModified());
+    protected String getModifiedString(long lastModified, int width) {
+        if (lastModified != 0) {
+            Date d = new Date(lastModified);
             if (width < 150) {
                 DateFormat df = DateFormat.getDateInstance(DateFormat.SHORT);
                 return df.format(d);
@@ -0,0 +1,231 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.aqua.fc;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.violetlib.aqua.Utils;
+
+/**
+ * A directory watcher based on the watch service of the default file system. A single watch service and a single
+ * daemon thread are shared by all file choosers.
+ * <p>
+ * Directory watching can be disabled by setting the system property {@code VAqua.fileChooserWatchDirectories} to
+ * false. In that case, and for directories on file systems that cannot be watched, the file chooser periodically reads
+ * the displayed directories again.
+ */
+
+public class NioDirectoryWatcher implements DirectoryWatcher {
+
+    private static final @NotNull String WATCH_DIRECTORIES_PROPERTY = "VAqua.fileChooserWatchDirectories";
+
+    private static @Nullable NioDirectoryWatcher sharedInstance;
+    private static boolean isSharedInstanceCreated;
+
+    /**
+     * Return the directory watcher shared by the file choosers.
+     * @return the watcher, or null if directory watching is disabled.
+     */
+    public static synchronized @Nullable NioDirectoryWatcher getShared() {
+        if (!isSharedInstanceCreated) {
+            isSharedInstanceCreated = true;
+            if (!"false".equals(System.getProperty(WATCH_DIRECTORIES_PROPERTY))) {
+                sharedInstance = new NioDirectoryWatcher();
+            }
+        }
+        return sharedInstance;
+    }
+
+    private final @NotNull Map<WatchKey,WatchedDirectory> directories = new HashMap<>();
+    private @Nullable WatchService watchService;
+    private boolean isUnsupported;
+
+    @Override
+    public synchronized @Nullable Registration watch(@NotNull File dir, @NotNull Listener listener) {
+        WatchService ws = getWatchService();
+        if (ws == null) {
+            return null;
+        }
+
+        WatchKey key;
+        try {
+            Path p = dir.toPath();
+            WatchEvent.Modifier m = getSensitivityModifier();
+            WatchEvent.Kind<?>[] kinds = {
+                    StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_DELETE,
+                    StandardWatchEventKinds.ENTRY_MODIFY
+            };
+            key = m != null ? p.register(ws, kinds, m) : p.register(ws, kinds);
+        } catch (IOException | InvalidPathException | UnsupportedOperationException | SecurityException ex) {
+            return null;
+        }
+
+        // Registering a directory that is already registered returns the existing key.
+        WatchedDirectory wd = directories.get(key);
+        if (wd == null) {
+            wd = new WatchedDirectory(dir);
+            directories.put(key, wd);
+        }
+        RegistrationImpl r = new RegistrationImpl(key, listener);
+        wd.registrations.add(r);
+        return r;
+    }
+
+    private synchronized void cancel(@NotNull RegistrationImpl r) {
+        WatchedDirectory wd = directories.get(r.key);
+        if (wd != null) {
+            wd.registrations.remove(r);
+            if (wd.registrations.isEmpty()) {
+                directories.remove(r.key);
+                r.key.cancel();
+            }
+        }
+    }
+
+    private @Nullable WatchService getWatchService() {
+        if (watchService == null && !isUnsupported) {
+            try {
+                watchService = FileSystems.getDefault().newWatchService();
+            } catch (IOException | UnsupportedOperationException ex) {
+                isUnsupported = true;
+                Utils.logError("Unable to create a watch service, directories will be polled", ex);
+                return null;
+            }
+            Thread t = new Thread(this::processEvents, "VAqua Directory Watcher");
+            t.setDaemon(true);
+            t.start();
+        }
+        return watchService;
+    }
+
+    private void processEvents() {
+        WatchService ws;
+        synchronized (this) {
+            ws = watchService;
+        }
+        if (ws == null) {
+            return;
+        }
+        for (;;) {
+            WatchKey key;
+            try {
+                key = ws.take();
+            } catch (InterruptedException | ClosedWatchServiceException ex) {
+                return;
+            }
+
+            File dir;
+            List<RegistrationImpl> registrations;
+            synchronized (this) {
+                WatchedDirectory wd = directories.get(key);
+                dir = wd != null ? wd.dir : null;
+                registrations = wd != null ? new ArrayList<>(wd.registrations) : null;
+            }
+
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (dir != null) {
+                    WatchEvent.Kind<?> kind = event.kind();
+                    Object context = event.context();
+                    File file = context instanceof Path ? new File(dir, context.toString()) : null;
+                    if (kind == StandardWatchEventKinds.ENTRY_CREATE && file != null) {
+                        notify(registrations, dir, ChangeKind.CREATED, file);
+                    } else if (kind == StandardWatchEventKinds.ENTRY_DELETE && file != null) {
+                        notify(registrations, dir, ChangeKind.DELETED, file);
+                    } else if (kind == StandardWatchEventKinds.ENTRY_MODIFY && file != null) {
+                        notify(registrations, dir, ChangeKind.MODIFIED, file);
+                    } else {
+                        notify(registrations, dir, ChangeKind.OVERFLOW, null);
+                    }
+                }
+            }
+
+            if (!key.reset()) {
+                synchronized (this) {
+                    directories.remove(key);
+                }
+                if (dir != null) {
+                    notify(registrations, dir, ChangeKind.INVALID, null);
+                }
+            }
+        }
+    }
+
+    private void notify(@NotNull List<RegistrationImpl> registrations,
+                        @NotNull File dir,
+                        @NotNull ChangeKind kind,
+                        @Nullable File file) {
+        for (RegistrationImpl r : registrations) {
+            if (!r.isCancelled) {
+                try {
+                    r.listener.directoryChanged(dir, kind, file);
+                } catch (RuntimeException ex) {
+                    Utils.logError("Directory watcher listener failed", ex);
+                }
+            }
+        }
+    }
+
+    /**
+     * Return the modifier that requests prompt reporting of changes, if supported. The watch service on macOS polls the
+     * registered directories; by default, it polls infrequently.
+     */
+    private static @Nullable WatchEvent.Modifier getSensitivityModifier() {
+        try {
+            Class<?> c = Class.forName("com.sun.nio.file.SensitivityWatchEventModifier");
+            Object o = c.getField("HIGH").get(null);
+            return o instanceof WatchEvent.Modifier ? (WatchEvent.Modifier) o : null;
+        } catch (Exception ex) {
+            return null;
+        }
+    }
+
+    private static class WatchedDirectory {
+        final @NotNull File dir;
+        final @NotNull List<RegistrationImpl> registrations = new ArrayList<>();
+
+        WatchedDirectory(@NotNull File dir) {
+            this.dir = dir;
+        }
+    }
+
+    private class RegistrationImpl implements Registration {
+        final @NotNull WatchKey key;
+        final @NotNull Listener listener;
+        volatile boolean isCancelled;
+
+        RegistrationImpl(@NotNull WatchKey key, @NotNull Listener listener) {
+            this.key = key;
+            this.listener = listener;
+        }
+
+        @Override
+        public void cancel() {
+            if (!isCancelled) {
+                isCancelled = true;
+                NioDirectoryWatcher.this.cancel(this);
+            }
+        }
+    }
+}
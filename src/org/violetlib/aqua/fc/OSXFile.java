@@ -9,6 +9,9 @@ package org.violetlib.aqua.fc;
 import java.awt.*;
 import java.io.*;
 import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
 import java.util.List;
 import javax.swing.*;
@@ -28,13 +31,13 @@ public class OSXFile {
     public final static int FILE_TYPE_FILE = 0;
     public final static int FILE_TYPE_UNKNOWN = -1;
 
-    private static final int kLSItemInfoIsPlainFile        = 0x00000001; /* Not a directory, volume, or symlink*/
-    private static final int kLSItemInfoIsPackage          = 0x00000002; /* Packaged directory*/
-    private static final int kLSItemInfoIsApplication      = 0x00000004; /* Single-file or packaged application*/
-    private static final int kLSItemInfoIsContainer        = 0x00000008; /* Directory (includes packages) or volume*/
-    private static final int kLSItemInfoIsAliasFile        = 0x00000010; /* Alias file (includes sym links)*/
+    static final int kLSItemInfoIsPlainFile        = 0x00000001; /* Not a directory, volume, or symlink*/
+    static final int kLSItemInfoIsPackage          = 0x00000002; /* Packaged directory*/
+    static final int kLSItemInfoIsApplication      = 0x00000004; /* Single-file or packaged application*/
+    static final int kLSItemInfoIsContainer        = 0x00000008; /* Directory (includes packages) or volume*/
+    static final int kLSItemInfoIsAliasFile        = 0x00000010; /* Alias file (includes sym links)*/
     private static final int kLSItemInfoIsSymlink          = 0x00000020; /* UNIX sym link*/
-    private static final int kLSItemInfoIsInvisible        = 0x00000040; /* Invisible by any known mechanism*/
+    static final int kLSItemInfoIsInvisible        = 0x00000040; /* Invisible by any known mechanism*/
     private static final int kLSItemInfoIsNativeApp        = 0x00000080; /* Carbon or Cocoa native app*/
     private static final int kLSItemInfoIsClassicApp       = 0x00000100; /* CFM/68K Classic app*/
     private static final int kLSItemInfoAppPrefersNative   = 0x00000200; /* Carbon app that prefers to be launched natively*/
@@ -225,32 +228,171 @@ public class OSXFile {
     public static int getFileType(@NotNull File f) {
         if (isNativeCodeAvailable()) {
             int flags = nativeGetBasicItemInfoFlags(f.getAbsolutePath());
+            return getFileType(f, flags);
+        } else {
+            return (f.isDirectory()) ? FILE_TYPE_DIRECTORY : ((f.isFile()) ? FILE_TYPE_FILE : FILE_TYPE_UNKNOWN);
+        }
+    }
 
-            if ((flags & kLSItemInfoIsAliasFile) != 0) {
+    /**
+     * Returns the file type: 0=file, 1=directory, 2=alias, -1=unknown, given the item information flags of the file.
+     */
+    static int getFileType(@NotNull File f, int flags) {
+        if ((flags & kLSItemInfoIsAliasFile) != 0) {
 
-                /*
-                  Special case: the program wants to see volumes as directories.
-                */
+            /*
+              Special case: the program wants to see volumes as directories.
+            */
 
-                if (f.getParent().equals("/Volumes")) {
-                    return FILE_TYPE_DIRECTORY;
-                }
+            if (isVolumes(f.getParent())) {
+                return FILE_TYPE_DIRECTORY;
+            }
+
+            return FILE_TYPE_ALIAS;
+        }
+
+        if ((flags & kLSItemInfoIsContainer) != 0) {
+            return FILE_TYPE_DIRECTORY;
+        }
+
+        if ((flags & kLSItemInfoIsPlainFile) != 0) {
+            return FILE_TYPE_FILE;
+        }
+
+        return FILE_TYPE_UNKNOWN;
+    }
+
+    /**
+     * The maximum number of files whose information is obtained by one native call.
+     */
+    private static final int FILE_INFO_CHUNK_SIZE = 4096;
 
-                return FILE_TYPE_ALIAS;
+    private static boolean isBatchFileInfoUnavailable;
+
+    /**
+     * Returns the basic information about a set of files: the item information flags, the label, the kind, and the
+     * display name of each file. When native support is available, the information is obtained using one native call
+     * per several thousand files, instead of several native calls per file. Otherwise, the file type and visibility
+     * are obtained using NIO.
+     *
+     * @param files The files.
+     * @return the information, indexed by the position of the file in {@code files}.
+     */
+    public static @NotNull FileInfoBatch getFileInfo(@NotNull File[] files) {
+        if (isNativeCodeAvailable()) {
+            if (!isBatchFileInfoUnavailable) {
+                try {
+                    return getFileInfoUsingBatches(files);
+                } catch (UnsatisfiedLinkError ex) {
+                    // The native library predates the batch query
+                    isBatchFileInfoUnavailable = true;
+                }
             }
+            return getFileInfoIndividually(files);
+        } else {
+            return getFileInfoUsingNIO(files);
+        }
+    }
 
-            if ((flags & kLSItemInfoIsContainer) != 0) {
-                return FILE_TYPE_DIRECTORY;
+    private static @NotNull FileInfoBatch getFileInfoUsingBatches(@NotNull File[] files) {
+        int count = files.length;
+        int[] flags = new int[count];
+        int[] labels = new int[count];
+        int[] kindIndexes = new int[count];
+        String[] displayNames = new String[count];
+        Map<String,Integer> kindMap = new HashMap<>();
+        List<String> kinds = new ArrayList<>();
+
+        for (int start = 0; start < count; start += FILE_INFO_CHUNK_SIZE) {
+            int chunkCount = Math.min(FILE_INFO_CHUNK_SIZE, count - start);
+            String[] paths = new String[chunkCount];
+            for (int i = 0; i < chunkCount; i++) {
+                paths[i] = files[start + i].getAbsolutePath();
+            }
+            int[] chunkFlags = new int[chunkCount];
+            int[] chunkLabels = new int[chunkCount];
+            int[] chunkKindIndexes = new int[chunkCount];
+            String[] chunkDisplayNames = new String[chunkCount];
+            String[] chunkKinds = nativeGetFileInfo(paths, chunkFlags, chunkLabels, chunkKindIndexes, chunkDisplayNames);
+            System.arraycopy(chunkFlags, 0, flags, start, chunkCount);
+            System.arraycopy(chunkLabels, 0, labels, start, chunkCount);
+            System.arraycopy(chunkDisplayNames, 0, displayNames, start, chunkCount);
+
+            // Merge the kind table of the chunk into the combined table
+            int[] kindMapping = new int[chunkKinds != null ? chunkKinds.length : 0];
+            for (int k = 0; k < kindMapping.length; k++) {
+                String kind = chunkKinds[k];
+                Integer index = kind != null ? kindMap.get(kind) : Integer.valueOf(-1);
+                if (index == null) {
+                    index = kinds.size();
+                    kinds.add(kind);
+                    kindMap.put(kind, index);
+                }
+                kindMapping[k] = index;
+            }
+            for (int i = 0; i < chunkCount; i++) {
+                int k = chunkKindIndexes[i];
+                kindIndexes[start + i] = k >= 0 && k < kindMapping.length ? kindMapping[k] : -1;
             }
+        }
+
+        return new FileInfoBatch(files, flags, labels, kindIndexes, kinds.toArray(new String[0]), displayNames, true);
+    }
 
-            if ((flags & kLSItemInfoIsPlainFile) != 0) {
-                return FILE_TYPE_FILE;
+    private static @NotNull FileInfoBatch getFileInfoIndividually(@NotNull File[] files) {
+        int count = files.length;
+        int[] flags = new int[count];
+        int[] labels = new int[count];
+        int[] kindIndexes = new int[count];
+        String[] displayNames = new String[count];
+        Map<String,Integer> kindMap = new HashMap<>();
+        List<String> kinds = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            String path = files[i].getAbsolutePath();
+            flags[i] = nativeGetBasicItemInfoFlags(path);
+            labels[i] = nativeGetLabel(path);
+            displayNames[i] = nativeGetDisplayName(path);
+            String kind = nativeGetKindString(path);
+            if (kind != null) {
+                Integer index = kindMap.get(kind);
+                if (index == null) {
+                    index = kinds.size();
+                    kinds.add(kind);
+                    kindMap.put(kind, index);
+                }
+                kindIndexes[i] = index;
+            } else {
+                kindIndexes[i] = -1;
             }
+        }
+        return new FileInfoBatch(files, flags, labels, kindIndexes, kinds.toArray(new String[0]), displayNames, true);
+    }
 
-            return FILE_TYPE_UNKNOWN;
-        } else {
-            return (f.isDirectory()) ? FILE_TYPE_DIRECTORY : ((f.isFile()) ? FILE_TYPE_FILE : FILE_TYPE_UNKNOWN);
+    private static @NotNull FileInfoBatch getFileInfoUsingNIO(@NotNull File[] files) {
+        int count = files.length;
+        int[] flags = new int[count];
+        int[] labels = new int[count];
+        int[] kindIndexes = new int[count];
+        Arrays.fill(labels, -1);
+        Arrays.fill(kindIndexes, -1);
+        for (int i = 0; i < count; i++) {
+            File f = files[i];
+            int fileFlags = 0;
+            try {
+                BasicFileAttributes a = Files.readAttributes(f.toPath(), BasicFileAttributes.class);
+                if (a.isDirectory()) {
+                    fileFlags |= kLSItemInfoIsContainer;
+                } else if (a.isRegularFile()) {
+                    fileFlags |= kLSItemInfoIsPlainFile;
+                }
+            } catch (IOException | InvalidPathException | SecurityException ignore) {
+            }
+            if (f.isHidden()) {
+                fileFlags |= kLSItemInfoIsInvisible;
+            }
+            flags[i] = fileFlags;
         }
+        return new FileInfoBatch(files, flags, labels, kindIndexes, new String[0], null, false);
     }
 
     /**
@@ -388,6 +530,42 @@ public class OSXFile {
         }
     }
 
+    private static boolean isCustomIconQueryUnavailable;
+
+    /**
+     * Return the uniform type identifier of a plain file, if the icon of the file is determined by its type. Folders,
+     * packages, applications, aliases, and files with a custom icon have individual icons.
+     * @return the type identifier, or null if the file is not a plain file, has a custom icon, or its type is not
+     * known.
+     */
+    public static @Nullable String getIconTypeIdentifier(@NotNull File file) {
+        if (isNativeCodeAvailable()) {
+            String path = file.getAbsolutePath();
+            int flags = nativeGetBasicItemInfoFlags(path);
+            int individualFlags = kLSItemInfoIsPackage | kLSItemInfoIsApplication | kLSItemInfoIsContainer
+                    | kLSItemInfoIsAliasFile;
+            if ((flags & kLSItemInfoIsPlainFile) != 0 && (flags & individualFlags) == 0 && !hasCustomIcon(path)) {
+                return nativeGetFileUTI(path);
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Indicate whether a file may have a custom icon, such as an icon pasted in the Finder.
+     */
+    private static boolean hasCustomIcon(@NotNull String path) {
+        if (!isCustomIconQueryUnavailable) {
+            try {
+                return nativeHasCustomIcon(path);
+            } catch (UnsatisfiedLinkError ex) {
+                // The native library predates the custom icon query
+                isCustomIconQueryUnavailable = true;
+            }
+        }
+        return true;
+    }
+
     private static Set<String> imageFileExtensions = new HashSet<>(Arrays.asList("gif",
             "jpg",
             "jpeg",
@@ -447,44 +625,54 @@ public class OSXFile {
 
         } else if (isNativeCodeAvailable()) {
             int flags = nativeGetBasicItemInfoFlags(file.getAbsolutePath());
+            return isTraversable(file, flags, isPackageTraversable, isApplicationTraversable);
+        } else {
+            return basicIsTraversable(file);
+        }
+    }
 
-            if ((flags & kLSItemInfoIsAliasFile) != 0) {
-                file = resolve(file);
-                if (file == null) {
-                    return false;
-                }
-                flags = nativeGetBasicItemInfoFlags(file.getAbsolutePath());
+    /**
+     * Indicate whether a file can be visited, given the item information flags of the file. Native support must be
+     * available.
+     */
+    static boolean isTraversable(@NotNull File file,
+                                 int flags,
+                                 boolean isPackageTraversable,
+                                 boolean isApplicationTraversable) {
+        if ((flags & kLSItemInfoIsAliasFile) != 0) {
+            file = resolve(file);
+            if (file == null) {
+                return false;
             }
+            flags = nativeGetBasicItemInfoFlags(file.getAbsolutePath());
+        }
 
-            if ((flags & (kLSItemInfoIsPlainFile | kLSItemInfoIsContainer)) == kLSItemInfoIsContainer) {
-                // The file is a container (a volume or directory).
-                boolean isPackage = (flags & kLSItemInfoIsPackage) != 0;
-                boolean isApplication = (flags & kLSItemInfoIsApplication) != 0;
-                // All applications are packages, so the application option takes priority for applications.
-                if (isApplication) {
-                    return isApplicationTraversable;
-                }
-                if (isPackage) {
-                    return isPackageTraversable;
-                }
-                return basicIsTraversable(file);
+        if ((flags & (kLSItemInfoIsPlainFile | kLSItemInfoIsContainer)) == kLSItemInfoIsContainer) {
+            // The file is a container (a volume or directory).
+            boolean isPackage = (flags & kLSItemInfoIsPackage) != 0;
+            boolean isApplication = (flags & kLSItemInfoIsApplication) != 0;
+            // All applications are packages, so the application option takes priority for applications.
+            if (isApplication) {
+                return isApplicationTraversable;
+            }
+            if (isPackage) {
+                return isPackageTraversable;
+            }
+            return basicIsTraversable(file);
 
-            } else if ((flags & kLSItemInfoIsPlainFile) != 0) {
-                return basicIsTraversable(file);
+        } else if ((flags & kLSItemInfoIsPlainFile) != 0) {
+            return basicIsTraversable(file);
 
-            } else if (isVolumes(file.getParent())) {
+        } else if (isVolumes(file.getParent())) {
 
-                    /*
-                      Special case: the program wants to see volumes as directories.
-                    */
+                /*
+                  Special case: the program wants to see volumes as directories.
+                */
 
-                return true;
+            return true;
 
-            } else {
-                return false;
-            }
         } else {
-            return basicIsTraversable(file);
+            return false;
         }
     }
 
@@ -600,6 +788,24 @@ public class OSXFile {
      */
     private static native int nativeGetBasicItemInfoFlags(String path);
 
+    /**
+     * Obtains the basic information about a set of files using one native call.
+     *
+     * @param paths The paths to the files.
+     * @param flags An array that receives the basic item-information flags of each file (see
+     * {@link #nativeGetBasicItemInfoFlags}).
+     * @param labels An array that receives the label of each file, or -1 if the label could not be determined.
+     * @param kindIndexes An array that receives the index of the kind of each file in the returned array of kinds, or
+     * -1 if the kind could not be determined.
+     * @param displayNames An array that receives the display name of each file.
+     * @return the distinct kinds of the files.
+     */
+    private static native String[] nativeGetFileInfo(String[] paths,
+                                                     int[] flags,
+                                                     int[] labels,
+                                                     int[] kindIndexes,
+                                                     String[] displayNames);
+
     private static String computerName;
     private static boolean haveFetchedComputerName;
 
@@ -890,6 +1096,11 @@ public class OSXFile {
 
     private static native @Nullable String nativeGetFileUTI(String path);
 
+    /**
+     * Indicate whether the Finder information of a file specifies a custom icon.
+     */
+    private static native boolean nativeHasCustomIcon(String path);
+
     /**
      * Return the time of last use, as recorded by Launch Services. Called the "Date Last Opened" by Finder.
      */
@@ -0,0 +1,257 @@
+/*
+ * Copyright (c) 2026 Alan Snyder.
+ * All rights reserved.
+ *
+ * You may not use, copy or modify this file, except in compliance with the license agreement. For details see
+ * accompanying license terms.
+ */
+
+package org.violetlib.aqua.fc;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+import javax.swing.*;
+
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.violetlib.aqua.AquaMultiResolutionImage;
+import org.violetlib.aqua.Utils;
+
+/**
+ * Loads the preview images displayed by the file chooser preview column. Images are decoded on a background thread
+ * directly to the preview size: image files supported by Image I/O are decoded using subsampling, so that the full
+ * resolution raster is never created, and other files are rendered to the preview size by Quick Look.
+ * <p>
+ * A loader loads one image at a time. Starting a load cancels the previous load, if it has not completed, so that
+ * rapidly changing the selection does not create a backlog of obsolete decodes. The most recently loaded images are
+ * cached by path, modification time, and size.
+ */
+
+public class PreviewImageLoader {
+
+    private static final int CACHED_IMAGE_COUNT = 8;
+
+    /**
+     * The handler of a load. The handler is called on the AWT event dispatcher thread.
+     */
+    public interface Handler {
+        /**
+         * Deliver the loaded image.
+         * @param f The file.
+         * @param image The image, or null if the file could not be decoded.
+         */
+        void imageLoaded(@NotNull File f, @Nullable Image image);
+    }
+
+    // The cache is shared by all loaders, because a file chooser may be opened repeatedly on the same folder.
+    private static final @NotNull LinkedHashMap<String,Image> cache =
+            new LinkedHashMap<String,Image>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String,Image> eldest) {
+                    return size() > CACHED_IMAGE_COUNT;
+                }
+            };
+
+    private @Nullable Task currentTask;
+
+    /**
+     * Load a preview image for a file. This method must be called on the AWT event dispatcher thread. If the
+     * modification time of the file is known and the image is cached, it is delivered before this method returns.
+     * Otherwise, the modification time is read and the cache is checked on a background thread.
+     * @param f The file.
+     * @param lastModified The time the file was last modified, as recorded when its directory was read, or 0 if not
+     * known.
+     * @param width The maximum width of the image, in pixels.
+     * @param height The maximum height of the image, in pixels.
+     * @param handler The handler that receives the image, unless the load is cancelled.
+     */
+    public void load(@NotNull File f, long lastModified, int width, int height, @NotNull Handler handler) {
+        cancel();
+        String key = null;
+        if (lastModified > 0) {
+            key = getKey(f, lastModified, width, height);
+            Image image = getCachedImage(key);
+            if (image != null) {
+                handler.imageLoaded(f, image);
+                return;
+            }
+        }
+        Task t = new Task(f, key, width, height, handler);
+        currentTask = t;
+        DispatchExecutor.getShared().submit(t, DispatchExecutor.PRIORITY_HIGH, true, null);
+    }
+
+    /**
+     * Cancel the current load, if any. This method must be called on the AWT event dispatcher thread.
+     */
+    public void cancel() {
+        Task t = currentTask;
+        if (t != null) {
+            currentTask = null;
+            t.cancel();
+            DispatchExecutor.getShared().cancel(t);
+        }
+    }
+
+    private static @NotNull String getKey(@NotNull File f, long lastModified, int width, int height) {
+        return f.getAbsolutePath() + "@" + lastModified + "|" + width + "x" + height;
+    }
+
+    private static @Nullable Image getCachedImage(@NotNull String key) {
+        synchronized (cache) {
+            return cache.get(key);
+        }
+    }
+
+    private class Task
+            implements Runnable {
+        private final @NotNull File file;
+        private @Nullable String key;
+        private final int width;
+        private final int height;
+        private final @NotNull Handler handler;
+        private volatile boolean isCancelled;
+        private @Nullable ImageReader reader;
+
+        public Task(@NotNull File file, @Nullable String key, int width, int height, @NotNull Handler handler) {
+            this.file = file;
+            this.key = key;
+            this.width = width;
+            this.height = height;
+            this.handler = handler;
+        }
+
+        public void cancel() {
+            isCancelled = true;
+            ImageReader r;
+            synchronized (this) {
+                r = reader;
+            }
+            if (r != null) {
+                r.abort();
+            }
+        }
+
+        @Override
+        public void run() {
+            if (isCancelled) {
+                return;
+            }
+            long startTime = System.currentTimeMillis();
+            Image image = null;
+            if (key == null) {
+                key = getKey(file, file.lastModified(), width, height);
+                image = getCachedImage(key);
+            }
+            if (image == null) {
+                image = decode();
+            }
+            if (isCancelled) {
+                return;
+            }
+            if (image != null) {
+                synchronized (cache) {
+                    cache.put(key, image);
+                }
+            }
+            if (FileIconService.debugFlag) {
+                long elapsed = System.currentTimeMillis() - startTime;
+                Utils.logDebug("Preview image " + (image != null ? "loaded" : "not available")
+                        + " in " + elapsed + "ms: " + file);
+            }
+            Image result = image;
+            SwingUtilities.invokeLater(() -> {
+                if (currentTask == this) {
+                    currentTask = null;
+                    handler.imageLoaded(file, result);
+                }
+            });
+        }
+
+        private @Nullable Image decode() {
+            Image image = decodeImageFile();
+            if (image == null && !isCancelled) {
+                image = renderQuickLookImage();
+            }
+            return image;
+        }
+
+        private @Nullable Image decodeImageFile() {
+            try (ImageInputStream s = ImageIO.createImageInputStream(file)) {
+                if (s == null) {
+                    return null;
+                }
+                Iterator<ImageReader> it = ImageIO.getImageReaders(s);
+                if (!it.hasNext()) {
+                    return null;
+                }
+                ImageReader r = it.next();
+                synchronized (this) {
+                    reader = r;
+                }
+                try {
+                    r.setInput(s, true, true);
+                    int imageWidth = r.getWidth(0);
+                    int imageHeight = r.getHeight(0);
+                    ImageReadParam param = r.getDefaultReadParam();
+                    // Subsample to the smallest raster that is at least as large as the preview.
+                    int subsampling = Math.max(1, Math.min(imageWidth / width, imageHeight / height));
+                    param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+                    BufferedImage b = r.read(0, param);
+                    return isCancelled || b == null ? null : scaleToFit(b);
+                } finally {
+                    synchronized (this) {
+                        reader = null;
+                    }
+                    r.dispose();
+                }
+            } catch (IOException | RuntimeException ex) {
+                if (!isCancelled && FileIconService.debugFlag) {
+                    Utils.logDebug("Unable to decode preview image: " + file + ": " + ex);
+                }
+                return null;
+            }
+        }
+
+        private @Nullable Image renderQuickLookImage() {
+            if (!OSXFile.isAvailable()) {
+                return null;
+            }
+            int[][] buffers = new int[2][];
+            if (!AquaFileIcons.nativeRenderFileImage(file.getAbsolutePath(), true, false, buffers, width, height)) {
+                return null;
+            }
+            return AquaMultiResolutionImage.createImage(width, height, buffers[0], buffers[1]);
+        }
+
+        private @NotNull Image scaleToFit(@NotNull BufferedImage b) {
+            int w = b.getWidth();
+            int h = b.getHeight();
+            float scale = Math.min(width / (float) w, height / (float) h);
+            if (scale >= 1) {
+                return b;
+            }
+            int scaledWidth = Math.max(1, Math.round(w * scale));
+            int scaledHeight = Math.max(1, Math.round(h * scale));
+            BufferedImage result = new BufferedImage(scaledWidth, scaledHeight, BufferedImage.TYPE_INT_ARGB_PRE);
+            Graphics2D g = result.createGraphics();
+            try {
+                g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+                g.setRenderingHint(RenderingHints.KEY_RENDERING, RenderingHints.VALUE_RENDER_QUALITY);
+                g.drawImage(b, 0, 0, scaledWidth, scaledHeight, null);
+            } finally {
+                g.dispose();
+            }
+            return result;
+        }
+    }
+}
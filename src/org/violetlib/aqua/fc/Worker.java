@@ -127,9 +127,9 @@ public abstract class Worker<T> implements Runnable {
     }
 
     /**
-     * Starts the Worker on an internal worker thread.
+     * Starts the Worker on a thread of the shared dispatch executor.
      */
     public void start() {
-        new Thread(this).start();
+        DispatchExecutor.getShared().execute(this);
     }
 }
@@ -22,10 +22,12 @@ import java.util.Comparator;
 import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ForkJoinPool;
 
 import javax.swing.DefaultRowSorter;
 import javax.swing.RowFilter;
 import javax.swing.SortOrder;
+import javax.swing.SwingUtilities;
 import javax.swing.RowSorter.SortKey;
 import javax.swing.event.EventListenerList;
 import javax.swing.tree.TreeModel;
@@ -53,6 +55,9 @@ public class DefaultTreeTableSorter<T extends TreeModel, C extends TreeColumnMod
                 }
             };
 
+    /** Marks a sort key that has not been extracted. */
+    private static final Object NO_KEY = new Object();
+
     public DefaultTreeTableSorter(T tm, C cm) {
         treeModel = tm;
         columnModel = cm;
@@ -77,12 +82,39 @@ public class DefaultTreeTableSorter<T extends TreeModel, C extends TreeColumnMod
 
     private RowFilter<? super T, ? super I> rowFilter;
 
+    /**
+     * The filter used by the node sorters: the row filter, or a filter that
+     * consults the filter index when the row filter retains ancestors.
+     */
+    private RowFilter<? super T, ? super I> activeFilter;
+
+    private boolean retainsAncestors;
+
+    /** The filter index in use. */
+    private TreeFilterIndex filterIndex;
+
+    /** The filter index being built. */
+    private TreeFilterIndex pendingFilterIndex;
+
     private List<SortOrder> sortCycle = ASCENDING_DESCENDING;
 
     private int maxSortKeys = 3;
 
     private boolean sortsOnUpdates;
 
+    /**
+     * Sibling sets with at least this many rows are sorted on a worker thread.
+     */
+    private int asyncSortThreshold = 10000;
+
+    /**
+     * Incremented each time the tree is sorted. A node sorter whose generation differs is stale: it is sorted when
+     * it next becomes visible.
+     */
+    private int sortGeneration;
+
+    private boolean isSortedEventPending;
+
     @Override
     public NodeSorter getRowSorter(Object node) {
         return sorters.get(node);
@@ -119,6 +151,23 @@ public class DefaultTreeTableSorter<T extends TreeModel, C extends TreeColumnMod
         return maxSortKeys;
     }
 
+    public int getAsyncSortThreshold() {
+        return asyncSortThreshold;
+    }
+
+    /**
+     * Sets the number of rows at which a sibling set is sorted on a worker thread. While a sibling set is
+     * being sorted, it is displayed in its previous order. Sibling sets that are filtered, or that are sorted
+     * using a comparator set by the application, are always sorted on the event dispatch thread.
+     *
+     * @param threshold the minimum number of rows, or Integer.MAX_VALUE to always sort on the event dispatch thread
+     */
+    public void setAsyncSortThreshold(int threshold) {
+        if (threshold < 1)
+            throw new IllegalArgumentException("Invalid threshold");
+        asyncSortThreshold = threshold;
+    }
+
     public void setMaxSortKeys(int max) {
         if (max < 1)
             throw new IllegalArgumentException("Invalid max");
@@ -169,13 +218,114 @@ public class DefaultTreeTableSorter<T extends TreeModel, C extends TreeColumnMod
         if (filter == null && rowFilter == null)
             return;
         rowFilter = filter;
-        sort();
+        updateFilter();
     }
 
     public RowFilter<? super T, ? super I> getRowFilter() {
         return rowFilter;
     }
 
+    public boolean getRetainsAncestors() {
+        return retainsAncestors;
+    }
+
+    /**
+     * Sets whether the row filter retains the ancestors of the nodes that it
+     * includes. When true, the row filter is evaluated for every node of the
+     * tree, and a node is displayed if it or any of its descendants is
+     * included. The tree is evaluated on the event dispatch thread in short
+     * time slices; the previous filtering remains in effect until the
+     * evaluation completes. Replacing the row filter cancels an evaluation
+     * that is in progress.
+     */
+    public void setRetainsAncestors(boolean retains) {
+        if (retainsAncestors != retains) {
+            retainsAncestors = retains;
+            updateFilter();
+        }
+    }
+
+    private void updateFilter() {
+        if (pendingFilterIndex != null) {
+            pendingFilterIndex.cancel();
+            pendingFilterIndex = null;
+        }
+        if (!retainsAncestors || rowFilter == null) {
+            filterIndex = null;
+            activeFilter = rowFilter;
+            sort();
+            return;
+        }
+        final RowFilter<? super T, ? super I> filter = rowFilter;
+        final TreeFilterIndex index = new TreeFilterIndex(treeModel, new TreeFilterIndex.Matcher() {
+            public boolean matches(Object node) {
+                return filter.include(new NodeEntry(node));
+            }
+        });
+        pendingFilterIndex = index;
+        index.build(new Runnable() {
+            public void run() {
+                pendingFilterIndex = null;
+                filterIndex = index;
+                activeFilter = new IndexFilter(index);
+                sort();
+            }
+        });
+    }
+
+    /**
+     * Refilters the sibling sets containing the ancestors of a node whose
+     * retention has changed. Hidden sibling sets are refiltered when shown,
+     * and sibling sets without a sorter are filtered when one is created.
+     *
+     * @param path the path to the node
+     * @param changed the number of nodes, starting with the last node of the
+     *        path, whose retention changed
+     */
+    private void updateAncestors(TreePath path, int changed) {
+        if (changed == 0)
+            return;
+        for (int k = 0, idx = path.getPathCount() - 2; k < changed && idx >= 0; k++, idx--) {
+            NodeSorter s = sorters.get(path.getPathComponent(idx));
+            if (s == null)
+                continue;
+            if (s.isVisible())
+                s.sortNow();
+            else
+                s.sortedGeneration = -1;
+        }
+        sorterChangedLater();
+    }
+
+    /**
+     * Returns the last node of a path followed by its ancestors.
+     */
+    private static List<Object> getAncestorNodes(TreePath path) {
+        List<Object> nodes = new ArrayList<Object>(path.getPathCount());
+        for (int idx = path.getPathCount() - 1; idx >= 0; idx--)
+            nodes.add(path.getPathComponent(idx));
+        return nodes;
+    }
+
+    // An index that is being built records a change and applies it when its
+    // pass completes. The index in use until then is updated as well.
+
+    @Override
+    public void nodesInserted(TreePath path, Object[] childNodes) {
+        if (pendingFilterIndex != null)
+            pendingFilterIndex.childrenInserted(getAncestorNodes(path), childNodes);
+        if (filterIndex != null)
+            updateAncestors(path, filterIndex.childrenInserted(getAncestorNodes(path), childNodes));
+    }
+
+    @Override
+    public void nodesChanged(TreePath path, Object[] childNodes) {
+        if (pendingFilterIndex != null)
+            pendingFilterIndex.childrenChanged(getAncestorNodes(path), childNodes);
+        if (filterIndex != null)
+            updateAncestors(path, filterIndex.childrenChanged(getAncestorNodes(path), childNodes));
+    }
+
     @Override
     public List<? extends SortKey> getSortKeys() {
         return sortKeys;
@@ -255,11 +405,33 @@ public class DefaultTreeTableSorter<T extends TreeModel, C extends TreeColumnMod
             throw new IndexOutOfBoundsException();
     }
 
+    /**
+     * Sorts the visible sibling sets. Sibling sets that are not visible are sorted when they become visible.
+     */
     public void sort() {
+        sortGeneration++;
         getRowSorter(treeModel.getRoot()).sort(true);
         fireSorterChanged();
     }
 
+    /**
+     * Called when sibling sets have been sorted outside of a tree sort, for
+     * example when the result of sorting a sibling set on a worker thread has
+     * been applied. The listeners are informed once for all of the sibling
+     * sets that are sorted together.
+     */
+    void sorterChangedLater() {
+        if (!isSortedEventPending) {
+            isSortedEventPending = true;
+            SwingUtilities.invokeLater(new Runnable() {
+                public void run() {
+                    isSortedEventPending = false;
+                    fireSorterChanged();
+                }
+            });
+        }
+    }
+
     public void addTreeTableSorterListener(TreeTableSorterListener l) {
         listenerList.add(TreeTableSorterListener.class, l);
     }
@@ -294,10 +466,17 @@ public class DefaultTreeTableSorter<T extends TreeModel, C extends TreeColumnMod
         if (newRoot) {
             sorters.clear();
             sorters.put(treeModel.getRoot(), new NodeSorter(treeModel.getRoot()));
+            if (pendingFilterIndex != null || filterIndex != null)
+                updateFilter();
         } else {
             NodeSorter s = getRowSorter(path.getLastPathComponent());
-            s.removeAllChildren(sorters);
+            if (s != null)
+                s.removeAllChildren(sorters);
             // TODO: rebuild here?
+            if (pendingFilterIndex != null)
+                pendingFilterIndex.childrenReplaced(getAncestorNodes(path));
+            if (filterIndex != null)
+                updateAncestors(path, filterIndex.childrenReplaced(getAncestorNodes(path)));
         }
     }
 
@@ -306,22 +485,80 @@ public class DefaultTreeTableSorter<T extends TreeModel, C extends TreeColumnMod
         NodeSorter sorter = getRowSorter(path.getLastPathComponent());
         if (sorter != null)
             sorter.remove(childNodes, sorters);
+        if (pendingFilterIndex != null)
+            pendingFilterIndex.childrenRemoved(getAncestorNodes(path), childNodes);
+        if (filterIndex != null)
+            updateAncestors(path, filterIndex.childrenRemoved(getAncestorNodes(path), childNodes));
     }
 
     @Override
     public void setVisible(TreePath path, List<TreePath> subPaths, boolean visible) {
         NodeSorter sorter = getRowSorter(path);
-        sorter.setVisible(visible);
         if (visible) {
+            // Mark the newly visible sibling sets first, so that each stale sibling set is sorted once.
+            sorter.visible = true;
             for (TreePath p : subPaths) {
                 NodeSorter s = sorter;
                 for (int idx=path.getPathCount(), count=p.getPathCount(); idx<count; idx++) {
                     Object node = p.getPathComponent(idx);
                     s = s.getChildSorter(node, sorters);
-                    s.setVisible(true);
+                    s.visible = true;
                 }
             }
             sorter.sort(true);
+        } else {
+            sorter.setVisible(false);
+        }
+    }
+
+    /**
+     * The entry used to evaluate the row filter for a node.
+     */
+    private class NodeEntry extends RowFilter.Entry<T,I> {
+
+        NodeEntry(Object node) {
+            this.node = node;
+        }
+
+        private final Object node;
+
+        @Override
+        public T getModel() {
+            return treeModel;
+        }
+
+        @Override
+        public int getValueCount() {
+            return columnModel.getColumnCount();
+        }
+
+        @Override
+        public Object getValue(int index) {
+            return columnModel.getValueAt(node, index);
+        }
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public I getIdentifier() {
+            return (I)node;
+        }
+    }
+
+    /**
+     * The filter used by the node sorters when the row filter retains
+     * ancestors. The row identifiers are the child nodes.
+     */
+    private class IndexFilter extends RowFilter<T,I> {
+
+        IndexFilter(TreeFilterIndex index) {
+            this.index = index;
+        }
+
+        private final TreeFilterIndex index;
+
+        @Override
+        public boolean include(Entry<? extends T, ? extends I> entry) {
+            return index.isRetained(entry.getIdentifier());
         }
     }
 
@@ -348,6 +585,27 @@ public class DefaultTreeTableSorter<T extends TreeModel, C extends TreeColumnMod
 
         private boolean visible;
 
+        /** The generation of the tree sort for which this sibling set was last sorted. */
+        private int sortedGeneration = -1;
+
+        /** Incremented when a sort is requested or the rows change, to detect obsolete results. */
+        private int sortVersion;
+
+        /** The sort being performed on a worker thread, or null. */
+        private SiblingSort pendingSort;
+
+        /** The ranks of the rows, while a result computed on a worker thread is being applied. */
+        private int[] appliedRanks;
+
+        /**
+         * True if the rows are compared using the extracted sort keys. Decided when sorting starts, as that is
+         * when DefaultRowSorter caches the comparators. Not used when there is a row filter, as the filter must
+         * see the column values.
+         */
+        private boolean isKeyCacheActive;
+
+        private Collator collator;
+
         protected Map<Object,NodeSorter> createChildren() {
             return new IdentityHashMap<Object,NodeSorter>(
                     getModel().getChildCount(getNode()));
@@ -385,12 +643,16 @@ public class DefaultTreeTableSorter<T extends TreeModel, C extends TreeColumnMod
 
         @Override
         public Comparator<?> getComparator(int column) {
+            if (appliedRanks != null || isKeyCacheActive && isCollated(column))
+                return COMPARABLE_COMPARATOR;
             Comparator<?> c = super.getComparator(column);
             return c != null ? c : getMaster().getComparator(column);
         }
 
         @Override
         protected boolean useToString(int column) {
+            if (appliedRanks != null || isKeyCacheActive)
+                return false;
             if (super.getComparator(column) != null
                     || getMaster().isComparatorSet(column))
                 return false;
@@ -400,6 +662,35 @@ public class DefaultTreeTableSorter<T extends TreeModel, C extends TreeColumnMod
             return !Comparable.class.isAssignableFrom(columnClass);
         }
 
+        /**
+         * Returns true if the values of the column are compared by the default Collator.
+         */
+        boolean isCollated(int column) {
+            if (super.getComparator(column) != null
+                    || getMaster().isComparatorSet(column))
+                return false;
+            Class<?> columnClass = getColumnModel().getColumnClass(column);
+            return columnClass == String.class || !Comparable.class.isAssignableFrom(columnClass);
+        }
+
+        Collator getCollator() {
+            if (collator == null)
+                collator = Collator.getInstance();
+            return collator;
+        }
+
+        @Override
+        public void setSortKeys(List<? extends SortKey> sortKeys) {
+            getTreeTableModelWrapper().clearKeys();
+            super.setSortKeys(sortKeys);
+        }
+
+        @Override
+        public void sort() {
+            isKeyCacheActive = getRowFilter() == null;
+            super.sort();
+        }
+
         @Override
         public List<? extends SortKey> getSortKeys() {
             List<? extends SortKey> k = super.getSortKeys();
@@ -417,7 +708,7 @@ public class DefaultTreeTableSorter<T extends TreeModel, C extends TreeColumnMod
             RowFilter<? super T, ? super I> f = super.getRowFilter();
             if (f != null)
                 return f;
-            return getMaster().getRowFilter();
+            return getMaster().activeFilter;
         }
 
         @Override
@@ -465,16 +756,195 @@ public class DefaultTreeTableSorter<T extends TreeModel, C extends TreeColumnMod
         void sort(boolean sortChildren) {
             if (!isVisible())
                 return;
+            int generation = getMaster().sortGeneration;
+            if (sortedGeneration != generation) {
+                sortedGeneration = generation;
+                sortSiblings();
+            }
+            if (!sortChildren)
+                return;
+            for (NodeSorter sorter : children.values())
+                sorter.sort(sortChildren);
+        }
+
+        /**
+         * Sorts this sibling set, on a worker thread if it is large.
+         */
+        private void sortSiblings() {
+            sortVersion++;
+            pendingSort = null;
+            getTreeTableModelWrapper().clearKeys();
+            if (getModelWrapper().getRowCount() >= getMaster().getAsyncSortThreshold()
+                    && getRowFilter() == null && SwingUtilities.isEventDispatchThread()) {
+                SiblingSort s = createSiblingSort();
+                if (s != null) {
+                    pendingSort = s;
+                    ForkJoinPool.commonPool().execute(s);
+                    return;
+                }
+            }
+            sortNow();
+        }
+
+        private void sortNow() {
             firePathEvent = false;
             try {
-                super.sort();
+                sort();
             } finally {
                 firePathEvent = true;
             }
-            if (!sortChildren)
+        }
+
+        /**
+         * Captures the values of the sort columns, so that the rows can be ordered on a worker thread.
+         *
+         * @return the sort task, or null if the rows are not sorted or must be sorted on the event dispatch thread
+         */
+        private SiblingSort createSiblingSort() {
+            List<SortKey> keys = new ArrayList<SortKey>();
+            for (SortKey key : getSortKeys()) {
+                if (key.getSortOrder() != SortOrder.UNSORTED)
+                    keys.add(key);
+            }
+            if (keys.isEmpty())
+                return null;
+            for (SortKey key : keys) {
+                if (!isComparatorPrivate(key.getColumn()))
+                    return null;
+            }
+            ModelWrapper<T,I> wrapper = getModelWrapper();
+            int rowCount = wrapper.getRowCount();
+            Object[][] values = new Object[keys.size()][rowCount];
+            Comparator[] comparators = new Comparator[keys.size()];
+            boolean[] descending = new boolean[keys.size()];
+            for (int k = 0; k < keys.size(); k++) {
+                int column = keys.get(k).getColumn();
+                boolean toString = useToString(column);
+                Comparator<?> c = getComparator(column);
+                comparators[k] = c != null ? c : Collator.getInstance();
+                descending[k] = keys.get(k).getSortOrder() == SortOrder.DESCENDING;
+                for (int row = 0; row < rowCount; row++) {
+                    values[k][row] = toString ? wrapper.getStringValueAt(row, column) : wrapper.getValueAt(row, column);
+                }
+            }
+            return new SiblingSort(sortVersion, values, comparators, descending);
+        }
+
+        /**
+         * Determines whether the comparator for a column can be used on a worker thread. A comparator set by the
+         * application is shared with other sibling sets, which may be sorted concurrently, and it may not be thread
+         * safe. The default comparators are stateless or created for each sort.
+         */
+        private boolean isComparatorPrivate(int column) {
+            if (getComparator(column) == COMPARABLE_COMPARATOR)
+                return true;
+            return super.getComparator(column) == null && !getMaster().isComparatorSet(column);
+        }
+
+        /**
+         * Applies the ranks computed on a worker thread. The result is ignored if the sibling set has been sorted
+         * again since the values were captured. If the rows have changed, the result is obsolete and the sibling
+         * set is sorted again.
+         */
+        private void applySort(SiblingSort s, int[] ranks) {
+            if (!isCurrentSort(s))
                 return;
-            for (NodeSorter sorter : children.values())
-                sorter.sort(sortChildren);
+            appliedRanks = ranks;
+            try {
+                sortNow();
+            } finally {
+                appliedRanks = null;
+            }
+            getMaster().sorterChangedLater();
+        }
+
+        /**
+         * Determines whether the result of a sort performed on a worker thread can be applied. If the rows have
+         * changed while the sort was performed, the sibling set is made stale and, if visible, sorted again.
+         */
+        private boolean isCurrentSort(SiblingSort s) {
+            if (s != pendingSort)
+                return false;
+            pendingSort = null;
+            if (s.version == sortVersion && s.values[0].length == getModelWrapper().getRowCount())
+                return true;
+            sortedGeneration = -1;
+            if (isVisible())
+                sort(false);
+            return false;
+        }
+
+        /**
+         * Orders the rows of a sibling set on a worker thread, using values captured on the event dispatch thread.
+         * The comparisons are those made by DefaultRowSorter. The result is a rank for each row, which is applied by
+         * sorting on the ranks on the event dispatch thread. Only comparators that are not shared with other sorts
+         * are used, as comparators may not be thread safe.
+         */
+        private class SiblingSort implements Runnable, Comparator<Integer> {
+
+            SiblingSort(int version, Object[][] values, Comparator[] comparators, boolean[] descending) {
+                this.version = version;
+                this.values = values;
+                this.comparators = comparators;
+                this.descending = descending;
+            }
+
+            private final int version;
+
+            private final Object[][] values;
+
+            private final Comparator[] comparators;
+
+            private final boolean[] descending;
+
+            public void run() {
+                int rowCount = values[0].length;
+                Integer[] order = new Integer[rowCount];
+                for (int row = 0; row < rowCount; row++)
+                    order[row] = row;
+                try {
+                    Arrays.sort(order, this);
+                } catch (RuntimeException ex) {
+                    // Let DefaultRowSorter report the problem
+                    SwingUtilities.invokeLater(new Runnable() {
+                        public void run() {
+                            if (isCurrentSort(SiblingSort.this))
+                                sortNow();
+                        }
+                    });
+                    return;
+                }
+                // DefaultRowSorter reverses the comparison for a descending primary key
+                final int[] ranks = new int[rowCount];
+                for (int pos = 0; pos < rowCount; pos++)
+                    ranks[order[pos]] = descending[0] ? rowCount - pos : pos;
+                SwingUtilities.invokeLater(new Runnable() {
+                    public void run() {
+                        applySort(SiblingSort.this, ranks);
+                    }
+                });
+            }
+
+            @SuppressWarnings("unchecked")
+            public int compare(Integer row1, Integer row2) {
+                for (int k = 0; k < values.length; k++) {
+                    Object v1 = values[k][row1];
+                    Object v2 = values[k][row2];
+                    int result;
+                    if (v1 == null) {
+                        result = v2 == null ? 0 : -1;
+                    } else if (v2 == null) {
+                        result = 1;
+                    } else {
+                        result = comparators[k].compare(v1, v2);
+                    }
+                    if (descending[k])
+                        result = -result;
+                    if (result != 0)
+                        return result;
+                }
+                return row1 - row2;
+            }
         }
 
         @Override
@@ -491,26 +961,55 @@ public class DefaultTreeTableSorter<T extends TreeModel, C extends TreeColumnMod
                     .pathByAddingChild(getNode());
         }
 
+        public void modelStructureChanged() {
+            sortVersion++;
+            getTreeTableModelWrapper().clearKeys();
+            super.modelStructureChanged();
+        }
+
         public void allRowsChanged() {
+            sortVersion++;
             getTreeTableModelWrapper().updateRowCount();
+            getTreeTableModelWrapper().clearKeys();
             super.allRowsChanged();
         }
 
         public void rowsDeleted(int firstRow, int endRow) {
+            sortVersion++;
             getTreeTableModelWrapper().updateRowCount();
+            getTreeTableModelWrapper().deleteKeys(firstRow, endRow);
             super.rowsDeleted(firstRow, endRow);
         }
 
         public void rowsInserted(int firstRow, int endRow) {
+            sortVersion++;
             getTreeTableModelWrapper().updateRowCount();
+            getTreeTableModelWrapper().insertKeys(firstRow, endRow);
             super.rowsInserted(firstRow, endRow);
         }
 
+        public void rowsUpdated(int firstRow, int endRow) {
+            sortVersion++;
+            getTreeTableModelWrapper().invalidateKeys(firstRow, endRow, -1);
+            super.rowsUpdated(firstRow, endRow);
+        }
+
+        public void rowsUpdated(int firstRow, int endRow, int column) {
+            sortVersion++;
+            getTreeTableModelWrapper().invalidateKeys(firstRow, endRow, column);
+            super.rowsUpdated(firstRow, endRow, column);
+        }
+
+        /**
+         * Shows or hides this sibling set. A sibling set that becomes visible is sorted if it is stale.
+         */
         public void setVisible(boolean vis) {
             if (visible != vis) {
                 visible = vis;
                 if (vis)
                     sort(true);
+                else
+                    getTreeTableModelWrapper().clearKeys();
             }
         }
 
@@ -545,6 +1044,14 @@ public class DefaultTreeTableSorter<T extends TreeModel, C extends TreeColumnMod
 
             private int rowCount;
 
+            /**
+             * The sort keys, indexed by column and model row. Each key is extracted from the column value the first
+             * time it is needed, so that comparisons do not call the column model. The keys of a column compared by
+             * the default Collator are collation keys. The keys are retained across the re-sorts caused by changes
+             * to the rows: only the keys of the changed rows are extracted again.
+             */
+            private Object[][] keys;
+
             public Object getNode() {
                 return node;
             }
@@ -583,8 +1090,106 @@ public class DefaultTreeTableSorter<T extends TreeModel, C extends TreeColumnMod
 
             @Override
             public Object getValueAt(int row, int column) {
+                if (appliedRanks != null)
+                    return appliedRanks[row];
+                if (isKeyCacheActive)
+                    return getKey(row, column);
+                return getColumnValueAt(row, column);
+            }
+
+            private Object getColumnValueAt(int row, int column) {
                 return columnModel.getValueAt(treeModel.getChild(node, row), column);
             }
+
+            private Object getKey(int row, int column) {
+                if (keys == null || keys.length != getColumnCount())
+                    keys = new Object[getColumnCount()][];
+                Object[] columnKeys = keys[column];
+                if (columnKeys == null || columnKeys.length != rowCount) {
+                    columnKeys = new Object[rowCount];
+                    Arrays.fill(columnKeys, NO_KEY);
+                    keys[column] = columnKeys;
+                }
+                Object key = columnKeys[row];
+                if (key == NO_KEY) {
+                    key = extractKey(row, column);
+                    columnKeys[row] = key;
+                }
+                return key;
+            }
+
+            private Object extractKey(int row, int column) {
+                Object value = getColumnValueAt(row, column);
+                if (!isCollated(column))
+                    return value;
+                // Match the comparisons made by DefaultRowSorter: a String column may contain null values,
+                // values of other columns are converted to strings.
+                if (value == null && getColumnModel().getColumnClass(column) == String.class)
+                    return null;
+                String s = value == null ? null : value.toString();
+                return getCollator().getCollationKey(s != null ? s : "");
+            }
+
+            void clearKeys() {
+                keys = null;
+            }
+
+            void insertKeys(int firstRow, int endRow) {
+                if (keys == null)
+                    return;
+                int count = endRow - firstRow + 1;
+                for (int column = 0; column < keys.length; column++) {
+                    Object[] columnKeys = keys[column];
+                    if (columnKeys == null)
+                        continue;
+                    if (firstRow > columnKeys.length) {
+                        keys[column] = null;
+                        continue;
+                    }
+                    Object[] k = new Object[columnKeys.length + count];
+                    System.arraycopy(columnKeys, 0, k, 0, firstRow);
+                    Arrays.fill(k, firstRow, firstRow + count, NO_KEY);
+                    System.arraycopy(columnKeys, firstRow, k, firstRow + count, columnKeys.length - firstRow);
+                    keys[column] = k;
+                }
+            }
+
+            void deleteKeys(int firstRow, int endRow) {
+                if (keys == null)
+                    return;
+                int count = endRow - firstRow + 1;
+                for (int column = 0; column < keys.length; column++) {
+                    Object[] columnKeys = keys[column];
+                    if (columnKeys == null)
+                        continue;
+                    if (endRow >= columnKeys.length) {
+                        keys[column] = null;
+                        continue;
+                    }
+                    Object[] k = new Object[columnKeys.length - count];
+                    System.arraycopy(columnKeys, 0, k, 0, firstRow);
+                    System.arraycopy(columnKeys, endRow + 1, k, firstRow, columnKeys.length - endRow - 1);
+                    keys[column] = k;
+                }
+            }
+
+            /**
+             * Discards the keys of updated rows.
+             * @param column the updated column, or -1 if all columns may have been updated
+             */
+            void invalidateKeys(int firstRow, int endRow, int column) {
+                if (keys == null)
+                    return;
+                for (int c = 0; c < keys.length; c++) {
+                    Object[] columnKeys = keys[c];
+                    if (columnKeys == null || column >= 0 && c != column)
+                        continue;
+                    if (endRow >= columnKeys.length)
+                        keys[c] = null;
+                    else
+                        Arrays.fill(columnKeys, firstRow, endRow + 1, NO_KEY);
+                }
+            }
         }
     }
 }
@@ -0,0 +1,417 @@
+/*
+ *    This program is free software: you can redistribute it and/or modify
+ *    it under the terms of the GNU Lesser General Public License as published
+ *    by the Free Software Foundation, either version 3 of the License, or
+ *    (at your option) any later version.
+ *
+ *    This program is distributed in the hope that it will be useful,
+ *    but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *    GNU Lesser General Public License for more details.
+ *
+ *    You should have received a copy of the GNU Lesser General Public License
+ *    along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package org.violetlib.treetable;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.IdentityHashMap;
+import java.util.List;
+
+import javax.swing.SwingUtilities;
+import javax.swing.tree.TreeModel;
+
+/**
+ * An index of the nodes retained by a hierarchical filter: the nodes that match
+ * the filter and the ancestors of those nodes.
+ * <p>
+ * The index is built by one bottom-up pass over the tree. As tree models are
+ * confined to the event dispatch thread, the pass is performed on that thread
+ * in short time slices, so that the user interface remains responsive while a
+ * large tree is evaluated. A pass can be cancelled, for example when the filter
+ * is replaced. Once built, the index is updated incrementally as nodes are
+ * inserted, changed, and removed.
+ * <p>
+ * The pass visits the children of each node as they were when the node was
+ * reached, so that changes to the tree do not disturb the traversal. Changes
+ * reported while the pass is in progress are recorded and applied when the
+ * pass completes. The updates do not depend on whether the pass has already
+ * visited the changed nodes.
+ * <p>
+ * For each retained node, the index records its parent, whether the node
+ * matches, and how many of its children are retained. A node that is not
+ * retained has no entry.
+ */
+class TreeFilterIndex {
+
+    interface Matcher {
+        boolean matches(Object node);
+    }
+
+    private static final long SLICE_NANOS = 8000000;
+
+    private static class Info {
+        Object parent;
+        boolean matches;
+        int retainedChildCount;
+    }
+
+    private static class Frame {
+        Frame(Object node, Object parent, Object[] children) {
+            this.node = node;
+            this.parent = parent;
+            this.children = children;
+        }
+
+        final Object node;
+
+        final Object parent;
+
+        final Object[] children;
+
+        int nextChild;
+
+        int retainedChildCount;
+    }
+
+    TreeFilterIndex(TreeModel model, Matcher matcher) {
+        this.model = model;
+        this.matcher = matcher;
+    }
+
+    private final TreeModel model;
+
+    private final Matcher matcher;
+
+    private final IdentityHashMap<Object,Info> retained = new IdentityHashMap<Object,Info>();
+
+    private static final int INSERTED = 0;
+    private static final int CHANGED = 1;
+    private static final int REMOVED = 2;
+    private static final int REPLACED = 3;
+
+    /** A change to the tree reported while the pass is in progress. */
+    private static class Change {
+        Change(int kind, List<Object> ancestors, Object[] children) {
+            this.kind = kind;
+            this.ancestors = ancestors;
+            this.children = children;
+        }
+
+        final int kind;
+
+        final List<Object> ancestors;
+
+        final Object[] children;
+    }
+
+    /** The traversal state of the pass, while the pass is in progress. */
+    private ArrayDeque<Frame> pass;
+
+    /** The changes to be applied when the pass completes. */
+    private List<Change> deferredChanges = new ArrayList<Change>();
+
+    private boolean isCancelled;
+
+    /**
+     * Starts the pass over the tree. The completion is run on the event
+     * dispatch thread when the pass completes, unless it is cancelled.
+     */
+    void build(final Runnable completion) {
+        Object root = model.getRoot();
+        pass = new ArrayDeque<Frame>();
+        if (root != null)
+            pass.push(createFrame(root, null));
+        SwingUtilities.invokeLater(new Runnable() {
+            public void run() {
+                if (isCancelled)
+                    return;
+                if (runSlice()) {
+                    pass = null;
+                    applyDeferredChanges();
+                    completion.run();
+                } else {
+                    SwingUtilities.invokeLater(this);
+                }
+            }
+        });
+    }
+
+    void cancel() {
+        isCancelled = true;
+        pass = null;
+        deferredChanges.clear();
+    }
+
+    private Frame createFrame(Object node, Object parent) {
+        Object[] children = new Object[model.getChildCount(node)];
+        for (int idx = 0; idx < children.length; idx++)
+            children[idx] = model.getChild(node, idx);
+        return new Frame(node, parent, children);
+    }
+
+    /**
+     * Records a change reported while the pass is in progress.
+     *
+     * @return true if the change has been recorded
+     */
+    private boolean defer(int kind, List<Object> ancestors, Object[] children) {
+        if (pass == null)
+            return false;
+        deferredChanges.add(new Change(kind, ancestors, children));
+        return true;
+    }
+
+    private void applyDeferredChanges() {
+        List<Change> changes = deferredChanges;
+        deferredChanges = new ArrayList<Change>();
+        for (Change c : changes) {
+            switch (c.kind) {
+                case INSERTED:
+                    childrenInserted(c.ancestors, c.children);
+                    break;
+                case CHANGED:
+                    childrenChanged(c.ancestors, c.children);
+                    break;
+                case REMOVED:
+                    childrenRemoved(c.ancestors, c.children);
+                    break;
+                default:
+                    childrenReplaced(c.ancestors);
+            }
+        }
+    }
+
+    boolean isRetained(Object node) {
+        return retained.containsKey(node);
+    }
+
+    /**
+     * Continues the pass until it completes or the time slice is used.
+     *
+     * @return true if the pass is complete
+     */
+    private boolean runSlice() {
+        long deadline = System.nanoTime() + SLICE_NANOS;
+        int count = 0;
+        while (!pass.isEmpty()) {
+            if ((++count & 0xFF) == 0 && System.nanoTime() > deadline)
+                return false;
+            step(pass);
+        }
+        return true;
+    }
+
+    /**
+     * Performs one step of a post-order traversal: evaluates the next child of
+     * the current node, or, if its children are done, the node itself.
+     *
+     * @return the retention of the node that was completed, or null if no node
+     *         with children was completed
+     */
+    private Boolean step(ArrayDeque<Frame> stack) {
+        Frame f = stack.peek();
+        if (f.nextChild < f.children.length) {
+            Object child = f.children[f.nextChild++];
+            if (model.isLeaf(child)) {
+                if (update(child, f.node, matcher.matches(child), 0))
+                    f.retainedChildCount++;
+            } else {
+                stack.push(createFrame(child, f.node));
+            }
+            return null;
+        }
+        stack.pop();
+        boolean isRetained = update(f.node, f.parent, matcher.matches(f.node), f.retainedChildCount);
+        Frame parent = stack.peek();
+        if (isRetained && parent != null)
+            parent.retainedChildCount++;
+        return isRetained;
+    }
+
+    /**
+     * Evaluates a subtree immediately.
+     *
+     * @return true if the root of the subtree is retained
+     */
+    private boolean evaluateSubtree(Object node, Object parent) {
+        if (model.isLeaf(node))
+            return update(node, parent, matcher.matches(node), 0);
+        ArrayDeque<Frame> stack = new ArrayDeque<Frame>();
+        stack.push(createFrame(node, parent));
+        Boolean isRetained = null;
+        while (!stack.isEmpty())
+            isRetained = step(stack);
+        return isRetained;
+    }
+
+    private void removeSubtree(Object node) {
+        ArrayDeque<Object> stack = new ArrayDeque<Object>();
+        stack.push(node);
+        while (!stack.isEmpty()) {
+            Object n = stack.pop();
+            // descendants of a node that is not retained are not retained
+            if (retained.remove(n) != null) {
+                for (int i = 0, count = model.getChildCount(n); i < count; i++)
+                    stack.push(model.getChild(n, i));
+            }
+        }
+    }
+
+    /**
+     * Discards the entries of the descendants of a node. The descendants are
+     * found using the recorded parents, as the children of the node may have
+     * been replaced already.
+     */
+    private void removeDescendants(Object node) {
+        IdentityHashMap<Object,Boolean> isDescendant = new IdentityHashMap<Object,Boolean>();
+        isDescendant.put(node, Boolean.TRUE);
+        List<Object> descendants = new ArrayList<Object>();
+        List<Object> chain = new ArrayList<Object>();
+        for (Object n : retained.keySet()) {
+            if (n == node)
+                continue;
+            // Walk up until an ancestor whose status is known is found
+            chain.clear();
+            Object a = n;
+            Boolean known = null;
+            while (a != null && (known = isDescendant.get(a)) == null) {
+                chain.add(a);
+                Info i = retained.get(a);
+                a = i != null ? i.parent : null;
+            }
+            boolean result = known != null && known;
+            for (Object c : chain)
+                isDescendant.put(c, result);
+            if (result)
+                descendants.add(n);
+        }
+        for (Object n : descendants)
+            retained.remove(n);
+    }
+
+    private boolean update(Object node, Object parent, boolean matches, int retainedChildCount) {
+        if (!matches && retainedChildCount == 0) {
+            retained.remove(node);
+            return false;
+        }
+        Info i = retained.get(node);
+        if (i == null) {
+            i = new Info();
+            retained.put(node, i);
+        }
+        i.parent = parent;
+        i.matches = matches;
+        i.retainedChildCount = retainedChildCount;
+        return true;
+    }
+
+    /**
+     * Changes the number of retained children of a node, and updates the
+     * ancestors of the node if its retention changes.
+     *
+     * @param ancestors a node followed by its ancestors
+     * @return the number of nodes, starting with the first, whose retention changed
+     */
+    private int propagate(List<Object> ancestors, int delta) {
+        int k = 0;
+        for (; k < ancestors.size() && delta != 0; k++) {
+            Object node = ancestors.get(k);
+            Info i = retained.get(node);
+            boolean wasRetained = i != null;
+            int count = (i != null ? i.retainedChildCount : 0) + delta;
+            Object parent = k + 1 < ancestors.size() ? ancestors.get(k + 1) : null;
+            boolean isRetained = update(node, parent, i != null && i.matches, count);
+            if (isRetained == wasRetained)
+                return k;
+            delta = isRetained ? 1 : -1;
+        }
+        return k;
+    }
+
+    /**
+     * Evaluates inserted children, including their descendants. Children that
+     * already have an entry, because the pass visited them, are not counted
+     * again.
+     *
+     * @param ancestors the parent of the children, followed by its ancestors
+     * @return the number of ancestors, starting with the parent, whose retention changed
+     */
+    int childrenInserted(List<Object> ancestors, Object[] children) {
+        if (defer(INSERTED, ancestors, children))
+            return 0;
+        Object parent = ancestors.get(0);
+        int delta = 0;
+        for (Object child : children) {
+            boolean wasRetained = retained.containsKey(child);
+            boolean isRetained = evaluateSubtree(child, parent);
+            if (isRetained != wasRetained)
+                delta += isRetained ? 1 : -1;
+        }
+        return propagate(ancestors, delta);
+    }
+
+    /**
+     * Evaluates changed children. Their descendants are not evaluated.
+     *
+     * @param ancestors the parent of the children, followed by its ancestors
+     * @return the number of ancestors, starting with the parent, whose retention changed
+     */
+    int childrenChanged(List<Object> ancestors, Object[] children) {
+        if (defer(CHANGED, ancestors, children))
+            return 0;
+        Object parent = ancestors.get(0);
+        int delta = 0;
+        for (Object child : children) {
+            Info i = retained.get(child);
+            boolean wasRetained = i != null;
+            boolean isRetained = update(child, parent, matcher.matches(child), i != null ? i.retainedChildCount : 0);
+            if (isRetained != wasRetained)
+                delta += isRetained ? 1 : -1;
+        }
+        return propagate(ancestors, delta);
+    }
+
+    /**
+     * Discards removed children. The retained children of the parent are
+     * counted again, as the rows of the parent may have been replaced already.
+     *
+     * @param ancestors the parent of the children, followed by its ancestors
+     * @return the number of ancestors, starting with the parent, whose retention changed
+     */
+    int childrenRemoved(List<Object> ancestors, Object[] children) {
+        if (defer(REMOVED, ancestors, children))
+            return 0;
+        for (Object child : children)
+            removeSubtree(child);
+        Object parent = ancestors.get(0);
+        int count = 0;
+        for (int idx = 0, n = model.getChildCount(parent); idx < n; idx++) {
+            if (retained.containsKey(model.getChild(parent, idx)))
+                count++;
+        }
+        Info i = retained.get(parent);
+        return propagate(ancestors, count - (i != null ? i.retainedChildCount : 0));
+    }
+
+    /**
+     * Evaluates a node whose children have been replaced, including its
+     * descendants. The entries of the replaced children and their descendants
+     * are discarded first.
+     *
+     * @param ancestors the node followed by its ancestors
+     * @return the number of nodes, starting with the node, whose retention changed
+     */
+    int childrenReplaced(List<Object> ancestors) {
+        if (defer(REPLACED, ancestors, null))
+            return 0;
+        Object node = ancestors.get(0);
+        boolean wasRetained = retained.containsKey(node);
+        removeDescendants(node);
+        boolean isRetained = evaluateSubtree(node, ancestors.size() > 1 ? ancestors.get(1) : null);
+        if (isRetained == wasRetained)
+            return 0;
+        return 1 + propagate(ancestors.subList(1, ancestors.size()), isRetained ? 1 : -1);
+    }
+}
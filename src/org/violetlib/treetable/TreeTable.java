@@ -68,6 +68,13 @@ public class TreeTable extends JComponent implements Scrollable {
 
     private TreeInterface tree;
 
+    /** The paths of the rows being painted, obtained when first needed. */
+    private TreePath[] paintedRowPaths;
+
+    private int firstPaintedRow;
+
+    private int paintDepth;
+
     private TableInterface table;
 
     private TableColumnModel columnModel;
@@ -1173,9 +1180,39 @@ public class TreeTable extends JComponent implements Scrollable {
     }
 
     public TreePath getPathForRow(int row) {
+        TreePath[] paths = paintedRowPaths;
+        if (paths != null) {
+            int i = row - firstPaintedRow;
+            if (i >= 0 && i < paths.length) {
+                TreePath path = paths[i];
+                if (path == null) {
+                    path = tree.getPathForRow(row);
+                    paths[i] = path;
+                }
+                return path;
+            }
+        }
         return tree.getPathForRow(row);
     }
 
+    /**
+     * Called by the UI before the specified rows are painted. Until painting
+     * ends, the path of each row is obtained from the tree once, rather than
+     * once for each cell of the row. The cached paths are discarded if the
+     * rows change.
+     */
+    public void startPaintingRows(int firstRow, int lastRow) {
+        if (paintDepth++ == 0 && firstRow >= 0 && lastRow >= firstRow) {
+            firstPaintedRow = firstRow;
+            paintedRowPaths = new TreePath[lastRow - firstRow + 1];
+        }
+    }
+
+    public void stopPaintingRows() {
+        if (--paintDepth == 0)
+            paintedRowPaths = null;
+    }
+
     public Rectangle getRowBounds(int row) {
         return getPathBounds(getPathForRow(row));
     }
@@ -1691,6 +1728,12 @@ public class TreeTable extends JComponent implements Scrollable {
             return treeColumnModel.isCellEditable(getNode(row), column);
         }
 
+        @Override
+        public void fireTableChanged(TableModelEvent e) {
+            paintedRowPaths = null;
+            super.fireTableChanged(e);
+        }
+
         @Override
         public void fireTableStructureChanged() {
             super.fireTableStructureChanged();
@@ -1851,6 +1894,7 @@ public class TreeTable extends JComponent implements Scrollable {
 
         private void processTreeNodesChanged(TreePath path, int[] childIndices, Object[] childNodes) {
             if (rowSorter != null) {
+                rowSorter.nodesChanged(path, childNodes);
                 RowSorter<?> sorter = rowSorter.getRowSorter(path.getLastPathComponent());
                 if (sorter != null) {
                     boolean isc = ignoreSortedChange;
@@ -1897,6 +1941,7 @@ public class TreeTable extends JComponent implements Scrollable {
 
         private void processTreeNodesInserted(TreePath path, int[] childIndices, Object[] childNodes) {
             if (rowSorter != null) {
+                rowSorter.nodesInserted(path, childNodes);
                 RowSorter<?> sorter = rowSorter.getRowSorter(path.getLastPathComponent());
                 if (sorter != null) {
                     boolean isc = ignoreSortedChange;
@@ -1956,6 +2001,7 @@ public class TreeTable extends JComponent implements Scrollable {
                     rowSorter.nodesRemoved(path, childNodes);
                     return;
                 }
+                rowSorter.nodesRemoved(path, childNodes);
             }
             fireTreeNodesRemoved(path, childIndices, childNodes);
         }
@@ -2343,23 +2389,27 @@ public class TreeTable extends JComponent implements Scrollable {
 
         protected void fireTreeNodesChanged(TreePath path,
                 int[] childIndices, Object[] childNodes) {
+            paintedRowPaths = null;
             AbstractTreeModel.fireNodesChanged(listenerList,
                     this, path, childIndices, childNodes);
         }
 
         protected void fireTreeNodesInserted(TreePath path,
                 int[] childIndices, Object[] childNodes) {
+            paintedRowPaths = null;
             AbstractTreeModel.fireNodesInserted(listenerList,
                     this, path, childIndices, childNodes);
         }
 
         protected void fireTreeNodesRemoved(TreePath path,
                 int[] childIndices, Object[] childNodes) {
+            paintedRowPaths = null;
             AbstractTreeModel.fireNodesRemoved(listenerList,
                     this, path, childIndices, childNodes);
         }
 
         protected void fireTreeStructureChanged(TreePath path) {
+            paintedRowPaths = null;
             AbstractTreeModel.fireTreeStructureChanged(listenerList, this, path);
         }
 
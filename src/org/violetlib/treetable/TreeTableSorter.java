@@ -57,8 +57,28 @@ public interface TreeTableSorter<T extends TreeModel, C extends TreeColumnModel>
 
     void structureChanged(TreePath path, boolean newRoot);
 
+    /**
+     * Called when nodes are removed from the tree model, whether or not
+     * the parent has a row sorter.
+     */
     void nodesRemoved(TreePath path, Object[] childNodes);
 
+    /**
+     * Called when nodes are inserted in the tree model, before the row
+     * sorter of the parent, if any, is updated. The row sorter of the
+     * parent may not exist, as the parent may never have been expanded.
+     */
+    default void nodesInserted(TreePath path, Object[] childNodes) {
+    }
+
+    /**
+     * Called when nodes are changed in the tree model, before the row
+     * sorter of the parent, if any, is updated. The row sorter of the
+     * parent may not exist, as the parent may never have been expanded.
+     */
+    default void nodesChanged(TreePath path, Object[] childNodes) {
+    }
+
     interface SortCycle {
 
         void setSortCycle(List<SortOrder> cycle);
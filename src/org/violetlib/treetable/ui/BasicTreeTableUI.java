@@ -378,6 +378,7 @@ public class BasicTreeTableUI extends TreeTableUI {
 
     @Override
     public void paint(Graphics g, JComponent c) {
+        startPaintingRows(g);
         try {
             paintTable(g);
             if (treeTable.getRowCount() > 0) {
@@ -392,9 +393,26 @@ public class BasicTreeTableUI extends TreeTableUI {
             }
         } finally {
             treeTableCellRenderer.clearState();
+            treeTable.stopPaintingRows();
         }
     }
 
+    private void startPaintingRows(Graphics g) {
+        int firstRow = -1;
+        int lastRow = -1;
+        Rectangle clip = g.getClipBounds();
+        int rowCount = treeTable.getRowCount();
+        if (clip != null && rowCount > 0) {
+            firstRow = table.rowAtPoint(new Point(0, clip.y));
+            lastRow = table.rowAtPoint(new Point(0, clip.y + clip.height - 1));
+            if (firstRow < 0)
+                firstRow = 0;
+            if (lastRow < 0)
+                lastRow = rowCount - 1;
+        }
+        treeTable.startPaintingRows(firstRow, lastRow);
+    }
+
     protected void paintTable(Graphics g) {
         treeTableCellRenderer.prepareForTable(g);
         Graphics cg = g.create(0, 0, treeTable.getWidth(), treeTable.getHeight());
@@ -581,7 +599,7 @@ public class BasicTreeTableUI extends TreeTableUI {
         TreeTableCellRenderer r = treeTable.getCellRenderer(row, col);
         Object value = treeTable.getValueAt(row, col);
         if (col == treeTable.getHierarchicalColumn()) {
-            TreePath path = tree.getPathForRow(row);
+            TreePath path = treeTable.getPathForRow(row);
             return r.getTreeTableCellRendererComponent(
                     treeTable, value, sel, foc, row, col,
                     treeTable.isExpanded(path), treeTable.isLeaf(path));
@@ -2206,7 +2224,7 @@ public class BasicTreeTableUI extends TreeTableUI {
             Component c;
             boolean treeColumn = column == treeTable.getHierarchicalColumn();
             if (treeColumn) {
-                TreePath path = tree.getPathForRow(row);
+                TreePath path = treeTable.getPathForRow(row);
                 boolean expanded = tree.isExpanded(path);
                 boolean leaf = treeTable.isLeaf(path);
                 c = treeTableEditor.getTreeTableCellEditorComponent(